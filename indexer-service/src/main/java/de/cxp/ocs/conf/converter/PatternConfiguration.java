@@ -39,7 +39,7 @@ public class PatternConfiguration implements ConfigureableField {
 	private final Pattern	pattern;
 
 	@NonNull
-	private String		wordSplitRegEx		= "\\s+";
+	private Pattern		wordSplitPattern	= Pattern.compile("\\s+");
 	@NonNull
 	private Character	wordJoinSeparator	= ' ';
 
@@ -2,6 +2,7 @@ package de.cxp.ocs.conf.converter;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import de.cxp.ocs.preprocessor.impl.SplitValueDataProcessor;
 import lombok.Data;
@@ -40,7 +41,7 @@ public class SplitValueConfiguration implements ConfigureableField {
 
 	private final String	fieldName;
 	private final boolean	keepOriginal;
-	private final String	regEx;
+	private final Pattern	splitPattern;
 
 	private Map<Integer, String> indexToDestinationFieldName = new HashMap<>();
 
@@ -1,5 +1,6 @@
 package de.cxp.ocs.controller;
 
+import java.io.InputStream;
 import java.util.concurrent.ExecutionException;
 
 import org.slf4j.MDC;
@@ -14,9 +15,13 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import de.cxp.ocs.api.indexer.ImportSession;
 import de.cxp.ocs.indexer.AbstractIndexer;
 import de.cxp.ocs.model.index.BulkImportData;
+import de.cxp.ocs.model.index.Document;
 import lombok.extern.slf4j.Slf4j;
 
 @RestController
@@ -33,6 +38,9 @@ public class FullIndexationController {
 	@Autowired
 	private IndexerCache indexerManager;
 
+	@Autowired
+	private ObjectMapper objectMapper;
+
 	@GetMapping("/start/{indexName}")
 	public ResponseEntity<?> startImport(@PathVariable("indexName") String indexName, @RequestParam("locale") String locale) {
 		if (indexName == null || indexName.isEmpty()) return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
@@ -86,6 +94,44 @@ public class FullIndexationController {
 		}
 	}
 
+	/**
+	 * Add products to import into current session, but other than
+	 * {@link #add(BulkImportData)} the documents are streamed as
+	 * newline-delimited JSON (one document per line). They are parsed and
+	 * indexed while the request is read, so the request size is not limited
+	 * by the available memory.
+	 * 
+	 * @param finalIndexName
+	 *        final index name of the ImportSession
+	 * @param temporaryIndexName
+	 *        temporary index name of the ImportSession
+	 * @param documents
+	 *        request body with the documents
+	 * @return amount of indexed documents
+	 * @throws Exception
+	 */
+	@PostMapping(path = "/add-stream", consumes = { "application/x-ndjson", "application/json" })
+	public ResponseEntity<Integer> addStream(
+			@RequestParam("finalIndexName") String finalIndexName,
+			@RequestParam("temporaryIndexName") String temporaryIndexName,
+			InputStream documents) throws Exception {
+		ImportSession session = new ImportSession(finalIndexName, temporaryIndexName);
+
+		MDC.put("index", finalIndexName);
+		try (MappingIterator<Document> documentIterator = objectMapper.readerFor(Document.class).readValues(documents)) {
+			AbstractIndexer indexer = indexerManager.getIndexer(finalIndexName);
+			if (!indexer.isImportRunning(temporaryIndexName)) {
+				log.warn("Tried to add documents int an index that is not expecting bulk imports: {}", temporaryIndexName);
+				return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(0);
+			}
+			int successCount = indexer.add(session, documentIterator);
+			return ResponseEntity.ok().body(successCount);
+		}
+		finally {
+			MDC.remove("index");
+		}
+	}
+
 	@PostMapping("/done")
 	public ResponseEntity<Boolean> done(@RequestBody ImportSession session) throws Exception {
 		AbstractIndexer indexer = indexerManager.getIndexer(session.getFinalIndexName());
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.elasticsearch.ElasticsearchStatusException;
 import org.springframework.http.HttpStatus;
@@ -12,6 +13,9 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -28,6 +32,18 @@ public class IndexationExceptionHandler extends ResponseEntityExceptionHandler {
 				HttpStatus.INTERNAL_SERVER_ERROR);
 	}
 
+	@ExceptionHandler({ JsonProcessingException.class, RuntimeJsonMappingException.class })
+	public ResponseEntity<String> handleInvalidDocuments(Exception e) {
+		log.warn("received invalid document data: {}", e.getMessage());
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+	}
+
+	@ExceptionHandler({ RejectedExecutionException.class })
+	public ResponseEntity<String> handleRejectedRequests(RejectedExecutionException e) {
+		log.warn("rejected request: {}", e.getMessage());
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
+	}
+
 	@ExceptionHandler({ ElasticsearchStatusException.class })
 	public ResponseEntity<String> handleElasticsearchStatusExceptions(ElasticsearchStatusException e) {
 		return ResponseEntity.status(e.status().getStatus()).body(e.toString());
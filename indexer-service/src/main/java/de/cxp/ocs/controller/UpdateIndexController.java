@@ -1,6 +1,5 @@
 package de.cxp.ocs.controller;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
@@ -28,17 +27,33 @@ public class UpdateIndexController implements UpdateIndexService {
 	@Autowired
 	private IndexerCache indexerManager;
 
-	@PatchMapping
 	@Override
-	public Map<String, Result> patchDocuments(@PathVariable("indexName") String indexName, @RequestBody List<Document> documents) {
+	public Map<String, Result> patchDocuments(String indexName, List<Document> documents) {
+		return patchDocuments(indexName, true, documents);
+	}
+
+	/**
+	 * Same as {@link #patchDocuments(String, List)}, but if patch coalescing is
+	 * enabled for that index, the response can be returned as soon as the
+	 * patches are queued.
+	 * 
+	 * @param indexName
+	 *        index name
+	 * @param waitForFlush
+	 *        set to false to return as soon as the patches are queued
+	 * @param documents
+	 *        patch documents
+	 * @return result per document id
+	 */
+	@PatchMapping
+	public Map<String, Result> patchDocuments(
+			@PathVariable("indexName") String indexName,
+			@RequestParam(name = "waitForFlush", defaultValue = "true") boolean waitForFlush,
+			@RequestBody List<Document> documents) {
 		MDC.put("index", indexName);
 		try {
-			Map<String, Result> response = new HashMap<>(documents.size());
-			for (Document doc : documents) {
-				response.put(doc.id, indexerManager.getIndexer(indexName)
-						.patchDocument(indexName, doc));
-			}
-			return response;
+			return indexerManager.getIndexer(indexName)
+					.patchDocuments(indexName, documents, waitForFlush);
 		}
 		catch (ExecutionException e) {
 			log.error("failed to get indexer", e);
@@ -0,0 +1,60 @@
+package de.cxp.ocs.elasticsearch;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maximum size in bytes of a bulk request. It's reduced if Elasticsearch
+ * rejects a bulk as too large and grows back with each successful bulk, but
+ * only up to 3/4 of the smallest rejected bulk. One instance is shared by all
+ * bulks of an import session, so that the reduced size is kept across several
+ * add-requests.
+ */
+public class AdaptiveBulkSize {
+
+	final static long MIN_BULK_SIZE_BYTES = 64 * 1024;
+
+	private final long maxBytes;
+
+	private final AtomicLong currentBytes;
+
+	private final AtomicLong smallestRejectedBytes = new AtomicLong(Long.MAX_VALUE);
+
+	/**
+	 * @param maxBytes
+	 *        configured maximum bulk size, that is never exceeded
+	 */
+	public AdaptiveBulkSize(long maxBytes) {
+		this.maxBytes = Math.max(MIN_BULK_SIZE_BYTES, maxBytes);
+		currentBytes = new AtomicLong(this.maxBytes);
+	}
+
+	/**
+	 * @return current maximum bulk size in bytes
+	 */
+	public long get() {
+		return currentBytes.get();
+	}
+
+	/**
+	 * Reduces the bulk size to the half of the rejected bulk, but not below
+	 * 64KB. The bulk size won't grow beyond 3/4 of that rejected size
+	 * anymore.
+	 *
+	 * @param rejectedBulkBytes
+	 *        size of the bulk that was rejected as too large
+	 * @return reduced bulk size
+	 */
+	long reduce(long rejectedBulkBytes) {
+		smallestRejectedBytes.accumulateAndGet(rejectedBulkBytes, Math::min);
+		return currentBytes.updateAndGet(size -> Math.max(MIN_BULK_SIZE_BYTES, Math.min(size, rejectedBulkBytes) / 2));
+	}
+
+	/**
+	 * Grows the bulk size by 25%, but not above the configured maximum and
+	 * the sizes that were rejected before.
+	 */
+	void grow() {
+		long limit = Math.max(MIN_BULK_SIZE_BYTES, Math.min(maxBytes, smallestRejectedBytes.get() / 4 * 3));
+		currentBytes.updateAndGet(size -> Math.max(size, Math.min(limit, size + size / 4)));
+	}
+}
@@ -0,0 +1,281 @@
+package de.cxp.ocs.elasticsearch;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.rest.RestStatus;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Collects write requests into bulks and sends them asynchronously, so that
+ * the next bulk can already be built while former bulks are processed by
+ * Elasticsearch. It's similar to the Elasticsearch BulkProcessor, but with
+ * adaptive bulk sizes:
+ * </p>
+ * <ul>
+ * <li>A bulk is sent as soon as its estimated size reaches the current maximum
+ * bulk size (in bytes).</li>
+ * <li>At most 'maxConcurrentBulks' requests are in flight. Adding further
+ * requests blocks until one of them is done (backpressure).</li>
+ * <li>Items that are rejected with status 429 (too many requests) are retried
+ * with exponential backoff. The same is done for completely rejected
+ * bulks.</li>
+ * <li>If Elasticsearch rejects a bulk because it's too large (circuit breaker
+ * "Data too large"), the bulk is split in half and the maximum bulk size is
+ * reduced. With each successful bulk it grows back up to the configured
+ * size. The {@link AdaptiveBulkSize} can be shared by several pipelines, e.g.
+ * for all add-requests of an import session.</li>
+ * </ul>
+ * <p>
+ * A pipeline instance is not thread-safe and meant to be used for a single
+ * stream of requests, which ends with {@link #finish()}.
+ * </p>
+ */
+@Slf4j
+class BulkIndexPipeline {
+
+	private final static int MAX_RETRIES = 8;
+
+	private final static TimeValue INITIAL_BACKOFF = TimeValue.timeValueMillis(100);
+
+	private final static ScheduledExecutorService retryScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+			.setNameFormat("bulk-retry-%d")
+			.setDaemon(true)
+			.build());
+
+	private final BiConsumer<BulkRequest, ActionListener<BulkResponse>> bulkConsumer;
+
+	private final int maxConcurrentBulks;
+
+	private final Semaphore inFlightBulks;
+
+	private final AdaptiveBulkSize bulkSize;
+
+	private final AtomicInteger successCount = new AtomicInteger();
+
+	private final AtomicInteger failureCount = new AtomicInteger();
+
+	private final AtomicReference<Exception> fatalFailure = new AtomicReference<>();
+
+	private BulkRequest currentBulk = new BulkRequest();
+
+	/**
+	 * @param bulkConsumer
+	 *        function that sends the bulk asynchronously, e.g.
+	 *        <code>(req, listener) -&gt; client.bulkAsync(req, RequestOptions.DEFAULT, listener)</code>
+	 * @param maxBulkSizeBytes
+	 *        a bulk is sent as soon as it reaches that size
+	 * @param maxConcurrentBulks
+	 *        maximum amount of bulks that are processed at the same time
+	 */
+	BulkIndexPipeline(BiConsumer<BulkRequest, ActionListener<BulkResponse>> bulkConsumer, long maxBulkSizeBytes, int maxConcurrentBulks) {
+		this(bulkConsumer, new AdaptiveBulkSize(maxBulkSizeBytes), maxConcurrentBulks);
+	}
+
+	/**
+	 * @param bulkConsumer
+	 *        function that sends the bulk asynchronously
+	 * @param bulkSize
+	 *        maximum bulk size, that is adapted by this pipeline
+	 * @param maxConcurrentBulks
+	 *        maximum amount of bulks that are processed at the same time
+	 */
+	BulkIndexPipeline(BiConsumer<BulkRequest, ActionListener<BulkResponse>> bulkConsumer, AdaptiveBulkSize bulkSize, int maxConcurrentBulks) {
+		this.bulkConsumer = bulkConsumer;
+		this.bulkSize = bulkSize;
+		this.maxConcurrentBulks = Math.max(1, maxConcurrentBulks);
+		inFlightBulks = new Semaphore(this.maxConcurrentBulks);
+	}
+
+	/**
+	 * Adds the request to the current bulk. If the bulk is full, it's sent,
+	 * which may block until another bulk is done.
+	 *
+	 * @param request
+	 *        write request
+	 * @throws InterruptedException
+	 *         if interrupted while waiting for a free slot
+	 */
+	void add(DocWriteRequest<?> request) throws InterruptedException {
+		currentBulk.add(request);
+		if (currentBulk.estimatedSizeInBytes() >= bulkSize.get()) {
+			flush();
+		}
+	}
+
+	private void flush() throws InterruptedException {
+		if (currentBulk.numberOfActions() == 0) return;
+		BulkRequest bulk = currentBulk;
+		currentBulk = new BulkRequest();
+		inFlightBulks.acquire();
+		new BulkTask(bulk, new InFlightSlot(), newBackoff()).send();
+	}
+
+	private static Iterator<TimeValue> newBackoff() {
+		return BackoffPolicy.exponentialBackoff(INITIAL_BACKOFF, MAX_RETRIES).iterator();
+	}
+
+	/**
+	 * Sends the remaining requests and waits until all bulks are done.
+	 *
+	 * @return amount of successful processed requests
+	 * @throws IOException
+	 *         if a bulk failed completely and could not be retried
+	 */
+	int finish() throws IOException {
+		try {
+			flush();
+			inFlightBulks.acquire(maxConcurrentBulks);
+			inFlightBulks.release(maxConcurrentBulks);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while waiting for bulk requests", e);
+		}
+		if (failureCount.get() > 0) {
+			log.warn("{} bulk insertions failed. {} successes", failureCount.get(), successCount.get());
+		}
+		Exception failure = fatalFailure.get();
+		if (failure != null) {
+			throw failure instanceof IOException ? (IOException) failure : new IOException(failure);
+		}
+		return successCount.get();
+	}
+
+	int getSuccessCount() {
+		return successCount.get();
+	}
+
+	int getFailureCount() {
+		return failureCount.get();
+	}
+
+
+	/**
+	 * A bulk that was split or retried keeps its slot until all its parts are
+	 * done.
+	 */
+	private class InFlightSlot {
+
+		private final AtomicInteger pendingParts = new AtomicInteger(1);
+
+		void split() {
+			pendingParts.incrementAndGet();
+		}
+
+		void done() {
+			if (pendingParts.decrementAndGet() == 0) {
+				inFlightBulks.release();
+			}
+		}
+	}
+
+	private class BulkTask implements ActionListener<BulkResponse> {
+
+		private final BulkRequest bulk;
+
+		private final InFlightSlot slot;
+
+		private final Iterator<TimeValue> backoff;
+
+		BulkTask(BulkRequest bulk, InFlightSlot slot, Iterator<TimeValue> backoff) {
+			this.bulk = bulk;
+			this.slot = slot;
+			this.backoff = backoff;
+		}
+
+		void send() {
+			try {
+				bulkConsumer.accept(bulk, this);
+			}
+			catch (Exception e) {
+				onFailure(e);
+			}
+		}
+
+		@Override
+		public void onResponse(BulkResponse response) {
+			BulkRequest retryBulk = new BulkRequest();
+			for (BulkItemResponse item : response.getItems()) {
+				if (!item.isFailed()) {
+					successCount.incrementAndGet();
+				}
+				else if (RestStatus.TOO_MANY_REQUESTS.equals(item.getFailure().getStatus()) && backoff.hasNext()) {
+					retryBulk.add(bulk.requests().get(item.getItemId()));
+				}
+				else {
+					if (failureCount.getAndIncrement() == 0) {
+						log.warn("First failure in bulk: {}", item.getFailureMessage());
+					}
+				}
+			}
+
+			if (retryBulk.numberOfActions() > 0) {
+				log.info("retrying {} rejected items of bulk", retryBulk.numberOfActions());
+				schedule(new BulkTask(retryBulk, slot, backoff));
+			}
+			else {
+				bulkSize.grow();
+				slot.done();
+			}
+		}
+
+		@Override
+		public void onFailure(Exception e) {
+			if (isTooLarge(e) && bulk.numberOfActions() > 1) {
+				long reducedSize = bulkSize.reduce(bulk.estimatedSizeInBytes());
+				log.warn("Bulk with {} items seems too large. Will split it and reduce max bulk size to {} bytes", bulk.numberOfActions(), reducedSize);
+				int half = bulk.numberOfActions() / 2;
+				BulkRequest firstHalf = new BulkRequest();
+				BulkRequest secondHalf = new BulkRequest();
+				for (int i = 0; i < bulk.numberOfActions(); i++) {
+					(i < half ? firstHalf : secondHalf).add(bulk.requests().get(i));
+				}
+				slot.split();
+				new BulkTask(firstHalf, slot, newBackoff()).send();
+				new BulkTask(secondHalf, slot, newBackoff()).send();
+			}
+			else if (isRejected(e) && backoff.hasNext()) {
+				log.info("bulk with {} items was rejected, will retry", bulk.numberOfActions());
+				schedule(this);
+			}
+			else {
+				log.error("bulk with {} items failed", bulk.numberOfActions(), e);
+				failureCount.addAndGet(bulk.numberOfActions());
+				fatalFailure.compareAndSet(null, e);
+				slot.done();
+			}
+		}
+
+		private void schedule(BulkTask task) {
+			retryScheduler.schedule(task::send, backoff.next().millis(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private static boolean isTooLarge(Exception e) {
+		return e.getMessage() != null && e.getMessage().contains("Data too large");
+	}
+
+	private static boolean isRejected(Exception e) {
+		return e instanceof ElasticsearchException && RestStatus.TOO_MANY_REQUESTS.equals(((ElasticsearchException) e).status());
+	}
+}
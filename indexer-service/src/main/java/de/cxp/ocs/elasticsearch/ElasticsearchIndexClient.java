@@ -22,6 +22,10 @@ import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.delete.DeleteResponse;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.support.IndicesOptions;
@@ -38,6 +42,7 @@ import org.elasticsearch.cluster.health.ClusterHealthStatus;
 import org.elasticsearch.cluster.metadata.AliasMetadata;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 import org.elasticsearch.xcontent.XContentType;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -243,31 +248,84 @@ class ElasticsearchIndexClient {
 	}
 
 	/**
-	 * Will apply all record inside one single bulk request. The target index
-	 * will be delete before if already present.
+	 * Index the records with bulk requests that are split by the given size.
+	 * A failed bulk request does not stop the following ones, instead its
+	 * failure is returned together with the IDs of its records. Records that
+	 * can't be serialized are not sent and returned as failed as well.
 	 * 
+	 * @param indexName
+	 *        target index
 	 * @param items
-	 * @return
-	 * @throws IOException
+	 *        records to index
+	 * @param opType
+	 *        INDEX to replace existing records or CREATE to only create new
+	 *        ones
+	 * @param maxBulkSizeBytes
+	 *        max size of a single bulk request
+	 * @return results of all bulk requests in the order of the records
 	 */
-	public Optional<BulkResponse> indexRecords(String indexName, List<IndexableItem> items) throws IOException {
+	public List<IndexBulkResult> indexRecords(String indexName, List<IndexableItem> items, OpType opType, long maxBulkSizeBytes) {
+		List<IndexBulkResult> results = new ArrayList<>();
+		List<String> unserializableIds = new ArrayList<>();
+		JsonProcessingException serializationFailure = null;
 		BulkRequest bulkIndexRequest = new BulkRequest();
-		int docCount = 0;
+		List<String> bulkIds = new ArrayList<>();
 		for (IndexableItem item : items) {
-			IndexRequest indexRequest;
 			try {
-				indexRequest = asIndexRequest(indexName, item);
-				bulkIndexRequest.add(indexRequest);
-				docCount++;
+				bulkIndexRequest.add(asIndexRequest(indexName, item).opType(opType));
+				bulkIds.add(item.getId());
 			}
 			catch (JsonProcessingException e) {
-				log.warn("failed to add record to bulk request", e);
+				log.warn("failed to add record with id {} to bulk request", item.getId(), e);
+				unserializableIds.add(item.getId());
+				serializationFailure = e;
+				continue;
+			}
+			if (bulkIndexRequest.estimatedSizeInBytes() >= maxBulkSizeBytes) {
+				results.add(sendBulk(bulkIndexRequest, bulkIds));
+				bulkIndexRequest = new BulkRequest();
+				bulkIds = new ArrayList<>();
 			}
 		}
-		if (docCount > 0) {
-			return Optional.ofNullable(highLevelClient.bulk(bulkIndexRequest, RequestOptions.DEFAULT));
+		if (bulkIndexRequest.numberOfActions() > 0) {
+			results.add(sendBulk(bulkIndexRequest, bulkIds));
+		}
+		if (serializationFailure != null) {
+			results.add(new IndexBulkResult(unserializableIds, null, serializationFailure));
+		}
+		return results;
+	}
+
+	private IndexBulkResult sendBulk(BulkRequest bulkIndexRequest, List<String> ids) {
+		try {
+			return new IndexBulkResult(ids, highLevelClient.bulk(bulkIndexRequest, RequestOptions.DEFAULT), null);
+		}
+		catch (IOException | ElasticsearchException e) {
+			log.error("bulk request with {} records failed", ids.size(), e);
+			return new IndexBulkResult(ids, null, e);
 		}
-		else return Optional.empty();
+	}
+
+	/**
+	 * Result of a single bulk request sent by
+	 * {@link ElasticsearchIndexClient#indexRecords(String, List, OpType, long)}.
+	 * Either the response or the failure is set.
+	 */
+	@RequiredArgsConstructor
+	static class IndexBulkResult {
+
+		/**
+		 * IDs of the records of that bulk
+		 */
+		final List<String> ids;
+
+		final BulkResponse response;
+
+		/**
+		 * failure of the complete bulk request or of the serialization of
+		 * the records
+		 */
+		final Exception failure;
 	}
 
 	private IndexRequest asIndexRequest(String indexName, final IndexableItem record)
@@ -279,45 +337,54 @@ class ElasticsearchIndexClient {
 
 	/**
 	 * Will split (if necessary) the given records into several bulk requests
-	 * each with the specified maximum size. The target index will be delete
-	 * before if already present.
+	 * of the specified maximum size. Bulks are sent asynchronously, so the next
+	 * bulk is built while former bulks are processed. Rejected bulks and items
+	 * are retried and too large bulks are split, see {@link BulkIndexPipeline}.
 	 * 
+	 * @param indexName
+	 *        target index
 	 * @param records
-	 * @param maxBulkSize
-	 * @return
+	 *        records to index
+	 * @param bulkSize
+	 *        max size of a single bulk request, that is reduced if bulks are
+	 *        rejected as too large
+	 * @param maxConcurrentBulks
+	 *        max amount of bulk requests processed at the same time
+	 * @return amount of successful indexed records
 	 * @throws IOException
+	 *         if a bulk request failed completely
 	 */
-	public List<BulkResponse> indexRecordsChunkwise(String indexName, Iterator<IndexableItem> records, int maxBulkSize)
+	public int indexRecordsChunkwise(String indexName, Iterator<IndexableItem> records, AdaptiveBulkSize bulkSize, int maxConcurrentBulks)
 			throws IOException {
-		List<BulkResponse> responses = new ArrayList<>();
-		BulkRequest bulkIndexRequest = new BulkRequest();
-		int i = 0;
-		int indexedTotal = 0;
-		while (records.hasNext()) {
-			IndexRequest indexRequest;
-			try {
+		BulkIndexPipeline pipeline = new BulkIndexPipeline(
+				(bulk, listener) -> highLevelClient.bulkAsync(bulk, RequestOptions.DEFAULT, listener),
+				bulkSize, maxConcurrentBulks);
+		RuntimeException recordsFailure = null;
+		try {
+			while (records.hasNext()) {
 				IndexableItem nextRecord = records.next();
-				if (nextRecord != null) {
-					indexRequest = asIndexRequest(indexName, nextRecord);
-					bulkIndexRequest.add(indexRequest);
-					i++;
-					if (i == maxBulkSize) {
-						indexedTotal += i;
-						i = 0;
-						responses.add(highLevelClient.bulk(bulkIndexRequest, RequestOptions.DEFAULT));
-						log.info("Indexed {} records", indexedTotal);
-						bulkIndexRequest = new BulkRequest();
-					}
+				if (nextRecord == null) continue;
+				try {
+					pipeline.add(asIndexRequest(indexName, nextRecord));
+				}
+				catch (JsonProcessingException e) {
+					log.warn("failed to add record to bulk request", e);
 				}
-			}
-			catch (JsonProcessingException e) {
-				log.warn("failed to add record to bulk request", e);
 			}
 		}
-		if (i > 0) {
-			responses.add(highLevelClient.bulk(bulkIndexRequest, RequestOptions.DEFAULT));
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while indexing records", e);
 		}
-		return responses;
+		catch (RuntimeException e) {
+			// records can be read lazily, so reading them may fail, but
+			// the bulks that are already sent should be completed anyways
+			recordsFailure = e;
+		}
+		int indexedTotal = pipeline.finish();
+		log.info("Indexed {} records", indexedTotal);
+		if (recordsFailure != null) throw recordsFailure;
+		return indexedTotal;
 	}
 
 	public Optional<Settings> getSettings(String indexName) {
@@ -333,12 +400,52 @@ class ElasticsearchIndexClient {
 		return Optional.ofNullable(settings.getIndexToSettings().get(indexName));
 	}
 
+	public GetResponse getDocument(String index, String id) throws IOException {
+		return highLevelClient.get(new GetRequest(index, id), RequestOptions.DEFAULT);
+	}
+
 	public UpdateResponse updateDocument(String index, IndexableItem doc) throws IOException {
 		UpdateRequest updateRequest = new UpdateRequest(index, doc.getId());
 		updateRequest.doc(asIndexRequest(index, doc));
 		return highLevelClient.update(updateRequest, RequestOptions.DEFAULT);
 	}
 
+	/**
+	 * Fetches several documents with a single multi-get request.
+	 * 
+	 * @param index
+	 *        index name
+	 * @param sourceIncludes
+	 *        ids of the documents to fetch, each with the source fields that
+	 *        should be fetched
+	 * @return multi get response with one item per document
+	 * @throws IOException
+	 */
+	public MultiGetResponse getDocuments(String index, Map<String, String[]> sourceIncludes) throws IOException {
+		MultiGetRequest multiGetRequest = new MultiGetRequest();
+		sourceIncludes.forEach((id, includes) -> multiGetRequest.add(
+				new MultiGetRequest.Item(index, id).fetchSourceContext(new FetchSourceContext(true, includes, null))));
+		return highLevelClient.mget(multiGetRequest, RequestOptions.DEFAULT);
+	}
+
+	/**
+	 * Partially updates several documents with a single bulk request.
+	 * 
+	 * @param index
+	 *        index name
+	 * @param docs
+	 *        documents with the data that should be updated
+	 * @return bulk response with one item per document
+	 * @throws IOException
+	 */
+	public BulkResponse updateDocuments(String index, List<IndexableItem> docs) throws IOException {
+		BulkRequest bulkRequest = new BulkRequest();
+		for (IndexableItem doc : docs) {
+			bulkRequest.add(new UpdateRequest(index, doc.getId()).doc(asIndexRequest(index, doc)));
+		}
+		return highLevelClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+	}
+
 	public DeleteResponse deleteDocument(String index, String id) throws IOException {
 		DeleteRequest deleteRequest = new DeleteRequest(index, id);
 		return highLevelClient.delete(deleteRequest, RequestOptions.DEFAULT);
@@ -4,15 +4,17 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.LocaleUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -22,12 +24,13 @@ import org.elasticsearch.action.DocWriteResponse;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteResponse;
-import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
-import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.cluster.health.ClusterHealthStatus;
 import org.elasticsearch.cluster.metadata.AliasMetadata;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.rest.RestStatus;
 
@@ -36,11 +39,14 @@ import de.cxp.ocs.api.indexer.ImportSession;
 import de.cxp.ocs.api.indexer.UpdateIndexService;
 import de.cxp.ocs.config.FieldConfigIndex;
 import de.cxp.ocs.config.IndexSettings;
+import de.cxp.ocs.elasticsearch.ElasticsearchIndexClient.IndexBulkResult;
 import de.cxp.ocs.indexer.AbstractIndexer;
+import de.cxp.ocs.indexer.DocumentPatcher;
 import de.cxp.ocs.indexer.model.IndexableItem;
 import de.cxp.ocs.model.index.Document;
 import de.cxp.ocs.spi.indexer.DocumentPostProcessor;
 import de.cxp.ocs.spi.indexer.DocumentPreProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 
@@ -52,17 +58,22 @@ public class ElasticsearchIndexer extends AbstractIndexer {
 	private final Pattern	INDEX_NAME_PATTERN	= Pattern.compile(Pattern.quote(INDEX_PREFIX) + "(\\d+)\\" + INDEX_DELIMITER);
 
 	private final IndexSettings				indexSettings;
-	private final RestHighLevelClient		restClient;
 	private final ElasticsearchIndexClient	indexClient;
 
+	/**
+	 * Bulk sizes of the running imports by temporary index name, so that a
+	 * reduced bulk size is kept for all add-requests of an import.
+	 */
+	private final Map<String, AdaptiveBulkSize> importBulkSizes = new ConcurrentHashMap<>();
+
 	public ElasticsearchIndexer(
 			IndexSettings settings,
 			FieldConfigIndex fieldConfAccess,
 			RestHighLevelClient restClient,
 			List<DocumentPreProcessor> preProcessors,
-			List<DocumentPostProcessor> postProcessors) {
-		super(preProcessors, postProcessors, fieldConfAccess);
-		this.restClient = restClient;
+			List<DocumentPostProcessor> postProcessors,
+			MeterRegistry meterRegistry) {
+		super(preProcessors, postProcessors, fieldConfAccess, settings, meterRegistry);
 		this.indexSettings = settings;
 		indexClient = new ElasticsearchIndexClient(restClient);
 	}
@@ -73,7 +84,6 @@ public class ElasticsearchIndexer extends AbstractIndexer {
 			List<DocumentPreProcessor> dataProcessors,
 			List<DocumentPostProcessor> postProcessors) {
 		super(dataProcessors, postProcessors, fieldConfAccess);
-		this.restClient = null;
 		this.indexSettings = new IndexSettings();
 		this.indexClient = indexClient;
 	}
@@ -184,60 +194,16 @@ public class ElasticsearchIndexer extends AbstractIndexer {
 	}
 
 	@Override
-	protected int addToIndex(ImportSession session, List<IndexableItem> bulk) throws Exception {
-		if (bulk.size() > 1000) {
-			log.info("Adding {} documents in 1000 chunks to index {}", bulk.size(), session.finalIndexName);
-			return indexClient.indexRecordsChunkwise(session.temporaryIndexName, bulk.iterator(), 1000)
-					.stream()
-					.collect(Collectors.summingInt(this::getSuccessCount));
-		}
-		else {
-			log.info("Adding {} documents to index {}", bulk.size(), session.finalIndexName);
-			try {
-				return indexClient.indexRecords(session.temporaryIndexName, bulk)
-						.map(this::getSuccessCount)
-						.orElse(0);
-			}
-			catch (ElasticsearchStatusException ese) {
-				if (ese.getMessage().contains("Data too large")) {
-					log.warn("BulkSize seems to high for index request to {} with {} items. Bulk Indexation will be split in two parts...", session.finalIndexName, bulk.size());
-					return indexClient.indexRecordsChunkwise(session.temporaryIndexName, bulk.iterator(), bulk.size() / 2)
-							.stream()
-							.collect(Collectors.summingInt(this::getSuccessCount));
-				}
-				else {
-					throw ese;
-				}
-			}
-		}
-	}
-
-	private int getSuccessCount(BulkResponse bulkResponse) {
-		if (bulkResponse.hasFailures()) {
-			int success = 0;
-			int failures = 0;
-			for (BulkItemResponse responseItem : bulkResponse.getItems()) {
-				if (responseItem.isFailed()) {
-					if (failures++ == 0) {
-						log.warn("First failure in bulk: {}", responseItem.getFailureMessage());
-					}
-				}
-				else {
-					success++;
-				}
-			}
-			if (failures > 1) {
-				log.warn("{} bulk insertions failed. {} successes", failures, success);
-			}
-			return success;
-		}
-		else {
-			return bulkResponse.getItems().length;
-		}
+	protected int addToIndex(ImportSession session, Iterator<IndexableItem> items) throws Exception {
+		log.info("Adding documents to index {}", session.finalIndexName);
+		AdaptiveBulkSize bulkSize = importBulkSizes.computeIfAbsent(session.temporaryIndexName,
+				indexName -> new AdaptiveBulkSize(ByteSizeValue.parseBytesSizeValue(indexSettings.bulkSize, "bulkSize").getBytes()));
+		return indexClient.indexRecordsChunkwise(session.temporaryIndexName, items, bulkSize, indexSettings.concurrentBulkRequests);
 	}
 
 	@Override
 	public boolean deploy(ImportSession session) {
+		importBulkSizes.remove(session.temporaryIndexName);
 
 		try {
 			boolean success = indexClient.finalizeIndex(session.temporaryIndexName, indexSettings.replicaCount, indexSettings.refreshInterval);
@@ -300,6 +266,7 @@ public class ElasticsearchIndexer extends AbstractIndexer {
 	}
 
 	public void deleteIndex(String indexName) {
+		importBulkSizes.remove(indexName);
 		indexClient.deleteIndex(indexName, false);
 	}
 
@@ -324,6 +291,39 @@ public class ElasticsearchIndexer extends AbstractIndexer {
 		}
 	}
 
+	@Override
+	protected Map<String, UpdateIndexService.Result> _patchAll(String index, List<IndexableItem> docs) {
+		try {
+			BulkResponse bulkResponse = indexClient.updateDocuments(index, docs);
+			Map<String, UpdateIndexService.Result> results = new HashMap<>(docs.size());
+			for (BulkItemResponse item : bulkResponse.getItems()) {
+				if (item.isFailed()) {
+					log.error("update for document with id {} failed: {}", item.getId(), item.getFailureMessage());
+					results.put(item.getId(), translateResult(item.getFailure().getStatus()));
+				}
+				else {
+					results.put(item.getId(), translateResult(item.getResponse().getResult()));
+				}
+			}
+			return results;
+		}
+		catch (ElasticsearchStatusException statusEx) {
+			log.error("update for {} documents failed", docs.size(), statusEx);
+			UpdateIndexService.Result result = translateResult(statusEx.status());
+			Map<String, UpdateIndexService.Result> results = new HashMap<>(docs.size());
+			docs.forEach(doc -> results.put(doc.getId(), result));
+			return results;
+		}
+		catch (IOException ioe) {
+			log.error("update for {} documents failed", docs.size(), ioe);
+			throw new UncheckedIOException(ioe);
+		}
+		catch (RuntimeException re) {
+			log.error("update for {} documents failed", docs.size(), re);
+			throw re;
+		}
+	}
+
 	@Override
 	protected UpdateIndexService.Result _put(String indexName, Boolean replaceExisting, IndexableItem doc) {
 		try {
@@ -350,6 +350,41 @@ public class ElasticsearchIndexer extends AbstractIndexer {
 		}
 	}
 
+	@Override
+	protected Map<String, UpdateIndexService.Result> _putAll(String indexName, Boolean replaceExisting, List<IndexableItem> docs) {
+		try {
+			List<IndexBulkResult> bulkResults = indexClient.indexRecords(indexName, docs, replaceExisting ? OpType.INDEX : OpType.CREATE,
+					ByteSizeValue.parseBytesSizeValue(indexSettings.bulkSize, "bulkSize").getBytes());
+			Map<String, UpdateIndexService.Result> results = new HashMap<>(docs.size());
+			for (IndexBulkResult bulkResult : bulkResults) {
+				if (bulkResult.failure != null) {
+					// the documents of the other bulks may have been written
+					// nevertheless, so only the affected ones are failed
+					log.error("indexing {} documents failed", bulkResult.ids.size(), bulkResult.failure);
+					UpdateIndexService.Result result = bulkResult.failure instanceof ElasticsearchStatusException
+							? translateResult(((ElasticsearchStatusException) bulkResult.failure).status())
+							: UpdateIndexService.Result.DISMISSED;
+					bulkResult.ids.forEach(id -> results.put(id, result));
+					continue;
+				}
+				for (BulkItemResponse item : bulkResult.response.getItems()) {
+					if (item.isFailed()) {
+						log.error("indexing document with id {} failed: {}", item.getId(), item.getFailureMessage());
+						results.put(item.getId(), translateResult(item.getFailure().getStatus()));
+					}
+					else {
+						results.put(item.getId(), translateResult(item.getResponse().getResult()));
+					}
+				}
+			}
+			return results;
+		}
+		catch (RuntimeException esEx) {
+			log.error("indexing {} documents failed", docs.size(), esEx);
+			throw esEx;
+		}
+	}
+
 	@Override
 	public Map<String, UpdateIndexService.Result> deleteDocuments(String indexName, List<String> ids) {
 		try {
@@ -373,7 +408,7 @@ public class ElasticsearchIndexer extends AbstractIndexer {
 	@Override
 	protected Document _get(String indexName, @NonNull String id) {
 		try {
-			GetResponse esDoc = restClient.get(new GetRequest(indexName, id), RequestOptions.DEFAULT);
+			GetResponse esDoc = indexClient.getDocument(indexName, id);
 			return esDoc.getVersion() == -1 ? null : DocumentMapper.mapToOriginalDocument(id, esDoc.getSource(), getFieldConfIndex());
 		}
 		catch (IOException ioe) {
@@ -386,6 +421,35 @@ public class ElasticsearchIndexer extends AbstractIndexer {
 		}
 	}
 
+	@Override
+	protected FetchedDocuments _getAll(String indexName, Map<String, Set<String>> fetchFields) {
+		Map<String, String[]> sourceIncludes = new HashMap<>(fetchFields.size());
+		fetchFields.forEach((id, fields) -> sourceIncludes.put(id, DocumentPatcher.getSourceIncludes(fields)));
+		try {
+			MultiGetResponse multiGetResponse = indexClient.getDocuments(indexName, sourceIncludes);
+			Map<String, Document> documents = new HashMap<>(fetchFields.size());
+			Set<String> failedIds = new HashSet<>();
+			for (MultiGetItemResponse item : multiGetResponse.getResponses()) {
+				if (item.isFailed()) {
+					log.error("fetching document with id {} failed: {}", item.getId(), item.getFailure().getMessage());
+					failedIds.add(item.getId());
+				}
+				else if (item.getResponse().isExists()) {
+					documents.put(item.getId(), DocumentMapper.mapToOriginalDocument(item.getId(), item.getResponse().getSource(), getFieldConfIndex()));
+				}
+			}
+			return new FetchedDocuments(documents, failedIds);
+		}
+		catch (IOException ioe) {
+			log.error("fetching documents with ids {} failed", fetchFields.keySet(), ioe);
+			throw new UncheckedIOException(ioe);
+		}
+		catch (RuntimeException esEx) {
+			log.error("fetching documents with ids {} failed", fetchFields.keySet(), esEx);
+			throw esEx;
+		}
+	}
+
 	private UpdateIndexService.Result translateResult(org.elasticsearch.action.DocWriteResponse.Result result) {
 		switch (result) {
 			case CREATED:
@@ -5,35 +5,71 @@ import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.lang3.LocaleUtils;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import de.cxp.ocs.api.indexer.FullIndexationService;
 import de.cxp.ocs.api.indexer.ImportSession;
 import de.cxp.ocs.api.indexer.UpdateIndexService;
 import de.cxp.ocs.config.FieldConfigIndex;
 import de.cxp.ocs.config.FieldType;
+import de.cxp.ocs.config.IndexSettings;
 import de.cxp.ocs.indexer.model.IndexableItem;
 import de.cxp.ocs.model.index.BulkImportData;
 import de.cxp.ocs.model.index.Document;
 import de.cxp.ocs.preprocessor.CombiFieldBuilder;
 import de.cxp.ocs.spi.indexer.DocumentPostProcessor;
 import de.cxp.ocs.spi.indexer.DocumentPreProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public abstract class AbstractIndexer implements FullIndexationService, UpdateIndexService {
 
+	/**
+	 * Documents are only converted in parallel, if each thread gets at least
+	 * that amount of documents.
+	 */
+	private final static int MIN_DOCUMENTS_PER_CONVERSION_THREAD = 16;
+
+	/**
+	 * Amount of streamed documents that are read and converted at once.
+	 */
+	private final static int STREAM_BATCH_SIZE = 500;
+
+	/**
+	 * Pool shared by all indexers, so that the conversion of several bulks at
+	 * the same time does not use more threads than processors are available.
+	 */
+	private final static ExecutorService conversionExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+			new ThreadFactoryBuilder()
+					.setNameFormat("document-conversion-%d")
+					.setDaemon(true)
+					.build());
+
 	@NonNull
 	private final List<DocumentPreProcessor> dataPreProcessors;
 
@@ -45,14 +81,37 @@ public abstract class AbstractIndexer implements FullIndexationService, UpdateIn
 
 	private final IndexItemConverter indexItemConverter;
 
+	private final int conversionParallelism;
+
+	private final IndexSettings indexSettings;
+
+	private final MeterRegistry meterRegistry;
+
+	private final Map<String, PatchCoalescer> patchCoalescers = new ConcurrentHashMap<>();
+
+	/**
+	 * Indexer with default settings, whose metrics are not published.
+	 */
 	public AbstractIndexer(
 			@NonNull List<DocumentPreProcessor> dataPreProcessors,
 			@NonNull List<DocumentPostProcessor> postProcessors,
 			@NonNull FieldConfigIndex fieldConfIndex) {
+		this(dataPreProcessors, postProcessors, fieldConfIndex, new IndexSettings(), new SimpleMeterRegistry());
+	}
+
+	public AbstractIndexer(
+			@NonNull List<DocumentPreProcessor> dataPreProcessors,
+			@NonNull List<DocumentPostProcessor> postProcessors,
+			@NonNull FieldConfigIndex fieldConfIndex,
+			@NonNull IndexSettings indexSettings,
+			@NonNull MeterRegistry meterRegistry) {
 		this.dataPreProcessors = dataPreProcessors;
 		this.fieldConfIndex = fieldConfIndex;
 		combiFieldBuilder = new CombiFieldBuilder(fieldConfIndex.getFieldsByType(FieldType.COMBI));
 		indexItemConverter = new IndexItemConverter(fieldConfIndex, postProcessors);
+		conversionParallelism = Math.max(1, indexSettings.conversionParallelism);
+		this.indexSettings = indexSettings;
+		this.meterRegistry = meterRegistry;
 	}
 
 	@Override
@@ -119,27 +178,131 @@ public abstract class AbstractIndexer implements FullIndexationService, UpdateIn
 		}
 	}
 
+	/**
+	 * Converts and indexes the documents in batches, so that the conversion of
+	 * a batch overlaps with the bulk requests of the former ones.
+	 */
 	@Override
 	public int add(BulkImportData data) throws Exception {
 		validateSession(data.session);
-		List<IndexableItem> bulk = new ArrayList<>();
-		for (Document doc : data.getDocuments()) {
-			// FIXME: document processors should work on indexable item
-			// so they are able to modify only the usage dependent data, e.g.
-			// only searchable data, instead also changing the result data!
-			boolean isIndexable = preProcess(doc);
-			if (isIndexable) bulk.add(indexItemConverter.toIndexableItem(doc));
-		}
-		log.info("converted {} of {} documents", bulk.size(), data.documents.length);
-		if (bulk.size() > 0) {
-			return addToIndex(data.getSession(), bulk);
+		if (data.documents == null || data.documents.length == 0) return 0;
+		long start = System.currentTimeMillis();
+		int indexed = addToIndex(data.getSession(), new StreamConverter(Arrays.asList(data.documents).iterator()));
+		log.info("indexed {} of {} documents in {}ms", indexed, data.documents.length, System.currentTimeMillis() - start);
+		return indexed;
+	}
+
+	/**
+	 * Same as {@link #add(BulkImportData)} but for a stream of documents. The
+	 * documents are consumed in batches, so only a few of them are held in
+	 * memory at the same time.
+	 * 
+	 * @param session
+	 *        running import session
+	 * @param documents
+	 *        documents that are read lazily
+	 * @return amount of indexed documents
+	 * @throws Exception
+	 *         if the documents can't be read or indexed
+	 */
+	public int add(ImportSession session, Iterator<? extends Document> documents) throws Exception {
+		validateSession(session);
+		StreamConverter converter = new StreamConverter(documents);
+		int indexed = addToIndex(session, converter);
+		log.info("indexed {} of {} streamed documents", indexed, converter.readCount);
+		return indexed;
+	}
+
+	protected abstract int addToIndex(ImportSession session, Iterator<IndexableItem> items) throws Exception;
+
+	/**
+	 * Preprocesses and converts the documents. With a 'conversionParallelism'
+	 * greater than 1, the documents are split into that many parts which are
+	 * converted in parallel. The order of the documents is kept.
+	 * 
+	 * @param documents
+	 *        source documents
+	 * @return the indexable items of the documents that should be indexed
+	 */
+	List<IndexableItem> convert(Document[] documents) {
+		IndexableItem[] items = new IndexableItem[documents.length];
+		int threads = Math.min(conversionParallelism, documents.length / MIN_DOCUMENTS_PER_CONVERSION_THREAD);
+		if (threads <= 1) {
+			convert(documents, items, 0, documents.length);
 		}
 		else {
-			return 0;
+			int partSize = (documents.length + threads - 1) / threads;
+			CompletableFuture<?>[] parts = new CompletableFuture[threads - 1];
+			for (int i = 1; i < threads; i++) {
+				int from = i * partSize;
+				int to = Math.min(from + partSize, documents.length);
+				parts[i - 1] = CompletableFuture.runAsync(() -> convert(documents, items, from, to), conversionExecutor);
+			}
+			// the request thread converts the first part itself
+			convert(documents, items, 0, partSize);
+			CompletableFuture.allOf(parts).join();
+		}
+
+		List<IndexableItem> bulk = new ArrayList<>(items.length);
+		for (IndexableItem item : items) {
+			if (item != null) bulk.add(item);
 		}
+		return bulk;
 	}
 
-	protected abstract int addToIndex(ImportSession session, List<IndexableItem> bulk) throws Exception;
+	private void convert(Document[] documents, IndexableItem[] items, int from, int to) {
+		for (int i = from; i < to; i++) {
+			Document doc = documents[i];
+			try {
+				// FIXME: document processors should work on indexable item
+				// so they are able to modify only the usage dependent data, e.g.
+				// only searchable data, instead also changing the result data!
+				boolean isIndexable = preProcess(doc);
+				if (isIndexable) items[i] = indexItemConverter.toIndexableItem(doc);
+			}
+			catch (Exception e) {
+				// a single broken document should not fail the whole bulk
+				log.error("failed to convert document with id {}: {}", doc.getId(), e.toString());
+				log.debug("conversion error details:", e);
+			}
+		}
+	}
+
+	/**
+	 * Reads the documents in batches and converts each batch just when the
+	 * former one was consumed.
+	 */
+	private class StreamConverter implements Iterator<IndexableItem> {
+
+		private final Iterator<? extends Document> documents;
+
+		private Iterator<IndexableItem> currentBatch = Collections.emptyIterator();
+
+		private int readCount = 0;
+
+		StreamConverter(Iterator<? extends Document> documents) {
+			this.documents = documents;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!currentBatch.hasNext() && documents.hasNext()) {
+				List<Document> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+				while (batch.size() < STREAM_BATCH_SIZE && documents.hasNext()) {
+					batch.add(documents.next());
+				}
+				readCount += batch.size();
+				currentBatch = convert(batch.toArray(new Document[batch.size()])).iterator();
+			}
+			return currentBatch.hasNext();
+		}
+
+		@Override
+		public IndexableItem next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			return currentBatch.next();
+		}
+	}
 
 	private boolean preProcess(Document doc) {
 		boolean isIndexable = true;
@@ -171,15 +334,146 @@ public abstract class AbstractIndexer implements FullIndexationService, UpdateIn
 
 	protected abstract Document _get(@NonNull String indexName, @NonNull String docId);
 
+	/**
+	 * Patches all documents with as few requests as possible: the indexed
+	 * data, required to merge the patches, is fetched for all documents at
+	 * once and all patched documents are written at once.
+	 * If the same document is patched several times, the documents are
+	 * patched one after another instead.
+	 */
 	@Override
 	public Map<String, Result> patchDocuments(String indexName, List<Document> documents) {
 		Map<String, Result> response = new HashMap<>(documents.size());
+		Set<String> uniqueIds = new HashSet<>(documents.size());
+		boolean hasDuplicates = documents.stream().anyMatch(doc -> !uniqueIds.add(doc.getId()));
+		if (hasDuplicates || documents.size() == 1) {
+			for (Document doc : documents) {
+				response.put(doc.id, patchDocument(indexName, doc));
+			}
+			return response;
+		}
+
+		Map<String, Set<String>> fetchFields = new HashMap<>();
+		for (Document doc : documents) {
+			Set<String> docFetchFields = DocumentPatcher.getRequiredFieldsForMerge(doc, fieldConfIndex);
+			if (!docFetchFields.isEmpty()) fetchFields.put(doc.getId(), docFetchFields);
+		}
+		FetchedDocuments indexedDocs = fetchFields.isEmpty()
+				? new FetchedDocuments(Collections.emptyMap(), Collections.emptySet())
+				: _getAll(indexName, fetchFields);
+
+		List<IndexableItem> patchedItems = new ArrayList<>(documents.size());
 		for (Document doc : documents) {
-			response.put(doc.id, patchDocument(indexName, doc));
+			Document patchedDoc = doc;
+			if (fetchFields.containsKey(doc.getId())) {
+				if (indexedDocs.getFailedIds().contains(doc.getId())) {
+					// the document may exist, but without its indexed data it
+					// can't be patched
+					response.put(doc.id, Result.DISMISSED);
+					continue;
+				}
+				Document indexedDoc = indexedDocs.getDocuments().get(doc.getId());
+				if (indexedDoc == null) {
+					response.put(doc.id, Result.NOT_FOUND);
+					continue;
+				}
+				patchedDoc = DocumentPatcher.patchDocument(doc, indexedDoc, fieldConfIndex);
+			}
+			// same as for single patches: preprocessors should be idempotent
+			preProcess(patchedDoc);
+			patchedItems.add(indexItemConverter.toIndexableItem(patchedDoc));
+		}
+
+		if (!patchedItems.isEmpty()) {
+			response.putAll(_patchAll(indexName, patchedItems));
 		}
 		return response;
 	}
 
+	/**
+	 * Same as {@link #patchDocuments(String, List)}, unless patch coalescing
+	 * is enabled with the index setting 'patchCoalescingWindowMs'. In that case
+	 * the patches are queued and written together with all other patches of
+	 * the same time window.
+	 * 
+	 * @param indexName
+	 *        index name
+	 * @param documents
+	 *        patch documents
+	 * @param waitForFlush
+	 *        if false, the patches are only queued and all documents get the
+	 *        result QUEUED. Otherwise the call blocks until the patches are
+	 *        written.
+	 * @return result per document id
+	 * @throws java.util.concurrent.RejectedExecutionException
+	 *         if too many patches of that index are pending
+	 */
+	public Map<String, Result> patchDocuments(String indexName, List<Document> documents, boolean waitForFlush) {
+		if (indexSettings.patchCoalescingWindowMs <= 0) {
+			return patchDocuments(indexName, documents);
+		}
+
+		CompletableFuture<Map<String, Result>> results = patchCoalescers.computeIfAbsent(indexName, this::createPatchCoalescer).add(documents);
+		if (!waitForFlush) {
+			Map<String, Result> response = new HashMap<>(documents.size());
+			for (Document doc : documents) {
+				response.put(doc.getId(), Result.QUEUED);
+			}
+			return response;
+		}
+
+		try {
+			return results.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw e;
+		}
+	}
+
+	private PatchCoalescer createPatchCoalescer(String indexName) {
+		return new PatchCoalescer(indexName, indexSettings.patchCoalescingWindowMs, indexSettings.patchCoalescingMaxDocuments,
+				indexSettings.patchCoalescingMaxPendingDocuments,
+				(olderPatch, newerPatch) -> DocumentPatcher.mergePatches(olderPatch, newerPatch, fieldConfIndex),
+				patches -> patchDocuments(indexName, patches),
+				meterRegistry);
+	}
+
+	/**
+	 * Fetches the indexed data of several documents. Documents that don't
+	 * exist are not part of the returned documents, documents that could not
+	 * be fetched are returned as failed.
+	 * 
+	 * @param indexName
+	 *        index name
+	 * @param fetchFields
+	 *        ids of the documents to fetch with the fields required to patch
+	 *        them
+	 * @return fetched documents
+	 */
+	protected abstract FetchedDocuments _getAll(String indexName, Map<String, Set<String>> fetchFields);
+
+	/**
+	 * Result of {@link AbstractIndexer#_getAll(String, Map)}.
+	 */
+	@RequiredArgsConstructor
+	@Getter
+	protected static class FetchedDocuments {
+
+		/**
+		 * existing documents by id
+		 */
+		private final Map<String, Document> documents;
+
+		/**
+		 * ids of the documents that could not be fetched, so it's unknown if
+		 * they exist
+		 */
+		private final Set<String> failedIds;
+	}
+
+	protected abstract Map<String, Result> _patchAll(String indexName, List<IndexableItem> indexableItems);
+
 	public Result patchDocument(String index, Document doc) {
 		Set<String> fetchFields = DocumentPatcher.getRequiredFieldsForMerge(doc, fieldConfIndex);
 
@@ -202,15 +496,32 @@ public abstract class AbstractIndexer implements FullIndexationService, UpdateIn
 
 	protected abstract Result _patch(String index, IndexableItem indexableItem);
 
+	/**
+	 * Preprocesses and converts all documents and writes them at once.
+	 */
 	@Override
 	public Map<String, Result> putDocuments(String indexName, Boolean replaceExisting, List<Document> documents) {
 		Map<String, Result> response = new HashMap<>(documents.size());
-		for (Document doc : documents) {
+		if (documents.size() == 1) {
+			Document doc = documents.get(0);
 			response.put(doc.id, putDocument(indexName, replaceExisting, doc));
+			return response;
+		}
+
+		List<IndexableItem> indexableItems = new ArrayList<>(documents.size());
+		for (Document doc : documents) {
+			boolean isIndexable = preProcess(doc);
+			if (isIndexable) indexableItems.add(indexItemConverter.toIndexableItem(doc));
+			else response.put(doc.id, Result.NOOP);
+		}
+		if (!indexableItems.isEmpty()) {
+			response.putAll(_putAll(indexName, replaceExisting, indexableItems));
 		}
 		return response;
 	}
 
+	protected abstract Map<String, Result> _putAll(String indexName, Boolean replaceExisting, List<IndexableItem> indexableItems);
+
 	public Result putDocument(String indexName, Boolean replaceExisting, Document doc) {
 		boolean isIndexable = preProcess(doc);
 		if (isIndexable) return _put(indexName, replaceExisting, indexItemConverter.toIndexableItem(doc));
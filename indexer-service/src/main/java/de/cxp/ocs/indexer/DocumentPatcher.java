@@ -53,6 +53,53 @@ public class DocumentPatcher {
 		return fetchFields;
 	}
 
+	/**
+	 * Translates the fields returned by
+	 * {@link #getRequiredFieldsForMerge(Document, FieldConfigIndex)} into the
+	 * source fields that have to be fetched from the index, so that the merge
+	 * has all the data it needs without fetching the complete document.
+	 * 
+	 * Facet data is always fetched together with the result data, because the
+	 * original values are preserved best there. Also all facet data is fetched
+	 * as soon as one kind of it is required: the patched document is converted
+	 * completely again and the facet arrays are replaced as a whole by the
+	 * partial update, so values that only exist in the other facet arrays
+	 * would get lost otherwise.
+	 * 
+	 * @param requiredFields
+	 *        fields required for merge
+	 * @return source include patterns
+	 */
+	public static String[] getSourceIncludes(Set<String> requiredFields) {
+		Set<String> includes = new HashSet<>();
+		for (String field : requiredFields) {
+			switch (field) {
+				case FieldConstants.VARIANTS:
+					includes.add(FieldConstants.VARIANTS);
+					break;
+				case FieldConstants.TERM_FACET_DATA:
+				case FieldConstants.NUMBER_FACET_DATA:
+				case FieldConstants.PATH_FACET_DATA:
+					includes.add(FieldConstants.RESULT_DATA);
+					includes.add(FieldConstants.TERM_FACET_DATA);
+					includes.add(FieldConstants.NUMBER_FACET_DATA);
+					includes.add(FieldConstants.PATH_FACET_DATA);
+					break;
+				default:
+					// source field of a combi field, that could be part of any
+					// kind of data
+					includes.add(FieldConstants.RESULT_DATA);
+					includes.add(FieldConstants.SEARCH_DATA + "." + field);
+					includes.add(FieldConstants.SORT_DATA + "." + field);
+					includes.add(FieldConstants.SCORES + "." + field);
+					includes.add(FieldConstants.TERM_FACET_DATA);
+					includes.add(FieldConstants.NUMBER_FACET_DATA);
+					includes.add(FieldConstants.PATH_FACET_DATA);
+			}
+		}
+		return includes.toArray(new String[includes.size()]);
+	}
+
 	private static Optional<Field> getVariantIdField(FieldConfigIndex fieldConfIndex) {
 		return fieldConfIndex.getFieldsByType(FieldType.ID).values().stream()
 				.filter(Field::isVariantLevel)
@@ -64,7 +111,30 @@ public class DocumentPatcher {
 		// remove combi fields, because they are artificially created
 		// and will be created again
 		removeCombinedFields(indexedDocument, fieldConfIndex);
+		return applyPatch(patchDocument, indexedDocument, fieldConfIndex);
+	}
+
+	/**
+	 * Merges two patches of the same document into one, so that applying the
+	 * merged patch has the same effect as applying both patches one after
+	 * another. The older patch is modified.
+	 *
+	 * @param olderPatch
+	 *        the patch that was received first
+	 * @param newerPatch
+	 *        the patch that was received later and wins in case of conflicts
+	 * @param fieldConfIndex
+	 *        field configuration
+	 * @return merged patch
+	 */
+	public static Document mergePatches(Document olderPatch, Document newerPatch, @NonNull FieldConfigIndex fieldConfIndex) {
+		if (newerPatch.attributes != null) {
+			olderPatch.attributes = olderPatch.attributes == null ? new ArrayList<>() : new ArrayList<>(olderPatch.attributes);
+		}
+		return applyPatch(newerPatch, olderPatch, fieldConfIndex);
+	}
 
+	private static Document applyPatch(Document patchDocument, Document indexedDocument, FieldConfigIndex fieldConfIndex) {
 		if (patchDocument.attributes != null) {
 			Set<String> patchedAttributeNames = patchDocument.attributes.stream().map(Attribute::getName).collect(Collectors.toSet());
 			// first remove all data with same name as the patched attributes
@@ -22,6 +22,7 @@ import de.cxp.ocs.spi.indexer.DocumentPostProcessor;
 import de.cxp.ocs.spi.indexer.DocumentPreProcessor;
 import fr.pilato.elasticsearch.tools.ElasticsearchBeyonder;
 import fr.pilato.elasticsearch.tools.util.SettingsFinder.Defaults;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -30,14 +31,17 @@ public class IndexerFactory {
 
 	private final RestHighLevelClient elasticsearchClient;
 
+	private final MeterRegistry meterRegistry;
+
 	private boolean templatesInitialized = false;
 
 	private final Map<String, Supplier<? extends DocumentPreProcessor>> docPreProcessorSuppliers;
 
 	private final Map<String, Supplier<? extends DocumentPostProcessor>> indexableItemProcessorSuppliers;
 
-	public IndexerFactory(RestHighLevelClient elasticsearchClient, PluginManager pm) {
+	public IndexerFactory(RestHighLevelClient elasticsearchClient, PluginManager pm, MeterRegistry meterRegistry) {
 		this.elasticsearchClient = elasticsearchClient;
+		this.meterRegistry = meterRegistry;
 
 		ExtensionSupplierRegistry<DocumentPreProcessor> docPreProcessorRegistry = new ExtensionSupplierRegistry<DocumentPreProcessor>();
 		docPreProcessorRegistry.register(AsciiFoldingDataProcessor.class, AsciiFoldingDataProcessor::new);
@@ -74,7 +78,8 @@ public class IndexerFactory {
 				new FieldConfigIndex(indexConfiguration.getFieldConfiguration()),
 				elasticsearchClient,
 				preProcessors,
-				postProcessors);
+				postProcessors,
+				meterRegistry);
 	}
 
 	private void initializeDataProcessors(IndexConfiguration indexConfiguration, List<DocumentPreProcessor> preProcessors, List<DocumentPostProcessor> postProcessors) {
@@ -85,8 +90,9 @@ public class IndexerFactory {
 			boolean processorFound = false;
 			if (preProcessorSupplier != null) {
 				DocumentPreProcessor processor = preProcessorSupplier.get();
-				processor.initialize(fieldConfigIndex, dataProcessorsConfig.getOrDefault(processor.getClass().getCanonicalName(), Collections.emptyMap()));
-				preProcessors.add(processor);
+				Map<String, String> processorConfig = dataProcessorsConfig.getOrDefault(processor.getClass().getCanonicalName(), Collections.emptyMap());
+				processor.initialize(fieldConfigIndex, processorConfig);
+				preProcessors.add(PerThreadProcessors.ofPreProcessor(processor, preProcessorSupplier, fieldConfigIndex, processorConfig));
 				processorFound = true;
 				log.info("initialized pre-processor {}", processorName);
 			}
@@ -94,8 +100,9 @@ public class IndexerFactory {
 			Supplier<? extends DocumentPostProcessor> postProcessorSupplier = indexableItemProcessorSuppliers.get(processorName);
 			if (postProcessorSupplier != null) {
 				DocumentPostProcessor postProcessor = postProcessorSupplier.get();
-				postProcessor.initialize(fieldConfigIndex, dataProcessorsConfig.getOrDefault(postProcessor.getClass().getCanonicalName(), Collections.emptyMap()));
-				postProcessors.add(postProcessor);
+				Map<String, String> processorConfig = dataProcessorsConfig.getOrDefault(postProcessor.getClass().getCanonicalName(), Collections.emptyMap());
+				postProcessor.initialize(fieldConfigIndex, processorConfig);
+				postProcessors.add(PerThreadProcessors.ofPostProcessor(postProcessor, postProcessorSupplier, fieldConfigIndex, processorConfig));
 				processorFound = true;
 				log.info("initialized post-processor {}", processorName);
 			}
@@ -0,0 +1,243 @@
+package de.cxp.ocs.indexer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import de.cxp.ocs.api.indexer.UpdateIndexService.Result;
+import de.cxp.ocs.model.index.Document;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <p>
+ * Collects the patches of a single index for a short time window and writes
+ * them with a single flush call. Several patches of the same document within
+ * that window are merged into one, where the data of the later patch wins.
+ * </p>
+ * <p>
+ * All coalescers share a single timer thread that only closes the windows. The
+ * closed windows are flushed by a bounded thread pool, where the windows of
+ * the same index are flushed one after another in the order they were closed,
+ * so a slow flush of one index does not delay the patches of other indexes.
+ * </p>
+ * <p>
+ * Queued patches are only held in memory. To limit that memory, patches are
+ * rejected with a {@link RejectedExecutionException} as long as too many
+ * received documents of that index are not written yet.
+ * </p>
+ */
+@Slf4j
+class PatchCoalescer {
+
+	private final static ScheduledExecutorService windowTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+			.setNameFormat("patch-coalescer-%d")
+			.setDaemon(true)
+			.build());
+
+	private final static ExecutorService flushExecutor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+			new ThreadFactoryBuilder()
+					.setNameFormat("patch-flush-%d")
+					.setDaemon(true)
+					.build());
+
+	/**
+	 * Queue sizes per registry and index. They are kept beyond the lifetime of
+	 * a single coalescer, because the according gauges only hold weak
+	 * references.
+	 */
+	private final static Map<MeterRegistry, Map<String, AtomicInteger>> queueSizes = new ConcurrentHashMap<>();
+
+	private final String indexName;
+
+	private final long windowMs;
+
+	private final int maxQueuedDocuments;
+
+	private final int maxPendingDocuments;
+
+	private final Semaphore pendingDocuments;
+
+	private final BinaryOperator<Document> patchMerger;
+
+	private final Function<List<Document>, Map<String, Result>> flushFunction;
+
+	private final AtomicInteger queueSize;
+
+	private final Counter receivedDocuments;
+
+	private final Counter writtenDocuments;
+
+	private final Counter failedDocuments;
+
+	private final Counter rejectedDocuments;
+
+	private final Timer flushTimer;
+
+	// guarded by 'this'
+	private Window currentWindow;
+
+	// guarded by 'this'
+	private CompletableFuture<?> lastFlush = CompletableFuture.completedFuture(null);
+
+	/**
+	 * @param indexName
+	 *        name of the index the patches are written to
+	 * @param windowMs
+	 *        time in milliseconds patches are collected, starting with the
+	 *        first patch of a window
+	 * @param maxQueuedDocuments
+	 *        if that amount of documents is queued, the window is flushed
+	 *        immediately
+	 * @param maxPendingDocuments
+	 *        maximum amount of received documents that are queued or not
+	 *        written yet. Patches that would exceed it are rejected.
+	 * @param patchMerger
+	 *        merges an older and a newer patch of the same document
+	 * @param flushFunction
+	 *        writes the coalesced patches and returns the result per document
+	 *        id
+	 * @param meterRegistry
+	 *        registry for the queue, merge and flush metrics of that index
+	 */
+	PatchCoalescer(String indexName, long windowMs, int maxQueuedDocuments, int maxPendingDocuments, BinaryOperator<Document> patchMerger,
+			Function<List<Document>, Map<String, Result>> flushFunction, MeterRegistry meterRegistry) {
+		this.indexName = indexName;
+		this.windowMs = windowMs;
+		this.maxQueuedDocuments = Math.max(1, maxQueuedDocuments);
+		this.maxPendingDocuments = Math.max(this.maxQueuedDocuments, maxPendingDocuments);
+		pendingDocuments = new Semaphore(this.maxPendingDocuments);
+		this.patchMerger = patchMerger;
+		this.flushFunction = flushFunction;
+
+		queueSize = queueSizes.computeIfAbsent(meterRegistry, registry -> new ConcurrentHashMap<>()).computeIfAbsent(indexName, name -> {
+			AtomicInteger size = new AtomicInteger();
+			Gauge.builder("patchCoalescerQueueSize", size, AtomicInteger::get).tag("indexName", name)
+					.register(meterRegistry);
+			return size;
+		});
+		receivedDocuments = Counter.builder("patchCoalescerReceivedDocuments").tag("indexName", indexName).register(meterRegistry);
+		writtenDocuments = Counter.builder("patchCoalescerWrittenDocuments").tag("indexName", indexName).register(meterRegistry);
+		failedDocuments = Counter.builder("patchCoalescerFailedDocuments").tag("indexName", indexName).register(meterRegistry);
+		rejectedDocuments = Counter.builder("patchCoalescerRejectedDocuments").tag("indexName", indexName).register(meterRegistry);
+		Gauge.builder("patchCoalescerMergeRatio", receivedDocuments, received -> getMergeRatio(received.count(), writtenDocuments.count()))
+				.tag("indexName", indexName)
+				.register(meterRegistry);
+		flushTimer = Timer.builder("patchCoalescerFlush").tag("indexName", indexName).register(meterRegistry);
+	}
+
+	private static double getMergeRatio(double received, double written) {
+		return received == 0 ? 0 : 1 - written / received;
+	}
+
+	/**
+	 * Queues the patches for the current window.
+	 *
+	 * @param documents
+	 *        patch documents
+	 * @return future that is completed with the results of the given
+	 *         documents, as soon as the window is flushed
+	 * @throws RejectedExecutionException
+	 *         if the documents would exceed the maximum amount of pending
+	 *         documents
+	 */
+	CompletableFuture<Map<String, Result>> add(List<Document> documents) {
+		if (!pendingDocuments.tryAcquire(documents.size())) {
+			rejectedDocuments.increment(documents.size());
+			throw new RejectedExecutionException("too many pending patches for index " + indexName
+					+ ", at most " + maxPendingDocuments + " documents can be queued");
+		}
+
+		Window window;
+		synchronized (this) {
+			if (currentWindow == null) {
+				Window newWindow = new Window();
+				windowTimer.schedule(() -> closeWindow(newWindow), windowMs, TimeUnit.MILLISECONDS);
+				currentWindow = newWindow;
+			}
+			window = currentWindow;
+			int sizeBefore = window.patches.size();
+			for (Document doc : documents) {
+				window.patches.merge(doc.getId(), doc, patchMerger);
+			}
+			window.receivedDocuments += documents.size();
+			queueSize.addAndGet(window.patches.size() - sizeBefore);
+			receivedDocuments.increment(documents.size());
+
+			if (window.patches.size() >= maxQueuedDocuments) closeWindow(window);
+		}
+
+		return window.results.thenApply(results -> {
+			Map<String, Result> documentResults = new HashMap<>(documents.size());
+			for (Document doc : documents) {
+				documentResults.put(doc.getId(), results.get(doc.getId()));
+			}
+			return documentResults;
+		});
+	}
+
+	/**
+	 * Hands the window over to the flush executor. The flush is chained to
+	 * the flush of the previous window, so the windows of this index are
+	 * written in order.
+	 */
+	private synchronized void closeWindow(Window window) {
+		// a window that was flushed early is still scheduled
+		if (window.closed) return;
+		window.closed = true;
+		if (currentWindow == window) currentWindow = null;
+
+		lastFlush = lastFlush.handleAsync((ignored, error) -> {
+			flush(window);
+			return null;
+		}, flushExecutor);
+	}
+
+	private void flush(Window window) {
+		List<Document> patches = new ArrayList<>(window.patches.values());
+		queueSize.addAndGet(-patches.size());
+		writtenDocuments.increment(patches.size());
+		try {
+			window.results.complete(flushTimer.record(() -> flushFunction.apply(patches)));
+		}
+		catch (Exception e) {
+			failedDocuments.increment(patches.size());
+			log.error("failed to flush {} coalesced patches for index {}", patches.size(), indexName, e);
+			window.results.completeExceptionally(e);
+		}
+		finally {
+			pendingDocuments.release(window.receivedDocuments);
+		}
+	}
+
+	private static class Window {
+
+		// modified and read by the coalescer while holding its lock, or by
+		// the flush after the window was closed
+		final Map<String, Document> patches = new LinkedHashMap<>();
+
+		int receivedDocuments;
+
+		boolean closed;
+
+		final CompletableFuture<Map<String, Result>> results = new CompletableFuture<>();
+	}
+}
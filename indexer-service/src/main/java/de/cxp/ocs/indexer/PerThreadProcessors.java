@@ -0,0 +1,113 @@
+package de.cxp.ocs.indexer;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+import de.cxp.ocs.config.FieldConfigAccess;
+import de.cxp.ocs.indexer.model.IndexableItem;
+import de.cxp.ocs.model.index.Document;
+import de.cxp.ocs.spi.indexer.DocumentPostProcessor;
+import de.cxp.ocs.spi.indexer.DocumentPreProcessor;
+import de.cxp.ocs.spi.indexer.NotThreadSafe;
+
+/**
+ * Wraps processors that are annotated with {@link NotThreadSafe}, so that each
+ * thread uses its own initialized instance.
+ */
+class PerThreadProcessors {
+
+	private PerThreadProcessors() {}
+
+	static boolean isThreadSafe(Object processor) {
+		return !processor.getClass().isAnnotationPresent(NotThreadSafe.class);
+	}
+
+	/**
+	 * @param initializedProcessor
+	 *        already initialized instance that is used by the calling thread
+	 * @param supplier
+	 *        supplier for further instances
+	 * @param fieldConfig
+	 *        field config access to initialize further instances
+	 * @param processorConfig
+	 *        config to initialize further instances
+	 * @return the given processor, if it's thread-safe, otherwise a wrapper
+	 *         with one instance per thread
+	 */
+	static DocumentPreProcessor ofPreProcessor(DocumentPreProcessor initializedProcessor, Supplier<? extends DocumentPreProcessor> supplier, FieldConfigAccess fieldConfig,
+			Map<String, String> processorConfig) {
+		if (isThreadSafe(initializedProcessor)) return initializedProcessor;
+		ThreadLocal<DocumentPreProcessor> processors = ThreadLocal.withInitial(() -> {
+			DocumentPreProcessor processor = supplier.get();
+			processor.initialize(fieldConfig, processorConfig);
+			return processor;
+		});
+		processors.set(initializedProcessor);
+		return new PerThreadPreProcessor(processors);
+	}
+
+	/**
+	 * Same as {@link #ofPreProcessor(DocumentPreProcessor, Supplier,
+	 * FieldConfigAccess, Map)} but for post processors.
+	 *
+	 * @param initializedProcessor
+	 *        already initialized instance that is used by the calling thread
+	 * @param supplier
+	 *        supplier for further instances
+	 * @param fieldConfig
+	 *        field config access to initialize further instances
+	 * @param processorConfig
+	 *        config to initialize further instances
+	 * @return the given processor, if it's thread-safe, otherwise a wrapper
+	 *         with one instance per thread
+	 */
+	static DocumentPostProcessor ofPostProcessor(DocumentPostProcessor initializedProcessor, Supplier<? extends DocumentPostProcessor> supplier, FieldConfigAccess fieldConfig,
+			Map<String, String> processorConfig) {
+		if (isThreadSafe(initializedProcessor)) return initializedProcessor;
+		ThreadLocal<DocumentPostProcessor> processors = ThreadLocal.withInitial(() -> {
+			DocumentPostProcessor processor = supplier.get();
+			processor.initialize(fieldConfig, processorConfig);
+			return processor;
+		});
+		processors.set(initializedProcessor);
+		return new PerThreadPostProcessor(processors);
+	}
+
+	private static class PerThreadPreProcessor implements DocumentPreProcessor {
+
+		private final ThreadLocal<DocumentPreProcessor> processors;
+
+		PerThreadPreProcessor(ThreadLocal<DocumentPreProcessor> processors) {
+			this.processors = processors;
+		}
+
+		@Override
+		public void initialize(FieldConfigAccess fieldConfig, Map<String, String> preProcessorConfig) {
+			// instances are initialized when they are created
+		}
+
+		@Override
+		public boolean process(Document sourceDocument, boolean visible) {
+			return processors.get().process(sourceDocument, visible);
+		}
+	}
+
+	private static class PerThreadPostProcessor implements DocumentPostProcessor {
+
+		private final ThreadLocal<DocumentPostProcessor> processors;
+
+		PerThreadPostProcessor(ThreadLocal<DocumentPostProcessor> processors) {
+			this.processors = processors;
+		}
+
+		@Override
+		public void initialize(FieldConfigAccess fieldConfigIndex, Map<String, String> settings) {
+			// instances are initialized when they are created
+		}
+
+		@Override
+		public void process(Document originalDocument, IndexableItem record, FieldConfigAccess fieldConfig) {
+			processors.get().process(originalDocument, record, fieldConfig);
+		}
+	}
+}
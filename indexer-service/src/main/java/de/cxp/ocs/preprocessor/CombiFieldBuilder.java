@@ -6,6 +6,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -35,8 +36,8 @@ import de.cxp.ocs.model.index.Product;
 @Deprecated
 public class CombiFieldBuilder {
 
-	private static final String	WHITESPACE			= " ";
-	private static final String	WHITESPACE_REGEX	= "\\s+";
+	private static final String		WHITESPACE			= " ";
+	private static final Pattern	WHITESPACE_PATTERN	= Pattern.compile("\\s+");
 
 	private final List<Field> combiFields;
 
@@ -66,7 +67,7 @@ public class CombiFieldBuilder {
 		combiFields.forEach(field -> {
 			if (combiFieldPredicate.test(field)) {
 				String joinedValue = joinCombiFieldValues(document.getData(), field);
-				List<String> deduplicateTokens = deduplicateAdjoinedTokens(joinedValue.trim().split(WHITESPACE_REGEX));
+				List<String> deduplicateTokens = deduplicateAdjoinedTokens(WHITESPACE_PATTERN.split(joinedValue.trim()));
 				document.set(field.getName(), StringUtils.join(deduplicateTokens, WHITESPACE));
 			}
 		});
@@ -1,6 +1,7 @@
 package de.cxp.ocs.preprocessor.impl;
 
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import de.cxp.ocs.config.FieldConfigAccess;
 import de.cxp.ocs.model.index.Document;
@@ -10,11 +11,11 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class RemoveFieldContentDelimiterProcessor implements DocumentPreProcessor {
 
-	private static final String	FIELD_CONTENT_DELIMITER_MATCH_PATTERN		= "^\\.\\.(.*)\\.\\.$|\\.\\.\\|\\.\\.|\\.\\.\\,\\.\\.";
-	private static final String	FIELD_CONTENT_REPLACE_PATTERN_START			= "^\\.\\.";
-	private static final String	FIELD_CONTENT_REPLACE_PATTERN_MIDDLE_PIPE	= "\\.\\.\\|\\.\\.";
-	private static final String	FIELD_CONTENT_REPLACE_PATTERN_MIDDLE_COMMA	= "\\.\\.\\,\\.\\.";
-	private static final String	FIELD_CONTENT_REPLACE_PATTERN_END			= "\\.\\.$";
+	private static final Pattern	FIELD_CONTENT_DELIMITER_MATCH_PATTERN		= Pattern.compile("^\\.\\.(.*)\\.\\.$|\\.\\.\\|\\.\\.|\\.\\.\\,\\.\\.");
+	private static final Pattern	FIELD_CONTENT_REPLACE_PATTERN_START			= Pattern.compile("^\\.\\.");
+	private static final Pattern	FIELD_CONTENT_REPLACE_PATTERN_MIDDLE_PIPE	= Pattern.compile("\\.\\.\\|\\.\\.");
+	private static final Pattern	FIELD_CONTENT_REPLACE_PATTERN_MIDDLE_COMMA	= Pattern.compile("\\.\\.\\,\\.\\.");
+	private static final Pattern	FIELD_CONTENT_REPLACE_PATTERN_END			= Pattern.compile("\\.\\.$");
 	private static final String	FIELD_CONTENT_DELIMITER_REPLACEMENT			= "";
 	private static final String	FIELD_CONTENT_DELIMITER_REPLACEMENT_PIPE	= "|";
 	private static final String	FIELD_CONTENT_DELIMITER_REPLACEMENT_COMMA	= ",";
@@ -25,14 +26,13 @@ public class RemoveFieldContentDelimiterProcessor implements DocumentPreProcesso
 	public boolean process(Document document, boolean visible) {
 		Map<String, Object> sourceData = document.getData();
 		for (String key : sourceData.keySet()) {
-			if (sourceData.get(key) instanceof String && ((String) sourceData.get(key)).matches(
-					FIELD_CONTENT_DELIMITER_MATCH_PATTERN)) {
+			if (sourceData.get(key) instanceof String && FIELD_CONTENT_DELIMITER_MATCH_PATTERN.matcher((String) sourceData.get(key))
+					.matches()) {
 				String record = ((String) sourceData.get(key));
-				record = record.replaceAll(FIELD_CONTENT_REPLACE_PATTERN_START, FIELD_CONTENT_DELIMITER_REPLACEMENT)
-						.replaceAll(FIELD_CONTENT_REPLACE_PATTERN_MIDDLE_PIPE, FIELD_CONTENT_DELIMITER_REPLACEMENT_PIPE)
-						.replaceAll(FIELD_CONTENT_REPLACE_PATTERN_MIDDLE_COMMA,
-								FIELD_CONTENT_DELIMITER_REPLACEMENT_COMMA)
-						.replaceAll(FIELD_CONTENT_REPLACE_PATTERN_END, FIELD_CONTENT_DELIMITER_REPLACEMENT);
+				record = FIELD_CONTENT_REPLACE_PATTERN_START.matcher(record).replaceAll(FIELD_CONTENT_DELIMITER_REPLACEMENT);
+				record = FIELD_CONTENT_REPLACE_PATTERN_MIDDLE_PIPE.matcher(record).replaceAll(FIELD_CONTENT_DELIMITER_REPLACEMENT_PIPE);
+				record = FIELD_CONTENT_REPLACE_PATTERN_MIDDLE_COMMA.matcher(record).replaceAll(FIELD_CONTENT_DELIMITER_REPLACEMENT_COMMA);
+				record = FIELD_CONTENT_REPLACE_PATTERN_END.matcher(record).replaceAll(FIELD_CONTENT_DELIMITER_REPLACEMENT);
 				sourceData.put(key, record);
 			}
 		}
@@ -62,7 +62,7 @@ public class RemoveValuesDataProcessor extends ConfigureableDataprocessor<Patter
 							value));
 			String splitRegEx = confMap.get(key + FIELD_WORD_SPLIT_REGEX);
 			if (!StringUtils.isEmpty(splitRegEx)) {
-				patternConfiguration.setWordSplitRegEx(splitRegEx);
+				patternConfiguration.setWordSplitPattern(Pattern.compile(splitRegEx));
 			}
 			String joinSeparator = confMap.get(key + FIELD_WORD_JOIN_SEPARATOR);
 			if (!StringUtils.isEmpty(joinSeparator)) {
@@ -78,7 +78,7 @@ public class RemoveValuesDataProcessor extends ConfigureableDataprocessor<Patter
 		return (pc, value) -> {
 			if (value instanceof String) {
 				String strValue = (String) value;
-				String[] cleanedTokens = removeTokens(strValue.trim().split(pc.getWordSplitRegEx()), pc.getPattern());
+				String[] cleanedTokens = removeTokens(pc.getWordSplitPattern().split(strValue.trim()), pc.getPattern());
 				sourceData.getData().put(pc.getDestinationFieldName(), StringUtils.join(cleanedTokens, pc
 						.getWordJoinSeparator()));
 			}
@@ -87,7 +87,7 @@ public class RemoveValuesDataProcessor extends ConfigureableDataprocessor<Patter
 				final Collection<String> valueCollection = (Collection<String>) value;
 				final Collection<String> cleandValues = new HashSet<>(valueCollection.size());
 				valueCollection.forEach(collectionValue -> {
-					String[] cleanedTokens = removeTokens(collectionValue.trim().split(pc.getWordSplitRegEx()), pc
+					String[] cleanedTokens = removeTokens(pc.getWordSplitPattern().split(collectionValue.trim()), pc
 							.getPattern());
 					if (cleanedTokens.length > 0) {
 						cleandValues.add(StringUtils.join(cleanedTokens, pc.getWordJoinSeparator()));
@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
 
 import de.cxp.ocs.conf.converter.SplitValueConfiguration;
 import de.cxp.ocs.model.index.Document;
@@ -60,7 +61,7 @@ public class SplitValueDataProcessor extends ConfigureableDataprocessor<SplitVal
 			String regEx = confMap.get(value + REG_EX_CONF);
 			String idxToDest = confMap.get(value + IDX_TO_DEST_FIELD_CONF);
 
-			SplitValueConfiguration configuration = new SplitValueConfiguration(value, keepOrig, regEx);
+			SplitValueConfiguration configuration = new SplitValueConfiguration(value, keepOrig, regEx == null ? null : Pattern.compile(regEx));
 			splitIdxToDestAndAddToConf(configuration, idxToDest);
 			return configuration;
 		}
@@ -105,7 +106,7 @@ public class SplitValueDataProcessor extends ConfigureableDataprocessor<SplitVal
 
 	private void splitAndCopy(Map<String, Object> sourceData, SplitValueConfiguration svc, String value,
 			boolean isCollection) {
-		String[] splittedValues = value.split(svc.getRegEx());
+		String[] splittedValues = svc.getSplitPattern().split(value);
 		if (isWildcardConfiguration(svc)) {
 			addToSourceByWildcard(sourceData, svc, splittedValues, isCollection);
 		}
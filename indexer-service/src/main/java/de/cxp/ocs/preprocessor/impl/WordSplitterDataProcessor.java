@@ -1,40 +1,44 @@
 package de.cxp.ocs.preprocessor.impl;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import de.cxp.ocs.config.FieldConfigAccess;
 import de.cxp.ocs.model.index.Document;
 import de.cxp.ocs.spi.indexer.DocumentPreProcessor;
+import de.cxp.ocs.spi.indexer.NotThreadSafe;
 import de.danielnaber.jwordsplitter.AbstractWordSplitter;
 import de.danielnaber.jwordsplitter.GermanWordSplitter;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * Summarize and normalize fields depending on configuration
+ * Summarize and normalize fields depending on configuration.
+ * The word splitter gives no guarantee about thread-safety, so each conversion
+ * thread gets its own instance.
  * 
  * @author gabriel.bauer
  */
 @Slf4j
+@NotThreadSafe
 @NoArgsConstructor
 public class WordSplitterDataProcessor implements DocumentPreProcessor {
 
-	private static final String SIMPLE_TOKENIZER_REGEX = ",|;|!|\\?|/|\\||\\.|\\\\|\\(|\\)|:|\\s+";
+	private static final Pattern SIMPLE_TOKENIZER_PATTERN = Pattern.compile(",|;|!|\\?|/|\\||\\.|\\\\|\\(|\\)|:|\\s+");
 
 	private String fieldName;
 
-	private List<String> fields;
+	private Set<String> fields;
 
 	private AbstractWordSplitter splitter = null;
 
 	@Override
 	public void initialize(FieldConfigAccess fieldConfig, Map<String, String> confMap) {
-		this.fields = new LinkedList<>();
+		this.fields = new HashSet<>();
 		confMap.forEach((key, value) -> {
 					if ("fieldName".equals(key)) {
 						this.fieldName = value.toString();
@@ -59,11 +63,11 @@ public class WordSplitterDataProcessor implements DocumentPreProcessor {
 		try {
 			sourceDocument.getData().forEach((k, v) -> {
 				if (this.fields.contains(k))
-					Arrays.stream(v.toString().split(SIMPLE_TOKENIZER_REGEX)).forEach(cw -> {
+					for (String cw : SIMPLE_TOKENIZER_PATTERN.split(v.toString())) {
 						if (!cw.isEmpty()) {
-							splitter.splitWord(cw.toString()).forEach(words::add);
+							splitter.splitWord(cw).forEach(words::add);
 						}
-					});
+					}
 			});
 		}
 		catch (Exception e) {
@@ -0,0 +1,141 @@
+package de.cxp.ocs.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.DocWriteRequest.OpType;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.xcontent.XContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class BulkIndexPipelineTest {
+
+	private final ExecutorService elasticsearch = Executors.newFixedThreadPool(4);
+
+	private final Set<String> rejectedIds = ConcurrentHashMap.newKeySet();
+
+	private final AtomicInteger maxBulkActions = new AtomicInteger();
+
+	private final AtomicInteger tooLargeBulks = new AtomicInteger();
+
+	@AfterEach
+	public void shutdown() {
+		elasticsearch.shutdownNow();
+	}
+
+	@Test
+	public void testRejectedItemsAndTooLargeBulksAreRetried() throws Exception {
+		BulkIndexPipeline underTest = new BulkIndexPipeline(this::fakeBulk, 64 * 1024, 2);
+		for (int i = 0; i < 300; i++) {
+			underTest.add(indexRequest(i));
+		}
+
+		assertEquals(300, underTest.finish());
+		assertEquals(0, underTest.getFailureCount());
+		// every fifth document was rejected once
+		assertEquals(60, rejectedIds.size());
+		assertTrue(tooLargeBulks.get() > 0);
+		assertTrue(maxBulkActions.get() <= 40);
+	}
+
+	@Test
+	public void testReducedBulkSizeIsKeptForNextPipeline() throws Exception {
+		AdaptiveBulkSize bulkSize = new AdaptiveBulkSize(1024 * 1024);
+		BulkIndexPipeline firstPipeline = new BulkIndexPipeline(this::circuitBreakingBulk, bulkSize, 2);
+		for (int i = 0; i < 300; i++) {
+			firstPipeline.add(indexRequest(i));
+		}
+		assertEquals(300, firstPipeline.finish());
+		int tooLargeBulksOfFirstPipeline = tooLargeBulks.getAndSet(0);
+		assertTrue(tooLargeBulksOfFirstPipeline > 0);
+		assertTrue(bulkSize.get() <= 128 * 1024, "bulk size " + bulkSize.get());
+
+		BulkIndexPipeline secondPipeline = new BulkIndexPipeline(this::circuitBreakingBulk, bulkSize, 2);
+		for (int i = 300; i < 600; i++) {
+			secondPipeline.add(indexRequest(i));
+		}
+		assertEquals(300, secondPipeline.finish());
+		assertTrue(tooLargeBulks.get() < tooLargeBulksOfFirstPipeline, tooLargeBulks.get() + " >= " + tooLargeBulksOfFirstPipeline);
+	}
+
+	@Test
+	public void testNonRetryableFailure() throws Exception {
+		BulkIndexPipeline underTest = new BulkIndexPipeline((bulk, listener) -> elasticsearch.execute(
+				() -> listener.onFailure(new ElasticsearchStatusException("index closed", RestStatus.BAD_REQUEST))), 64 * 1024, 2);
+		underTest.add(indexRequest(1));
+		assertThrows(IOException.class, underTest::finish);
+		assertEquals(1, underTest.getFailureCount());
+	}
+
+	private static IndexRequest indexRequest(int id) {
+		return new IndexRequest("test").id(String.valueOf(id)).source("{\"title\":\"" + StringUtils.repeat('x', 1000) + "\"}", XContentType.JSON);
+	}
+
+	/**
+	 * Rejects bulks larger than 100KB like the Elasticsearch circuit breaker
+	 * and accepts all items of smaller bulks.
+	 */
+	private void circuitBreakingBulk(BulkRequest bulk, ActionListener<BulkResponse> listener) {
+		elasticsearch.execute(() -> {
+			if (bulk.estimatedSizeInBytes() > 100 * 1024) {
+				tooLargeBulks.incrementAndGet();
+				listener.onFailure(new ElasticsearchStatusException("[parent] Data too large, data for [<http_request>] would be larger than limit",
+						RestStatus.TOO_MANY_REQUESTS));
+				return;
+			}
+			BulkItemResponse[] items = new BulkItemResponse[bulk.numberOfActions()];
+			for (int i = 0; i < items.length; i++) {
+				items[i] = BulkItemResponse.success(i, OpType.INDEX,
+						new IndexResponse(new ShardId("test", "_na_", 0), "_doc", bulk.requests().get(i).id(), 1, 1, 1, true));
+			}
+			listener.onResponse(new BulkResponse(items, 1));
+		});
+	}
+
+	/**
+	 * Accepts at most 40 items per bulk and rejects each fifth item once.
+	 */
+	private void fakeBulk(BulkRequest bulk, ActionListener<BulkResponse> listener) {
+		elasticsearch.execute(() -> {
+			if (bulk.numberOfActions() > 40) {
+				tooLargeBulks.incrementAndGet();
+				listener.onFailure(new ElasticsearchStatusException("[parent] Data too large, data for [<http_request>] would be larger than limit",
+						RestStatus.TOO_MANY_REQUESTS));
+				return;
+			}
+			maxBulkActions.accumulateAndGet(bulk.numberOfActions(), Math::max);
+
+			BulkItemResponse[] items = new BulkItemResponse[bulk.numberOfActions()];
+			for (int i = 0; i < items.length; i++) {
+				DocWriteRequest<?> request = bulk.requests().get(i);
+				if (Integer.parseInt(request.id()) % 5 == 0 && rejectedIds.add(request.id())) {
+					items[i] = BulkItemResponse.failure(i, OpType.INDEX, new BulkItemResponse.Failure("test", "_doc", request.id(),
+							new ElasticsearchStatusException("rejected execution", RestStatus.TOO_MANY_REQUESTS), RestStatus.TOO_MANY_REQUESTS));
+				}
+				else {
+					items[i] = BulkItemResponse.success(i, OpType.INDEX, new IndexResponse(new ShardId("test", "_na_", 0), "_doc", request.id(), 1, 1, 1, true));
+				}
+			}
+			listener.onResponse(new BulkResponse(items, 1));
+		});
+	}
+}
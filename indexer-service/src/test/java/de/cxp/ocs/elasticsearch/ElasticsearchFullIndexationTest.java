@@ -7,19 +7,26 @@ import static de.cxp.ocs.config.FieldUsage.FACET;
 import static de.cxp.ocs.config.FieldUsage.RESULT;
 import static de.cxp.ocs.config.FieldUsage.SEARCH;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.internal.matchers.Equals;
 
@@ -27,6 +34,7 @@ import de.cxp.ocs.api.indexer.ImportSession;
 import de.cxp.ocs.conf.IndexConfiguration;
 import de.cxp.ocs.config.Field;
 import de.cxp.ocs.config.FieldConfigIndex;
+import de.cxp.ocs.indexer.model.IndexableItem;
 import de.cxp.ocs.model.index.BulkImportData;
 import de.cxp.ocs.model.index.Category;
 import de.cxp.ocs.model.index.Document;
@@ -60,15 +68,41 @@ public class ElasticsearchFullIndexationTest {
 						.setCategories(Collections.singletonList(new Category[] { new Category("c1", "cat1"), new Category("c2", "cat2") }))
 		});
 
-		when(mockedIndexClient.indexRecords(any(), any())).thenReturn(Optional.empty());
-		underTest.add(data);
-		verify(mockedIndexClient).indexRecords((String) argThat(new Equals(importSession.temporaryIndexName)), any());
+		when(mockedIndexClient.indexRecordsChunkwise(any(), any(), any(), anyInt())).thenReturn(2);
+		assertEquals(2, underTest.add(data));
+		assertEquals(2, underTest.add(data));
+		// the adapted bulk size is kept for the whole import session
+		ArgumentCaptor<AdaptiveBulkSize> bulkSizes = ArgumentCaptor.forClass(AdaptiveBulkSize.class);
+		verify(mockedIndexClient, times(2)).indexRecordsChunkwise((String) argThat(new Equals(importSession.temporaryIndexName)), any(), bulkSizes.capture(),
+				anyInt());
+		assertSame(bulkSizes.getAllValues().get(0), bulkSizes.getAllValues().get(1));
 
 		when(mockedIndexClient.getDocCount(importSession.temporaryIndexName)).thenReturn(2L);
 		underTest.done(importSession);
 		verify(mockedIndexClient).updateAlias(importSession.finalIndexName, null, importSession.temporaryIndexName);
 	}
 
+	@Test
+	public void testStreamedDocumentsAreIndexedLazily() throws Exception {
+		ImportSession importSession = new ImportSession("test", "ocs-1-test-de");
+		AtomicInteger readDocuments = new AtomicInteger();
+		Iterator<Document> documents = IntStream.range(0, 1200)
+				.peek(i -> readDocuments.incrementAndGet())
+				.mapToObj(i -> new Document().setId(String.valueOf(i)).set("title", "Test " + i))
+				.iterator();
+
+		when(mockedIndexClient.indexRecordsChunkwise(any(), any(), any(), anyInt())).thenAnswer(invocation -> {
+			Iterator<IndexableItem> items = invocation.getArgument(1);
+			// only the first batch is read before the items are consumed
+			assertTrue(readDocuments.get() < 1200);
+			int count = 0;
+			while (items.hasNext()) {
+				assertEquals(String.valueOf(count++), items.next().getId());
+			}
+			return count;
+		});
+		assertEquals(1200, underTest.add(importSession, documents));
+	}
 
 	@Test
 	public void testImportSessionStartsWhileOtherNotFinished() {
@@ -0,0 +1,266 @@
+package de.cxp.ocs.elasticsearch;
+
+import static de.cxp.ocs.config.FieldType.NUMBER;
+import static de.cxp.ocs.config.FieldType.STRING;
+import static de.cxp.ocs.config.FieldUsage.FACET;
+import static de.cxp.ocs.config.FieldUsage.RESULT;
+import static de.cxp.ocs.config.FieldUsage.SEARCH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.DocWriteRequest.OpType;
+import org.elasticsearch.action.DocWriteResponse.Result;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.index.engine.VersionConflictEngineException;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+import de.cxp.ocs.api.indexer.UpdateIndexService;
+import de.cxp.ocs.config.Field;
+import de.cxp.ocs.config.FieldConfigIndex;
+import de.cxp.ocs.config.FieldConfiguration;
+import de.cxp.ocs.config.FieldConstants;
+import de.cxp.ocs.elasticsearch.ElasticsearchIndexClient.IndexBulkResult;
+import de.cxp.ocs.indexer.model.IndexableItem;
+import de.cxp.ocs.model.index.Document;
+
+public class ElasticsearchUpdateIndexTest {
+
+	ElasticsearchIndexClient mockedIndexClient = mock(ElasticsearchIndexClient.class);
+
+	ElasticsearchIndexer underTest = new ElasticsearchIndexer(
+			new FieldConfigIndex(new FieldConfiguration()
+					.addField(new Field("title").setType(STRING).setUsage(RESULT, SEARCH))
+					.addField(new Field("brand").setType(STRING).setUsage(RESULT, FACET))),
+			mockedIndexClient,
+			Collections.emptyList(),
+			Collections.emptyList());
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testPatchesAreFetchedAndWrittenAtOnce() throws Exception {
+		MultiGetResponse multiGetResponse = new MultiGetResponse(new MultiGetItemResponse[] {
+				new MultiGetItemResponse(indexedDocument("1", true), null),
+				new MultiGetItemResponse(indexedDocument("2", false), null)
+		});
+		when(mockedIndexClient.getDocuments(eq("test"), any())).thenReturn(multiGetResponse);
+		when(mockedIndexClient.updateDocuments(eq("test"), any())).thenReturn(new BulkResponse(new BulkItemResponse[] {
+				BulkItemResponse.success(0, OpType.UPDATE, new UpdateResponse(new ShardId("test", "_na_", 0), "_doc", "1", 1, 1, 2, Result.UPDATED)),
+				BulkItemResponse.success(1, OpType.UPDATE, new UpdateResponse(new ShardId("test", "_na_", 0), "_doc", "3", 1, 1, 2, Result.UPDATED))
+		}, 1));
+
+		Map<String, UpdateIndexService.Result> results = underTest.patchDocuments("test", Arrays.asList(
+				new Document("1").set("brand", "new brand"),
+				new Document("2").set("brand", "new brand"),
+				new Document("3").set("title", "new title")));
+
+		assertEquals(UpdateIndexService.Result.UPDATED, results.get("1"));
+		assertEquals(UpdateIndexService.Result.NOT_FOUND, results.get("2"));
+		assertEquals(UpdateIndexService.Result.UPDATED, results.get("3"));
+
+		// only the documents with patched facet data are fetched
+		ArgumentCaptor<Map<String, String[]>> fetched = ArgumentCaptor.forClass(Map.class);
+		verify(mockedIndexClient).getDocuments(eq("test"), fetched.capture());
+		assertEquals(2, fetched.getValue().size());
+		assertTrue(Arrays.asList(fetched.getValue().get("1")).contains(FieldConstants.TERM_FACET_DATA));
+
+		ArgumentCaptor<List<IndexableItem>> updated = ArgumentCaptor.forClass(List.class);
+		verify(mockedIndexClient).updateDocuments(eq("test"), updated.capture());
+		assertEquals(2, updated.getValue().size());
+		assertEquals("new brand", updated.getValue().get(0).getResultData().get("brand"));
+		assertEquals("old title", updated.getValue().get(0).getResultData().get("title"));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testBatchedPatchKeepsFacetOnlyValuesLikeSinglePatch() throws Exception {
+		ElasticsearchIndexer facetIndexer = new ElasticsearchIndexer(
+				new FieldConfigIndex(new FieldConfiguration()
+						.addField(new Field("brand").setType(STRING).setUsage(RESULT, FACET))
+						.addField(new Field("price").setType(NUMBER).setUsage(RESULT, FACET))
+						.addField(new Field("rating").setType(NUMBER).setUsage(FACET))),
+				mockedIndexClient,
+				Collections.emptyList(),
+				Collections.emptyList());
+
+		GetResponse getResponse = mock(GetResponse.class);
+		when(getResponse.getSource()).thenReturn(indexedFacetSource());
+		when(mockedIndexClient.getDocument("test", "1")).thenReturn(getResponse);
+		when(mockedIndexClient.updateDocument(eq("test"), any()))
+				.thenReturn(new UpdateResponse(new ShardId("test", "_na_", 0), "_doc", "1", 1, 1, 2, Result.UPDATED));
+		facetIndexer.patchDocuments("test", Collections.singletonList(new Document("1").set("brand", "new brand")));
+
+		ArgumentCaptor<IndexableItem> singlePatch = ArgumentCaptor.forClass(IndexableItem.class);
+		verify(mockedIndexClient).updateDocument(eq("test"), singlePatch.capture());
+
+		// multi-get only returns the requested source fields
+		when(mockedIndexClient.getDocuments(eq("test"), any())).thenAnswer(invocation -> {
+			Map<String, String[]> sourceIncludes = invocation.getArgument(1);
+			List<MultiGetItemResponse> items = new ArrayList<>();
+			sourceIncludes.forEach((id, includes) -> {
+				GetResponse itemResponse = mock(GetResponse.class);
+				when(itemResponse.getId()).thenReturn(id);
+				when(itemResponse.isExists()).thenReturn(true);
+				when(itemResponse.getSource()).thenReturn(XContentMapValues.filter(indexedFacetSource(), includes, null));
+				items.add(new MultiGetItemResponse(itemResponse, null));
+			});
+			return new MultiGetResponse(items.toArray(new MultiGetItemResponse[items.size()]));
+		});
+		when(mockedIndexClient.updateDocuments(eq("test"), any())).thenReturn(new BulkResponse(new BulkItemResponse[] {
+				BulkItemResponse.success(0, OpType.UPDATE, new UpdateResponse(new ShardId("test", "_na_", 0), "_doc", "1", 1, 1, 2, Result.UPDATED)),
+				BulkItemResponse.success(1, OpType.UPDATE, new UpdateResponse(new ShardId("test", "_na_", 0), "_doc", "2", 1, 1, 2, Result.UPDATED))
+		}, 1));
+		facetIndexer.patchDocuments("test", Arrays.asList(
+				new Document("1").set("brand", "new brand"),
+				new Document("2").set("brand", "new brand")));
+
+		ArgumentCaptor<List<IndexableItem>> batchedPatch = ArgumentCaptor.forClass(List.class);
+		verify(mockedIndexClient).updateDocuments(eq("test"), batchedPatch.capture());
+		IndexableItem batchedItem = batchedPatch.getValue().get(0);
+
+		assertTrue(singlePatch.getValue().getNumberFacetData().stream().anyMatch(facetEntry -> "rating".equals(facetEntry.getName())));
+		assertEquals(singlePatch.getValue().getNumberFacetData(), batchedItem.getNumberFacetData());
+		assertEquals(singlePatch.getValue().getTermFacetData(), batchedItem.getTermFacetData());
+		assertEquals(singlePatch.getValue().getResultData(), batchedItem.getResultData());
+	}
+
+	@Test
+	public void testFailedPatchBulkIsMappedPerDocument() throws Exception {
+		when(mockedIndexClient.updateDocuments(eq("test"), any())).thenThrow(new ElasticsearchStatusException("no such index", RestStatus.NOT_FOUND));
+
+		Map<String, UpdateIndexService.Result> results = underTest.patchDocuments("test", Arrays.asList(
+				new Document("1").set("title", "new title"),
+				new Document("2").set("title", "new title")));
+
+		assertEquals(2, results.size());
+		assertEquals(UpdateIndexService.Result.NOT_FOUND, results.get("1"));
+		assertEquals(UpdateIndexService.Result.NOT_FOUND, results.get("2"));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testPatchesOfFailedFetchesAreDismissed() throws Exception {
+		MultiGetResponse multiGetResponse = new MultiGetResponse(new MultiGetItemResponse[] {
+				new MultiGetItemResponse(indexedDocument("1", true), null),
+				new MultiGetItemResponse(null, new MultiGetResponse.Failure("test", "_doc", "2", new IOException("shard not available"))),
+				new MultiGetItemResponse(indexedDocument("3", false), null)
+		});
+		when(mockedIndexClient.getDocuments(eq("test"), any())).thenReturn(multiGetResponse);
+		when(mockedIndexClient.updateDocuments(eq("test"), any())).thenReturn(new BulkResponse(new BulkItemResponse[] {
+				BulkItemResponse.success(0, OpType.UPDATE, new UpdateResponse(new ShardId("test", "_na_", 0), "_doc", "1", 1, 1, 2, Result.UPDATED))
+		}, 1));
+
+		Map<String, UpdateIndexService.Result> results = underTest.patchDocuments("test", Arrays.asList(
+				new Document("1").set("brand", "new brand"),
+				new Document("2").set("brand", "new brand"),
+				new Document("3").set("brand", "new brand")));
+
+		assertEquals(UpdateIndexService.Result.UPDATED, results.get("1"));
+		assertEquals(UpdateIndexService.Result.DISMISSED, results.get("2"));
+		assertEquals(UpdateIndexService.Result.NOT_FOUND, results.get("3"));
+
+		ArgumentCaptor<List<IndexableItem>> patched = ArgumentCaptor.forClass(List.class);
+		verify(mockedIndexClient).updateDocuments(eq("test"), patched.capture());
+		assertEquals(1, patched.getValue().size());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testPutsAreWrittenWithBulkRequest() throws Exception {
+		when(mockedIndexClient.indexRecords(eq("test"), any(), eq(OpType.CREATE), anyLong())).thenReturn(Collections.singletonList(
+				new IndexBulkResult(Arrays.asList("1", "2"), new BulkResponse(new BulkItemResponse[] {
+						BulkItemResponse.success(0, OpType.CREATE, new IndexResponse(new ShardId("test", "_na_", 0), "_doc", "1", 1, 1, 1, true)),
+						BulkItemResponse.failure(1, OpType.CREATE, new BulkItemResponse.Failure("test", "_doc", "2",
+								new VersionConflictEngineException(new ShardId("test", "_na_", 0), "2", "document already exists"), RestStatus.CONFLICT))
+				}, 1), null)));
+
+		Map<String, UpdateIndexService.Result> results = underTest.putDocuments("test", false, Arrays.asList(
+				new Document("1").set("title", "title 1"),
+				new Document("2").set("title", "title 2")));
+
+		assertEquals(UpdateIndexService.Result.CREATED, results.get("1"));
+		assertEquals(UpdateIndexService.Result.DISMISSED, results.get("2"));
+
+		ArgumentCaptor<List<IndexableItem>> indexed = ArgumentCaptor.forClass(List.class);
+		verify(mockedIndexClient).indexRecords(eq("test"), indexed.capture(), eq(OpType.CREATE), anyLong());
+		assertEquals(2, indexed.getValue().size());
+	}
+
+	@Test
+	public void testFailedPutBulksOnlyFailTheirDocuments() throws Exception {
+		when(mockedIndexClient.indexRecords(eq("test"), any(), eq(OpType.INDEX), anyLong())).thenReturn(Arrays.asList(
+				new IndexBulkResult(Arrays.asList("1"), new BulkResponse(new BulkItemResponse[] {
+						BulkItemResponse.success(0, OpType.INDEX, new IndexResponse(new ShardId("test", "_na_", 0), "_doc", "1", 1, 1, 1, true))
+				}, 1), null),
+				new IndexBulkResult(Arrays.asList("2"), null, new ElasticsearchStatusException("rejected", RestStatus.TOO_MANY_REQUESTS)),
+				new IndexBulkResult(Arrays.asList("3"), null, new IOException("connection reset")),
+				new IndexBulkResult(Arrays.asList("4"), null, new JsonMappingException(null, "not serializable"))));
+
+		Map<String, UpdateIndexService.Result> results = underTest.putDocuments("test", true, Arrays.asList(
+				new Document("1").set("title", "title 1"),
+				new Document("2").set("title", "title 2"),
+				new Document("3").set("title", "title 3"),
+				new Document("4").set("title", "title 4")));
+
+		assertEquals(4, results.size());
+		assertEquals(UpdateIndexService.Result.CREATED, results.get("1"));
+		assertEquals(UpdateIndexService.Result.DISMISSED, results.get("2"));
+		assertEquals(UpdateIndexService.Result.DISMISSED, results.get("3"));
+		assertEquals(UpdateIndexService.Result.DISMISSED, results.get("4"));
+	}
+
+	private static Map<String, Object> indexedFacetSource() {
+		Map<String, Object> resultData = new HashMap<>();
+		resultData.put("brand", "old brand");
+		resultData.put("price", 10.5);
+		Map<String, Object> source = new HashMap<>();
+		source.put(FieldConstants.RESULT_DATA, resultData);
+		source.put(FieldConstants.TERM_FACET_DATA, Arrays.asList(facetEntry("brand", "old brand")));
+		source.put(FieldConstants.NUMBER_FACET_DATA, Arrays.asList(facetEntry("price", 10.5), facetEntry("rating", 4)));
+		return source;
+	}
+
+	private static Map<String, Object> facetEntry(String name, Object value) {
+		Map<String, Object> facetEntry = new HashMap<>();
+		facetEntry.put("name", name);
+		facetEntry.put("value", value);
+		return facetEntry;
+	}
+
+	private static GetResponse indexedDocument(String id, boolean exists) {
+		GetResponse getResponse = mock(GetResponse.class);
+		when(getResponse.getId()).thenReturn(id);
+		when(getResponse.isExists()).thenReturn(exists);
+		Map<String, Object> resultData = new HashMap<>();
+		resultData.put("title", "old title");
+		resultData.put("brand", "old brand");
+		when(getResponse.getSource()).thenReturn(Collections.singletonMap(FieldConstants.RESULT_DATA, resultData));
+		return getResponse;
+	}
+}
@@ -0,0 +1,72 @@
+package de.cxp.ocs.indexer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+import de.cxp.ocs.config.Field;
+import de.cxp.ocs.config.FieldConfigAccess;
+import de.cxp.ocs.config.FieldConfigIndex;
+import de.cxp.ocs.config.FieldConfiguration;
+import de.cxp.ocs.config.FieldUsage;
+import de.cxp.ocs.config.IndexSettings;
+import de.cxp.ocs.elasticsearch.ElasticsearchIndexer;
+import de.cxp.ocs.indexer.model.IndexableItem;
+import de.cxp.ocs.model.index.Document;
+import de.cxp.ocs.spi.indexer.DocumentPreProcessor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AbstractIndexerTest {
+
+	private final Set<String> usedThreads = ConcurrentHashMap.newKeySet();
+
+	@Test
+	public void testParallelConversionKeepsOrderAndIsolatesErrors() {
+		IndexSettings settings = new IndexSettings();
+		settings.setConversionParallelism(4);
+		AbstractIndexer underTest = new ElasticsearchIndexer(
+				settings,
+				new FieldConfigIndex(new FieldConfiguration().addField(new Field("title").setUsage(FieldUsage.SEARCH))),
+				null,
+				Collections.singletonList(new TestPreProcessor()),
+				Collections.emptyList(),
+				new SimpleMeterRegistry());
+
+		Document[] documents = new Document[100];
+		for (int i = 0; i < documents.length; i++) {
+			documents[i] = new Document(String.valueOf(i)).set("title", "title " + i);
+		}
+
+		List<IndexableItem> items = underTest.convert(documents);
+
+		// document 7 is skipped and document 13 fails
+		assertEquals(98, items.size());
+		assertEquals("6", items.get(6).getId());
+		assertEquals("8", items.get(7).getId());
+		assertEquals("14", items.get(12).getId());
+		assertEquals("99", items.get(97).getId());
+		assertTrue(usedThreads.size() > 1);
+	}
+
+	private class TestPreProcessor implements DocumentPreProcessor {
+
+		@Override
+		public void initialize(FieldConfigAccess fieldConfig, Map<String, String> preProcessorConfig) {}
+
+		@Override
+		public boolean process(Document sourceDocument, boolean visible) {
+			usedThreads.add(Thread.currentThread().getName());
+			if ("13".equals(sourceDocument.getId())) {
+				throw new IllegalStateException("broken document");
+			}
+			return visible && !"7".equals(sourceDocument.getId());
+		}
+	}
+}
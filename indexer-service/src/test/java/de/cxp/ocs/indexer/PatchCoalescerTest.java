@@ -0,0 +1,169 @@
+package de.cxp.ocs.indexer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import de.cxp.ocs.api.indexer.UpdateIndexService.Result;
+import de.cxp.ocs.config.FieldConfigIndex;
+import de.cxp.ocs.config.FieldConfiguration;
+import de.cxp.ocs.model.index.Attribute;
+import de.cxp.ocs.model.index.Document;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class PatchCoalescerTest {
+
+	private final FieldConfigIndex fieldConfIndex = new FieldConfigIndex(new FieldConfiguration());
+
+	private final List<List<Document>> flushedPatches = new CopyOnWriteArrayList<>();
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	public void testPatchesOfSameWindowAreMerged() {
+		PatchCoalescer underTest = new PatchCoalescer("test", 100, 1000, 1000,
+				(older, newer) -> DocumentPatcher.mergePatches(older, newer, fieldConfIndex),
+				this::flush, registry);
+
+		CompletableFuture<Map<String, Result>> first = underTest.add(Arrays.asList(
+				new Document("1").set("price", "10.0").set("stock", "3"),
+				new Document("2").set("price", "5.0")));
+		CompletableFuture<Map<String, Result>> second = underTest.add(Collections.singletonList(
+				new Document("1").set("price", "9.5").setAttributes(Attribute.of("color", "red"))));
+
+		assertEquals(Result.UPDATED, first.join().get("1"));
+		assertEquals(Result.UPDATED, first.join().get("2"));
+		assertEquals(1, second.join().size());
+
+		assertEquals(1, flushedPatches.size());
+		List<Document> patches = flushedPatches.get(0);
+		assertEquals(2, patches.size());
+		Document mergedPatch = patches.get(0);
+		assertEquals("9.5", mergedPatch.getData().get("price"));
+		assertEquals("3", mergedPatch.getData().get("stock"));
+		assertEquals(1, mergedPatch.getAttributes().size());
+	}
+
+	@Test
+	public void testFullWindowIsFlushedEarly() {
+		PatchCoalescer underTest = new PatchCoalescer("test", 60_000, 2, 1000,
+				(older, newer) -> DocumentPatcher.mergePatches(older, newer, fieldConfIndex),
+				this::flush, registry);
+
+		underTest.add(Collections.singletonList(new Document("1").set("stock", "1")));
+		CompletableFuture<Map<String, Result>> full = underTest.add(Collections.singletonList(new Document("2").set("stock", "2")));
+		assertEquals(Result.UPDATED, full.join().get("2"));
+
+		CompletableFuture<Map<String, Result>> next = underTest.add(Collections.singletonList(new Document("3").set("stock", "3")));
+		underTest.add(Collections.singletonList(new Document("4").set("stock", "4")));
+		assertEquals(Result.UPDATED, next.join().get("3"));
+		assertEquals(2, flushedPatches.size());
+	}
+
+	@Test
+	public void testSlowFlushDoesNotBlockOtherIndexes() throws Exception {
+		CountDownLatch releaseSlowFlush = new CountDownLatch(1);
+		PatchCoalescer slowIndex = new PatchCoalescer("slow", 1, 1000, 1000,
+				(older, newer) -> DocumentPatcher.mergePatches(older, newer, fieldConfIndex),
+				patches -> {
+					await(releaseSlowFlush);
+					return flush(patches);
+				}, registry);
+		PatchCoalescer fastIndex = new PatchCoalescer("fast", 1, 1000, 1000,
+				(older, newer) -> DocumentPatcher.mergePatches(older, newer, fieldConfIndex),
+				this::flush, registry);
+
+		CompletableFuture<Map<String, Result>> slow = slowIndex.add(Collections.singletonList(new Document("1").set("stock", "1")));
+		CompletableFuture<Map<String, Result>> fast = fastIndex.add(Collections.singletonList(new Document("2").set("stock", "2")));
+
+		assertEquals(Result.UPDATED, fast.get(5, TimeUnit.SECONDS).get("2"));
+		assertFalse(slow.isDone());
+		releaseSlowFlush.countDown();
+		assertEquals(Result.UPDATED, slow.get(5, TimeUnit.SECONDS).get("1"));
+	}
+
+	@Test
+	public void testPatchesAreRejectedWhileTooManyArePending() throws Exception {
+		CountDownLatch releaseFlush = new CountDownLatch(1);
+		PatchCoalescer underTest = new PatchCoalescer("test", 60_000, 2, 3,
+				(older, newer) -> DocumentPatcher.mergePatches(older, newer, fieldConfIndex),
+				patches -> {
+					await(releaseFlush);
+					return flush(patches);
+				}, registry);
+
+		CompletableFuture<Map<String, Result>> pending = underTest.add(Arrays.asList(
+				new Document("1").set("stock", "1"),
+				new Document("2").set("stock", "2")));
+		underTest.add(Collections.singletonList(new Document("3").set("stock", "3")));
+		assertThrows(RejectedExecutionException.class,
+				() -> underTest.add(Collections.singletonList(new Document("4").set("stock", "4"))));
+
+		releaseFlush.countDown();
+		pending.get(5, TimeUnit.SECONDS);
+		// the pending documents are released right after the results are
+		// completed, so give it some time
+		boolean accepted = false;
+		for (int i = 0; i < 100 && !accepted; i++) {
+			accepted = tryAdd(underTest, new Document("4").set("stock", "4"));
+			if (!accepted) Thread.sleep(10);
+		}
+		assertTrue(accepted);
+	}
+
+	@Test
+	public void testFailedFlushIsCounted() {
+		PatchCoalescer underTest = new PatchCoalescer("failing", 1, 1000, 1000,
+				(older, newer) -> DocumentPatcher.mergePatches(older, newer, fieldConfIndex),
+				patches -> {
+					throw new IllegalStateException("bulk failed");
+				}, registry);
+
+		CompletableFuture<Map<String, Result>> results = underTest.add(Arrays.asList(
+				new Document("1").set("stock", "1"),
+				new Document("2").set("stock", "2")));
+		assertThrows(CompletionException.class, results::join);
+		assertEquals(2, registry.get("patchCoalescerFailedDocuments").tag("indexName", "failing").counter().count());
+	}
+
+	private static boolean tryAdd(PatchCoalescer coalescer, Document doc) {
+		try {
+			coalescer.add(Collections.singletonList(doc));
+			return true;
+		}
+		catch (RejectedExecutionException e) {
+			return false;
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private Map<String, Result> flush(List<Document> patches) {
+		flushedPatches.add(patches);
+		Map<String, Result> results = new HashMap<>();
+		patches.forEach(doc -> results.put(doc.getId(), Result.UPDATED));
+		return results;
+	}
+}
@@ -10,10 +10,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 import com.google.common.base.Predicates;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 import de.cxp.ocs.model.index.Attribute;
 import de.cxp.ocs.util.Util;
@@ -35,18 +38,26 @@ public final class FieldConfigIndex implements FieldConfigAccess {
 		Predicate<Object>	valuePredicate;
 		Field				fieldConfig;
 
-		public boolean matches(String fieldName, Object value) {
-			return (fieldNamePredicate == null || fieldNamePredicate.test(fieldName))
-					&& (valuePredicate == null || valuePredicate.test(value));
+		boolean matchesName(String fieldName) {
+			return fieldNamePredicate == null || fieldNamePredicate.test(fieldName);
+		}
+
+		boolean matchesValue(Object value) {
+			return valuePredicate == null || valuePredicate.test(value);
 		}
 	}
 
+	/**
+	 * Max amount of field names for which the resolved fields are cached.
+	 */
+	private final static int MAX_CACHED_FIELD_NAMES = 10_000;
+
 	@Getter
 	private final Map<String, Field> fields = new HashMap<>();
 
 	private final Map<String, List<Field>> fieldsBySource = new HashMap<>();
 
-	private final Map<String, Field> generatedFields = new HashMap<>();
+	private final Map<String, Field> generatedFields = new ConcurrentHashMap<>();
 
 	private final Map<FieldUsage, Map<String, Field>> fieldsByUsage = new HashMap<>();
 
@@ -57,6 +68,25 @@ public final class FieldConfigIndex implements FieldConfigAccess {
 
 	private final List<DynamicFieldConfig> dynamicFields = new ArrayList<>();
 
+	/**
+	 * Fields that match a name, including the generated fields. Since the
+	 * configured fields don't change, only generated fields have to be
+	 * updated.
+	 */
+	private final Cache<String, Set<Field>> matchingFieldsCache = CacheBuilder.newBuilder()
+			.maximumSize(MAX_CACHED_FIELD_NAMES)
+			.build();
+
+	/**
+	 * Dynamic field configurations with a source name pattern that matches a
+	 * field name. Only the value predicates of those candidates have to be
+	 * checked, since for strings the numeric predicate depends on the actual
+	 * value.
+	 */
+	private final Cache<String, List<DynamicFieldConfig>> dynamicFieldCandidates = CacheBuilder.newBuilder()
+			.maximumSize(MAX_CACHED_FIELD_NAMES)
+			.build();
+
 	/**
 	 * Constructor of the Field Index that prepares the given field
 	 * configurations to match static and dynamic fields.
@@ -207,6 +237,19 @@ public final class FieldConfigIndex implements FieldConfigAccess {
 	 * @return
 	 */
 	public Set<Field> getMatchingFields(String fieldName) {
+		Set<Field> matchingFields = matchingFieldsCache.getIfPresent(fieldName);
+		if (matchingFields == null) {
+			matchingFields = resolveMatchingFields(fieldName);
+			// don't overwrite a field that was generated in the meantime
+			Set<Field> concurrentlyResolved = matchingFieldsCache.asMap().putIfAbsent(fieldName, matchingFields);
+			if (concurrentlyResolved != null) {
+				matchingFields = concurrentlyResolved;
+			}
+		}
+		return matchingFields;
+	}
+
+	private Set<Field> resolveMatchingFields(String fieldName) {
 		IdentityHashMap<Field, Void> matchingFields = new IdentityHashMap<>();
 
 		getField(fieldName).ifPresent(f -> matchingFields.put(f, null));
@@ -216,7 +259,7 @@ public final class FieldConfigIndex implements FieldConfigAccess {
 			bySource.forEach(f -> matchingFields.put(f, null));
 		}
 
-		return matchingFields.keySet();
+		return matchingFields.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(matchingFields.keySet());
 	}
 
 	/**
@@ -247,20 +290,42 @@ public final class FieldConfigIndex implements FieldConfigAccess {
 		}
 
 		// return first matching dynamic field
-		Field generatedField = null;
-		if (dynamicFields != null) {
+		if (dynamicFields.isEmpty()) {
+			return Collections.emptySet();
+		}
+		for (DynamicFieldConfig dynamicFieldConf : getDynamicFieldCandidates(fieldName)) {
+			if (dynamicFieldConf.matchesValue(value)) {
+				return Collections.singleton(generateField(fieldName, dynamicFieldConf.fieldConfig));
+			}
+		}
+		return Collections.emptySet();
+	}
+
+	private List<DynamicFieldConfig> getDynamicFieldCandidates(String fieldName) {
+		List<DynamicFieldConfig> candidates = dynamicFieldCandidates.getIfPresent(fieldName);
+		if (candidates == null) {
+			candidates = new ArrayList<>(1);
 			for (DynamicFieldConfig dynamicFieldConf : dynamicFields) {
-				if (dynamicFieldConf.matches(fieldName, value)) {
-					generatedField = cloneField(dynamicFieldConf.fieldConfig);
-					generatedField.setName(fieldName);
-					generatedFields.put(fieldName, generatedField);
-					updateFieldIndexes(generatedField);
-					break;
+				if (dynamicFieldConf.matchesName(fieldName)) {
+					candidates.add(dynamicFieldConf);
 				}
 			}
+			dynamicFieldCandidates.put(fieldName, candidates);
 		}
+		return candidates;
+	}
 
-		return generatedField == null ? Collections.emptySet() : Collections.singleton(generatedField);
+	private synchronized Field generateField(String fieldName, Field dynamicField) {
+		// could have been generated concurrently
+		Field generatedField = generatedFields.get(fieldName);
+		if (generatedField == null) {
+			generatedField = cloneField(dynamicField);
+			generatedField.setName(fieldName);
+			generatedFields.put(fieldName, generatedField);
+			updateFieldIndexes(generatedField);
+		}
+		matchingFieldsCache.put(fieldName, Collections.singleton(generatedField));
+		return generatedField;
 	}
 
 	/**
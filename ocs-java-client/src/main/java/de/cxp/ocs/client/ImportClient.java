@@ -1,9 +1,30 @@
 package de.cxp.ocs.client;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+
 import de.cxp.ocs.api.indexer.FullIndexationService;
 import de.cxp.ocs.api.indexer.ImportSession;
 import de.cxp.ocs.api.indexer.UpdateIndexService;
@@ -13,13 +34,28 @@ import de.cxp.ocs.model.index.Document;
 import de.cxp.ocs.model.index.Product;
 import feign.Feign;
 import feign.Feign.Builder;
+import feign.Request.HttpMethod;
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
 import feign.codec.Decoder;
 import feign.httpclient.ApacheHttpClient;
 
-public class ImportClient implements FullIndexationService, UpdateIndexService {
+/**
+ * Client for the indexer service. It holds an Apache HttpClient, so it should
+ * be closed when it's not used anymore.
+ */
+public class ImportClient implements FullIndexationService, UpdateIndexService, Closeable {
 
 	private ImportApi target;
 
+	private final String endpointUrl;
+
+	private final CloseableHttpClient httpClient;
+
+	private final boolean isHttpClientOwned;
+
+	private final List<RequestInterceptor> requestInterceptors;
+
 	/**
 	 * With this constructor the Feign::Builder can be configured.
 	 * 
@@ -27,9 +63,30 @@ public class ImportClient implements FullIndexationService, UpdateIndexService {
 	 * @param feignConfigurer
 	 */
 	public ImportClient(String endpointUrl, Consumer<Feign.Builder> feignConfigurer) {
-		Builder fb = Feign.builder();
+		this(endpointUrl, feignConfigurer, HttpClients.createDefault(), true);
+	}
+
+	/**
+	 * With this constructor the Feign::Builder and the Apache HttpClient can
+	 * be configured. The given HttpClient is used for all requests, also for
+	 * the streamed ones, but it won't be closed by this ImportClient.
+	 * 
+	 * @param endpointUrl
+	 * @param feignConfigurer
+	 * @param httpClient
+	 */
+	public ImportClient(String endpointUrl, Consumer<Feign.Builder> feignConfigurer, CloseableHttpClient httpClient) {
+		this(endpointUrl, feignConfigurer, httpClient, false);
+	}
+
+	private ImportClient(String endpointUrl, Consumer<Feign.Builder> feignConfigurer, CloseableHttpClient httpClient, boolean isHttpClientOwned) {
+		this.endpointUrl = endpointUrl;
+		this.httpClient = httpClient;
+		this.isHttpClientOwned = isHttpClientOwned;
+		InterceptorRecordingBuilder fb = new InterceptorRecordingBuilder();
 		feignConfigurer.accept(fb);
-		fb.client(new ApacheHttpClient());
+		fb.client(new ApacheHttpClient(httpClient));
+		requestInterceptors = fb.interceptors;
 		target = fb.target(ImportApi.class, endpointUrl);
 	}
 
@@ -116,6 +173,126 @@ public class ImportClient implements FullIndexationService, UpdateIndexService {
 		return target.add(data);
 	}
 
+	/**
+	 * Same as {@link #add(BulkImportData)} but the documents are streamed as
+	 * newline-delimited JSON, so the documents can be read lazily and the
+	 * request size is not limited by the available memory on both sides.
+	 * 
+	 * This request is sent directly with the Apache HttpClient and Jackson,
+	 * so the encoder of the Feign::Builder is not used for it. The headers
+	 * that are set by its request interceptors (e.g. for basic auth) are
+	 * added though.
+	 * 
+	 * @param session
+	 *        import session
+	 * @param documents
+	 *        documents to be indexed, may also be {@link Product}s
+	 * @return amount of indexed documents
+	 * @throws IOException
+	 *         if the request failed
+	 */
+	public int addStream(ImportSession session, Iterator<? extends Document> documents) throws IOException {
+		HttpPost request;
+		try {
+			request = new HttpPost(new URIBuilder(endpointUrl.replaceFirst("/+$", "") + "/indexer-api/v1/full/add-stream")
+					.addParameter("finalIndexName", session.finalIndexName)
+					.addParameter("temporaryIndexName", session.temporaryIndexName)
+					.build());
+		}
+		catch (URISyntaxException e) {
+			throw new IllegalArgumentException(e);
+		}
+		addInterceptorHeaders(request);
+		request.setEntity(new NdjsonEntity(documents));
+
+		try (CloseableHttpResponse response = httpClient.execute(request)) {
+			String responseBody = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+			if (response.getStatusLine().getStatusCode() != 200) {
+				throw new IOException("streaming documents failed with status " + response.getStatusLine() + ": " + responseBody);
+			}
+			return Integer.parseInt(responseBody.trim());
+		}
+	}
+
+	private void addInterceptorHeaders(HttpPost request) {
+		if (requestInterceptors.isEmpty()) return;
+		RequestTemplate template = new RequestTemplate().method(HttpMethod.POST).uri(request.getURI().getRawPath());
+		requestInterceptors.forEach(interceptor -> interceptor.apply(template));
+		for (Map.Entry<String, Collection<String>> header : template.headers().entrySet()) {
+			for (String value : header.getValue()) {
+				request.addHeader(header.getKey(), value);
+			}
+		}
+	}
+
+	/**
+	 * Feign has no access to the configured request interceptors, so they are
+	 * recorded to apply them to the streamed requests as well.
+	 */
+	private static class InterceptorRecordingBuilder extends Feign.Builder {
+
+		private final List<RequestInterceptor> interceptors = new ArrayList<>();
+
+		@Override
+		public Builder requestInterceptor(RequestInterceptor requestInterceptor) {
+			interceptors.add(requestInterceptor);
+			return super.requestInterceptor(requestInterceptor);
+		}
+
+		@Override
+		public Builder requestInterceptors(Iterable<RequestInterceptor> requestInterceptors) {
+			interceptors.clear();
+			requestInterceptors.forEach(interceptors::add);
+			return super.requestInterceptors(requestInterceptors);
+		}
+	}
+
+	private static class NdjsonEntity extends AbstractHttpEntity {
+
+		private final static ObjectWriter writer = ObjectMapperFactory.createObjectMapper()
+				.writer()
+				.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+				.withRootValueSeparator("\n");
+
+		private final Iterator<? extends Document> documents;
+
+		NdjsonEntity(Iterator<? extends Document> documents) {
+			this.documents = documents;
+			setContentType("application/x-ndjson");
+			setChunked(true);
+		}
+
+		@Override
+		public boolean isRepeatable() {
+			return false;
+		}
+
+		@Override
+		public long getContentLength() {
+			return -1;
+		}
+
+		@Override
+		public InputStream getContent() {
+			throw new UnsupportedOperationException("documents can only be streamed");
+		}
+
+		@Override
+		public void writeTo(OutputStream outStream) throws IOException {
+			try (SequenceWriter sequenceWriter = writer.writeValues(outStream)) {
+				while (documents.hasNext()) {
+					sequenceWriter.write(documents.next());
+				}
+			}
+			outStream.flush();
+		}
+
+		@Override
+		public boolean isStreaming() {
+			return true;
+		}
+	}
+
 	@Override
 	public boolean done(ImportSession session) throws Exception {
 		return target.done(session);
@@ -126,4 +303,14 @@ public class ImportClient implements FullIndexationService, UpdateIndexService {
 		target.cancel(session);
 	}
 
+	/**
+	 * Closes the HttpClient, unless it was passed to the constructor.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (isHttpClientOwned) {
+			httpClient.close();
+		}
+	}
+
 }
@@ -1,9 +1,11 @@
 package de.cxp.ocs.client;
 
+import java.util.List;
 import java.util.Map;
 
 import de.cxp.ocs.model.index.Document;
 import de.cxp.ocs.model.params.ArrangedSearchQuery;
+import de.cxp.ocs.model.params.FilteredSearchQuery;
 import de.cxp.ocs.model.result.SearchResult;
 import feign.Headers;
 import feign.Param;
@@ -29,6 +31,10 @@ interface SearchApi {
 	@Headers("Content-Type: application/json")
 	SearchResult arrangedSearch(@Param("tenant") String tenant, ArrangedSearchQuery searchQuery);
 
+	@RequestLine("POST /search-api/v1/search/batch/{tenant}")
+	@Headers("Content-Type: application/json")
+	List<SearchResult> batchSearch(@Param("tenant") String tenant, List<FilteredSearchQuery> searchQueries);
+
 	@RequestLine("GET /search-api/v1/doc/{tenant}/{id}")
 	Document getDocument(@Param("tenant") String tenant, @Param("id") String docId);
 }
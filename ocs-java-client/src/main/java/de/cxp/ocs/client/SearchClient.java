@@ -1,6 +1,7 @@
 package de.cxp.ocs.client;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
@@ -8,6 +9,7 @@ import de.cxp.ocs.api.searcher.SearchService;
 import de.cxp.ocs.client.deserializer.ObjectMapperFactory;
 import de.cxp.ocs.model.index.Document;
 import de.cxp.ocs.model.params.ArrangedSearchQuery;
+import de.cxp.ocs.model.params.FilteredSearchQuery;
 import de.cxp.ocs.model.params.SearchQuery;
 import de.cxp.ocs.model.result.SearchResult;
 import feign.Feign;
@@ -65,6 +67,11 @@ public class SearchClient implements SearchService {
 		return target.arrangedSearch(tenant, searchQuery);
 	}
 
+	@Override
+	public List<SearchResult> batchSearch(String tenant, List<FilteredSearchQuery> searchQueries) throws Exception {
+		return target.batchSearch(tenant, searchQueries);
+	}
+
 	@Override
 	public Document getDocument(String tenant, String docId) throws Exception {
 		return target.getDocument(tenant, docId);
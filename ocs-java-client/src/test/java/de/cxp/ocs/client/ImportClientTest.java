@@ -0,0 +1,106 @@
+package de.cxp.ocs.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.cxp.ocs.api.indexer.ImportSession;
+import de.cxp.ocs.client.deserializer.ObjectMapperFactory;
+import de.cxp.ocs.model.index.Document;
+import de.cxp.ocs.model.index.Product;
+import feign.auth.BasicAuthRequestInterceptor;
+
+public class ImportClientTest {
+
+	private HttpServer server;
+
+	private volatile HttpExchange lastExchange;
+
+	private volatile List<String> receivedLines;
+
+	private volatile int responseStatus = 200;
+
+	@BeforeEach
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/indexer-api/v1/full/add-stream", exchange -> {
+			lastExchange = exchange;
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+				receivedLines = reader.lines().collect(Collectors.toList());
+			}
+			byte[] response = (responseStatus == 200 ? String.valueOf(receivedLines.size()) : "failed").getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(responseStatus, response.length);
+			exchange.getResponseBody().write(response);
+			exchange.close();
+		});
+		server.start();
+	}
+
+	@AfterEach
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	public void testDocumentsAreStreamedWithAuthHeader() throws IOException {
+		try (ImportClient underTest = createClient()) {
+			List<Document> documents = Arrays.asList(
+					new Document("1").set("title", "shirt"),
+					new Product("2").set("title", "pants"));
+			int indexed = underTest.addStream(new ImportSession("products", "products-tmp"), documents.iterator());
+
+			assertEquals(2, indexed);
+			assertEquals("finalIndexName=products&temporaryIndexName=products-tmp", lastExchange.getRequestURI().getQuery());
+			assertTrue(lastExchange.getRequestHeaders().getFirst("Content-Type").startsWith("application/x-ndjson"));
+			assertEquals("Basic " + Base64.getEncoder().encodeToString("user:secret".getBytes(StandardCharsets.UTF_8)),
+					lastExchange.getRequestHeaders().getFirst("Authorization"));
+			assertEquals(Arrays.asList("1", "2"), receivedLines.stream()
+					.map(ImportClientTest::readId)
+					.collect(Collectors.toList()));
+		}
+	}
+
+	@Test
+	public void testFailedStreamThrowsException() throws IOException {
+		responseStatus = 500;
+		try (ImportClient underTest = createClient()) {
+			IOException error = assertThrows(IOException.class,
+					() -> underTest.addStream(new ImportSession("products", "products-tmp"), Arrays.asList(new Document("1")).iterator()));
+			assertTrue(error.getMessage().contains("failed"));
+		}
+	}
+
+	private ImportClient createClient() {
+		return new ImportClient("http://localhost:" + server.getAddress().getPort() + "/", f -> {
+			f.encoder(ObjectMapperFactory.createJacksonEncoder());
+			f.decoder(ObjectMapperFactory.createJacksonDecoder());
+			f.requestInterceptor(new BasicAuthRequestInterceptor("user", "secret"));
+		});
+	}
+
+	private static String readId(String line) {
+		try {
+			return ObjectMapperFactory.createObjectMapper().readTree(line).get("id").asText();
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
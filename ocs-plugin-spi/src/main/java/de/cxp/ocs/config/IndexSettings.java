@@ -14,6 +14,48 @@ public class IndexSettings {
 
 	public int waitTimeMsForHealthyIndex = 3000;
 
+	/**
+	 * Amount of threads that are used to preprocess and convert the documents
+	 * of a single bulk. Defaults to 1, which means the documents are converted
+	 * on the request thread. All indexes share a pool that is bound to the
+	 * available processors.
+	 */
+	public int conversionParallelism = 1;
+
+	/**
+	 * Maximum size of a single bulk request to Elasticsearch, e.g. "5mb". If
+	 * Elasticsearch rejects a bulk as too large, the size is reduced
+	 * automatically.
+	 */
+	public String bulkSize = "5mb";
+
+	/**
+	 * Amount of bulk requests that are processed by Elasticsearch at the same
+	 * time during a full import.
+	 */
+	public int concurrentBulkRequests = 2;
+
+	/**
+	 * Time window in milliseconds during which patches of the update API are
+	 * collected and then written together. Several patches of the same
+	 * document within that window are merged into one. Defaults to 0, which
+	 * disables coalescing.
+	 */
+	public int patchCoalescingWindowMs = 0;
+
+	/**
+	 * If that amount of distinct documents is queued for coalescing, they are
+	 * written without waiting for the end of the window.
+	 */
+	public int patchCoalescingMaxDocuments = 10000;
+
+	/**
+	 * Maximum amount of received patch documents per index, that are queued or
+	 * not written yet. Further patches are rejected until the pending ones are
+	 * written.
+	 */
+	public int patchCoalescingMaxPendingDocuments = 100000;
+
 	@Getter
 	public boolean useDefaultConfig;
 }
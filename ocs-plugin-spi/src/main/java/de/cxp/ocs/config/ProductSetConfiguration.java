@@ -0,0 +1,71 @@
+package de.cxp.ocs.config;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Configuration about how the product sets of arranged search requests are
+ * resolved.
+ */
+@Getter // write setters with java-doc!
+@NoArgsConstructor
+@EqualsAndHashCode
+public class ProductSetConfiguration {
+
+	private int maxParallelResolutions = 4;
+
+	private int cacheTtlSeconds = 0;
+
+	private int cacheSize = 1000;
+
+	/**
+	 * Maximum amount of product sets of a single arranged search request that
+	 * are resolved at the same time. Defaults to 4. Set to 1 to resolve them
+	 * one after the other.
+	 * 
+	 * @param maxParallelResolutions
+	 *        max parallel resolutions (value &gt; 0)
+	 * @return self
+	 */
+	public ProductSetConfiguration setMaxParallelResolutions(int maxParallelResolutions) {
+		this.maxParallelResolutions = maxParallelResolutions;
+		return this;
+	}
+
+	/**
+	 * <p>
+	 * Time in seconds the resolved IDs of a dynamic product set are cached.
+	 * The IDs are cached per query, filters, sorting and limit of the product
+	 * set.
+	 * </p>
+	 * <p>
+	 * The cache is flushed automatically as soon as a switch of the
+	 * underlying index is detected and when a config reload changes this
+	 * product set configuration.
+	 * </p>
+	 * <p>
+	 * Defaults to 0, which disables that cache.
+	 * </p>
+	 * 
+	 * @param cacheTtlSeconds
+	 *        time to live in seconds (value &gt;= 0)
+	 * @return self
+	 */
+	public ProductSetConfiguration setCacheTtlSeconds(int cacheTtlSeconds) {
+		this.cacheTtlSeconds = cacheTtlSeconds;
+		return this;
+	}
+
+	/**
+	 * Maximum amount of cached dynamic product sets. Defaults to 1000.
+	 * 
+	 * @param cacheSize
+	 *        max cache size (value &gt; 0)
+	 * @return self
+	 */
+	public ProductSetConfiguration setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+		return this;
+	}
+}
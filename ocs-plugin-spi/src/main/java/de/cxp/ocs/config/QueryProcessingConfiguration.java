@@ -14,6 +14,22 @@ public class QueryProcessingConfiguration {
 
 	private String userQueryAnalyzer = null;
 
+	private int userQueryAnalyzerCacheSize = 0;
+
+	private int stagedSearchCacheSize = 0;
+
+	private int stagedSearchCacheTtlSeconds = 600;
+
+	private int speculativeStages = 1;
+
+	private int queryPredictionCacheSize = 0;
+
+	private int queryPredictionCacheTtlSeconds = 600;
+
+	private int localSpellDictionaryMaxTerms = 0;
+
+	private int trackTotalHitsUpTo = 10_000;
+
 	/**
 	 * <p>
 	 * List of custom query preprocessors (their canonical or simple class name)
@@ -56,4 +72,165 @@ public class QueryProcessingConfiguration {
 		return this;
 	}
 
+	/**
+	 * <p>
+	 * Maximum amount of preprocessed user queries for which the terms produced
+	 * by the userQueryAnalyzer are cached. This saves the repeated analysis
+	 * of frequent queries, which is especially worth it for the querqy based
+	 * analyzers with many rules.
+	 * </p>
+	 * <p>
+	 * Defaults to 0, which disables that cache.
+	 * </p>
+	 * 
+	 * @param userQueryAnalyzerCacheSize
+	 *        maximum amount of cached queries (value &gt;= 0)
+	 * @return self
+	 */
+	public QueryProcessingConfiguration setUserQueryAnalyzerCacheSize(int userQueryAnalyzerCacheSize) {
+		this.userQueryAnalyzerCacheSize = userQueryAnalyzerCacheSize;
+		return this;
+	}
+
+	/**
+	 * <p>
+	 * Maximum amount of analyzed queries for which the successful stage of the
+	 * staged search is remembered. With a known stage, repeated queries skip
+	 * the query stages that did not deliver a sufficient result before and
+	 * reuse the spell corrections that were applied.
+	 * </p>
+	 * <p>
+	 * Defaults to 0, which disables that cache.
+	 * </p>
+	 * 
+	 * @param stagedSearchCacheSize
+	 *        maximum amount of cached queries (value &gt;= 0)
+	 * @return self
+	 */
+	public QueryProcessingConfiguration setStagedSearchCacheSize(int stagedSearchCacheSize) {
+		this.stagedSearchCacheSize = stagedSearchCacheSize;
+		return this;
+	}
+
+	/**
+	 * Time in seconds after which a cached query stage is forgotten. Defaults
+	 * to 600 (10 minutes).
+	 * 
+	 * @param stagedSearchCacheTtlSeconds
+	 *        time to live in seconds (value &gt; 0)
+	 * @return self
+	 */
+	public QueryProcessingConfiguration setStagedSearchCacheTtlSeconds(int stagedSearchCacheTtlSeconds) {
+		this.stagedSearchCacheTtlSeconds = stagedSearchCacheTtlSeconds;
+		return this;
+	}
+
+	/**
+	 * <p>
+	 * Amount of query stages of the staged search that are sent together with
+	 * a single multi-search request. The first response (in stage order) that
+	 * is sufficient is used, the others are dropped. This saves round trips
+	 * for queries that need several stages, at the cost of more load at
+	 * Elasticsearch.
+	 * </p>
+	 * <p>
+	 * If spell correction changes the search words, the remaining stages are
+	 * executed with the corrected words as usual.
+	 * </p>
+	 * <p>
+	 * Defaults to 1, which means no speculative execution.
+	 * </p>
+	 * 
+	 * @param speculativeStages
+	 *        amount of stages per request (value &gt;= 1)
+	 * @return self
+	 */
+	public QueryProcessingConfiguration setSpeculativeStages(int speculativeStages) {
+		this.speculativeStages = speculativeStages;
+		return this;
+	}
+
+	/**
+	 * <p>
+	 * Maximum amount of analyzed queries for which the queries predicted by
+	 * the PredictionQueryFactory are cached. Each cached prediction saves an
+	 * additional request to Elasticsearch. The cache is cleared when the index
+	 * of the tenant changes.
+	 * </p>
+	 * <p>
+	 * Defaults to 0, which disables that cache.
+	 * </p>
+	 * 
+	 * @param queryPredictionCacheSize
+	 *        maximum amount of cached predictions (value &gt;= 0)
+	 * @return self
+	 */
+	public QueryProcessingConfiguration setQueryPredictionCacheSize(int queryPredictionCacheSize) {
+		this.queryPredictionCacheSize = queryPredictionCacheSize;
+		return this;
+	}
+
+	/**
+	 * Time in seconds after which a cached query prediction is forgotten.
+	 * Defaults to 600 (10 minutes).
+	 * 
+	 * @param queryPredictionCacheTtlSeconds
+	 *        time to live in seconds (value &gt; 0)
+	 * @return self
+	 */
+	public QueryProcessingConfiguration setQueryPredictionCacheTtlSeconds(int queryPredictionCacheTtlSeconds) {
+		this.queryPredictionCacheTtlSeconds = queryPredictionCacheTtlSeconds;
+		return this;
+	}
+
+	/**
+	 * <p>
+	 * If set, the spell correction of the staged search is done with a local
+	 * dictionary instead of term suggestions that are requested from
+	 * Elasticsearch together with the search requests. The dictionary is
+	 * built from up to that amount of the most frequent terms of each search
+	 * field. It's loaded in the background after the config was loaded and
+	 * again each time the index of the tenant changes. Until it's available,
+	 * the Elasticsearch term suggestions are used.
+	 * </p>
+	 * <p>
+	 * Search words that are not part of the dictionary are checked against the
+	 * index with an aggregation that is sent along with the search request, so
+	 * rare words that are indexed are not 'corrected'.
+	 * </p>
+	 * <p>
+	 * Defaults to 0, which disables the local dictionary.
+	 * </p>
+	 * 
+	 * @param localSpellDictionaryMaxTerms
+	 *        maximum amount of terms per search field (value &gt;= 0)
+	 * @return self
+	 */
+	public QueryProcessingConfiguration setLocalSpellDictionaryMaxTerms(int localSpellDictionaryMaxTerms) {
+		this.localSpellDictionaryMaxTerms = localSpellDictionaryMaxTerms;
+		return this;
+	}
+
+	/**
+	 * <p>
+	 * Limit up to which the hits of a search request are counted exactly.
+	 * Counting all hits of broad queries on big indexes is expensive, so above
+	 * that limit the match count is only a lower bound. In that case the meta
+	 * data of the result slice contains "matchCountRelation=gte", otherwise
+	 * "eq".
+	 * </p>
+	 * <p>
+	 * Defaults to 10000 (the Elasticsearch default). Set to -1 to always count
+	 * all hits exactly.
+	 * </p>
+	 * 
+	 * @param trackTotalHitsUpTo
+	 *        max amount of exactly counted hits (value &gt; 0) or -1
+	 * @return self
+	 */
+	public QueryProcessingConfiguration setTrackTotalHitsUpTo(int trackTotalHitsUpTo) {
+		this.trackTotalHitsUpTo = trackTotalHitsUpTo;
+		return this;
+	}
+
 }
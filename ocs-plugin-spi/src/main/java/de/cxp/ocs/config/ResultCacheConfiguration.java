@@ -0,0 +1,74 @@
+package de.cxp.ocs.config;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Configuration of the optional cache for complete search results.
+ */
+@Getter // write setters with java-doc!
+@NoArgsConstructor
+@EqualsAndHashCode
+public class ResultCacheConfiguration {
+
+	private boolean enabled = false;
+
+	private int ttlSeconds = 60;
+
+	private long maxBytes = 64 * 1024 * 1024;
+
+	/**
+	 * <p>
+	 * Set to true to cache the complete search results of the tenant. Results
+	 * are cached per distinct search query, filters, sorting, paging and facet
+	 * flag. Arranged searches are never cached.
+	 * </p>
+	 * <p>
+	 * The cache is flushed automatically as soon as a switch of the underlying
+	 * index is detected and when a config reload changes this cache
+	 * configuration. Other config changes only affect cached results after
+	 * their TTL expired.
+	 * </p>
+	 * <p>
+	 * Disabled per default.
+	 * </p>
+	 *
+	 * @param enabled
+	 *        set true to activate
+	 * @return self
+	 */
+	public ResultCacheConfiguration setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		return this;
+	}
+
+	/**
+	 * Time in seconds a result is served from the cache. Defaults to 60.
+	 *
+	 * @param ttlSeconds
+	 *        time to live in seconds (value &gt; 0)
+	 * @return self
+	 */
+	public ResultCacheConfiguration setTtlSeconds(int ttlSeconds) {
+		this.ttlSeconds = ttlSeconds;
+		return this;
+	}
+
+	/**
+	 * Upper limit for the approximated size of all cached results in bytes.
+	 * The size of a result is estimated from its content without serializing
+	 * it: strings are counted with two bytes per character, passed through
+	 * result data with the size of its raw JSON, and a small fixed overhead
+	 * is added per object, map entry and list element. This is closer to the
+	 * used heap than to the size of the JSON response. Defaults to 64MB.
+	 *
+	 * @param maxBytes
+	 *        max bytes (value &gt; 0)
+	 * @return self
+	 */
+	public ResultCacheConfiguration setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+		return this;
+	}
+}
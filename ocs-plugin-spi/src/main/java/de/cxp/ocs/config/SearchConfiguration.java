@@ -34,6 +34,10 @@ public class SearchConfiguration {
 
 	private String variantPickingStrategy = "pickIfBestScored";
 
+	private ResultCacheConfiguration resultCache = new ResultCacheConfiguration();
+
+	private ProductSetConfiguration productSets = new ProductSetConfiguration();
+
 	/**
 	 * Optional index-name that should be addressed by the tenant. If null, the
 	 * index name will be set to the tenant name.
@@ -92,6 +96,42 @@ public class SearchConfiguration {
 		return this;
 	}
 
+	/**
+	 * <p>
+	 * Optional configuration of the search result cache.
+	 * </p>
+	 * <p>
+	 * Per default the result cache is disabled.
+	 * </p>
+	 * 
+	 * @param resultCache
+	 *        result cache configuration
+	 * @return self
+	 */
+	public SearchConfiguration setResultCache(@NonNull ResultCacheConfiguration resultCache) {
+		this.resultCache = resultCache;
+		return this;
+	}
+
+	/**
+	 * <p>
+	 * Optional configuration about how product sets of arranged search
+	 * requests are resolved.
+	 * </p>
+	 * <p>
+	 * Per default up to 4 sets are resolved in parallel and dynamic product
+	 * sets are not cached.
+	 * </p>
+	 * 
+	 * @param productSets
+	 *        product set configuration
+	 * @return self
+	 */
+	public SearchConfiguration setProductSets(@NonNull ProductSetConfiguration productSets) {
+		this.productSets = productSets;
+		return this;
+	}
+
 	/**
 	 * <p>
 	 * Optional scoring configuration.
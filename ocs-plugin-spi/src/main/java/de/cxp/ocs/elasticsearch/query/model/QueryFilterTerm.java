@@ -27,6 +27,11 @@ public class QueryFilterTerm implements QueryStringTerm {
             + StringEscapeUtils.escapeJava(word);
     }
 
+    @Override
+    public QueryFilterTerm copy() {
+        return new QueryFilterTerm(field, word, occur);
+    }
+
     @Override
     public String toString() {
         return toQueryString();
@@ -21,4 +21,14 @@ public interface QueryStringTerm {
 
 	Occur getOccur();
 
+	/**
+	 * Creates a deep copy of the term, so that it can be modified without
+	 * affecting the original. Immutable terms may return themselves.
+	 * 
+	 * @return copied term
+	 */
+	default QueryStringTerm copy() {
+		return this;
+	}
+
 }
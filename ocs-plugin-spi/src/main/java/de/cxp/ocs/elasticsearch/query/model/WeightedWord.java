@@ -47,6 +47,11 @@ public class WeightedWord implements QueryStringTerm {
 				+ (weight != 1f ? "^" + weight : "");
 	}
 
+	@Override
+	public WeightedWord copy() {
+		return new WeightedWord(word, weight, termFrequency, isFuzzy, isQuoted, occur);
+	}
+
 	@Override
 	public String toString() {
 		return toQueryString();
@@ -80,6 +80,13 @@ public class WordAssociation implements QueryStringTerm {
 		return originalWord;
 	}
 
+	@Override
+	public WordAssociation copy() {
+		Map<String, QueryStringTerm> copiedRelatedWords = new HashMap<>(relatedWords.size());
+		relatedWords.forEach((relatedWord, relatedTerm) -> copiedRelatedWords.put(relatedWord, relatedTerm.copy()));
+		return new WordAssociation(originalWord, occur, copiedRelatedWords);
+	}
+
 	@Override
 	public String toString() {
 		return toQueryString();
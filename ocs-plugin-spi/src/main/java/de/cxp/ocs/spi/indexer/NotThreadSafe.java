@@ -0,0 +1,22 @@
+package de.cxp.ocs.spi.indexer;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link DocumentPreProcessor} or {@link DocumentPostProcessor}
+ * implementation that must not be called from several threads at the same
+ * time. If the documents of an index are converted in parallel (see
+ * 'conversionParallelism' of the index settings), each conversion thread gets
+ * its own initialized instance of such a processor.
+ * Processors without that annotation are expected to be thread-safe.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface NotThreadSafe {
+
+}
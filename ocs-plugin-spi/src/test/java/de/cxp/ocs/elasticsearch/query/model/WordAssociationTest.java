@@ -0,0 +1,35 @@
+package de.cxp.ocs.elasticsearch.query.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.junit.jupiter.api.Test;
+
+public class WordAssociationTest {
+
+	@Test
+	public void copyIsDeep() {
+		RawQueryString rawQuery = new RawQueryString("+shoe");
+		WordAssociation original = new WordAssociation("shoes", Arrays.asList(new WeightedWord("shoe", 0.8f)));
+		original.putOrUpdate(new QueryFilterTerm("brand", "nike"));
+		original.putOrUpdate(rawQuery);
+		original.setOccur(Occur.SHOULD);
+
+		WordAssociation copy = original.copy();
+		assertEquals(original, copy);
+		assertNotSame(original.getRelatedWords(), copy.getRelatedWords());
+		assertNotSame(original.getRelatedWords().get("shoe"), copy.getRelatedWords().get("shoe"));
+		assertNotSame(original.getRelatedWords().get("nike"), copy.getRelatedWords().get("nike"));
+		// immutable terms are shared
+		assertSame(rawQuery, copy.getRelatedWords().get("+shoe"));
+
+		((WeightedWord) copy.getRelatedWords().get("shoe")).setWeight(2f);
+		copy.putOrUpdate(new WeightedWord("sneaker", 0.5f));
+		assertEquals(0.8f, ((WeightedWord) original.getRelatedWords().get("shoe")).getWeight());
+		assertEquals(3, original.getRelatedWords().size());
+	}
+}
@@ -35,7 +35,11 @@ public interface UpdateIndexService {
 		/**
 		 * Used if the update was not done due to a negative precondition.
 		 */
-		DISMISSED
+		DISMISSED,
+		/**
+		 * Used if the update was queued and will be written later.
+		 */
+		QUEUED
 	}
 
 	/**
@@ -68,7 +72,8 @@ public interface UpdateIndexService {
 					+ " This is how single variants can be deleted.",
 			responses = {
 					@ApiResponse(responseCode = "200", description = "OK. The response contains a map of ids and according result."),
-					@ApiResponse(responseCode = "404", description = "index does not exist")
+					@ApiResponse(responseCode = "404", description = "index does not exist"),
+					@ApiResponse(responseCode = "429", description = "only used if patch coalescing is enabled: too many patches of that index are pending")
 			})
 	Map<String, Result> patchDocuments(@PathParam("indexName") String indexName, @RequestBody List<Document> docs);
 
@@ -1,5 +1,8 @@
 package de.cxp.ocs.api.searcher;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import javax.ws.rs.GET;
@@ -8,6 +11,7 @@ import javax.ws.rs.Path;
 
 import de.cxp.ocs.model.index.Document;
 import de.cxp.ocs.model.params.ArrangedSearchQuery;
+import de.cxp.ocs.model.params.FilteredSearchQuery;
 import de.cxp.ocs.model.params.SearchQuery;
 import de.cxp.ocs.model.result.SearchResult;
 import io.swagger.v3.oas.annotations.Operation;
@@ -177,6 +181,61 @@ public interface SearchService {
 					required = true) ArrangedSearchQuery searchQuery)
 			throws Exception;
 
+	/**
+	 * Runs several independent search requests for the same tenant at once,
+	 * e.g. for several product carousels on the same page.
+	 * 
+	 * @param tenant
+	 *        the name that correlates to the index configuration
+	 * @param searchQueries
+	 *        list of search queries with their filters
+	 * @return
+	 *         the results in the order of the given queries. If a single
+	 *         request failed, its result has no slices and the meta data
+	 *         contains an 'error' and a 'code' entry, with code 400 for
+	 *         invalid parameters and 500 for internal errors.
+	 *         The default implementation runs the queries one after another
+	 *         with {@link #search(String, SearchQuery, Map)} and fails on the
+	 *         first failed request instead.
+	 * @throws Exception
+	 *         <ul>
+	 *         <li>if tenant can't be accessed</li>
+	 *         <li>if according index does not exist</li>
+	 *         </ul>
+	 */
+	@POST
+	@Path("search/batch/{tenant}")
+	@Operation(
+			summary = "Run several searches at once",
+			description = "Runs several independent search requests for a certain tenant with a single call."
+					+ " The results are returned in the order of the requests.",
+			responses = {
+					@ApiResponse(
+							responseCode = "200",
+							description = "list of results. Failed requests are represented by a result with an 'error' and a 'code' meta entry and no slices."
+									+ " The code is 400 for invalid parameters and 500 for internal errors"),
+					@ApiResponse(
+							responseCode = "404",
+							description = "response code if tenant is unknown or index does not exist",
+							content = @Content(mediaType = "text/plain"))
+			})
+	public default List<SearchResult> batchSearch(
+			@Parameter(
+					in = ParameterIn.PATH,
+					name = "tenant",
+					description = "tenant name",
+					required = true) String tenant,
+			@RequestBody(
+					description = "A list of search queries with their filters",
+					required = true) List<FilteredSearchQuery> searchQueries)
+			throws Exception {
+		List<SearchResult> results = new ArrayList<>(searchQueries.size());
+		for (FilteredSearchQuery searchQuery : searchQueries) {
+			results.add(search(tenant, searchQuery, searchQuery.filters == null ? Collections.emptyMap() : searchQuery.filters));
+		}
+		return results;
+	}
+
 	@GET
 	@Path("doc/{tenant}/{id}")
 	public Document getDocument(
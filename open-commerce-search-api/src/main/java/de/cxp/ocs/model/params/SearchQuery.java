@@ -48,8 +48,9 @@ public class SearchQuery {
 			+ "values using comma.", example = "sort=price,-name (price asc and name descending)")
 	public String sort;
 
-	@Min(1)
-	@Schema(description = "The amount of products to return in the result")
+	@Min(0)
+	@Schema(description = "The amount of products to return in the result. "
+			+ "With limit=0 only the match count and the facets are returned.")
 	public int limit = 12;
 
 	@Min(0)
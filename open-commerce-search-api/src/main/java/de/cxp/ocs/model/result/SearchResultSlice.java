@@ -1,6 +1,7 @@
 package de.cxp.ocs.model.result;
 
 import java.util.List;
+import java.util.Map;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
@@ -62,4 +63,11 @@ public class SearchResultSlice {
 	@Schema(description = "If facets are part of this slice, they are placed here. By default only one slice SHOULD contain facets.")
 	public List<Facet> facets;
 
+	/**
+	 * Additional optional payload of that slice, e.g. the relation of the
+	 * match count.
+	 */
+	@Schema(description = "Additional optional payload of that slice, e.g. the relation of the match count.")
+	public Map<String, Object> meta;
+
 }
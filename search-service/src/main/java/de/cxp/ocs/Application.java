@@ -1,6 +1,8 @@
 package de.cxp.ocs;
 
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.elasticsearch.client.RestClientBuilder;
 import org.springframework.boot.SpringApplication;
@@ -15,6 +17,7 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.jsontype.NamedType;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import de.cxp.ocs.config.ApplicationProperties;
 import de.cxp.ocs.config.DefaultSearchConfigurationProvider;
@@ -60,6 +63,18 @@ public class Application {
 		return new SearchPlugins(pluginManager, configurationProvider.orElse(defaultConfigProvider));
 	}
 
+	@Bean(destroyMethod = "shutdown")
+	public ExecutorService asyncSearchExecutor(ApplicationProperties properties) {
+		int threads = properties.getAsyncSearch().getThreads();
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		return Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+				.setNameFormat("async-search-%d")
+				.setDaemon(true)
+				.build());
+	}
+
 	@Bean
 	public Module mixinModule() {
 		SimpleModule module = new SimpleModule();
@@ -5,10 +5,7 @@ import static de.cxp.ocs.util.SearchParamsParser.extractInternalParams;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -30,6 +27,7 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 
 import de.cxp.ocs.api.searcher.SearchService;
+import de.cxp.ocs.config.AsyncSearchMapping;
 import de.cxp.ocs.config.FieldConfigIndex;
 import de.cxp.ocs.config.FieldConfiguration;
 import de.cxp.ocs.config.SearchConfiguration;
@@ -38,8 +36,10 @@ import de.cxp.ocs.elasticsearch.FieldConfigFetcher;
 import de.cxp.ocs.elasticsearch.Searcher;
 import de.cxp.ocs.elasticsearch.mapper.ResultMapper;
 import de.cxp.ocs.elasticsearch.prodset.HeroProductHandler;
+import de.cxp.ocs.elasticsearch.prodset.ProductSetCache;
 import de.cxp.ocs.model.index.Document;
 import de.cxp.ocs.model.params.ArrangedSearchQuery;
+import de.cxp.ocs.model.params.FilteredSearchQuery;
 import de.cxp.ocs.model.params.ProductSet;
 import de.cxp.ocs.model.params.SearchQuery;
 import de.cxp.ocs.model.result.SearchResult;
@@ -47,6 +47,7 @@ import de.cxp.ocs.spi.search.UserQueryPreprocessor;
 import de.cxp.ocs.util.InternalSearchParams;
 import de.cxp.ocs.util.NotFoundException;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.swagger.v3.oas.annotations.Hidden;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.NonNull;
@@ -71,10 +72,17 @@ public class SearchController implements SearchService {
 	@Autowired
 	private MeterRegistry registry;
 
+	@Autowired
+	private ExecutorService asyncSearchExecutor;
+
 	private final Map<String, SearchContext> searchContexts = new ConcurrentHashMap<>();
 
 	private final Map<String, String> actualIndexPerTenant = new ConcurrentHashMap<>();
 
+	private final Map<String, SearchResultCache> resultCaches = new ConcurrentHashMap<>();
+
+	private final Map<String, ProductSetCache> productSetCaches = new ConcurrentHashMap<>();
+
 	private final Cache<String, Searcher> searchClientCache = CacheBuilder.newBuilder()
 			.expireAfterAccess(10, TimeUnit.MINUTES)
 			.build();
@@ -144,12 +152,152 @@ public class SearchController implements SearchService {
 		return internalSearch(tenant, searchQuery, filters, null);
 	}
 
+	@Hidden
+	@AsyncSearchMapping
+	@GetMapping("/search/{tenant}")
+	public CompletableFuture<SearchResult> searchAsync(@PathVariable("tenant") String tenant, SearchQuery searchQuery, @RequestParam Map<String, String> filters) {
+		return internalSearchAsync(tenant, searchQuery, filters, null);
+	}
+
 	@PostMapping("/search/arranged/{tenant}")
 	@Override
 	public SearchResult arrangedSearch(@PathVariable("tenant") String tenant, @RequestBody ArrangedSearchQuery searchQuery) throws Exception {
 		return internalSearch(tenant, searchQuery, searchQuery.filters, searchQuery.arrangedProductSets);
 	}
 
+	@Hidden
+	@AsyncSearchMapping
+	@PostMapping("/search/arranged/{tenant}")
+	public CompletableFuture<SearchResult> arrangedSearchAsync(@PathVariable("tenant") String tenant, @RequestBody ArrangedSearchQuery searchQuery) {
+		return internalSearchAsync(tenant, searchQuery, searchQuery.filters, searchQuery.arrangedProductSets);
+	}
+
+	@Hidden
+	@AsyncSearchMapping
+	@PostMapping("/search/batch/{tenant}")
+	public CompletableFuture<List<SearchResult>> batchSearchAsync(@PathVariable("tenant") String tenant, @RequestBody List<FilteredSearchQuery> searchQueries) {
+		return internalBatchSearch(tenant, searchQueries, true);
+	}
+
+	@PostMapping("/search/batch/{tenant}")
+	@Override
+	public List<SearchResult> batchSearch(@PathVariable("tenant") String tenant, @RequestBody List<FilteredSearchQuery> searchQueries) throws Exception {
+		try {
+			return internalBatchSearch(tenant, searchQueries, false).join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private CompletableFuture<List<SearchResult>> internalBatchSearch(String tenant, List<FilteredSearchQuery> searchQueries, boolean async) {
+		MDC.put("tenant", tenant);
+		try {
+			checkTenant(tenant);
+
+			long start = System.currentTimeMillis();
+			SearchContext searchContext = searchContexts.computeIfAbsent(tenant, this::loadContext);
+			final Searcher searcher = searchClientCache.get(tenant, () -> initializeSearcher(searchContext));
+
+			// invalid parameters only fail the according request
+			List<CompletableFuture<SearchResult>> results = new ArrayList<>(searchQueries.size());
+			List<InternalSearchParams> validParameters = new ArrayList<>(searchQueries.size());
+			List<CompletableFuture<SearchResult>> pendingResults = new ArrayList<>(searchQueries.size());
+			for (FilteredSearchQuery searchQuery : searchQueries) {
+				try {
+					validParameters.add(extractInternalParams(searchQuery, searchQuery.filters == null ? Collections.emptyMap() : searchQuery.filters, searchContext));
+					CompletableFuture<SearchResult> pendingResult = new CompletableFuture<>();
+					pendingResults.add(pendingResult);
+					results.add(pendingResult);
+				}
+				catch (IllegalArgumentException e) {
+					results.add(CompletableFuture.completedFuture(toInvalidParametersResult(e)));
+				}
+				catch (RuntimeException e) {
+					results.add(CompletableFuture.failedFuture(e));
+				}
+			}
+
+			List<CompletableFuture<SearchResult>> searchResults = async ? searcher.findBatchAsync(validParameters) : searcher.findBatch(validParameters);
+			for (int i = 0; i < searchResults.size(); i++) {
+				CompletableFuture<SearchResult> pendingResult = pendingResults.get(i);
+				searchResults.get(i).whenComplete((result, error) -> {
+					if (error != null) pendingResult.completeExceptionally(error);
+					else pendingResult.complete(result);
+				});
+			}
+
+			return CompletableFuture.allOf(results.toArray(new CompletableFuture[results.size()]))
+					.handle((done, ignored) -> {
+						List<SearchResult> batchResult = new ArrayList<>(results.size());
+						boolean indexChecked = false;
+						for (CompletableFuture<SearchResult> result : results) {
+							try {
+								SearchResult searchResult = result.join();
+								if (!indexChecked) {
+									triggerFlushIfNecessary(tenant, searchResult);
+									indexChecked = true;
+								}
+								searchResult.tookInMillis = System.currentTimeMillis() - start;
+								batchResult.add(searchResult);
+							}
+							catch (CompletionException e) {
+								batchResult.add(toErrorResult(tenant, e.getCause()));
+							}
+						}
+						return batchResult;
+					});
+		}
+		catch (ElasticsearchStatusException esx) {
+			try {
+				handleUnavailableIndex(tenant, esx);
+			}
+			catch (NotFoundException notFound) {
+				return CompletableFuture.failedFuture(notFound);
+			}
+			return CompletableFuture.failedFuture(esx);
+		}
+		catch (Exception e) {
+			return CompletableFuture.failedFuture(e);
+		}
+		finally {
+			MDC.remove("tenant");
+		}
+	}
+
+	private SearchResult toErrorResult(String tenant, Throwable error) {
+		if (error instanceof ElasticsearchStatusException) {
+			try {
+				handleUnavailableIndex(tenant, (ElasticsearchStatusException) error);
+			}
+			catch (NotFoundException notFound) {
+				throw new CompletionException(notFound);
+			}
+		}
+		final String errorId = UUID.randomUUID().toString();
+		log.error("Internal Server Error {} for batch search request of tenant {}", errorId, tenant, error);
+		Map<String, Object> meta = new HashMap<>();
+		meta.put("error", "Internal Error");
+		meta.put("code", HttpStatus.INTERNAL_SERVER_ERROR.value());
+		meta.put("errorId", errorId);
+		return new SearchResult().setMeta(meta);
+	}
+
+	/**
+	 * Same representation as the response of
+	 * {@link #handleInvalidParameters(IllegalArgumentException)} for a single
+	 * search request.
+	 */
+	private SearchResult toInvalidParametersResult(IllegalArgumentException error) {
+		Map<String, Object> meta = new HashMap<>();
+		meta.put("error", error.getMessage());
+		meta.put("code", HttpStatus.BAD_REQUEST.value());
+		return new SearchResult().setMeta(meta);
+	}
+
 	private SearchResult internalSearch(String tenant, SearchQuery searchQuery, Map<String, String> filters, ProductSet[] heroProducts) throws Exception {
 		MDC.put("tenant", tenant);
 		try {
@@ -165,12 +313,16 @@ public class SearchController implements SearchService {
 
 				final Searcher searcher = searchClientCache.get(tenant, () -> initializeSearcher(searchContext));
 				if (heroProducts != null) {
-					parameters.heroProductSets = HeroProductHandler.resolve(heroProducts, searcher, searchContext);
+					parameters.heroProductSets = HeroProductHandler.resolve(heroProducts, searcher, searchContext, getProductSetCache(tenant));
 				}
 
-				SearchResult result = searcher.find(parameters);
-
-				triggerFlushIfNecessary(tenant, result);
+				SearchResult result = getResultCache(tenant).get(parameters, () -> {
+					SearchResult freshResult = searcher.find(parameters);
+					// only check fresh results, cached ones may come from the
+					// previous index
+					triggerFlushIfNecessary(tenant, freshResult);
+					return freshResult;
+				});
 
 				result.tookInMillis = System.currentTimeMillis() - start;
 				return result;
@@ -193,12 +345,91 @@ public class SearchController implements SearchService {
 		}
 	}
 
+	/**
+	 * Same as internalSearch, but the servlet thread is released and no thread
+	 * waits for Elasticsearch.
+	 */
+	private CompletableFuture<SearchResult> internalSearchAsync(String tenant, SearchQuery searchQuery, Map<String, String> filters, ProductSet[] heroProducts) {
+		MDC.put("tenant", tenant);
+		try {
+			checkTenant(tenant);
+
+			long start = System.currentTimeMillis();
+			SearchContext searchContext = searchContexts.computeIfAbsent(tenant, this::loadContext);
+
+			final InternalSearchParams parameters = extractInternalParams(searchQuery, filters, searchContext);
+
+			final Searcher searcher = searchClientCache.get(tenant, () -> initializeSearcher(searchContext));
+			CompletableFuture<InternalSearchParams> resolvedParameters;
+			if (heroProducts != null) {
+				resolvedParameters = HeroProductHandler.resolveAsync(heroProducts, searcher, searchContext, getProductSetCache(tenant))
+						.thenApply(heroProductSets -> {
+							parameters.heroProductSets = heroProductSets;
+							return parameters;
+						});
+			}
+			else {
+				resolvedParameters = CompletableFuture.completedFuture(parameters);
+			}
+
+			CompletableFuture<SearchResult> result = resolvedParameters
+					.thenCompose(params -> getResultCache(tenant).getAsync(params, () -> searcher.findAsync(params)
+							.thenApply(freshResult -> {
+								// only check fresh results, cached ones may come
+								// from the previous index
+								triggerFlushIfNecessary(tenant, freshResult);
+								return freshResult;
+							})))
+					.thenApply(searchResult -> {
+						searchResult.tookInMillis = System.currentTimeMillis() - start;
+						return searchResult;
+					});
+			return handleSearchErrors(tenant, result);
+		}
+		catch (ElasticsearchStatusException esx) {
+			return handleSearchErrors(tenant, CompletableFuture.failedFuture(esx));
+		}
+		catch (Exception e) {
+			return CompletableFuture.failedFuture(e);
+		}
+		finally {
+			MDC.remove("tenant");
+		}
+	}
+
+	private CompletableFuture<SearchResult> handleSearchErrors(String tenant, CompletableFuture<SearchResult> searchResult) {
+		CompletableFuture<SearchResult> handledResult = new CompletableFuture<>();
+		searchResult.whenComplete((result, error) -> {
+			if (error == null) {
+				handledResult.complete(result);
+				return;
+			}
+			Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+			if (cause instanceof ElasticsearchStatusException) {
+				try {
+					handleUnavailableIndex(tenant, (ElasticsearchStatusException) cause);
+				}
+				catch (NotFoundException notFound) {
+					cause = notFound;
+				}
+			}
+			handledResult.completeExceptionally(cause);
+		});
+		return handledResult;
+	}
+
 	private void triggerFlushIfNecessary(String tenant, SearchResult result) {
 		if (result.getSlices().size() > 0 && result.getSlices().get(0).hits.size() > 0) {
 			String indexName = result.getSlices().get(0).hits.get(0).index;
 			String prevIndexName = actualIndexPerTenant.put(tenant, indexName);
 			if (prevIndexName != null && !indexName.equals(prevIndexName)) {
-				log.info("flushing config for tenant {} because actual index changed from {} to {}", prevIndexName, indexName);
+				log.info("flushing config for tenant {} because actual index changed from {} to {}", tenant, prevIndexName, indexName);
+				getResultCache(tenant).invalidate();
+				getProductSetCache(tenant).invalidate();
+				Searcher searcher = searchClientCache.getIfPresent(tenant);
+				if (searcher != null) {
+					searcher.onIndexChange();
+				}
 				CompletableFuture.runAsync(() -> flushConfig(tenant));
 			}
 		}
@@ -216,6 +447,8 @@ public class SearchController implements SearchService {
 			// don't keep objects for invalid tenants
 			SearchContext removedContext = searchContexts.remove(tenant);
 			searchClientCache.invalidate(tenant);
+			getResultCache(tenant).invalidate();
+			getProductSetCache(tenant).invalidate();
 
 			String indexName = removedContext != null ? removedContext.config.getIndexName() : tenant;
 			NotFoundException notFoundException = new NotFoundException("Index " + indexName);
@@ -274,11 +507,28 @@ public class SearchController implements SearchService {
 		return tenants.toArray(new String[tenants.size()]);
 	}
 
-	private Searcher initializeSearcher(SearchContext searchContext) {
-		return new Searcher(esBuilder.getRestHLClient(), searchContext, registry, plugins);
+	Searcher initializeSearcher(SearchContext searchContext) {
+		return new Searcher(esBuilder.getRestHLClient(), searchContext, registry, plugins, asyncSearchExecutor);
+	}
+
+	private SearchResultCache getResultCache(String tenant) {
+		return resultCaches.computeIfAbsent(tenant, t -> new SearchResultCache(t, registry));
+	}
+
+	private ProductSetCache getProductSetCache(String tenant) {
+		return productSetCaches.computeIfAbsent(tenant, t -> new ProductSetCache(t, registry));
 	}
 
 	private SearchContext loadContext(String tenant) {
+		SearchContext searchContext = createContext(tenant);
+		// the caches are only reset if their configuration changed, otherwise
+		// the scheduled config refresh would flush them every time
+		getResultCache(tenant).configure(searchContext.config.getResultCache());
+		getProductSetCache(tenant).configure(searchContext.config.getProductSets());
+		return searchContext;
+	}
+
+	SearchContext createContext(String tenant) {
 		SearchConfiguration searchConfig = plugins.getConfigurationProvider().getTenantSearchConfiguration(tenant);
 		FieldConfigIndex fieldConfigAccess = loadFieldConfiguration(searchConfig.getIndexName());
 		List<UserQueryPreprocessor> userQueryPreprocessors = SearchPlugins.initialize(
@@ -310,6 +560,15 @@ public class SearchController implements SearchService {
 						.build());
 	}
 
+	@ExceptionHandler({ IllegalArgumentException.class })
+	public ResponseEntity<ExceptionResponse> handleInvalidParameters(IllegalArgumentException e) {
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+				.body(ExceptionResponse.builder()
+						.message(e.getMessage())
+						.code(HttpStatus.BAD_REQUEST.value())
+						.build());
+	}
+
 	@ExceptionHandler({ ElasticsearchStatusException.class, ExecutionException.class, IOException.class, UncheckedIOException.class, RuntimeException.class,
 			ClassNotFoundException.class })
 	public ResponseEntity<ExceptionResponse> handleInternalErrors(final HttpServletRequest request, Exception e) {
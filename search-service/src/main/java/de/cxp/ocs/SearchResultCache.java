@@ -0,0 +1,454 @@
+package de.cxp.ocs;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+
+import de.cxp.ocs.config.ResultCacheConfiguration;
+import de.cxp.ocs.elasticsearch.mapper.RawResultData;
+import de.cxp.ocs.model.index.Document;
+import de.cxp.ocs.model.index.Product;
+import de.cxp.ocs.model.result.Facet;
+import de.cxp.ocs.model.result.FacetEntry;
+import de.cxp.ocs.model.result.HierarchialFacetEntry;
+import de.cxp.ocs.model.result.IntervalFacetEntry;
+import de.cxp.ocs.model.result.RangeFacetEntry;
+import de.cxp.ocs.model.result.ResultHit;
+import de.cxp.ocs.model.result.SearchResult;
+import de.cxp.ocs.model.result.SearchResultSlice;
+import de.cxp.ocs.util.InternalSearchParams;
+import de.cxp.ocs.util.SearchParamsKeys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Optional tenant specific cache for complete search results. Concurrent
+ * requests with the same parameters are coalesced, so only one of them
+ * executes the actual search while the others wait for that result.
+ */
+public class SearchResultCache {
+
+	private volatile Cache<String, CachedResult> cache;
+
+	private ResultCacheConfiguration currentConfig;
+
+	private final Map<String, CompletableFuture<CachedResult>> loading = new ConcurrentHashMap<>();
+
+	private final AtomicInteger generation = new AtomicInteger();
+
+	private final AtomicLong	bytesHeld	= new AtomicLong();
+	private final Counter		hitCounter;
+	private final Counter		missCounter;
+	private final Counter		evictionCounter;
+
+	public SearchResultCache(String tenant, MeterRegistry registry) {
+		hitCounter = Counter.builder("searchResultCacheHits").tag("tenant", tenant).register(registry);
+		missCounter = Counter.builder("searchResultCacheMisses").tag("tenant", tenant).register(registry);
+		evictionCounter = Counter.builder("searchResultCacheEvictions").tag("tenant", tenant).register(registry);
+		Gauge.builder("searchResultCacheBytes", bytesHeld, AtomicLong::get).tag("tenant", tenant)
+				.strongReference(true)
+				.register(registry);
+		Gauge.builder("searchResultCacheHitRatio", this, SearchResultCache::getHitRatio).tag("tenant", tenant)
+				.strongReference(true)
+				.register(registry);
+	}
+
+	/**
+	 * (Re)configures that cache, if the configuration changed. In that case
+	 * all cached results are dropped.
+	 *
+	 * @param cacheConfig
+	 *        cache configuration of the tenant
+	 */
+	public synchronized void configure(ResultCacheConfiguration cacheConfig) {
+		if (cacheConfig.equals(currentConfig)) return;
+		currentConfig = cacheConfig;
+		Cache<String, CachedResult> newCache = null;
+		if (cacheConfig.isEnabled() && cacheConfig.getTtlSeconds() > 0 && cacheConfig.getMaxBytes() > 0) {
+			newCache = CacheBuilder.newBuilder()
+					.maximumWeight(cacheConfig.getMaxBytes())
+					.weigher((String key, CachedResult value) -> value.weight)
+					.expireAfterWrite(cacheConfig.getTtlSeconds(), TimeUnit.SECONDS)
+					.removalListener(this::onRemoval)
+					.build();
+		}
+		Cache<String, CachedResult> oldCache = cache;
+		generation.incrementAndGet();
+		cache = newCache;
+		if (oldCache != null) {
+			oldCache.invalidateAll();
+		}
+	}
+
+	/**
+	 * Drop all cached results.
+	 */
+	public void invalidate() {
+		Cache<String, CachedResult> currentCache = cache;
+		generation.incrementAndGet();
+		if (currentCache != null) {
+			currentCache.invalidateAll();
+		}
+	}
+
+	/**
+	 * Returns the cached result for the given parameters or uses the given
+	 * search function to get it. If the cache is disabled or the parameters are
+	 * not cacheable, the search function is called directly.
+	 *
+	 * @param parameters
+	 *        internal search parameters
+	 * @param search
+	 *        function to retrieve the result
+	 * @return cached result or the result of the search function
+	 * @throws Exception
+	 *         the exception of the search function
+	 */
+	public SearchResult get(InternalSearchParams parameters, Callable<SearchResult> search) throws Exception {
+		CompletableFuture<SearchResult> result = getAsync(parameters, () -> {
+			try {
+				return CompletableFuture.completedFuture(search.call());
+			}
+			catch (Exception e) {
+				return CompletableFuture.failedFuture(e);
+			}
+		});
+		try {
+			return result.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Same as {@link #get(InternalSearchParams, Callable)} for a search
+	 * function that returns a future result.
+	 *
+	 * @param parameters
+	 *        internal search parameters
+	 * @param search
+	 *        function to retrieve the result
+	 * @return future of the cached result or the result of the search function
+	 */
+	public CompletableFuture<SearchResult> getAsync(InternalSearchParams parameters, Supplier<CompletableFuture<SearchResult>> search) {
+		Cache<String, CachedResult> currentCache = cache;
+		if (currentCache == null || parameters.heroProductSets != null
+				|| (parameters.excludedIds != null && !parameters.excludedIds.isEmpty())) {
+			return search.get();
+		}
+
+		String key = SearchParamsKeys.toKey(parameters);
+		CachedResult cachedResult = currentCache.getIfPresent(key);
+		if (cachedResult != null) {
+			hitCounter.increment();
+			return CompletableFuture.completedFuture(cachedResult.copy());
+		}
+
+		missCounter.increment();
+		// simultaneous identical requests wait for the same search
+		CompletableFuture<CachedResult> load = new CompletableFuture<>();
+		CompletableFuture<CachedResult> runningLoad = loading.putIfAbsent(key, load);
+		if (runningLoad == null) {
+			runningLoad = load;
+			int loadGeneration = generation.get();
+			CompletableFuture<SearchResult> searchResult;
+			try {
+				searchResult = search.get();
+			}
+			catch (RuntimeException e) {
+				searchResult = CompletableFuture.failedFuture(e);
+			}
+			searchResult.whenComplete((result, error) -> {
+				if (error != null) {
+					loading.remove(key, load);
+					load.completeExceptionally(error);
+				}
+				else {
+					CachedResult newCachedResult = new CachedResult(result);
+					// don't cache results that were loaded before the cache
+					// was invalidated
+					if (loadGeneration == generation.get()) {
+						currentCache.put(key, newCachedResult);
+					}
+					else {
+						bytesHeld.addAndGet(-newCachedResult.weight);
+					}
+					loading.remove(key, load);
+					load.complete(newCachedResult);
+				}
+			});
+		}
+		return runningLoad.thenApply(CachedResult::copy);
+	}
+
+	private void onRemoval(RemovalNotification<String, CachedResult> notification) {
+		if (notification.wasEvicted()) {
+			evictionCounter.increment();
+		}
+		if (notification.getValue() != null) {
+			bytesHeld.addAndGet(-notification.getValue().weight);
+		}
+	}
+
+	private double getHitRatio() {
+		double requests = hitCounter.count() + missCounter.count();
+		return requests == 0 ? 0 : hitCounter.count() / requests;
+	}
+
+	private class CachedResult {
+
+		private final SearchResult result;
+
+		private final int weight;
+
+		CachedResult(SearchResult result) {
+			this.result = result;
+			this.weight = estimateSize(result);
+			bytesHeld.addAndGet(weight);
+		}
+
+		/**
+		 * Results are shared between requests, so each request gets a deep
+		 * copy with its own slices, hits and facets. Only immutable values
+		 * and the raw result data are shared.
+		 */
+		SearchResult copy() {
+			return new SearchResult()
+					.setInputURI(result.inputURI)
+					.setSlices(copyList(result.slices, SearchResultCache::copySlice))
+					.setSortOptions(result.sortOptions == null ? null : new ArrayList<>(result.sortOptions))
+					.setMeta(result.meta == null ? new HashMap<>() : copyMap(result.meta));
+		}
+	}
+
+	private static SearchResultSlice copySlice(SearchResultSlice slice) {
+		return new SearchResultSlice()
+				.setLabel(slice.label)
+				.setMatchCount(slice.matchCount)
+				.setNextOffset(slice.nextOffset)
+				.setNextLink(slice.nextLink)
+				.setResultLink(slice.resultLink)
+				.setHits(copyList(slice.hits, SearchResultCache::copyHit))
+				.setFacets(copyList(slice.facets, SearchResultCache::copyFacet))
+				.setMeta(slice.meta == null ? null : copyMap(slice.meta));
+	}
+
+	private static ResultHit copyHit(ResultHit hit) {
+		return new ResultHit()
+				.setIndex(hit.index)
+				.setDocument(hit.document == null ? null : copyDocument(hit.document))
+				.setMatchedQueries(hit.matchedQueries == null ? null : hit.matchedQueries.clone());
+	}
+
+	private static Document copyDocument(Document doc) {
+		Document copy;
+		if (doc instanceof Product) {
+			Document[] variants = ((Product) doc).variants;
+			if (variants != null) {
+				Document[] copiedVariants = new Document[variants.length];
+				for (int i = 0; i < variants.length; i++) {
+					copiedVariants[i] = copyDocument(variants[i]);
+				}
+				variants = copiedVariants;
+			}
+			copy = new Product(doc.id).setVariants(variants);
+		}
+		else {
+			copy = new Document(doc.id);
+		}
+		if (doc.data instanceof RawResultData && !((RawResultData) doc.data).isParsed()) {
+			copy.setData(((RawResultData) doc.data).copy());
+		}
+		else if (doc.data != null) {
+			copy.setData(copyMap(doc.data));
+		}
+		else {
+			copy.setData(null);
+		}
+		copy.attributes = doc.attributes == null ? null : new ArrayList<>(doc.attributes);
+		copy.categories = doc.categories == null ? null : new ArrayList<>(doc.categories);
+		return copy;
+	}
+
+	private static Facet copyFacet(Facet facet) {
+		return new Facet(facet.fieldName)
+				.setAbsoluteFacetCoverage(facet.absoluteFacetCoverage)
+				.setFiltered(facet.isFiltered)
+				.setType(facet.type)
+				.setEntries(copyList(facet.entries, SearchResultCache::copyFacetEntry))
+				.setMeta(facet.meta == null ? null : copyMap(facet.meta));
+	}
+
+	private static FacetEntry copyFacetEntry(FacetEntry entry) {
+		FacetEntry copy;
+		if (entry.getClass() == FacetEntry.class) {
+			copy = new FacetEntry();
+		}
+		else if (entry instanceof HierarchialFacetEntry) {
+			HierarchialFacetEntry hierarchialEntry = (HierarchialFacetEntry) entry;
+			copy = new HierarchialFacetEntry()
+					.setPath(hierarchialEntry.path)
+					.setChildren(copyList(hierarchialEntry.children, SearchResultCache::copyFacetEntry));
+		}
+		else if (entry instanceof IntervalFacetEntry) {
+			IntervalFacetEntry intervalEntry = (IntervalFacetEntry) entry;
+			copy = new IntervalFacetEntry(intervalEntry.getLowerBound(), intervalEntry.getUpperBound(), entry.docCount, entry.link, entry.selected);
+		}
+		else if (entry instanceof RangeFacetEntry) {
+			RangeFacetEntry rangeEntry = (RangeFacetEntry) entry;
+			copy = new RangeFacetEntry(rangeEntry.getLowerBound(), rangeEntry.getUpperBound(), entry.docCount, entry.link, entry.selected)
+					.setSelectedMin(rangeEntry.getSelectedMin())
+					.setSelectedMax(rangeEntry.getSelectedMax());
+		}
+		else {
+			// unknown entry types of plugins can't be copied
+			return entry;
+		}
+		copy.setKey(entry.key);
+		copy.setId(entry.id);
+		copy.setDocCount(entry.docCount);
+		copy.setLink(entry.link);
+		copy.setSelected(entry.selected);
+		return copy;
+	}
+
+	private static <T> List<T> copyList(List<T> list, UnaryOperator<T> elementCopy) {
+		if (list == null) return null;
+		List<T> copy = new ArrayList<>(list.size());
+		for (T element : list) {
+			copy.add(element == null ? null : elementCopy.apply(element));
+		}
+		return copy;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> copyMap(Map<String, Object> map) {
+		return (Map<String, Object>) copyValue(map);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Object copyValue(Object value) {
+		if (value instanceof RawResultData && !((RawResultData) value).isParsed()) {
+			return ((RawResultData) value).copy();
+		}
+		if (value instanceof Map) {
+			Map<Object, Object> copy = new LinkedHashMap<>();
+			((Map<Object, Object>) value).forEach((k, v) -> copy.put(k, copyValue(v)));
+			return copy;
+		}
+		if (value instanceof Collection) {
+			List<Object> copy = new ArrayList<>(((Collection<?>) value).size());
+			((Collection<?>) value).forEach(v -> copy.add(copyValue(v)));
+			return copy;
+		}
+		if (value != null && value.getClass().isArray()) {
+			int length = Array.getLength(value);
+			Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+			if (value instanceof Object[]) {
+				for (int i = 0; i < length; i++) {
+					Array.set(copy, i, copyValue(Array.get(value, i)));
+				}
+			}
+			else {
+				System.arraycopy(value, 0, copy, 0, length);
+			}
+			return copy;
+		}
+		// strings, numbers and the like are immutable
+		return value;
+	}
+
+	/**
+	 * Rough estimation of the memory used by a result, without serializing
+	 * it. For passed through result data the size of the raw JSON is used.
+	 */
+	static int estimateSize(SearchResult result) {
+		long size = 64 + estimateSize(result.inputURI) + estimateSize(result.meta);
+		if (result.slices != null) {
+			for (SearchResultSlice slice : result.slices) {
+				size += 64 + estimateSize(slice.label) + estimateSize(slice.nextLink) + estimateSize(slice.resultLink) + estimateSize(slice.meta);
+				if (slice.hits != null) {
+					for (ResultHit hit : slice.hits) {
+						size += 32 + estimateSize(hit.index) + estimateSize(hit.matchedQueries) + estimateSize(hit.document);
+					}
+				}
+				if (slice.facets != null) {
+					for (Facet facet : slice.facets) {
+						size += 64 + estimateSize(facet.fieldName) + estimateSize(facet.meta) + estimateEntriesSize(facet.entries);
+					}
+				}
+			}
+		}
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	private static long estimateEntriesSize(List<FacetEntry> entries) {
+		if (entries == null) return 0;
+		long size = 0;
+		for (FacetEntry entry : entries) {
+			size += 48 + estimateSize(entry.key) + estimateSize(entry.id) + estimateSize(entry.link);
+			if (entry instanceof HierarchialFacetEntry) {
+				size += estimateSize(((HierarchialFacetEntry) entry).path) + estimateEntriesSize(((HierarchialFacetEntry) entry).children);
+			}
+		}
+		return size;
+	}
+
+	private static long estimateSize(Object value) {
+		if (value == null) return 0;
+		if (value instanceof String) return 40 + 2L * ((String) value).length();
+		if (value instanceof RawResultData && !((RawResultData) value).isParsed()) {
+			return 32 + ((RawResultData) value).getRawSize();
+		}
+		if (value instanceof Document) {
+			Document doc = (Document) value;
+			long size = 48 + estimateSize(doc.id) + estimateSize(doc.data);
+			if (doc.attributes != null) size += 64L * doc.attributes.size();
+			if (doc.categories != null) size += 64L * doc.categories.size();
+			if (doc instanceof Product) size += estimateSize(((Product) doc).variants);
+			return size;
+		}
+		if (value instanceof Map) {
+			long size = 48;
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				size += 32 + estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+			}
+			return size;
+		}
+		if (value instanceof Collection) {
+			long size = 32;
+			for (Object element : (Collection<?>) value) {
+				size += 8 + estimateSize(element);
+			}
+			return size;
+		}
+		if (value instanceof Object[]) {
+			long size = 16;
+			for (Object element : (Object[]) value) {
+				size += 8 + estimateSize(element);
+			}
+			return size;
+		}
+		if (value.getClass().isArray()) return 16 + 8L * Array.getLength(value);
+		// numbers, booleans and other small values
+		return 16;
+	}
+}
@@ -26,6 +26,9 @@ public class ApplicationProperties {
 	@NestedConfigurationProperty
 	private final ConnectionConfiguration connectionConfiguration = new ConnectionConfiguration();
 
+	@NestedConfigurationProperty
+	private final AsyncSearchProperties asyncSearch = new AsyncSearchProperties();
+
 	@NestedConfigurationProperty
 	ApplicationSearchProperties defaultTenantConfig = new ApplicationSearchProperties();
 
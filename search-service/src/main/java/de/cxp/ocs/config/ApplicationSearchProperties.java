@@ -50,6 +50,12 @@ public class ApplicationSearchProperties {
 	@NestedConfigurationProperty
 	private ScoringConfiguration scoringConfiguration = new ScoringConfiguration();
 
+	@NestedConfigurationProperty
+	private ResultCacheConfiguration resultCache = new ResultCacheConfiguration();
+
+	@NestedConfigurationProperty
+	private ProductSetConfiguration productSets = new ProductSetConfiguration();
+
 	private List<String> rescorers = new ArrayList<>();
 
 	@NestedConfigurationProperty
@@ -0,0 +1,72 @@
+package de.cxp.ocs.config;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.mvc.condition.AbstractRequestCondition;
+import org.springframework.web.servlet.mvc.condition.RequestCondition;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Registers the handler methods annotated with {@link AsyncSearchMapping} with
+ * a condition that only matches while async search is enabled. Since a
+ * mapping with a matching custom condition is preferred over the same mapping
+ * without one, the async variant replaces the blocking endpoint in that case.
+ * The condition is checked per request, so it also follows configuration
+ * refreshes.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class AsyncSearchConfig implements WebMvcRegistrations {
+
+	private final ApplicationProperties properties;
+
+	@Override
+	public RequestMappingHandlerMapping getRequestMappingHandlerMapping() {
+		return new RequestMappingHandlerMapping() {
+
+			@Override
+			protected RequestCondition<?> getCustomMethodCondition(Method method) {
+				return method.isAnnotationPresent(AsyncSearchMapping.class) ? new AsyncSearchCondition(properties.getAsyncSearch()) : null;
+			}
+		};
+	}
+
+	@RequiredArgsConstructor
+	static class AsyncSearchCondition extends AbstractRequestCondition<AsyncSearchCondition> {
+
+		private final AsyncSearchProperties asyncSearch;
+
+		@Override
+		public AsyncSearchCondition combine(AsyncSearchCondition other) {
+			return other;
+		}
+
+		@Override
+		public AsyncSearchCondition getMatchingCondition(HttpServletRequest request) {
+			return asyncSearch.isEnabled() ? this : null;
+		}
+
+		@Override
+		public int compareTo(AsyncSearchCondition other, HttpServletRequest request) {
+			return 0;
+		}
+
+		@Override
+		protected Collection<?> getContent() {
+			return Collections.singleton("async-search");
+		}
+
+		@Override
+		protected String getToStringInfix() {
+			return "";
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package de.cxp.ocs.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler method as the non-blocking variant of a blocking endpoint
+ * with the same request mapping. It only handles requests, if
+ * 'ocs.async-search.enabled' is set, otherwise the blocking endpoint is used.
+ *
+ * @see AsyncSearchConfig
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface AsyncSearchMapping {
+
+}
@@ -0,0 +1,23 @@
+package de.cxp.ocs.config;
+
+import lombok.Data;
+
+/**
+ * Settings for the non-blocking execution of search requests.
+ */
+@Data
+public class AsyncSearchProperties {
+
+	/**
+	 * If enabled, the search endpoints are processed asynchronously: the
+	 * servlet thread is released while waiting for Elasticsearch.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * Amount of threads that process the Elasticsearch responses. If 0, the
+	 * amount of available processors is used.
+	 */
+	private int threads = 0;
+
+}
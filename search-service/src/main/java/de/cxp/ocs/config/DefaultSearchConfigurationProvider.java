@@ -29,6 +29,8 @@ public class DefaultSearchConfigurationProvider implements SearchConfigurationPr
 		getFacetConfiguration(tenant).ifPresent(mergedConfig::setFacetConfiguration);
 		getScoringConfiguration(tenant).ifPresent(mergedConfig::setScoring);
 		getVariantPickingStrategy(tenant).ifPresent(mergedConfig::setVariantPickingStrategy);
+		getResultCacheConfiguration(tenant).ifPresent(mergedConfig::setResultCache);
+		getProductSetConfiguration(tenant).ifPresent(mergedConfig::setProductSets);
 
 		mergedConfig.getQueryConfigs().addAll(getQueryConfiguration(tenant));
 		mergedConfig.getSortConfigs().addAll(getSortConfigs(tenant));
@@ -70,6 +72,16 @@ public class DefaultSearchConfigurationProvider implements SearchConfigurationPr
 				tenantConfig -> tenantConfig == null || tenantConfig.useDefaultFacetConfig);
 	}
 
+	public Optional<ResultCacheConfiguration> getResultCacheConfiguration(String tenant) {
+		return getSubConfiguration(tenant, ApplicationSearchProperties::getResultCache,
+				tenantConfig -> tenantConfig == null);
+	}
+
+	public Optional<ProductSetConfiguration> getProductSetConfiguration(String tenant) {
+		return getSubConfiguration(tenant, ApplicationSearchProperties::getProductSets,
+				tenantConfig -> tenantConfig == null);
+	}
+
 	public Collection<QueryConfiguration> getQueryConfiguration(String tenant) {
 		return getSubConfiguration(tenant, ApplicationSearchProperties::getQueryConfiguration,
 				tenantConfig -> tenantConfig == null || tenantConfig.useDefaultQueryConfig)
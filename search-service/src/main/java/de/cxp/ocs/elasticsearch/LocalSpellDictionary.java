@@ -0,0 +1,247 @@
+package de.cxp.ocs.elasticsearch;
+
+import java.util.*;
+
+import de.cxp.ocs.elasticsearch.query.model.QueryStringTerm;
+import de.cxp.ocs.elasticsearch.query.model.WeightedWord;
+import de.cxp.ocs.elasticsearch.query.model.WordAssociation;
+
+/**
+ * <p>
+ * In-process spell correction dictionary based on the symmetric delete
+ * algorithm (SymSpell): for every known term all variants with up to
+ * {@value #MAX_EDITS} deleted characters are indexed. To find the corrections
+ * of a word, only the deletes of that word have to be looked up, and the
+ * candidates are verified with the edit distance.
+ * </p>
+ * <p>
+ * It behaves similar to the default Elasticsearch term suggester: words that
+ * exist in the dictionary or that are shorter than {@value #MIN_WORD_LENGTH}
+ * characters are not corrected, the first character must match and at most
+ * {@value #MAX_SUGGESTIONS} corrections are considered per word. Like the
+ * internal Lucene distance, the score of a correction is
+ * '1 - edits / length of the shorter word'.
+ * </p>
+ * <p>
+ * Since the dictionary is usually limited to the most frequent terms of the
+ * index, a word that is missing in it may still be indexed. Such words would be
+ * 'corrected' by the dictionary, which the Elasticsearch term suggester never
+ * does. Therefore the {@link #getUnknownWords(Collection) unknown words} should
+ * be checked against the index and the ones that are found there passed as
+ * indexed words to {@link #extractRelatedWords(Collection, float, Set)}.
+ * </p>
+ */
+public class LocalSpellDictionary {
+
+	final static int MAX_EDITS = 2;
+
+	final static int MIN_WORD_LENGTH = 4;
+
+	final static int MAX_SUGGESTIONS = 5;
+
+	/**
+	 * Only the deletes of the term prefixes are indexed, which keeps the index
+	 * much smaller without losing corrections.
+	 */
+	private final static int INDEXED_PREFIX_LENGTH = 7;
+
+	private final String[] terms;
+
+	private final int[] frequencies;
+
+	private final Map<String, Integer> termIds;
+
+	private final Map<String, int[]> deletes;
+
+	/**
+	 * @param termFrequencies
+	 *        known terms with their document frequency
+	 */
+	public LocalSpellDictionary(Map<String, Integer> termFrequencies) {
+		terms = new String[termFrequencies.size()];
+		frequencies = new int[termFrequencies.size()];
+		termIds = new HashMap<>(termFrequencies.size() * 4 / 3 + 1);
+
+		Map<String, List<Integer>> deletesBuilder = new HashMap<>();
+		int termId = 0;
+		for (Map.Entry<String, Integer> termFrequency : termFrequencies.entrySet()) {
+			String term = termFrequency.getKey();
+			terms[termId] = term;
+			frequencies[termId] = termFrequency.getValue();
+			termIds.put(term, termId);
+			for (String delete : getDeletes(term)) {
+				deletesBuilder.computeIfAbsent(delete, d -> new ArrayList<>(1)).add(termId);
+			}
+			termId++;
+		}
+
+		deletes = new HashMap<>(deletesBuilder.size() * 4 / 3 + 1);
+		deletesBuilder.forEach((delete, ids) -> {
+			int[] idArray = new int[ids.size()];
+			for (int i = 0; i < idArray.length; i++) {
+				idArray[i] = ids.get(i);
+			}
+			deletes.put(delete, idArray);
+		});
+	}
+
+	public int size() {
+		return terms.length;
+	}
+
+	/**
+	 * @param searchWords
+	 *        analyzed search words
+	 * @return the words that would be corrected, because they are not part of
+	 *         the dictionary
+	 */
+	public Set<String> getUnknownWords(Collection<QueryStringTerm> searchWords) {
+		Set<String> unknownWords = new LinkedHashSet<>();
+		for (QueryStringTerm searchWord : searchWords) {
+			if (!(searchWord instanceof WeightedWord || searchWord instanceof WordAssociation)) continue;
+			String word = searchWord.getWord();
+			if (word.length() >= MIN_WORD_LENGTH && !termIds.containsKey(word)) {
+				unknownWords.add(word);
+			}
+		}
+		return unknownWords;
+	}
+
+	/**
+	 * Builds the spell corrections for the given search words in the same way
+	 * as {@link SpellCorrector#extractRelatedWords(Collection,
+	 * org.elasticsearch.search.suggest.Suggest)} does it from the term
+	 * suggestions of Elasticsearch.
+	 *
+	 * @param searchWords
+	 *        analyzed search words
+	 * @param minScore
+	 *        min score of the considered corrections
+	 * @return corrections per word
+	 */
+	public Map<String, WordAssociation> extractRelatedWords(Collection<QueryStringTerm> searchWords, float minScore) {
+		return extractRelatedWords(searchWords, minScore, Collections.emptySet());
+	}
+
+	/**
+	 * Same as {@link #extractRelatedWords(Collection, float)} but the given
+	 * words are not corrected, because they are known to be indexed although
+	 * they are not part of the dictionary.
+	 *
+	 * @param searchWords
+	 *        analyzed search words
+	 * @param minScore
+	 *        min score of the considered corrections
+	 * @param indexedWords
+	 *        words that exist in the index
+	 * @return corrections per word
+	 */
+	public Map<String, WordAssociation> extractRelatedWords(Collection<QueryStringTerm> searchWords, float minScore, Set<String> indexedWords) {
+		Map<String, WordAssociation> correctedWords = new HashMap<>();
+		for (QueryStringTerm searchWord : searchWords) {
+			if (!(searchWord instanceof WeightedWord || searchWord instanceof WordAssociation)) continue;
+			String word = searchWord.getWord();
+			if (correctedWords.containsKey(word) || indexedWords.contains(word)) continue;
+
+			List<Correction> corrections = getCorrections(word);
+			if (corrections.isEmpty() || corrections.get(0).score < minScore) continue;
+
+			// only keep the best corrections
+			float bestScore = corrections.get(0).score;
+			WordAssociation wordCorrections = new WordAssociation(word);
+			for (Correction correction : corrections) {
+				if (correction.score < bestScore) break;
+				wordCorrections.putOrUpdate(new WeightedWord(correction.term, correction.score, correction.frequency));
+			}
+			correctedWords.put(word, wordCorrections);
+		}
+		return correctedWords;
+	}
+
+	/**
+	 * @param word
+	 *        word to correct
+	 * @return corrections ordered by score and frequency
+	 */
+	List<Correction> getCorrections(String word) {
+		if (word.length() < MIN_WORD_LENGTH || termIds.containsKey(word)) {
+			return Collections.emptyList();
+		}
+
+		List<Correction> corrections = new ArrayList<>();
+		Set<Integer> checkedTerms = new HashSet<>();
+		for (String delete : getDeletes(word)) {
+			int[] candidateIds = deletes.get(delete);
+			if (candidateIds == null) continue;
+			for (int candidateId : candidateIds) {
+				if (!checkedTerms.add(candidateId)) continue;
+				String candidate = terms[candidateId];
+				if (Math.abs(candidate.length() - word.length()) > MAX_EDITS || candidate.charAt(0) != word.charAt(0)) continue;
+
+				int edits = distance(word, candidate);
+				if (edits <= MAX_EDITS) {
+					float score = 1f - (float) edits / Math.min(word.length(), candidate.length());
+					corrections.add(new Correction(candidate, score, frequencies[candidateId]));
+				}
+			}
+		}
+
+		corrections.sort(Comparator.comparing((Correction c) -> c.score).thenComparing(c -> c.frequency).reversed());
+		return corrections.size() > MAX_SUGGESTIONS ? corrections.subList(0, MAX_SUGGESTIONS) : corrections;
+	}
+
+	private static Set<String> getDeletes(String term) {
+		String prefix = term.length() > INDEXED_PREFIX_LENGTH ? term.substring(0, INDEXED_PREFIX_LENGTH) : term;
+		Set<String> deletes = new HashSet<>();
+		deletes.add(prefix);
+		addDeletes(prefix, 1, deletes);
+		return deletes;
+	}
+
+	private static void addDeletes(String word, int editDistance, Set<String> deletes) {
+		if (word.length() <= 1) return;
+		for (int i = 0; i < word.length(); i++) {
+			String delete = new StringBuilder(word.length() - 1).append(word, 0, i).append(word, i + 1, word.length()).toString();
+			if (deletes.add(delete) && editDistance < MAX_EDITS) {
+				addDeletes(delete, editDistance + 1, deletes);
+			}
+		}
+	}
+
+	/**
+	 * Optimal string alignment distance, which is the levenshtein distance
+	 * that also considers transpositions of adjacent characters.
+	 */
+	static int distance(String a, String b) {
+		int[][] d = new int[a.length() + 1][b.length() + 1];
+		for (int i = 0; i <= a.length(); i++) {
+			d[i][0] = i;
+		}
+		for (int j = 0; j <= b.length(); j++) {
+			d[0][j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			for (int j = 1; j <= b.length(); j++) {
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+					d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+				}
+			}
+		}
+		return d[a.length()][b.length()];
+	}
+
+	static class Correction {
+
+		final String	term;
+		final float		score;
+		final int		frequency;
+
+		Correction(String term, float score, int frequency) {
+			this.term = term;
+			this.score = score;
+			this.frequency = frequency;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package de.cxp.ocs.elasticsearch;
+
+import java.io.IOException;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The search and multi-search calls the {@link Searcher} sends to
+ * Elasticsearch. It's separated from the rest client, so that the staged
+ * search can be run against prepared responses.
+ */
+interface SearchTransport {
+
+	SearchResponse search(SearchRequest searchRequest) throws IOException;
+
+	void searchAsync(SearchRequest searchRequest, ActionListener<SearchResponse> listener);
+
+	MultiSearchResponse msearch(MultiSearchRequest multiSearchRequest) throws IOException;
+
+	void msearchAsync(MultiSearchRequest multiSearchRequest, ActionListener<MultiSearchResponse> listener);
+
+	static SearchTransport of(RestHighLevelClient restClient) {
+		return new RestClientTransport(restClient);
+	}
+
+	@RequiredArgsConstructor
+	static class RestClientTransport implements SearchTransport {
+
+		private final RestHighLevelClient restClient;
+
+		@Override
+		public SearchResponse search(SearchRequest searchRequest) throws IOException {
+			return restClient.search(searchRequest, RequestOptions.DEFAULT);
+		}
+
+		@Override
+		public void searchAsync(SearchRequest searchRequest, ActionListener<SearchResponse> listener) {
+			restClient.searchAsync(searchRequest, RequestOptions.DEFAULT, listener);
+		}
+
+		@Override
+		public MultiSearchResponse msearch(MultiSearchRequest multiSearchRequest) throws IOException {
+			return restClient.msearch(multiSearchRequest, RequestOptions.DEFAULT);
+		}
+
+		@Override
+		public void msearchAsync(MultiSearchRequest multiSearchRequest, ActionListener<MultiSearchResponse> listener) {
+			restClient.msearchAsync(multiSearchRequest, RequestOptions.DEFAULT, listener);
+		}
+	}
+}
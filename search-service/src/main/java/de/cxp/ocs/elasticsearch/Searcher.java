@@ -6,15 +6,19 @@ import static de.cxp.ocs.util.SearchParamsParser.parseFilters;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.join.ScoreMode;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
-import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.index.query.*;
 import org.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder.FilterFunctionBuilder;
@@ -27,23 +31,29 @@ import org.elasticsearch.search.rescore.QueryRescorerBuilder;
 import org.elasticsearch.search.rescore.RescorerBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
 import org.elasticsearch.search.sort.SortOrder;
+import org.slf4j.MDC;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 
+import com.google.common.collect.Iterators;
+
 import de.cxp.ocs.SearchContext;
 import de.cxp.ocs.SearchPlugins;
 import de.cxp.ocs.config.*;
 import de.cxp.ocs.config.FacetConfiguration.FacetConfig;
 import de.cxp.ocs.elasticsearch.facets.FacetConfigurationApplyer;
+import de.cxp.ocs.elasticsearch.StagedSearchCache.KnownStage;
 import de.cxp.ocs.elasticsearch.mapper.ResultMapper;
 import de.cxp.ocs.elasticsearch.mapper.VariantPickingStrategy;
 import de.cxp.ocs.elasticsearch.prodset.HeroProductHandler;
 import de.cxp.ocs.elasticsearch.query.FiltersBuilder;
 import de.cxp.ocs.elasticsearch.query.MasterVariantQuery;
+import de.cxp.ocs.elasticsearch.query.analyzer.CachingUserQueryAnalyzer;
 import de.cxp.ocs.elasticsearch.query.analyzer.WhitespaceAnalyzer;
 import de.cxp.ocs.elasticsearch.query.builder.ConditionalQueries;
 import de.cxp.ocs.elasticsearch.query.builder.ESQueryFactoryBuilder;
 import de.cxp.ocs.elasticsearch.query.builder.MatchAllQueryFactory;
+import de.cxp.ocs.elasticsearch.query.builder.QueryPredictionCache;
 import de.cxp.ocs.elasticsearch.query.filter.FilterContext;
 import de.cxp.ocs.elasticsearch.query.filter.InternalResultFilter;
 import de.cxp.ocs.elasticsearch.query.model.QueryFilterTerm;
@@ -62,11 +72,13 @@ import de.cxp.ocs.util.InternalSearchParams;
 import de.cxp.ocs.util.SearchParamsParser;
 import de.cxp.ocs.util.SearchQueryBuilder;
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.Timer.Sample;
 import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -77,6 +89,9 @@ public class Searcher {
 	@NonNull
 	private final RestHighLevelClient restClient;
 
+	@NonNull
+	private final SearchTransport transport;
+
 	@NonNull
 	private final SearchConfiguration config;
 
@@ -112,10 +127,46 @@ public class Searcher {
 	private final Timer					correctedWordsTimer;
 	private final Timer					resultTimer;
 	private final Timer					searchRequestTimer;
+	private final Timer					multiSearchRequestTimer;
 	private final DistributionSummary	summary;
 
+	private final StagedSearchCache stagedSearchCache;
+
+	private final QueryPredictionCache queryPredictionCache;
+
+	private final int		speculativeStages;
+	private final int		trackTotalHitsUpTo;
+	private final Counter	usefulStagesCounter;
+	private final Counter	wastedStagesCounter;
+
+	private final Executor executor;
+
 	public Searcher(RestHighLevelClient restClient, SearchContext searchContext, final MeterRegistry registry, final SearchPlugins plugins) {
+		this(restClient, searchContext, registry, plugins, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param restClient
+	 *        client
+	 * @param searchContext
+	 *        tenant specific search context
+	 * @param registry
+	 *        meter registry
+	 * @param plugins
+	 *        available plugins
+	 * @param executor
+	 *        executor that processes the responses of async search requests
+	 *        and loads the local spell dictionary
+	 */
+	public Searcher(RestHighLevelClient restClient, SearchContext searchContext, final MeterRegistry registry, final SearchPlugins plugins, @NonNull Executor executor) {
+		this(SearchTransport.of(restClient), restClient, searchContext, registry, plugins, executor);
+	}
+
+	Searcher(SearchTransport transport, RestHighLevelClient restClient, SearchContext searchContext, final MeterRegistry registry, final SearchPlugins plugins,
+			@NonNull Executor executor) {
+		this.transport = transport;
 		this.restClient = restClient;
+		this.executor = executor;
 		this.config = searchContext.config;
 		this.registry = registry;
 		this.fieldIndex = searchContext.getFieldConfigIndex();
@@ -126,12 +177,20 @@ public class Searcher {
 		inputWordsTimer = getTimer("inputWordsSearch", config.getIndexName());
 		correctedWordsTimer = getTimer("correctedWordsSearch", config.getIndexName());
 		searchRequestTimer = getTimer("executeSearchRequest", config.getIndexName());
+		multiSearchRequestTimer = getTimer("executeMultiSearchRequest", config.getIndexName());
 		summary = DistributionSummary.builder("stagedSearches").tag("indexName", config.getIndexName())
 				.register(registry);
+		stagedSearchCache = StagedSearchCache.isEnabled(config.getQueryProcessing())
+				? new StagedSearchCache(config.getQueryProcessing(), registry, config.getIndexName())
+				: null;
+		speculativeStages = Math.max(1, config.getQueryProcessing().getSpeculativeStages());
+		trackTotalHitsUpTo = config.getQueryProcessing().getTrackTotalHitsUpTo();
+		usefulStagesCounter = Counter.builder("speculativeStagesUseful").tag("indexName", config.getIndexName()).register(registry);
+		wastedStagesCounter = Counter.builder("speculativeStagesWasted").tag("indexName", config.getIndexName()).register(registry);
 
 		String queryAnalyzerClazz = config.getQueryProcessing().getUserQueryAnalyzer();
-		userQueryAnalyzer = SearchPlugins.initialize(queryAnalyzerClazz, plugins.getUserQueryAnalyzers(), config.getPluginConfiguration().get(queryAnalyzerClazz))
-				.orElseGet(WhitespaceAnalyzer::new);
+		userQueryAnalyzer = initUserQueryAnalyzer(SearchPlugins.initialize(queryAnalyzerClazz, plugins.getUserQueryAnalyzers(), config.getPluginConfiguration().get(queryAnalyzerClazz))
+				.orElseGet(WhitespaceAnalyzer::new));
 		userQueryPreprocessors = searchContext.userQueryPreprocessors;
 
 		sortingHandler = new SortingHandler(fieldIndex, config.getSortConfigs());
@@ -139,9 +198,13 @@ public class Searcher {
 		filtersBuilder = new FiltersBuilder(searchContext);
 		scoringCreator = new ScoringCreator(searchContext);
 		spellCorrector = initSpellCorrection();
+		loadSpellDictionary();
 		rescorers = SearchPlugins.initialize(config.getRescorers(), plugins.getRescorerProviders(), config.getPluginConfiguration());
 
-		queryBuilder = new ESQueryFactoryBuilder(restClient, searchContext, plugins.getEsQueryFactories()).build();
+		queryPredictionCache = QueryPredictionCache.isEnabled(config.getQueryProcessing())
+				? new QueryPredictionCache(config.getQueryProcessing(), registry, config.getIndexName())
+				: null;
+		queryBuilder = new ESQueryFactoryBuilder(restClient, searchContext, plugins.getEsQueryFactories(), queryPredictionCache).build();
 
 		preferredVariantAttributes = initVariantHandling();
 		variantPickingStrategy = VariantPickingStrategy.valueOf(config.getVariantPickingStrategy());
@@ -154,11 +217,34 @@ public class Searcher {
 				.register(registry);
 	}
 
+	private UserQueryAnalyzer initUserQueryAnalyzer(UserQueryAnalyzer analyzer) {
+		int cacheSize = config.getQueryProcessing().getUserQueryAnalyzerCacheSize();
+		return cacheSize > 0 ? new CachingUserQueryAnalyzer(analyzer, cacheSize, registry, config.getIndexName()) : analyzer;
+	}
+
 	private SpellCorrector initSpellCorrection() {
 		Set<String> spellCorrectionFields = fieldIndex.getFieldsByUsage(FieldUsage.SEARCH).keySet();
 		return new SpellCorrector(spellCorrectionFields.toArray(new String[spellCorrectionFields.size()]));
 	}
 
+	private void loadSpellDictionary() {
+		int maxTerms = config.getQueryProcessing().getLocalSpellDictionaryMaxTerms();
+		if (maxTerms <= 0) return;
+		Set<String> spellCorrectionFields = fieldIndex.getFieldsByUsage(FieldUsage.SEARCH).keySet();
+		String tenant = MDC.get("tenant");
+		CompletableFuture.runAsync(() -> {
+			StopWatch sw = StopWatch.createStarted();
+			try {
+				LocalSpellDictionary dictionary = new SpellDictionaryFetcher(transport).fetchDictionary(config.getIndexName(), spellCorrectionFields, maxTerms);
+				spellCorrector.setLocalDictionary(dictionary);
+				log.info("loaded local spell dictionary with {} terms for tenant {} in {}ms", dictionary.size(), tenant, sw.getTime());
+			}
+			catch (Exception e) {
+				log.error("failed to load local spell dictionary for tenant {}", tenant, e);
+			}
+		}, executor);
+	}
+
 	private Set<String> initVariantHandling() {
 		return config.getFacetConfiguration().getFacets().stream()
 				.filter(FacetConfig::isPreferVariantOnFilter)
@@ -168,126 +254,463 @@ public class Searcher {
 	}
 
 	public SearchResult find(InternalSearchParams parameters) throws IOException {
-		Sample findTimerSample = Timer.start(Clock.SYSTEM);
+		return awaitResult(find(parameters, false));
+	}
 
-		List<QueryStringTerm> searchWords;
-		Map<String, Object> searchMetaData = new HashMap<>();
+	/**
+	 * Same as {@link #find(InternalSearchParams)}, but all requests to
+	 * Elasticsearch are sent with the async client, so no thread is blocked
+	 * while waiting for a response. Follow-up stages are processed with the
+	 * executor of that searcher.
+	 * 
+	 * @param parameters
+	 *        internal search parameters
+	 * @return future search result
+	 */
+	public CompletableFuture<SearchResult> findAsync(InternalSearchParams parameters) {
+		return find(parameters, true);
+	}
+
+	/**
+	 * Runs several independent staged searches at once. The requests of all
+	 * searches that are at the same point of their staged search are sent
+	 * together with a single multi-search request.
+	 * 
+	 * @param parameters
+	 *        list of internal search parameters
+	 * @return the future results in the order of the given parameters. With
+	 *         that blocking variant, all of them are already completed.
+	 */
+	public List<CompletableFuture<SearchResult>> findBatch(List<InternalSearchParams> parameters) {
+		return findBatch(parameters, false);
+	}
+
+	/**
+	 * Same as {@link #findBatch(List)} but without blocking the calling
+	 * thread.
+	 * 
+	 * @param parameters
+	 *        list of internal search parameters
+	 * @return the future results in the order of the given parameters
+	 */
+	public List<CompletableFuture<SearchResult>> findBatchAsync(List<InternalSearchParams> parameters) {
+		return findBatch(parameters, true);
+	}
+
+	private List<CompletableFuture<SearchResult>> findBatch(List<InternalSearchParams> parameters, boolean async) {
+		MultiSearchBatch batch = new MultiSearchBatch(async, parameters.size());
+		List<CompletableFuture<SearchResult>> results = new ArrayList<>(parameters.size());
+		for (InternalSearchParams params : parameters) {
+			CompletableFuture<SearchResult> result = find(params, async, batch);
+			result.whenComplete((searchResult, error) -> batch.searchDone());
+			results.add(result);
+		}
+		return results;
+	}
+
+	private CompletableFuture<SearchResult> find(InternalSearchParams parameters, boolean async) {
+		return find(parameters, async, null);
+	}
+
+	private CompletableFuture<SearchResult> find(InternalSearchParams parameters, boolean async, MultiSearchBatch batch) {
+		StagedSearch stagedSearch;
+		try {
+			stagedSearch = prepareStagedSearch(parameters, async);
+			stagedSearch.batch = batch;
+		}
+		catch (RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+		return runNextStage(stagedSearch).thenApply(done -> finishStagedSearch(stagedSearch));
+	}
+
+	private StagedSearch prepareStagedSearch(InternalSearchParams parameters, boolean async) {
+		StagedSearch s = new StagedSearch(parameters, async, Timer.start(Clock.SYSTEM));
 
-		searchWords = preprocessQuery(parameters, searchMetaData);
+		s.searchWords = preprocessQuery(parameters, s.searchMetaData);
 
-		Iterator<ESQueryFactory> stagedQueryBuilders;
-		if (searchWords.isEmpty()) {
-			stagedQueryBuilders = Collections.<ESQueryFactory> singletonList(new MatchAllQueryFactory()).iterator();
+		if (s.searchWords.isEmpty()) {
+			s.stagedQueryBuilders = Collections.<ESQueryFactory> singletonList(new MatchAllQueryFactory()).iterator();
 		}
 		else {
-			stagedQueryBuilders = queryBuilder.getMatchingFactories(searchWords);
+			s.stagedQueryBuilders = queryBuilder.getMatchingFactories(s.searchWords);
 		}
 
-		FilterContext filterContext = filtersBuilder.buildFilterContext(parameters.filters, parameters.querqyFilters, parameters.withFacets);
-		List<SortBuilder<?>> variantSortings = sortingHandler.getVariantSortings(parameters.sortings);
+		// staged search cache: jump to the stage that was sufficient before
+		// (key has to be built before the words are passed to any factory)
+		s.stageCacheKey = stagedSearchCache == null ? null : stagedSearchCache.getKey(s.searchWords, parameters);
+		if (s.stageCacheKey != null) {
+			Optional<KnownStage> knownStage = stagedSearchCache.get(s.stageCacheKey);
+			if (knownStage.isPresent()) {
+				List<ESQueryFactory> matchingFactories = new ArrayList<>();
+				s.stagedQueryBuilders.forEachRemaining(matchingFactories::add);
+				int knownIndex = knownStage.get().getFactoryIndex();
+				if (knownIndex < matchingFactories.size()
+						&& Objects.equals(matchingFactories.get(knownIndex).getName(), knownStage.get().getFactoryName())) {
+					s.stagedQueryBuilders = matchingFactories.listIterator(knownIndex);
+					s.knownFactoryIndex = knownIndex;
+					s.factoryIndex = knownIndex - 1;
+					s.i = knownStage.get().getQueryStage();
+					s.skippedStages = s.i;
+
+					s.correctedWords = knownStage.get().getCorrectedWords();
+					if (s.correctedWords != null) {
+						s.searchWords = SpellCorrector.toListWithAllTerms(s.searchWords, s.correctedWords);
+						s.searchMetaData.put("query_corrected", s.searchWords);
+					}
+				}
+				else {
+					s.stagedQueryBuilders = matchingFactories.iterator();
+					stagedSearchCache.invalidate(s.stageCacheKey);
+				}
+			}
+		}
 
-		SearchSourceBuilder searchSourceBuilder = buildBasicSearchSourceBuilder(parameters, filterContext, variantSortings);
+		s.filterContext = filtersBuilder.buildFilterContext(parameters.filters, parameters.querqyFilters, parameters.withFacets);
+		// no hits are returned in facets-only mode, so they don't need to be sorted
+		s.variantSortings = parameters.isFacetsOnly() ? Collections.emptyList() : sortingHandler.getVariantSortings(parameters.sortings);
 
-		// TODO: add a cache to pick the correct query for known search terms
+		s.searchSourceBuilder = buildBasicSearchSourceBuilder(parameters, s.filterContext, s.variantSortings);
+		if (s.correctedWords == null && spellCorrector != null) {
+			// words unknown to the local spell dictionary might be indexed nevertheless
+			spellCorrector.buildKnownWordsAggregation(s.searchWords).ifPresent(s.searchSourceBuilder::aggregation);
+		}
 
-		// staged search: try each query builder until we get a result
-		// + try and use spell correction with first query
-		int i = 0;
-		SearchResponse searchResponse = null;
-		Map<String, WordAssociation> correctedWords = null;
-		Sample sqbSample = Timer.start(registry);
+		s.heroProductsQuery = HeroProductHandler.getHeroQuery(parameters);
+		s.sqbSample = Timer.start(registry);
+		return s;
+	}
 
-		Optional<QueryBuilder> heroProductsQuery = HeroProductHandler.getHeroQuery(parameters);
-		boolean isResultSufficient = false;
-		while ((searchResponse == null || !isResultSufficient) && stagedQueryBuilders.hasNext()) {
+	/**
+	 * staged search: try each query builder until we get a result
+	 * + try and use spell correction with first query
+	 * 
+	 * With speculative stages, the next stages are sent together as one
+	 * multi-search request.
+	 */
+	private CompletableFuture<Void> runNextStage(StagedSearch s) {
+		try {
 			StopWatch sw = new StopWatch();
 			sw.start();
 			Sample inputWordsSample = Timer.start(registry);
-			ESQueryFactory stagedQueryBuilder = stagedQueryBuilders.next();
+			List<PreparedStage> stages = new ArrayList<>(speculativeStages);
+			while (stages.size() < speculativeStages && (s.searchResponse == null || !s.isResultSufficient) && s.stagedQueryBuilders.hasNext()) {
+				ESQueryFactory stagedQueryBuilder = s.stagedQueryBuilders.next();
+				s.factoryIndex++;
+
+				MasterVariantQuery searchQuery = stagedQueryBuilder.createQuery(s.searchWords);
+				if (log.isTraceEnabled()) {
+					log.trace("query nr {}: {}: match query = {}", s.i + stages.size(), stagedQueryBuilder.getName(),
+							searchQuery == null ? "NULL"
+									: searchQuery.getMasterLevelQuery().toString().replaceAll("[\n\\s]+", " "));
+				}
+				if (searchQuery == null) continue;
+
+				// this can be the case if arranged search is requested
+				// with "includeMainResult=false" but without any valid product set!
+				if (searchQuery.getMasterLevelQuery() == null && s.heroProductsQuery.isEmpty())
+					continue;
 
-			MasterVariantQuery searchQuery = stagedQueryBuilder.createQuery(searchWords);
-			if (log.isTraceEnabled()) {
-				log.trace("query nr {}: {}: match query = {}", i, stagedQueryBuilder.getName(),
-						searchQuery == null ? "NULL"
-								: searchQuery.getMasterLevelQuery().toString().replaceAll("[\n\\s]+", " "));
+				// each speculative stage needs its own request
+				SearchSourceBuilder stageSource = speculativeStages > 1 ? s.searchSourceBuilder.shallowCopy() : s.searchSourceBuilder;
+
+				boolean withSpellCorrection = s.correctedWords == null && spellCorrector != null
+						&& stagedQueryBuilder.allowParallelSpellcheckExecution()
+						&& (!searchQuery.isWithSpellCorrection() || s.stagedQueryBuilders.hasNext());
+				if (withSpellCorrection && spellCorrector.isSuggestRequestRequired()) {
+					stageSource.suggest(spellCorrector.buildSpellCorrectionQuery(s.parameters.userQuery));
+				}
+				else {
+					stageSource.suggest(null);
+				}
+
+				if (s.parameters.excludedIds != null && s.parameters.excludedIds.size() > 0) {
+					BoolQueryBuilder masterLevelQueryWithExcludes = ESQueryUtils.mapToBoolQueryBuilder(searchQuery.getMasterLevelQuery())
+							.mustNot(QueryBuilders.idsQuery().addIds(s.parameters.excludedIds.toArray(new String[0])));
+					searchQuery.setMasterLevelQuery(masterLevelQueryWithExcludes);
+				}
+
+				stageSource.query(buildFinalQuery(searchQuery, s.heroProductsQuery, s.filterContext, s.variantSortings, !s.parameters.isFacetsOnly()));
+
+				if (log.isTraceEnabled()) {
+					log.trace(QUERY_MARKER, "{ \"user_query\": \"{}\", \"query\": {} }", s.parameters.userQuery, stageSource.toString().replaceAll("[\n\\s]+", " "));
+				}
+
+				stages.add(new PreparedStage(stagedQueryBuilder, searchQuery, stageSource, s.factoryIndex, withSpellCorrection));
 			}
-			if (searchQuery == null) continue;
 
-			// this can be the case if arranged search is requested
-			// with "includeMainResult=false" but without any valid product set!
-			if (searchQuery.getMasterLevelQuery() == null && heroProductsQuery.isEmpty())
-				continue;
+			if (stages.isEmpty()) {
+				return CompletableFuture.completedFuture(null);
+			}
 
-			if (correctedWords == null && spellCorrector != null
-					&& stagedQueryBuilder.allowParallelSpellcheckExecution()
-					&& (!searchQuery.isWithSpellCorrection() || stagedQueryBuilders.hasNext())) {
-				searchSourceBuilder.suggest(spellCorrector.buildSpellCorrectionQuery(parameters.userQuery));
+			CompletableFuture<Boolean> stageResult;
+			if (stages.size() == 1) {
+				PreparedStage stage = stages.get(0);
+				stageResult = executeSearch(s, stage.searchSource)
+						.thenCompose(searchResponse -> {
+							inputWordsSample.stop(inputWordsTimer);
+							return handleStageResponse(s, stage, searchResponse, sw);
+						});
 			}
 			else {
-				searchSourceBuilder.suggest(null);
+				List<SearchSourceBuilder> stageSources = stages.stream().map(stage -> stage.searchSource).collect(Collectors.toList());
+				stageResult = (s.async ? executeMultiSearchRequestAsync(stageSources) : executeMultiSearchRequestBlocking(stageSources))
+						.thenCompose(multiSearchResponse -> {
+							inputWordsSample.stop(inputWordsTimer);
+							return handleSpeculativeResponses(s, stages, multiSearchResponse.getResponses(), 0, sw);
+						});
 			}
+			return stageResult.thenCompose(isDone -> isDone ? CompletableFuture.<Void> completedFuture(null) : runNextStage(s));
+		}
+		catch (RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
 
-			if (parameters.excludedIds != null && parameters.excludedIds.size() > 0) {
-				BoolQueryBuilder masterLevelQueryWithExcludes = ESQueryUtils.mapToBoolQueryBuilder(searchQuery.getMasterLevelQuery())
-						.mustNot(QueryBuilders.idsQuery().addIds(parameters.excludedIds.toArray(new String[0])));
-				searchQuery.setMasterLevelQuery(masterLevelQueryWithExcludes);
-			}
+	/**
+	 * Handles the responses of the speculative stages in stage order, until a
+	 * stage is sufficient or the staged search should stop. If spell correction
+	 * changed the search words, the remaining stages are dropped and prepared
+	 * again with the corrected words.
+	 * 
+	 * @return future that is true, if the staged search should stop
+	 */
+	private CompletableFuture<Boolean> handleSpeculativeResponses(StagedSearch s, List<PreparedStage> stages, MultiSearchResponse.Item[] responses, int index,
+			StopWatch sw) {
+		if (responses[index].isFailure()) {
+			return CompletableFuture.failedFuture(responses[index].getFailure());
+		}
+		PreparedStage stage = stages.get(index);
+		List<QueryStringTerm> searchWords = s.searchWords;
+		return handleStageResponse(s, stage, responses[index].getResponse(), sw)
+				.thenCompose(isDone -> {
+					int nextIndex = index + 1;
+					boolean searchWordsChanged = searchWords != s.searchWords;
+					if (!isDone && !s.isResultSufficient && nextIndex < stages.size() && !searchWordsChanged) {
+						return handleSpeculativeResponses(s, stages, responses, nextIndex, sw);
+					}
+					usefulStagesCounter.increment(nextIndex);
+					wastedStagesCounter.increment(stages.size() - nextIndex);
+					if (!isDone && !s.isResultSufficient && nextIndex < stages.size()) {
+						List<ESQueryFactory> droppedStages = stages.subList(nextIndex, stages.size()).stream()
+								.map(droppedStage -> droppedStage.queryFactory)
+								.collect(Collectors.toList());
+						s.stagedQueryBuilders = Iterators.concat(droppedStages.iterator(), s.stagedQueryBuilders);
+						s.factoryIndex = stages.get(nextIndex).factoryIndex - 1;
+					}
+					return CompletableFuture.completedFuture(isDone);
+				});
+	}
 
-			searchSourceBuilder.query(buildFinalQuery(searchQuery, heroProductsQuery, filterContext, variantSortings));
+	/**
+	 * @return future that is true, if the staged search should stop
+	 */
+	private CompletableFuture<Boolean> handleStageResponse(StagedSearch s, PreparedStage stage, SearchResponse searchResponse, StopWatch sw) {
+		ESQueryFactory stagedQueryBuilder = stage.queryFactory;
+		s.searchResponse = searchResponse;
+		if (log.isDebugEnabled()) {
+			log.debug("query nr {} ({}) for user-query '{}' done in {}ms with {} hits", s.i, stagedQueryBuilder.getName(),
+					s.parameters.userQuery, sw.getTime(), searchResponse.getHits().getTotalHits().value);
+		}
 
-			if (log.isTraceEnabled()) {
-				log.trace(QUERY_MARKER, "{ \"user_query\": \"{}\", \"query\": {} }", parameters.userQuery, searchSourceBuilder.toString().replaceAll("[\n\\s]+", " "));
+		s.isResultSufficient = isResultSufficient(searchResponse, s.parameters);
+
+		// if we don't have any hits, but there's a chance to get corrected
+		// words, then enrich the search words with the corrected words
+		if (!s.isResultSufficient && s.correctedWords == null && stage.withSpellCorrection
+				&& (searchResponse.getSuggest() != null || !spellCorrector.isSuggestRequestRequired())) {
+			Sample correctedWordsSample = Timer.start(registry);
+			s.correctedWords = spellCorrector.extractRelatedWords(s.searchWords, searchResponse.getSuggest(), searchResponse.getAggregations());
+			if (s.correctedWords.size() > 0) {
+				s.searchWords = SpellCorrector.toListWithAllTerms(s.searchWords, s.correctedWords);
+				s.searchMetaData.put("query_corrected", s.searchWords);
 			}
 
-			searchResponse = executeSearchRequest(searchSourceBuilder);
-
-			if (log.isDebugEnabled()) {
-				log.debug("query nr {} ({}) for user-query '{}' done in {}ms with {} hits", i, stagedQueryBuilder.getName(),
-						parameters.userQuery, sw.getTime(), searchResponse.getHits().getTotalHits().value);
+			// if the current query builder didn't take corrected words into
+			// account, then try again with corrected words
+			if (s.correctedWords.size() > 0 && !stage.searchQuery.isWithSpellCorrection()) {
+				MasterVariantQuery correctedQuery = stagedQueryBuilder.createQuery(s.searchWords);
+				stage.searchSource
+						.query(buildFinalQuery(correctedQuery, s.heroProductsQuery, s.filterContext, s.variantSortings, !s.parameters.isFacetsOnly()));
+				return executeSearch(s, stage.searchSource).thenApply(correctedResponse -> {
+					s.searchResponse = correctedResponse;
+					s.searchMetaData.put("query_correction", correctedWordsSample);
+					correctedWordsSample.stop(correctedWordsTimer);
+					return completeStage(s, stage, correctedQuery);
+				});
 			}
-			inputWordsSample.stop(inputWordsTimer);
-
-			isResultSufficient = isResultSufficient(searchResponse, parameters);
-
-			// if we don't have any hits, but there's a chance to get corrected
-			// words, then enrich the search words with the corrected words
-			if (!isResultSufficient && correctedWords == null && spellCorrector != null && searchResponse.getSuggest() != null) {
-				Sample correctedWordsSample = Timer.start(registry);
-				correctedWords = spellCorrector.extractRelatedWords(searchWords, searchResponse.getSuggest());
-				if (correctedWords.size() > 0) {
-					searchWords = SpellCorrector.toListWithAllTerms(searchWords, correctedWords);
-					searchMetaData.put("query_corrected", searchWords);
-				}
+			correctedWordsSample.stop(correctedWordsTimer);
+		}
+		return CompletableFuture.completedFuture(completeStage(s, stage, stage.searchQuery));
+	}
 
-				// if the current query builder didn't take corrected words into
-				// account, then try again with corrected words
-				if (correctedWords.size() > 0 && !searchQuery.isWithSpellCorrection()) {
-					searchQuery = stagedQueryBuilder.createQuery(searchWords);
-					searchSourceBuilder
-							.query(buildFinalQuery(searchQuery, heroProductsQuery, filterContext, variantSortings));
-					searchResponse = executeSearchRequest(searchSourceBuilder);
-					searchMetaData.put("query_correction", correctedWordsSample);
-				}
-				correctedWordsSample.stop(correctedWordsTimer);
+	private CompletableFuture<SearchResponse> executeSearch(StagedSearch s, SearchSourceBuilder searchSourceBuilder) {
+		if (s.batch != null) {
+			return s.batch.add(searchSourceBuilder);
+		}
+		return s.async ? executeSearchRequestAsync(searchSourceBuilder) : executeSearchRequestBlocking(searchSourceBuilder);
+	}
+
+	private boolean completeStage(StagedSearch s, PreparedStage stage, MasterVariantQuery searchQuery) {
+		s.searchMetaData.put("query_executed", searchQuery.getMasterLevelQuery().queryName());
+		s.searchMetaData.put("query_stage", s.i);
+
+		if (s.isResultSufficient) {
+			s.sufficientFactoryIndex = stage.factoryIndex;
+			s.sufficientQueryStage = s.i;
+			s.sufficientFactoryName = stage.queryFactory.getName();
+		}
+
+		if (!s.isResultSufficient && searchQuery.isAcceptNoResult()) {
+			return true;
+		}
+
+		s.i++;
+		return false;
+	}
+
+	private SearchResult finishStagedSearch(StagedSearch s) {
+		s.sqbSample.stop(sqbTimer);
+
+		if (s.stageCacheKey != null) {
+			if (!s.isResultSufficient) {
+				stagedSearchCache.invalidate(s.stageCacheKey);
 			}
-			searchMetaData.put("query_executed", searchQuery.getMasterLevelQuery().queryName());
-			searchMetaData.put("query_stage", i);
+			// a known stage is only put again if it changed, so that it still
+			// expires after the configured time
+			else if (s.knownFactoryIndex != s.sufficientFactoryIndex) {
+				stagedSearchCache.put(s.stageCacheKey, s.sufficientFactoryIndex, s.sufficientQueryStage, s.sufficientFactoryName, s.correctedWords);
+			}
+		}
 
-			if (!isResultSufficient && searchQuery.isAcceptNoResult()) {
-				break;
+		SearchResult searchResult = buildResult(s.parameters, s.filterContext, s.searchResponse);
+		searchResult.getMeta().putAll(s.searchMetaData);
+
+		summary.record(s.i - s.skippedStages);
+		s.findTimerSample.stop(findTimer);
+
+		return searchResult;
+	}
+
+	private static <T> T awaitResult(CompletableFuture<T> future) throws IOException {
+		try {
+			return future.join();
+		}
+		catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) throw (IOException) cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw e;
+		}
+	}
+
+	/**
+	 * State of a single staged search, that is passed from stage to stage.
+	 */
+	@RequiredArgsConstructor
+	private static class StagedSearch {
+
+		final InternalSearchParams	parameters;
+		final boolean				async;
+		final Sample				findTimerSample;
+		final Map<String, Object>	searchMetaData	= new HashMap<>();
+
+		MultiSearchBatch batch;
+
+		List<QueryStringTerm>		searchWords;
+		Iterator<ESQueryFactory>	stagedQueryBuilders;
+		FilterContext				filterContext;
+		List<SortBuilder<?>>		variantSortings;
+		SearchSourceBuilder			searchSourceBuilder;
+		Optional<QueryBuilder>		heroProductsQuery;
+		Sample						sqbSample;
+
+		String						stageCacheKey;
+		int							knownFactoryIndex	= -1;
+		int							skippedStages		= 0;
+		int							factoryIndex		= -1;
+		int							i					= 0;
+		Map<String, WordAssociation>	correctedWords;
+
+		SearchResponse	searchResponse;
+		boolean			isResultSufficient;
+		int				sufficientFactoryIndex	= -1;
+		int				sufficientQueryStage	= -1;
+		String			sufficientFactoryName;
+	}
+
+	/**
+	 * Collects the search requests of several staged searches and sends them
+	 * with a single multi-search request, as soon as each search that is not
+	 * done yet has added its next request.
+	 */
+	private class MultiSearchBatch {
+
+		private final boolean async;
+
+		private int activeSearches;
+
+		private final List<SearchSourceBuilder>					queuedRequests	= new ArrayList<>();
+		private final List<CompletableFuture<SearchResponse>>	queuedResponses	= new ArrayList<>();
+
+		MultiSearchBatch(boolean async, int searches) {
+			this.async = async;
+			this.activeSearches = searches;
+		}
+
+		CompletableFuture<SearchResponse> add(SearchSourceBuilder searchSourceBuilder) {
+			CompletableFuture<SearchResponse> response = new CompletableFuture<>();
+			synchronized (this) {
+				queuedRequests.add(searchSourceBuilder);
+				queuedResponses.add(response);
 			}
+			sendIfComplete();
+			return response;
+		}
 
-			i++;
+		void searchDone() {
+			synchronized (this) {
+				activeSearches--;
+			}
+			sendIfComplete();
 		}
-		sqbSample.stop(sqbTimer);
 
-		SearchResult searchResult = buildResult(parameters, filterContext, searchResponse);
-		searchResult.getMeta().putAll(searchMetaData);
+		private void sendIfComplete() {
+			List<SearchSourceBuilder> requests;
+			List<CompletableFuture<SearchResponse>> responses;
+			synchronized (this) {
+				if (queuedRequests.isEmpty() || queuedRequests.size() < activeSearches) return;
+				requests = new ArrayList<>(queuedRequests);
+				responses = new ArrayList<>(queuedResponses);
+				queuedRequests.clear();
+				queuedResponses.clear();
+			}
+			(async ? executeMultiSearchRequestAsync(requests) : executeMultiSearchRequestBlocking(requests))
+					.whenComplete((multiSearchResponse, error) -> {
+						for (int i = 0; i < responses.size(); i++) {
+							if (error != null) {
+								responses.get(i).completeExceptionally(error);
+							}
+							else if (multiSearchResponse.getResponses()[i].isFailure()) {
+								responses.get(i).completeExceptionally(multiSearchResponse.getResponses()[i].getFailure());
+							}
+							else {
+								responses.get(i).complete(multiSearchResponse.getResponses()[i].getResponse());
+							}
+						}
+					});
+		}
+	}
 
-		summary.record(i);
-		findTimerSample.stop(findTimer);
+	@RequiredArgsConstructor
+	private static class PreparedStage {
 
-		return searchResult;
+		final ESQueryFactory		queryFactory;
+		final MasterVariantQuery	searchQuery;
+		final SearchSourceBuilder	searchSource;
+		final int					factoryIndex;
+		final boolean				withSpellCorrection;
 	}
 
 	private List<QueryStringTerm> preprocessQuery(InternalSearchParams parameters, Map<String, Object> searchMetaData) {
@@ -317,15 +740,31 @@ public class Searcher {
 	}
 
 	private SearchSourceBuilder buildBasicSearchSourceBuilder(InternalSearchParams parameters, FilterContext filterContext, List<SortBuilder<?>> variantSortings) {
-		SearchSourceBuilder searchSourceBuilder = SearchSourceBuilder.searchSource().size(parameters.limit)
-				.from(parameters.offset);
-		sortingHandler.applySorting(parameters.sortings, searchSourceBuilder);
+		SearchSourceBuilder searchSourceBuilder;
+		if (parameters.isFacetsOnly()) {
+			// only the match count and the facets are requested, so everything
+			// that is only necessary to rank or fetch hits is omitted
+			searchSourceBuilder = SearchSourceBuilder.searchSource().size(0)
+					.fetchSource(FetchSourceContext.DO_NOT_FETCH_SOURCE);
+		}
+		else {
+			searchSourceBuilder = SearchSourceBuilder.searchSource().size(parameters.limit)
+					.from(parameters.offset);
+			sortingHandler.applySorting(parameters.sortings, searchSourceBuilder);
 
-		if (searchSourceBuilder.sorts() == null || searchSourceBuilder.sorts().isEmpty()) {
-			addRescorersFailsafe(parameters, searchSourceBuilder);
+			if (searchSourceBuilder.sorts() == null || searchSourceBuilder.sorts().isEmpty()) {
+				addRescorersFailsafe(parameters, searchSourceBuilder);
+			}
+
+			setFetchSources(searchSourceBuilder, variantSortings, parameters.withResultData);
 		}
 
-		setFetchSources(searchSourceBuilder, variantSortings, parameters.withResultData);
+		if (trackTotalHitsUpTo < 0) {
+			searchSourceBuilder.trackTotalHits(true);
+		}
+		else {
+			searchSourceBuilder.trackTotalHitsUpTo(Math.max(1, trackTotalHitsUpTo));
+		}
 
 		QueryBuilder postFilter = filterContext.getJoinedPostFilters();
 		if (postFilter != null) {
@@ -349,16 +788,24 @@ public class Searcher {
 		if (totalHits == 0)
 			return false;
 
+		// above the tracking limit, the total hits are only a lower bound
+		boolean isLowerBound = TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO.equals(searchResponse.getHits().getTotalHits().relation);
+
 		boolean hasFilters = parameters.filters.size() > 0;
 		int heroProductCount = parameters.heroProductSets == null ? 0
 				: Arrays.stream(parameters.heroProductSets).mapToInt(ProductSet::getSize).sum();
-		if (!hasFilters || totalHits > heroProductCount) {
-			return totalHits > heroProductCount;
+		if (totalHits > heroProductCount) {
+			return true;
+		}
+		// without filters an exact count that does not exceed the hero
+		// products means, that only hero products were found
+		if (!hasFilters && !isLowerBound) {
+			return false;
 		}
 		// if there are hits beyond the current page, they are either all hero-products
 		// and it's impossible to check if there are any non-hero products found or we
 		// definitely have enough non-hero results
-		else if (totalHits > parameters.offset + parameters.limit) {
+		if (totalHits > parameters.offset + parameters.limit) {
 			return true;
 		}
 
@@ -482,22 +929,147 @@ public class Searcher {
 		}
 	}
 
+	/**
+	 * Drops all cached data that depends on the content of the index and
+	 * reloads the local spell dictionary, if used. Should be called when the
+	 * index of the tenant changed.
+	 */
+	public void onIndexChange() {
+		if (queryPredictionCache != null) {
+			queryPredictionCache.invalidate();
+		}
+		loadSpellDictionary();
+	}
+
 	public SearchResponse executeSearchRequest(SearchSourceBuilder searchSourceBuilder) throws IOException {
 		Sample sample = Timer.start(registry);
-		SearchResponse searchResponse;
-		{
-			SearchRequest searchRequest = new SearchRequest(config.getIndexName())
-					.searchType(SearchType.QUERY_THEN_FETCH).source(searchSourceBuilder);
-			searchResponse = restClient.search(searchRequest, RequestOptions.DEFAULT);
-		}
+		SearchResponse searchResponse = transport.search(buildSearchRequest(searchSourceBuilder));
 		sample.stop(searchRequestTimer);
 		return searchResponse;
 	}
 
+	/**
+	 * Sends the search request with the async client. The returned future is
+	 * completed with the executor of that searcher, so that follow-up
+	 * processing does not run on the IO threads of the client.
+	 * 
+	 * @param searchSourceBuilder
+	 *        search request source
+	 * @return future search response
+	 */
+	public CompletableFuture<SearchResponse> executeSearchRequestAsync(SearchSourceBuilder searchSourceBuilder) {
+		Sample sample = Timer.start(registry);
+		CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+		Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+		try {
+			transport.searchAsync(buildSearchRequest(searchSourceBuilder), ActionListener.wrap(
+					searchResponse -> {
+						sample.stop(searchRequestTimer);
+						completeAsync(future, mdcContext, () -> future.complete(searchResponse));
+					},
+					e -> completeAsync(future, mdcContext, () -> future.completeExceptionally(e))));
+		}
+		catch (RuntimeException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * Sends all search requests with a single multi-search request. Failures
+	 * of single requests are part of the response items.
+	 * 
+	 * @param searchSourceBuilders
+	 *        search request sources
+	 * @return multi-search response with the items in the order of the given
+	 *         sources
+	 * @throws IOException
+	 *         in case of connection problems
+	 */
+	public MultiSearchResponse executeMultiSearchRequest(List<SearchSourceBuilder> searchSourceBuilders) throws IOException {
+		Sample sample = Timer.start(registry);
+		MultiSearchResponse multiSearchResponse = transport.msearch(buildMultiSearchRequest(searchSourceBuilders));
+		sample.stop(multiSearchRequestTimer);
+		return multiSearchResponse;
+	}
+
+	/**
+	 * Async variant of {@link #executeMultiSearchRequest(List)}.
+	 * 
+	 * @param searchSourceBuilders
+	 *        search request sources
+	 * @return future multi-search response
+	 */
+	public CompletableFuture<MultiSearchResponse> executeMultiSearchRequestAsync(List<SearchSourceBuilder> searchSourceBuilders) {
+		Sample sample = Timer.start(registry);
+		CompletableFuture<MultiSearchResponse> future = new CompletableFuture<>();
+		Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+		try {
+			transport.msearchAsync(buildMultiSearchRequest(searchSourceBuilders), ActionListener.wrap(
+					multiSearchResponse -> {
+						sample.stop(multiSearchRequestTimer);
+						completeAsync(future, mdcContext, () -> future.complete(multiSearchResponse));
+					},
+					e -> completeAsync(future, mdcContext, () -> future.completeExceptionally(e))));
+		}
+		catch (RuntimeException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private CompletableFuture<MultiSearchResponse> executeMultiSearchRequestBlocking(List<SearchSourceBuilder> searchSourceBuilders) {
+		try {
+			return CompletableFuture.completedFuture(executeMultiSearchRequest(searchSourceBuilders));
+		}
+		catch (IOException | RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	private MultiSearchRequest buildMultiSearchRequest(List<SearchSourceBuilder> searchSourceBuilders) {
+		MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+		searchSourceBuilders.forEach(searchSourceBuilder -> multiSearchRequest.add(buildSearchRequest(searchSourceBuilder)));
+		return multiSearchRequest;
+	}
+
+	private CompletableFuture<SearchResponse> executeSearchRequestBlocking(SearchSourceBuilder searchSourceBuilder) {
+		try {
+			return CompletableFuture.completedFuture(executeSearchRequest(searchSourceBuilder));
+		}
+		catch (IOException | RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	private SearchRequest buildSearchRequest(SearchSourceBuilder searchSourceBuilder) {
+		return new SearchRequest(config.getIndexName())
+				.searchType(SearchType.QUERY_THEN_FETCH).source(searchSourceBuilder);
+	}
+
+	private void completeAsync(CompletableFuture<?> future, Map<String, String> mdcContext, Runnable completion) {
+		Runnable completionWithContext = () -> {
+			if (mdcContext != null) MDC.setContextMap(mdcContext);
+			try {
+				completion.run();
+			}
+			finally {
+				MDC.clear();
+			}
+		};
+		try {
+			executor.execute(completionWithContext);
+		}
+		catch (RejectedExecutionException e) {
+			log.warn("search executor rejected completion, will complete on client thread");
+			completionWithContext.run();
+		}
+	}
+
 	private SearchResult buildResult(InternalSearchParams parameters, FilterContext filterContext, SearchResponse searchResponse) {
 		SearchQueryBuilder linkBuilder = new SearchQueryBuilder(parameters);
 		SearchResult searchResult = new SearchResult();
-		searchResult.inputURI = SearchQueryBuilder.toLink(parameters).toString();
+		searchResult.inputURI = linkBuilder.toLinkString();
 		searchResult.slices = new ArrayList<>(1);
 
 		resultTimer.record(() -> {
@@ -511,7 +1083,7 @@ public class Searcher {
 				}
 
 				if (parameters.includeMainResult) {
-					SearchResultSlice searchResultSlice = toSearchResult(searchResponse, parameters, heroIds);
+					SearchResultSlice searchResultSlice = toSearchResult(searchResponse, parameters, heroIds, linkBuilder);
 					if (parameters.isWithFacets()) {
 						searchResultSlice.facets = facetApplier.getFacets(searchResponse.getAggregations(), searchResultSlice.matchCount, filterContext, linkBuilder);
 					}
@@ -543,7 +1115,7 @@ public class Searcher {
 	}
 
 	private QueryBuilder buildFinalQuery(MasterVariantQuery searchQuery, Optional<QueryBuilder> heroProductsQuery,
-			FilterContext filterContext, List<SortBuilder<?>> variantSortings) {
+			FilterContext filterContext, List<SortBuilder<?>> variantSortings, boolean withInnerHits) {
 		QueryBuilder masterLevelQuery = searchQuery.getMasterLevelQuery(); // ESQueryUtils.mergeQueries(,
 
 		FilterFunctionBuilder[] masterScoringFunctions = scoringCreator.getScoringFunctions(false);
@@ -581,8 +1153,9 @@ public class Searcher {
 		// variant inner hits are always retrieved in a should clause,
 		// because they may contain optional matchers and post filters
 		// only exception: if the variants are only filtered
+		// (or no hits are fetched at all)
 		boolean isRetrieveVariantInnerHits = false;
-		if (variantsMatchQuery != null && !variantsOnlyFiltered) {
+		if (withInnerHits && variantsMatchQuery != null && !variantsOnlyFiltered) {
 			NestedQueryBuilder variantQuery = QueryBuilders.nestedQuery(FieldConstants.VARIANTS, variantsMatchQuery, ScoreMode.Avg)
 					.innerHit(getVariantInnerHits(variantSortings));
 			masterLevelQuery = ESQueryUtils.mapToBoolQueryBuilder(masterLevelQuery).should(variantQuery);
@@ -606,7 +1179,7 @@ public class Searcher {
 		// if there are hard variant filters, add them as must clause
 		if (variantFilterQuery != null) {
 			NestedQueryBuilder variantQuery = QueryBuilders.nestedQuery(FieldConstants.VARIANTS, variantFilterQuery, ScoreMode.None);
-			if (variantsOnlyFiltered && !isRetrieveVariantInnerHits) {
+			if (withInnerHits && variantsOnlyFiltered && !isRetrieveVariantInnerHits) {
 				variantQuery.innerHit(getVariantInnerHits(variantSortings));
 				isRetrieveVariantInnerHits = true;
 			}
@@ -635,13 +1208,21 @@ public class Searcher {
 				.innerHit(new InnerHitBuilder().setSize(0).setName("_all"));
 	}
 
-	private SearchResultSlice toSearchResult(SearchResponse search, InternalSearchParams parameters, Set<String> heroIds) {
+	private SearchResultSlice toSearchResult(SearchResponse search, InternalSearchParams parameters, Set<String> heroIds, SearchQueryBuilder linkBuilder) {
 		SearchHits searchHits = search.getHits();
 		SearchResultSlice srSlice = new SearchResultSlice();
 		// XXX think about building parameters according to the actual performed
 		// search (e.g. with relaxed query or with implicit set filters)
-		srSlice.resultLink = SearchQueryBuilder.toLink(parameters).toString();
+		srSlice.resultLink = linkBuilder.toLinkString();
 		srSlice.matchCount = searchHits.getTotalHits().value;
+		srSlice.meta = new HashMap<>(1);
+		srSlice.meta.put("matchCountRelation", TotalHits.Relation.EQUAL_TO.equals(searchHits.getTotalHits().relation) ? "eq" : "gte");
+
+		if (parameters.isFacetsOnly()) {
+			srSlice.hits = new ArrayList<>(0);
+			srSlice.nextOffset = parameters.offset;
+			return srSlice;
+		}
 
 		Map<String, SortOrder> sortedFields = sortingHandler.getSortedNumericFields(parameters);
 
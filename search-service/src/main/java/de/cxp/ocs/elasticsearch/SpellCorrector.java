@@ -2,10 +2,22 @@ package de.cxp.ocs.elasticsearch;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.filter.Filters;
+import org.elasticsearch.search.aggregations.bucket.filter.FiltersAggregator.KeyedFilter;
+import org.elasticsearch.search.aggregations.bucket.global.Global;
 import org.elasticsearch.search.suggest.Suggest;
 import org.elasticsearch.search.suggest.Suggest.Suggestion;
 import org.elasticsearch.search.suggest.Suggest.Suggestion.Entry;
@@ -18,13 +30,33 @@ import de.cxp.ocs.elasticsearch.query.model.QueryStringTerm;
 import de.cxp.ocs.elasticsearch.query.model.WeightedWord;
 import de.cxp.ocs.elasticsearch.query.model.WordAssociation;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 
 @RequiredArgsConstructor
 public class SpellCorrector {
 
+	final static String KNOWN_WORDS_AGG = "_known_words";
+
+	private final static String INDEXED_WORDS_AGG = "_indexed";
+
 	private final String[]	spellCorrectionFields;
 	private float			minScore	= 0.75f;
 
+	/**
+	 * Optional local dictionary. If set, it is used instead of the term
+	 * suggestions of Elasticsearch.
+	 */
+	@Setter
+	private volatile LocalSpellDictionary localDictionary;
+
+	/**
+	 * @return true if the spell correction relies on the term suggestions of
+	 *         Elasticsearch, false if a local dictionary is used.
+	 */
+	public boolean isSuggestRequestRequired() {
+		return localDictionary == null;
+	}
+
 	public SuggestBuilder buildSpellCorrectionQuery(String userQuery) {
 		SuggestBuilder suggestBuilder = new SuggestBuilder().setGlobalText(userQuery);
 		for (String fieldName : spellCorrectionFields) {
@@ -36,7 +68,73 @@ public class SpellCorrector {
 		return suggestBuilder;
 	}
 
+	/**
+	 * If a local dictionary is used, it only contains the most frequent terms,
+	 * so the search words that it doesn't know have to be checked against the
+	 * index. This is done with a global aggregation that is sent together with
+	 * the search request and that counts the documents per unknown word.
+	 *
+	 * @param searchWords
+	 *        analyzed search words
+	 * @return the aggregation or empty, if no local dictionary is used or it
+	 *         knows all words
+	 */
+	public Optional<AggregationBuilder> buildKnownWordsAggregation(Collection<QueryStringTerm> searchWords) {
+		LocalSpellDictionary dictionary = localDictionary;
+		if (dictionary == null) return Optional.empty();
+
+		Set<String> unknownWords = dictionary.getUnknownWords(searchWords);
+		if (unknownWords.isEmpty()) return Optional.empty();
+
+		List<KeyedFilter> wordFilters = new ArrayList<>(unknownWords.size());
+		for (String word : unknownWords) {
+			BoolQueryBuilder wordQuery = QueryBuilders.boolQuery();
+			for (String fieldName : spellCorrectionFields) {
+				wordQuery.should(QueryBuilders.termQuery(FieldConstants.SEARCH_DATA + "." + fieldName, word));
+			}
+			wordFilters.add(new KeyedFilter(word, wordQuery));
+		}
+		return Optional.of(AggregationBuilders.global(KNOWN_WORDS_AGG)
+				.subAggregation(AggregationBuilders.filters(INDEXED_WORDS_AGG, wordFilters.toArray(new KeyedFilter[wordFilters.size()]))));
+	}
+
+	/**
+	 * Extracts the corrections of the search words from the term suggestions
+	 * of Elasticsearch or from the local dictionary, if one is used.
+	 *
+	 * @param searchWords
+	 *        analyzed search words
+	 * @param suggest
+	 *        suggestions of the search response, not required if a local
+	 *        dictionary is used
+	 * @return corrections per word
+	 */
 	public Map<String, WordAssociation> extractRelatedWords(Collection<QueryStringTerm> searchWords, Suggest suggest) {
+		return extractRelatedWords(searchWords, suggest, null);
+	}
+
+	/**
+	 * Extracts the corrections of the search words, either from the local
+	 * dictionary or from the term suggestions of Elasticsearch.
+	 *
+	 * @param searchWords
+	 *        analyzed search words
+	 * @param suggest
+	 *        suggestions of the search response, not required if a local
+	 *        dictionary is used
+	 * @param aggregations
+	 *        aggregations of the search response that may contain the result
+	 *        of the {@link #buildKnownWordsAggregation(Collection) known words
+	 *        aggregation}. Words that are found in the index are not corrected
+	 *        by the local dictionary.
+	 * @return corrections per word
+	 */
+	public Map<String, WordAssociation> extractRelatedWords(Collection<QueryStringTerm> searchWords, Suggest suggest, Aggregations aggregations) {
+		LocalSpellDictionary dictionary = localDictionary;
+		if (dictionary != null) {
+			return dictionary.extractRelatedWords(searchWords, minScore, getIndexedWords(aggregations));
+		}
+
 		Map<String, WordAssociation> correctedWords = new HashMap<>();
 		Map<String, Float> bestScores = new HashMap<>();
 
@@ -69,6 +167,20 @@ public class SpellCorrector {
 		return correctedWords;
 	}
 
+	private static Set<String> getIndexedWords(Aggregations aggregations) {
+		Global knownWords = aggregations == null ? null : aggregations.get(KNOWN_WORDS_AGG);
+		if (knownWords == null) return Collections.emptySet();
+
+		Set<String> indexedWords = new HashSet<>();
+		Filters wordFilters = knownWords.getAggregations().get(INDEXED_WORDS_AGG);
+		for (Filters.Bucket wordBucket : wordFilters.getBuckets()) {
+			if (wordBucket.getDocCount() > 0) {
+				indexedWords.add(wordBucket.getKeyAsString());
+			}
+		}
+		return indexedWords;
+	}
+
 	public static List<QueryStringTerm> toListWithAllTerms(Collection<QueryStringTerm> searchWords,
 			Map<String, WordAssociation> correctedWords) {
 		List<QueryStringTerm> relatedWords = new ArrayList<>();
@@ -0,0 +1,58 @@
+package de.cxp.ocs.elasticsearch;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import de.cxp.ocs.config.FieldConstants;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Builds a {@link LocalSpellDictionary} from the most frequent terms of the
+ * search fields of an index, using a terms aggregation per field.
+ */
+@RequiredArgsConstructor
+class SpellDictionaryFetcher {
+
+	private final SearchTransport transport;
+
+	/**
+	 * @param searchIndex
+	 *        index or alias name
+	 * @param searchFields
+	 *        names of the search fields
+	 * @param maxTermsPerField
+	 *        maximum amount of terms fetched per field
+	 * @return the dictionary
+	 * @throws IOException
+	 *         if the terms can't be fetched
+	 */
+	public LocalSpellDictionary fetchDictionary(String searchIndex, Collection<String> searchFields, int maxTermsPerField) throws IOException {
+		SearchSourceBuilder sourceBuilder = SearchSourceBuilder.searchSource().size(0);
+		for (String fieldName : searchFields) {
+			sourceBuilder.aggregation(AggregationBuilders.terms(fieldName)
+					.field(FieldConstants.SEARCH_DATA + "." + fieldName)
+					.size(maxTermsPerField));
+		}
+		SearchResponse searchResponse = transport.search(new SearchRequest(searchIndex).source(sourceBuilder));
+
+		Map<String, Integer> termFrequencies = new HashMap<>();
+		if (searchResponse.getAggregations() != null) {
+			for (String fieldName : searchFields) {
+				Terms terms = searchResponse.getAggregations().get(fieldName);
+				if (terms == null) continue;
+				for (Terms.Bucket bucket : terms.getBuckets()) {
+					termFrequencies.merge(bucket.getKeyAsString(), (int) bucket.getDocCount(), Math::max);
+				}
+			}
+		}
+		return new LocalSpellDictionary(termFrequencies);
+	}
+}
@@ -0,0 +1,153 @@
+package de.cxp.ocs.elasticsearch;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import de.cxp.ocs.config.QueryProcessingConfiguration;
+import de.cxp.ocs.elasticsearch.query.model.QueryStringTerm;
+import de.cxp.ocs.elasticsearch.query.model.WordAssociation;
+import de.cxp.ocs.util.InternalSearchParams;
+import de.cxp.ocs.util.SearchParamsKeys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Remembers for analyzed queries, which stage of the staged search delivered a
+ * sufficient result, so that repeated queries can start directly with that
+ * stage. The spell corrections that were applied to get that result are
+ * remembered as well.
+ *
+ * Since it's part of the tenant specific Searcher, it's dropped together with
+ * it at every config reload.
+ */
+public class StagedSearchCache {
+
+	private final Cache<String, KnownStage> knownStages;
+
+	private final Counter				hitCounter;
+	private final Counter				missCounter;
+	private final DistributionSummary	skippedStages;
+
+	public StagedSearchCache(QueryProcessingConfiguration queryProcessing, MeterRegistry registry, String indexName) {
+		knownStages = CacheBuilder.newBuilder()
+				.maximumSize(queryProcessing.getStagedSearchCacheSize())
+				.expireAfterWrite(queryProcessing.getStagedSearchCacheTtlSeconds(), TimeUnit.SECONDS)
+				.build();
+		hitCounter = Counter.builder("stagedSearchCacheHits").tag("indexName", indexName).register(registry);
+		missCounter = Counter.builder("stagedSearchCacheMisses").tag("indexName", indexName).register(registry);
+		skippedStages = DistributionSummary.builder("stagedSearchCacheSkippedStages").tag("indexName", indexName)
+				.register(registry);
+	}
+
+	public static boolean isEnabled(QueryProcessingConfiguration queryProcessing) {
+		return queryProcessing.getStagedSearchCacheSize() > 0 && queryProcessing.getStagedSearchCacheTtlSeconds() > 0;
+	}
+
+	/**
+	 * Builds the key for the analyzed search words and the filters of the
+	 * given parameters. Must be called before the search words are passed to
+	 * any ESQueryFactory, since those may modify the terms.
+	 *
+	 * @param searchWords
+	 *        analyzed search words
+	 * @param parameters
+	 *        internal search parameters
+	 * @return the key or null if the result of that request can't be cached,
+	 *         e.g. because hero products are involved.
+	 */
+	public String getKey(List<QueryStringTerm> searchWords, InternalSearchParams parameters) {
+		if (searchWords.isEmpty() || !parameters.includeMainResult
+				|| parameters.heroProductSets != null
+				|| (parameters.excludedIds != null && !parameters.excludedIds.isEmpty())) {
+			return null;
+		}
+		StringBuilder key = new StringBuilder();
+		for (QueryStringTerm term : searchWords) {
+			key.append(term.toQueryString()).append(' ');
+		}
+		key.append('|');
+		SearchParamsKeys.appendFilterSignature(key, parameters.filters);
+		key.append('|');
+		SearchParamsKeys.appendFilterSignature(key, parameters.querqyFilters);
+		return key.toString();
+	}
+
+	public Optional<KnownStage> get(String key) {
+		KnownStage knownStage = knownStages.getIfPresent(key);
+		if (knownStage == null) {
+			missCounter.increment();
+		}
+		else {
+			hitCounter.increment();
+			skippedStages.record(knownStage.factoryIndex);
+		}
+		return Optional.ofNullable(knownStage);
+	}
+
+	/**
+	 * Remember the stage that delivered the sufficient result.
+	 *
+	 * @param key
+	 *        key built with {@link #getKey(List, InternalSearchParams)}
+	 * @param factoryIndex
+	 *        position of the successful query factory inside the list of
+	 *        matching query factories
+	 * @param queryStage
+	 *        the 'query_stage' value that is returned with the result meta data
+	 * @param factoryName
+	 *        name of the successful query factory
+	 * @param correctedWords
+	 *        optional spell corrections that were applied to the search words
+	 */
+	public void put(String key, int factoryIndex, int queryStage, String factoryName, Map<String, WordAssociation> correctedWords) {
+		boolean hasCorrections = correctedWords != null && !correctedWords.isEmpty();
+		// nothing to gain in that case
+		if (factoryIndex == 0 && !hasCorrections) {
+			knownStages.invalidate(key);
+			return;
+		}
+		knownStages.put(key, new KnownStage(factoryIndex, queryStage, factoryName, hasCorrections ? copy(correctedWords) : null));
+	}
+
+	public void invalidate(String key) {
+		knownStages.invalidate(key);
+	}
+
+	/**
+	 * Query factories may modify the terms, so each request gets its own
+	 * copy of the cached corrections.
+	 */
+	private static Map<String, WordAssociation> copy(Map<String, WordAssociation> correctedWords) {
+		Map<String, WordAssociation> copy = new HashMap<>(correctedWords.size());
+		correctedWords.forEach((word, association) -> copy.put(word, association.copy()));
+		return copy;
+	}
+
+	@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+	@Getter
+	public static class KnownStage {
+
+		private final int factoryIndex;
+
+		private final int queryStage;
+
+		private final String factoryName;
+
+		private final Map<String, WordAssociation> correctedWords;
+
+		/**
+		 * @return copy of the remembered spell corrections or null, if none
+		 *         were necessary.
+		 */
+		public Map<String, WordAssociation> getCorrectedWords() {
+			return correctedWords == null ? null : copy(correctedWords);
+		}
+	}
+}
@@ -3,6 +3,7 @@ package de.cxp.ocs.elasticsearch.facets;
 import static de.cxp.ocs.elasticsearch.facets.FacetFactory.getLabel;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -14,6 +15,9 @@ import org.elasticsearch.search.aggregations.Aggregations;
 import org.elasticsearch.search.aggregations.bucket.filter.Filter;
 import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import de.cxp.ocs.SearchContext;
 import de.cxp.ocs.config.FacetConfiguration.FacetConfig;
 import de.cxp.ocs.config.FacetType;
@@ -51,6 +55,18 @@ public class FacetConfigurationApplyer {
 
 	private final List<FacetFilter> facetFilters = new ArrayList<>();
 
+	/*
+	 * The aggregations of the facet creators only depend on the facet
+	 * configuration and the names of the post filters. So they are built once
+	 * and shared between the requests. Only the post filter aggregations are
+	 * built per request.
+	 */
+	private List<AggregationBuilder>								unfilteredAggregators		= Collections.emptyList();
+	private final Map<String, List<AggregationBuilder>>			includeFilteredAggregators	= new ConcurrentHashMap<>();
+	private final Cache<Set<String>, List<AggregationBuilder>>	excludeFilteredAggregators	= CacheBuilder.newBuilder()
+			.maximumSize(256)
+			.build();
+
 	@Data
 	@RequiredArgsConstructor
 	private static class FacetCreatorClassifier {
@@ -199,8 +215,6 @@ public class FacetConfigurationApplyer {
 		// range facets are only created for configured facets, so if there are
 		// none, don't use that creator at all
 		if (!rangeFacets.isEmpty()) {
-			// TODO: FacetCreators that run on the same nested field, should be
-			// grouped to use a single nested-aggregation for their aggregations
 			NestedFacetCreator rangeFacetCreator = new RangeFacetCreator(rangeFacets, FacetType.RANGE.name().equals(defaultFacetType) ? defaultFacetConfigProvider : null)
 					.setMaxFacets(maxFacets);
 			rangeFacetCreator.setGeneralExcludedFields(getNamesOfMatchingFields(ignoredFields, FieldType.NUMBER));
@@ -247,8 +261,22 @@ public class FacetConfigurationApplyer {
 			variantIntervalFacetCreator.setGeneralExcludedFields(getNamesOfMatchingFields(ignoredFields, FieldType.NUMBER));
 		}
 
+		// FacetCreators that run on the same nested field are grouped to use a
+		// single nested-aggregation for their aggregations. This is only done
+		// for the full aggregation, since the exclusive aggregations only use
+		// the creators responsible for a single field.
+		List<FacetCreator> groupedFacetCreators = GroupedNestedFacetCreator.groupByNestedPath(facetCreators);
+		facetCreators.clear();
+		facetCreators.addAll(groupedFacetCreators);
+
 		// consolidated variant facet creator
-		facetCreators.add(new VariantFacetCreator(variantFacetCreators));
+		facetCreators.add(new VariantFacetCreator(GroupedNestedFacetCreator.groupByNestedPath(variantFacetCreators)));
+
+		unfilteredAggregators = Collections.unmodifiableList(facetCreators.stream()
+				.map(FacetCreator::buildAggregation)
+				.collect(Collectors.toList()));
+		includeFilteredAggregators.clear();
+		excludeFilteredAggregators.invalidateAll();
 	}
 
 	private Function<String, FacetConfig> getDefaultFacetConfigProvider(SearchContext context) {
@@ -343,9 +371,7 @@ public class FacetConfigurationApplyer {
 		// if there are no post filters, add aggregations without filters
 		// => at the getFacets method this has to be considered
 		if (filterContext.getPostFilterQueries().isEmpty()) {
-			for (FacetCreator creator : facetCreators) {
-				aggregators.add(creator.buildAggregation());
-			}
+			aggregators.addAll(unfilteredAggregators);
 		}
 		else {
 			Map<String, QueryBuilder> postFilters = filterContext.getPostFilterQueries();
@@ -355,8 +381,11 @@ public class FacetConfigurationApplyer {
 
 				FilterAggregationBuilder filterAgg = AggregationBuilders.filter(EXCLUSIVE_AGG_PREFIX + postFilterName, exclusiveFilterQuery);
 
-				getResponsibleFacetCreators(internalFilter)
-						.forEach(facetCreator -> filterAgg.subAggregation(facetCreator.buildIncludeFilteredAggregation(Collections.singleton(postFilterName))));
+				includeFilteredAggregators.computeIfAbsent(postFilterName,
+						name -> getResponsibleFacetCreators(internalFilter).stream()
+								.map(facetCreator -> facetCreator.buildIncludeFilteredAggregation(Collections.singleton(name)))
+								.collect(Collectors.toList()))
+						.forEach(filterAgg::subAggregation);
 
 				aggregators.add(filterAgg);
 			}
@@ -364,15 +393,25 @@ public class FacetConfigurationApplyer {
 			// create a filter for all post filters and add all aggregations
 			// that are not specialized for all the post filters
 			FilterAggregationBuilder fullFilteredAgg = AggregationBuilders.filter(FILTERED_AGG_NAME, filterContext.getJoinedPostFilters());
-			for (FacetCreator creator : facetCreators) {
-				fullFilteredAgg.subAggregation(creator.buildExcludeFilteredAggregation(filterContext.getPostFilterQueries().keySet()));
-			}
+			getExcludeFilteredAggregators(postFilters.keySet()).forEach(fullFilteredAgg::subAggregation);
 			aggregators.add(fullFilteredAgg);
 		}
 
 		return aggregators;
 	}
 
+	private List<AggregationBuilder> getExcludeFilteredAggregators(Set<String> excludeNames) {
+		Set<String> key = Collections.unmodifiableSet(new HashSet<>(excludeNames));
+		List<AggregationBuilder> aggregators = excludeFilteredAggregators.getIfPresent(key);
+		if (aggregators == null) {
+			aggregators = facetCreators.stream()
+					.map(creator -> creator.buildExcludeFilteredAggregation(key))
+					.collect(Collectors.toList());
+			excludeFilteredAggregators.put(key, aggregators);
+		}
+		return aggregators;
+	}
+
 	private QueryBuilder getExclusivePostFilterQuery(String postFilterName, InternalResultFilter internalFilter, Map<String, QueryBuilder> postFilters) {
 		// and combines that with all other post filters
 		QueryBuilder finalAggFilter = FilterContext.joinAllButOne(postFilterName, postFilters)
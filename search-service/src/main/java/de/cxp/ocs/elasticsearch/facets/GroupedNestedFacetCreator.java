@@ -0,0 +1,123 @@
+package de.cxp.ocs.elasticsearch.facets;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.nested.Nested;
+import org.elasticsearch.search.aggregations.bucket.nested.NestedAggregationBuilder;
+
+import de.cxp.ocs.elasticsearch.query.filter.FilterContext;
+import de.cxp.ocs.model.result.Facet;
+import de.cxp.ocs.util.SearchQueryBuilder;
+
+/**
+ * Combines several NestedFacetCreators that run on the same nested path, so
+ * that only a single nested aggregation is necessary for all of them. Each
+ * creator gets its own filter aggregation inside that nested aggregation.
+ */
+public class GroupedNestedFacetCreator implements FacetCreator {
+
+	private static final String NESTED_AGG_PREFIX = "_nested_";
+
+	private final List<NestedFacetCreator> innerCreators;
+
+	public GroupedNestedFacetCreator(List<NestedFacetCreator> creators) {
+		if (creators.isEmpty()) throw new IllegalArgumentException("at least one facet creator required");
+		innerCreators = creators;
+	}
+
+	/**
+	 * Groups all NestedFacetCreators with the same nested path. Other facet
+	 * creators and NestedFacetCreators with a unique nested path are kept as
+	 * they are. The order of the creators is retained, whereas a group is
+	 * placed at the position of its first creator.
+	 *
+	 * @param creators
+	 *        facet creators of the same nesting level
+	 * @return list of facet creators
+	 */
+	public static List<FacetCreator> groupByNestedPath(List<FacetCreator> creators) {
+		Map<Object, List<FacetCreator>> groups = new LinkedHashMap<>();
+		for (FacetCreator creator : creators) {
+			Object groupKey = creator instanceof NestedFacetCreator ? ((NestedFacetCreator) creator).getNestedPath() : creator;
+			groups.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(creator);
+		}
+
+		List<FacetCreator> groupedCreators = new ArrayList<>(groups.size());
+		for (List<FacetCreator> group : groups.values()) {
+			if (group.size() == 1) {
+				groupedCreators.add(group.get(0));
+			}
+			else {
+				List<NestedFacetCreator> nestedCreators = new ArrayList<>(group.size());
+				group.forEach(creator -> nestedCreators.add((NestedFacetCreator) creator));
+				groupedCreators.add(new GroupedNestedFacetCreator(nestedCreators));
+			}
+		}
+		return groupedCreators;
+	}
+
+	void setNestedFacetCorrector(NestedFacetCountCorrector nestedFacetCorrector) {
+		innerCreators.forEach(creator -> creator.setNestedFacetCorrector(nestedFacetCorrector));
+	}
+
+	@Override
+	public AggregationBuilder buildAggregation() {
+		return buildGroupedAggregation(creator -> creator.buildNameFilteredAggregation(creator.getUniqueAggregationName(), Collections.emptySet(), Collections.emptySet()));
+	}
+
+	@Override
+	public AggregationBuilder buildIncludeFilteredAggregation(Set<String> includeNames) {
+		return buildGroupedAggregation(creator -> creator.buildNameFilteredAggregation(creator.getUniqueAggregationName(), includeNames, Collections.emptySet()));
+	}
+
+	@Override
+	public AggregationBuilder buildExcludeFilteredAggregation(Set<String> excludeNames) {
+		return buildGroupedAggregation(creator -> creator.buildNameFilteredAggregation(creator.getUniqueAggregationName(), Collections.emptySet(), excludeNames));
+	}
+
+	private AggregationBuilder buildGroupedAggregation(Function<NestedFacetCreator, FilterAggregationBuilder> subAggCreatorCall) {
+		NestedAggregationBuilder nestedAggBuilder = AggregationBuilders.nested(getAggregationName(), innerCreators.get(0).getFullNestedPath());
+		innerCreators.forEach(creator -> nestedAggBuilder.subAggregation(subAggCreatorCall.apply(creator)));
+		return nestedAggBuilder;
+	}
+
+	private String getAggregationName() {
+		return NESTED_AGG_PREFIX + innerCreators.get(0).getNestedPath();
+	}
+
+	@Override
+	public Collection<Facet> createFacets(Aggregations aggResult, FilterContext filterContext, SearchQueryBuilder linkBuilder) {
+		List<Facet> facets = new ArrayList<>();
+		Nested nestedAgg = aggResult.get(getAggregationName());
+		if (nestedAgg == null) return facets;
+		for (NestedFacetCreator creator : innerCreators) {
+			facets.addAll(creator.createFacets(nestedAgg.getAggregations(), creator.getUniqueAggregationName(), filterContext, linkBuilder));
+		}
+		return facets;
+	}
+
+	@Override
+	public Optional<Facet> mergeFacets(Facet first, Facet second) {
+		Optional<Facet> mergedFacet = Optional.empty();
+		for (FacetCreator creator : innerCreators) {
+			mergedFacet = creator.mergeFacets(first, second);
+			if (mergedFacet.isPresent()) {
+				break;
+			}
+		}
+		return mergedFacet;
+	}
+
+}
@@ -15,6 +15,7 @@ import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.filter.ParsedFilter;
 import org.elasticsearch.search.aggregations.bucket.nested.Nested;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms;
@@ -91,23 +92,52 @@ public abstract class NestedFacetCreator implements FacetCreator {
 	}
 
 	private AggregationBuilder buildFilteredAggregation(Set<String> includedNames, Set<String> excludedNames) {
+		return AggregationBuilders.nested(uniqueAggregationName, getFullNestedPath())
+				.subAggregation(buildNameFilteredAggregation(FILTERED_AGG, includedNames, excludedNames));
+	}
+
+	/**
+	 * @return the nested path including the prefix of the parent nested
+	 *         document, if there is one
+	 */
+	String getFullNestedPath() {
 		String nestedPathPrefix = "";
 		if (nestedFacetCorrector != null) nestedPathPrefix = nestedFacetCorrector.getNestedPathPrefix();
-		nestedPathPrefix += getNestedPath();
+		return nestedPathPrefix + getNestedPath();
+	}
+
+	String getUniqueAggregationName() {
+		return uniqueAggregationName;
+	}
+
+	/**
+	 * Builds the aggregation that has to be placed inside the nested
+	 * aggregation of the according nested path. Used directly by the
+	 * {@link GroupedNestedFacetCreator} to combine several creators into a
+	 * single nested aggregation.
+	 *
+	 * @param name
+	 *        name of the filter aggregation
+	 * @param includedNames
+	 *        names of the facets that should be aggregated exclusively
+	 * @param excludedNames
+	 *        names of the facets that should not be aggregated
+	 * @return filter aggregation builder
+	 */
+	FilterAggregationBuilder buildNameFilteredAggregation(String name, Set<String> includedNames, Set<String> excludedNames) {
+		String nestedPathPrefix = getFullNestedPath();
 
 		AggregationBuilder valueAggBuilder = getNestedValueAggregation(nestedPathPrefix);
 		if (nestedFacetCorrector != null && correctedNestedDocumentCount()) nestedFacetCorrector.correctValueAggBuilder(valueAggBuilder);
 
 		QueryBuilder facetNameFilter = getNameFilter(nestedPathPrefix + ".name", includedNames, excludedNames);
 
-		return AggregationBuilders.nested(uniqueAggregationName, nestedPathPrefix)
+		return AggregationBuilders.filter(name, facetNameFilter)
 				.subAggregation(
-						AggregationBuilders.filter(FILTERED_AGG, facetNameFilter)
-								.subAggregation(
-										AggregationBuilders.terms(FACET_NAMES_AGG)
-												.field(nestedPathPrefix + ".name")
-												.size(maxFacets)
-												.subAggregation(valueAggBuilder)));
+						AggregationBuilders.terms(FACET_NAMES_AGG)
+								.field(nestedPathPrefix + ".name")
+								.size(maxFacets)
+								.subAggregation(valueAggBuilder));
 	}
 
 	private QueryBuilder getNameFilter(String nestedFilterNamePath, Set<String> includedNames, Set<String> excludes) {
@@ -157,7 +187,26 @@ public abstract class NestedFacetCreator implements FacetCreator {
 
 	@Override
 	public Collection<Facet> createFacets(Aggregations aggResult, FilterContext filterContext, SearchQueryBuilder linkBuilder) {
-		ParsedFilter filtersAgg = ((Nested) aggResult.get(uniqueAggregationName)).getAggregations().get(FILTERED_AGG);
+		Nested nestedAgg = aggResult.get(uniqueAggregationName);
+		return createFacets(nestedAgg.getAggregations(), FILTERED_AGG, filterContext, linkBuilder);
+	}
+
+	/**
+	 * Create facets from the content of the nested aggregation.
+	 *
+	 * @param nestedAggResult
+	 *        sub aggregations of the nested aggregation
+	 * @param filterAggName
+	 *        name of the filter aggregation built by
+	 *        {@link #buildNameFilteredAggregation(String, Set, Set)}
+	 * @param filterContext
+	 *        the filter context
+	 * @param linkBuilder
+	 *        a link builder to create facet-entry-links
+	 * @return a list of extracted facets
+	 */
+	Collection<Facet> createFacets(Aggregations nestedAggResult, String filterAggName, FilterContext filterContext, SearchQueryBuilder linkBuilder) {
+		ParsedFilter filtersAgg = nestedAggResult.get(filterAggName);
 		if (filtersAgg == null) return Collections.emptyList();
 
 		Terms facetNamesAggregation = filtersAgg.getAggregations().get(FACET_NAMES_AGG);
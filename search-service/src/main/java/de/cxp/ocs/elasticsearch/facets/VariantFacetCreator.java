@@ -29,6 +29,9 @@ public class VariantFacetCreator implements FacetCreator {
 			if (c instanceof NestedFacetCreator) {
 				((NestedFacetCreator) c).setNestedFacetCorrector(nestedFacetCountCorrector);
 			}
+			else if (c instanceof GroupedNestedFacetCreator) {
+				((GroupedNestedFacetCreator) c).setNestedFacetCorrector(nestedFacetCountCorrector);
+			}
 		});
 	}
 
@@ -0,0 +1,237 @@
+package de.cxp.ocs.elasticsearch.mapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.xcontent.XContentType;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import de.cxp.ocs.config.FieldConstants;
+
+/**
+ * Result data that is kept as the raw JSON of the 'resultData' object of a
+ * source document. It is written verbatim by Jackson, so the data is never
+ * parsed in case it's just passed through.
+ * If the data is accessed or modified as a map, it is parsed once and from
+ * then on serialized as usual.
+ */
+@JsonSerialize(using = RawResultData.RawResultDataSerializer.class)
+public class RawResultData extends AbstractMap<String, Object> {
+
+	private final static JsonFactory jsonFactory = new JsonFactory();
+
+	private final BytesReference rawData;
+
+	private Map<String, Object> parsedData;
+
+	private RawResultData(BytesReference rawData) {
+		this.rawData = rawData;
+	}
+
+	/**
+	 * Extracts the result data object from the given JSON source without
+	 * parsing its content.
+	 *
+	 * @param source
+	 *        source of a search hit
+	 * @return result data or null if there is none
+	 */
+	public static RawResultData of(BytesReference source) {
+		BytesRef bytes = source.toBytesRef();
+		try (JsonParser parser = jsonFactory.createParser(bytes.bytes, bytes.offset, bytes.length)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) return null;
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if (token == JsonToken.START_OBJECT && FieldConstants.RESULT_DATA.equals(fieldName)) {
+					int start = (int) parser.getTokenLocation().getByteOffset();
+					parser.skipChildren();
+					int end = (int) parser.getCurrentLocation().getByteOffset();
+					return new RawResultData(source.slice(start, end - start));
+				}
+				parser.skipChildren();
+			}
+			return null;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("failed to parse source of search hit", e);
+		}
+	}
+
+	private synchronized Map<String, Object> getParsedData() {
+		if (parsedData == null) {
+			parsedData = XContentHelper.convertToMap(rawData, false, XContentType.JSON).v2();
+		}
+		return parsedData;
+	}
+
+	/**
+	 * @return true if the data was accessed as map and is not passed through
+	 *         as raw JSON anymore
+	 */
+	public synchronized boolean isParsed() {
+		return parsedData != null;
+	}
+
+	/**
+	 * @return size of the raw JSON in bytes
+	 */
+	public int getRawSize() {
+		return rawData.length();
+	}
+
+	/**
+	 * Creates a copy that shares the immutable raw data. Should only be used
+	 * as long as the data is not parsed, because modifications of the parsed
+	 * data are not part of the copy.
+	 *
+	 * @return unparsed copy
+	 */
+	public RawResultData copy() {
+		return new RawResultData(rawData);
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return getParsedData().entrySet();
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		return getParsedData().put(key, value);
+	}
+
+	public static class RawResultDataSerializer extends StdSerializer<RawResultData> {
+
+		private static final long serialVersionUID = 6470271391361524585L;
+
+		public RawResultDataSerializer() {
+			super(RawResultData.class);
+		}
+
+		@Override
+		public void serialize(RawResultData value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+			if (value.isParsed()) {
+				provider.defaultSerializeValue(value.getParsedData(), gen);
+			}
+			else {
+				gen.writeRawValue(new RawJson(value.rawData));
+			}
+		}
+	}
+
+	/**
+	 * Raw JSON that is copied as UTF-8 bytes into the output of byte based
+	 * generators, so it's not decoded into a string. Only character based
+	 * generators use the decoded value.
+	 */
+	private static class RawJson implements SerializableString {
+
+		private final BytesReference bytes;
+
+		private String value;
+
+		RawJson(BytesReference bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public String getValue() {
+			if (value == null) {
+				value = bytes.utf8ToString();
+			}
+			return value;
+		}
+
+		@Override
+		public int charLength() {
+			return getValue().length();
+		}
+
+		@Override
+		public byte[] asUnquotedUTF8() {
+			return BytesReference.toBytes(bytes);
+		}
+
+		@Override
+		public int appendUnquotedUTF8(byte[] buffer, int offset) {
+			int length = bytes.length();
+			if (offset + length > buffer.length) return -1;
+			BytesRef bytesRef = bytes.toBytesRef();
+			System.arraycopy(bytesRef.bytes, bytesRef.offset, buffer, offset, length);
+			return length;
+		}
+
+		@Override
+		public int writeUnquotedUTF8(OutputStream out) throws IOException {
+			bytes.writeTo(out);
+			return bytes.length();
+		}
+
+		@Override
+		public int putUnquotedUTF8(ByteBuffer buffer) throws IOException {
+			int length = bytes.length();
+			if (length > buffer.remaining()) return -1;
+			BytesRef bytesRef = bytes.toBytesRef();
+			buffer.put(bytesRef.bytes, bytesRef.offset, length);
+			return length;
+		}
+
+		@Override
+		public int appendUnquoted(char[] buffer, int offset) {
+			String str = getValue();
+			if (offset + str.length() > buffer.length) return -1;
+			str.getChars(0, str.length(), buffer, offset);
+			return str.length();
+		}
+
+		// raw values are never quoted, but for completeness
+
+		@Override
+		public char[] asQuotedChars() {
+			return new SerializedString(getValue()).asQuotedChars();
+		}
+
+		@Override
+		public byte[] asQuotedUTF8() {
+			return new SerializedString(getValue()).asQuotedUTF8();
+		}
+
+		@Override
+		public int appendQuotedUTF8(byte[] buffer, int offset) {
+			return new SerializedString(getValue()).appendQuotedUTF8(buffer, offset);
+		}
+
+		@Override
+		public int appendQuoted(char[] buffer, int offset) {
+			return new SerializedString(getValue()).appendQuoted(buffer, offset);
+		}
+
+		@Override
+		public int writeQuotedUTF8(OutputStream out) throws IOException {
+			return new SerializedString(getValue()).writeQuotedUTF8(out);
+		}
+
+		@Override
+		public int putQuotedUTF8(ByteBuffer buffer) throws IOException {
+			return new SerializedString(getValue()).putQuotedUTF8(buffer);
+		}
+	}
+}
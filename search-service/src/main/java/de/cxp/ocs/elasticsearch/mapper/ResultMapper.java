@@ -2,17 +2,27 @@ package de.cxp.ocs.elasticsearch.mapper;
 
 import static com.google.common.base.Predicates.instanceOf;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
 
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.xcontent.DeprecationHandler;
+import org.elasticsearch.xcontent.NamedXContentRegistry;
+import org.elasticsearch.xcontent.XContentParser;
+import org.elasticsearch.xcontent.XContentParser.Token;
+import org.elasticsearch.xcontent.XContentType;
 
 import de.cxp.ocs.config.Field;
 import de.cxp.ocs.config.FieldConfigIndex;
@@ -72,15 +82,88 @@ public class ResultMapper {
 			variantHit = variantPickingStrategy.pick(variantHits, allVariantHitCount);
 		}
 
+		Document document = new Document(hit.getId());
+		Map<String, Object> sortData = sortedFields.isEmpty() ? null : new HashMap<>(sortedFields.size());
+		if (hit.hasSource()) {
+			// without variant data and sort prefixes, the result data is passed
+			// through as it is
+			RawResultData rawResultData = null;
+			if (variantHit == null && sortData == null) {
+				rawResultData = RawResultData.of(hit.getSourceRef());
+			}
+
+			if (rawResultData != null) {
+				document.setData(rawResultData);
+			}
+			else {
+				// the sources are parsed only once and only the relevant parts
+				// are read: result data of master and variant and the sort data
+				// of the sorted fields
+				readSource(hit.getSourceRef(), document.getData(), sortData, sortedFields.keySet());
+				if (variantHit != null && variantHit.hasSource()) {
+					readSource(variantHit.getSourceRef(), document.getData(), null, null);
+				}
+			}
+		}
+
 		ResultHit resultHit = new ResultHit()
-				.setDocument(getResultDocument(hit, variantHit))
+				.setDocument(document)
 				.setIndex(hit.getIndex())
 				.setMatchedQueries(hit.getMatchedQueries());
 
-		addSortFieldPrefix(hit, resultHit, sortedFields);
+		if (sortData != null) {
+			addSortFieldPrefix(sortData, resultHit, sortedFields);
+		}
 		return resultHit;
 	}
 
+	/**
+	 * Streams over the raw source and puts the content of the result data
+	 * into the given resultData map and optionally the data of the sort fields
+	 * into the sortData map. All other source fields are skipped.
+	 */
+	private static void readSource(BytesReference source, Map<String, Object> resultData, Map<String, Object> sortData, Set<String> sortFields) {
+		try (XContentParser parser = XContentHelper.createParser(NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, source,
+				XContentType.JSON)) {
+			if (parser.nextToken() != Token.START_OBJECT) return;
+			while (parser.nextToken() == Token.FIELD_NAME) {
+				String fieldName = parser.currentName();
+				Token token = parser.nextToken();
+				if (token == Token.START_OBJECT && FieldConstants.RESULT_DATA.equals(fieldName)) {
+					readObject(parser, resultData, null);
+				}
+				else if (token == Token.START_OBJECT && sortData != null && FieldConstants.SORT_DATA.equals(fieldName)) {
+					readObject(parser, sortData, sortFields);
+				}
+				else {
+					parser.skipChildren();
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("failed to parse source of search hit", e);
+		}
+	}
+
+	private static void readObject(XContentParser parser, Map<String, Object> target, Set<String> includeFields) throws IOException {
+		while (parser.nextToken() == Token.FIELD_NAME) {
+			String fieldName = parser.currentName();
+			Token token = parser.nextToken();
+			if (includeFields != null && !includeFields.contains(fieldName)) {
+				parser.skipChildren();
+			}
+			else if (token == Token.START_OBJECT) {
+				target.put(fieldName, parser.map());
+			}
+			else if (token == Token.START_ARRAY) {
+				target.put(fieldName, parser.list());
+			}
+			else {
+				target.put(fieldName, parser.objectText());
+			}
+		}
+	}
+
 	/**
 	 * If we sort by a numeric value (e.g. price) and there are several
 	 * different values at a product for that given field (e.g. multiple prices
@@ -90,24 +173,19 @@ public class ResultMapper {
 	 * The goal is to show "from 10€" if sorted by price ascending and "to 59€"
 	 * if sorted by price descending.
 	 * 
-	 * @param hit
-	 *        ES search hit
+	 * @param sortData
+	 *        sort data of the ES search hit
 	 * @param resultHit
 	 *        according OCS mapped result hit
 	 * @param sortedFields
 	 *        map of sort fields
 	 */
-	@SuppressWarnings("unchecked")
-	private static void addSortFieldPrefix(SearchHit hit, ResultHit resultHit, Map<String, SortOrder> sortedFields) {
-		Map<String, Object> source = hit.getSourceAsMap();
-		if (source == null) return;
-
-		Object sortData = source.get(FieldConstants.SORT_DATA);
-		if (sortData != null && sortData instanceof Map && sortedFields.size() > 0) {
+	private static void addSortFieldPrefix(Map<String, Object> sortData, ResultHit resultHit, Map<String, SortOrder> sortedFields) {
+		if (!sortData.isEmpty()) {
 			sortedFields.forEach((fieldName, order) -> {
 				Map<String, String> fieldsToChange = new HashMap<String, String>();
 				resultHit.document.getData().computeIfPresent(fieldName, (fn, v) -> {
-					Object fieldSortData = ((Map<String, Object>) sortData).get(fn);
+					Object fieldSortData = sortData.get(fn);
 					if (fieldSortData != null && fieldSortData instanceof Collection
 							&& ((Collection<?>) fieldSortData).size() > 1) {
 						fieldsToChange.put(fn + "_prefix", SortOrder.ASC.equals(order) ? "{from}" : "{to}");
@@ -122,20 +200,6 @@ public class ResultMapper {
 		}
 	}
 
-	private static Document getResultDocument(SearchHit hit, SearchHit variantHit) {
-		Map<String, Object> source = hit.getSourceAsMap();
-		Document document = new Document(hit.getId());
-
-		if (source != null) {
-			putDataIntoResult(hit.getSourceAsMap(), document.getData(), FieldConstants.RESULT_DATA);
-			if (variantHit != null) {
-				putDataIntoResult(variantHit.getSourceAsMap(), document.getData(), FieldConstants.RESULT_DATA);
-			}
-		}
-
-		return document;
-	}
-
 	@SuppressWarnings("unchecked")
 	private static void putDataIntoResult(Map<String, Object> source, Map<String, Object> resultFields, String sourceDataField) {
 		Object sourceData = source.get(sourceDataField);
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import de.cxp.ocs.SearchContext;
 import de.cxp.ocs.elasticsearch.Searcher;
@@ -20,8 +21,28 @@ public class DynamicProductSetResolver implements ProductSetResolver {
 
 	@Override
 	public StaticProductSet resolve(ProductSet dynamicProductSet, Set<String> excludedIds, Searcher searcher, SearchContext searchContext) {
-		DynamicProductSet productSet = (DynamicProductSet) dynamicProductSet;
+		InternalSearchParams productSetParams = toSearchParams((DynamicProductSet) dynamicProductSet, excludedIds, searchContext);
+		try {
+			return toStaticProductSet(dynamicProductSet, searcher.find(productSetParams));
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public CompletableFuture<StaticProductSet> resolveAsync(ProductSet dynamicProductSet, Set<String> excludedIds, Searcher searcher, SearchContext searchContext) {
+		InternalSearchParams productSetParams;
+		try {
+			productSetParams = toSearchParams((DynamicProductSet) dynamicProductSet, excludedIds, searchContext);
+		}
+		catch (RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+		return searcher.findAsync(productSetParams).thenApply(prodSetResult -> toStaticProductSet(dynamicProductSet, prodSetResult));
+	}
 
+	private InternalSearchParams toSearchParams(DynamicProductSet productSet, Set<String> excludedIds, SearchContext searchContext) {
 		SearchQuery searchQuery = new SearchQuery();
 		searchQuery.q = productSet.query;
 		searchQuery.sort = productSet.sort;
@@ -34,35 +55,21 @@ public class DynamicProductSetResolver implements ProductSetResolver {
 				searchContext);
 		productSetParams.excludedIds = excludedIds;
 		productSetParams.setWithResultData(false);
-
-		// TODO: add caching
-		StaticProductSet resolved = search(dynamicProductSet, searcher, productSetParams);
-		return resolved;
+		return productSetParams;
 	}
 
-	private StaticProductSet search(ProductSet dynamicProductSet, Searcher searcher, InternalSearchParams productSetParams) {
-		try {
-			SearchResult prodSetResult = searcher.find(productSetParams);
-			if (prodSetResult.getSlices().size() > 0) {
-				String[] ids = new String[prodSetResult.getSlices().get(0).hits.size()];
-				int i = 0;
-				for (ResultHit hit : prodSetResult.getSlices().get(0).hits) {
-					ids[i++] = hit.getDocument().id;
-				}
-				return new StaticProductSet(ids, dynamicProductSet.getName());
-			}
-			else {
-				return new StaticProductSet(new String[0], dynamicProductSet.getName());
+	private StaticProductSet toStaticProductSet(ProductSet dynamicProductSet, SearchResult prodSetResult) {
+		if (prodSetResult.getSlices().size() > 0) {
+			String[] ids = new String[prodSetResult.getSlices().get(0).hits.size()];
+			int i = 0;
+			for (ResultHit hit : prodSetResult.getSlices().get(0).hits) {
+				ids[i++] = hit.getDocument().id;
 			}
+			return new StaticProductSet(ids, dynamicProductSet.getName());
 		}
-		catch (IOException e) {
-			throw new UncheckedIOException(e);
+		else {
+			return new StaticProductSet(new String[0], dynamicProductSet.getName());
 		}
 	}
 
-	@Override
-	public boolean runAsync() {
-		return true;
-	}
-
 }
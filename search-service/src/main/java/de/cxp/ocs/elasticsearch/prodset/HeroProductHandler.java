@@ -1,6 +1,10 @@
 package de.cxp.ocs.elasticsearch.prodset;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.index.query.BoolQueryBuilder;
@@ -69,35 +73,161 @@ public class HeroProductHandler {
 	 *        matching Searcher instance for these products
 	 * @param searchContext
 	 *        context
+	 * @param productSetCache
+	 *        cache for dynamic product sets
 	 * @return array of resolved product sets
 	 */
-	public static StaticProductSet[] resolve(ProductSet[] productSets, Searcher searcher, SearchContext searchContext) {
-		StaticProductSet[] resolvedSets = new StaticProductSet[productSets.length];
-		int nextPos = 0;
-		Set<String> foundIds = new HashSet<String>(Arrays.stream(productSets).mapToInt(ProductSet::getSize).sum());
-		for (ProductSet set : productSets) {
-			int position = nextPos++;
+	public static StaticProductSet[] resolve(ProductSet[] productSets, Searcher searcher, SearchContext searchContext, ProductSetCache productSetCache) {
+		try {
+			return resolveAsync(productSets, searcher, searchContext, productSetCache).join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof IOException) throw new UncheckedIOException((IOException) e.getCause());
+			throw e;
+		}
+	}
 
-			final ProductSetResolver resolver = resolvers.get(set.getType());
+	/**
+	 * Same as {@link #resolve(ProductSet[], Searcher, SearchContext, ProductSetCache)},
+	 * but without blocking while waiting for Elasticsearch.
+	 * <p>
+	 * The sets are resolved in request order, with up to the configured max
+	 * parallel resolutions at the same time. To make sure the same product
+	 * does not appear in more than one set, the IDs of the previous sets are
+	 * excluded, as long as they are all resolved when a set starts. Otherwise
+	 * the set is resolved with a limit that is increased by the size of all
+	 * previous sets and de-duplicated in request order afterwards. In both
+	 * cases the result is the same as if the sets were resolved one after
+	 * another.
+	 * </p>
+	 * <p>
+	 * Dynamic sets are only cached if they were resolved without excluded
+	 * IDs, because otherwise the result depends on the other sets.
+	 * </p>
+	 * 
+	 * @param productSets
+	 *        array of product sets to be resolved to static product sets
+	 * @param searcher
+	 *        matching Searcher instance for these products
+	 * @param searchContext
+	 *        context
+	 * @param productSetCache
+	 *        cache for dynamic product sets
+	 * @return future array of resolved product sets
+	 */
+	public static CompletableFuture<StaticProductSet[]> resolveAsync(ProductSet[] productSets, Searcher searcher, SearchContext searchContext,
+			ProductSetCache productSetCache) {
+		int maxParallelResolutions = Math.max(1, searchContext.config.getProductSets().getMaxParallelResolutions());
+		@SuppressWarnings("unchecked")
+		CompletableFuture<StaticProductSet>[] resolutions = new CompletableFuture[productSets.length];
+		int previousSetsSize = 0;
+		for (int i = 0; i < productSets.length; i++) {
+			final int position = i;
+			final int maxOverlap = previousSetsSize;
+			previousSetsSize += productSets[i].getSize();
 
-			if (resolver == null) {
-				log.error("No resolver found for product set type '{}'", set.getType());
-				resolvedSets[position] = new StaticProductSet().setIds(new String[0]).setName(set.getName());
+			// a set only starts when the set that is 'maxParallelResolutions'
+			// before it is done
+			CompletableFuture<?> predecessor = i < maxParallelResolutions ? CompletableFuture.completedFuture(null)
+					: resolutions[i - maxParallelResolutions].handle((done, error) -> null);
+			resolutions[i] = predecessor.thenCompose(ready -> resolveSet(position, productSets, resolutions, maxOverlap, searcher, searchContext, productSetCache));
+		}
+		return CompletableFuture.allOf(resolutions).thenApply(done -> {
+			StaticProductSet[] resolvedSets = new StaticProductSet[resolutions.length];
+			for (int i = 0; i < resolutions.length; i++) {
+				resolvedSets[i] = resolutions[i].join();
 			}
-			// only run async, if there are more than 1 sets
-			else if (resolver.runAsync() && productSets.length > 1) {
-				resolvedSets[position] = resolver.resolve(set, foundIds, searcher, searchContext);
-				foundIds.addAll(Arrays.asList(resolvedSets[position].getIds()));
+			return removeDuplicates(productSets, resolvedSets);
+		});
+	}
+
+	private static CompletableFuture<StaticProductSet> resolveSet(int position, ProductSet[] productSets, CompletableFuture<StaticProductSet>[] resolutions,
+			int maxOverlap, Searcher searcher, SearchContext searchContext, ProductSetCache productSetCache) {
+		final ProductSet set = productSets[position];
+		final ProductSetResolver resolver = resolvers.get(set.getType());
+		if (resolver == null) {
+			log.error("No resolver found for product set type '{}'", set.getType());
+			return CompletableFuture.completedFuture(new StaticProductSet().setIds(new String[0]).setName(set.getName()));
+		}
+
+		// cached IDs are not de-duplicated, so they have to cover the overlap
+		// with the previous sets
+		String cacheKey = productSetCache.getKey(set);
+		if (cacheKey != null) {
+			Optional<String[]> cachedIds = productSetCache.get(cacheKey, set.getSize() + maxOverlap);
+			if (cachedIds.isPresent()) {
+				return CompletableFuture.completedFuture(new StaticProductSet(cachedIds.get(), set.getName()));
 			}
-			else {
-				resolvedSets[position] = resolver.resolve(set, foundIds, searcher, searchContext);
-				foundIds.addAll(Arrays.asList(resolvedSets[position].getIds()));
+		}
+
+		ProductSet requestedSet = set;
+		Optional<Set<String>> excludedIds = getIdsOfResolvedSets(position, productSets, resolutions);
+		if (!excludedIds.isPresent() && set instanceof DynamicProductSet && maxOverlap > 0) {
+			DynamicProductSet dynamicSet = (DynamicProductSet) set;
+			requestedSet = new DynamicProductSet(dynamicSet.name, dynamicSet.query, dynamicSet.sort, dynamicSet.filters, dynamicSet.limit + maxOverlap);
+		}
+
+		CompletableFuture<StaticProductSet> resolvedSet;
+		try {
+			resolvedSet = resolver.resolveAsync(requestedSet, excludedIds.orElse(Collections.emptySet()), searcher, searchContext);
+		}
+		catch (RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+		if (cacheKey != null && excludedIds.map(Set::isEmpty).orElse(true)) {
+			final int resolvedLimit = requestedSet.getSize();
+			resolvedSet = resolvedSet.thenApply(resolved -> {
+				productSetCache.put(cacheKey, resolved.getIds(), resolvedLimit);
+				return resolved;
+			});
+		}
+		return resolvedSet;
+	}
+
+	/**
+	 * @return the de-duplicated IDs of all sets before the given position or
+	 *         empty, if some of them are not resolved yet
+	 */
+	private static Optional<Set<String>> getIdsOfResolvedSets(int position, ProductSet[] productSets, CompletableFuture<StaticProductSet>[] resolutions) {
+		Set<String> foundIds = new HashSet<>();
+		for (int i = 0; i < position; i++) {
+			if (!resolutions[i].isDone() || resolutions[i].isCompletedExceptionally()) {
+				return Optional.empty();
 			}
+			foundIds.addAll(getUniqueIds(productSets[i], resolutions[i].join().getIds(), foundIds));
 		}
+		return Optional.of(foundIds);
+	}
 
+	/**
+	 * Removes IDs that are already part of a previous set and applies the
+	 * limit of dynamic product sets.
+	 */
+	private static StaticProductSet[] removeDuplicates(ProductSet[] productSets, StaticProductSet[] resolvedSets) {
+		Set<String> foundIds = new HashSet<String>(Arrays.stream(productSets).mapToInt(ProductSet::getSize).sum());
+		for (int i = 0; i < resolvedSets.length; i++) {
+			String[] ids = resolvedSets[i].getIds();
+			List<String> uniqueIds = getUniqueIds(productSets[i], ids, foundIds);
+			if (uniqueIds.size() < ids.length) {
+				resolvedSets[i].setIds(uniqueIds.toArray(new String[uniqueIds.size()]));
+			}
+			foundIds.addAll(uniqueIds);
+		}
 		return resolvedSets;
 	}
 
+	private static List<String> getUniqueIds(ProductSet productSet, String[] ids, Set<String> foundIds) {
+		int limit = productSet instanceof DynamicProductSet ? productSet.getSize() : ids.length;
+		List<String> uniqueIds = new ArrayList<>(Math.min(limit, ids.length));
+		for (int k = 0; k < ids.length && uniqueIds.size() < limit; k++) {
+			if (!foundIds.contains(ids[k])) {
+				uniqueIds.add(ids[k]);
+			}
+		}
+		return uniqueIds;
+	}
+
 	public static Optional<QueryBuilder> getHeroQuery(InternalSearchParams internalParams) {
 		StaticProductSet[] productSets = internalParams.heroProductSets;
 		QueryBuilder heroQuery = null;
@@ -0,0 +1,140 @@
+package de.cxp.ocs.elasticsearch.prodset;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import de.cxp.ocs.config.ProductSetConfiguration;
+import de.cxp.ocs.model.params.DynamicProductSet;
+import de.cxp.ocs.model.params.ProductSet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Optional tenant specific cache for the resolved IDs of dynamic product sets.
+ * The cached IDs are not de-duplicated against other sets of the same request,
+ * so they can be reused by any arranged search request. The IDs may have been
+ * resolved with a higher limit than the one of the set, so that they can also
+ * be used for sets that have to be de-duplicated against the sets before them.
+ */
+public class ProductSetCache {
+
+	private volatile Cache<String, CachedIds> cache;
+
+	private ProductSetConfiguration currentConfig;
+
+	private final Counter	hitCounter;
+	private final Counter	missCounter;
+
+	public ProductSetCache(String tenant, MeterRegistry registry) {
+		hitCounter = Counter.builder("productSetCacheHits").tag("tenant", tenant).register(registry);
+		missCounter = Counter.builder("productSetCacheMisses").tag("tenant", tenant).register(registry);
+	}
+
+	/**
+	 * (Re)configures that cache, if the configuration changed. In that case
+	 * all cached IDs are dropped.
+	 *
+	 * @param productSetConfig
+	 *        product set configuration of the tenant
+	 */
+	public synchronized void configure(ProductSetConfiguration productSetConfig) {
+		if (productSetConfig.equals(currentConfig)) return;
+		currentConfig = productSetConfig;
+		Cache<String, CachedIds> newCache = null;
+		if (productSetConfig.getCacheTtlSeconds() > 0 && productSetConfig.getCacheSize() > 0) {
+			newCache = CacheBuilder.newBuilder()
+					.maximumSize(productSetConfig.getCacheSize())
+					.expireAfterWrite(productSetConfig.getCacheTtlSeconds(), TimeUnit.SECONDS)
+					.build();
+		}
+		Cache<String, CachedIds> oldCache = cache;
+		cache = newCache;
+		if (oldCache != null) {
+			oldCache.invalidateAll();
+		}
+	}
+
+	/**
+	 * Drop all cached IDs.
+	 */
+	public void invalidate() {
+		Cache<String, CachedIds> currentCache = cache;
+		if (currentCache != null) {
+			currentCache.invalidateAll();
+		}
+	}
+
+	/**
+	 * @param productSet
+	 *        product set to be resolved
+	 * @return the key for that product set or null, if the cache is disabled or
+	 *         the set can't be cached.
+	 */
+	public String getKey(ProductSet productSet) {
+		if (cache == null || !(productSet instanceof DynamicProductSet)) return null;
+		DynamicProductSet dynamicSet = (DynamicProductSet) productSet;
+		StringBuilder key = new StringBuilder();
+		key.append(dynamicSet.query == null ? "" : dynamicSet.query.trim())
+				.append('|').append(dynamicSet.sort == null ? "" : dynamicSet.sort)
+				.append('|').append(dynamicSet.limit)
+				.append('|');
+		if (dynamicSet.filters != null) {
+			for (Map.Entry<String, String> filter : new TreeMap<>(dynamicSet.filters).entrySet()) {
+				key.append(filter.getKey()).append('=').append(filter.getValue()).append('&');
+			}
+		}
+		return key.toString();
+	}
+
+	/**
+	 * @param key
+	 *        key built with {@link #getKey(ProductSet)}
+	 * @param requiredLimit
+	 *        the amount of IDs that are required
+	 * @return copy of the cached IDs, if they were resolved with at least the
+	 *         required limit or if there are not more matching IDs anyways.
+	 */
+	public Optional<String[]> get(String key, int requiredLimit) {
+		Cache<String, CachedIds> currentCache = cache;
+		CachedIds cachedIds = currentCache == null ? null : currentCache.getIfPresent(key);
+		if (cachedIds == null || !cachedIds.covers(requiredLimit)) {
+			missCounter.increment();
+			return Optional.empty();
+		}
+		hitCounter.increment();
+		return Optional.of(cachedIds.ids.clone());
+	}
+
+	/**
+	 * @param key
+	 *        key built with {@link #getKey(ProductSet)}
+	 * @param ids
+	 *        resolved IDs of that set, not de-duplicated against other sets
+	 * @param resolvedLimit
+	 *        the limit that was used to resolve the IDs
+	 */
+	public void put(String key, String[] ids, int resolvedLimit) {
+		Cache<String, CachedIds> currentCache = cache;
+		if (currentCache != null) {
+			currentCache.put(key, new CachedIds(ids.clone(), resolvedLimit));
+		}
+	}
+
+	@RequiredArgsConstructor
+	private static class CachedIds {
+
+		private final String[] ids;
+
+		private final int resolvedLimit;
+
+		boolean covers(int requiredLimit) {
+			return resolvedLimit >= requiredLimit || ids.length < resolvedLimit;
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package de.cxp.ocs.elasticsearch.prodset;
 
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import de.cxp.ocs.SearchContext;
 import de.cxp.ocs.elasticsearch.Searcher;
@@ -9,8 +10,22 @@ import de.cxp.ocs.model.params.StaticProductSet;
 
 public interface ProductSetResolver {
 
-	boolean runAsync();
-
 	StaticProductSet resolve(ProductSet set, Set<String> excludedIds, Searcher searcher, SearchContext searchContext);
 
+	/**
+	 * Same as {@link #resolve(ProductSet, Set, Searcher, SearchContext)} but
+	 * without blocking the calling thread while waiting for Elasticsearch.
+	 * 
+	 * @param set
+	 *        product set to resolve
+	 * @param excludedIds
+	 *        IDs that should not be part of the resolved set
+	 * @param searcher
+	 *        searcher of the tenant
+	 * @param searchContext
+	 *        context
+	 * @return future resolved set
+	 */
+	CompletableFuture<StaticProductSet> resolveAsync(ProductSet set, Set<String> excludedIds, Searcher searcher, SearchContext searchContext);
+
 }
@@ -3,6 +3,7 @@ package de.cxp.ocs.elasticsearch.prodset;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -25,8 +26,35 @@ public class StaticProductSetResolver implements ProductSetResolver {
 	@Override
 	public StaticProductSet resolve(final ProductSet productSet, Set<String> excludedIds, Searcher searcher, SearchContext searchContext) {
 		StaticProductSet staticSet = (StaticProductSet) productSet;
+		IdsQueryBuilder requestedIds = getRequestedIds(staticSet, excludedIds);
+		try {
+			SearchResponse searchResponse = searcher.executeSearchRequest(buildVerificationRequest(requestedIds));
+			applyVerification(staticSet, requestedIds, searchResponse);
+		}
+		catch (Exception e) {
+			log.error("{} while verifying productSet ids. Won't verify.", e.getMessage());
+		}
+		return staticSet;
+	}
 
-		IdsQueryBuilder requestedIds;
+	@Override
+	public CompletableFuture<StaticProductSet> resolveAsync(final ProductSet productSet, Set<String> excludedIds, Searcher searcher, SearchContext searchContext) {
+		StaticProductSet staticSet = (StaticProductSet) productSet;
+		IdsQueryBuilder requestedIds = getRequestedIds(staticSet, excludedIds);
+		return searcher.executeSearchRequestAsync(buildVerificationRequest(requestedIds))
+				.handle((searchResponse, e) -> {
+					try {
+						if (e != null) throw e;
+						applyVerification(staticSet, requestedIds, searchResponse);
+					}
+					catch (Throwable t) {
+						log.error("{} while verifying productSet ids. Won't verify.", t.getMessage());
+					}
+					return staticSet;
+				});
+	}
+
+	private IdsQueryBuilder getRequestedIds(StaticProductSet staticSet, Set<String> excludedIds) {
 		if (excludedIds != null && excludedIds.size() > 0) {
 			Set<String> filteredIds = new HashSet<String>(staticSet.getIds().length);
 			for (String id : staticSet.getIds()) {
@@ -34,36 +62,35 @@ public class StaticProductSetResolver implements ProductSetResolver {
 					filteredIds.add(id);
 				}
 			}
-			requestedIds = QueryBuilders.idsQuery().addIds(filteredIds.toArray(new String[filteredIds.size()]));
+			return QueryBuilders.idsQuery().addIds(filteredIds.toArray(new String[filteredIds.size()]));
 		}
 		else {
-			requestedIds = QueryBuilders.idsQuery().addIds(staticSet.getIds());
+			return QueryBuilders.idsQuery().addIds(staticSet.getIds());
 		}
+	}
 
-		try {
-			SearchResponse searchResponse = searcher.executeSearchRequest(SearchSourceBuilder.searchSource()
-					.query(requestedIds)
-					.fetchSource(false)
-					.size(requestedIds.ids().size()));
-			if (searchResponse.getHits().getTotalHits().value == 0) {
-				staticSet.setIds(new String[0]);
-			}
-			else if (searchResponse.getHits().getTotalHits().value < requestedIds.ids().size() && searchResponse.getHits().getTotalHits().relation.equals(TotalHits.Relation.EQUAL_TO)) {
-				Set<String> foundIds = StreamSupport.stream(searchResponse.getHits().spliterator(), false)
-						.map(SearchHit::getId)
-						.collect(Collectors.toSet());
-				// some ids are invalid are not part of response. remove them from set but keep order
-				staticSet.setIds(getFilteredInOrder(staticSet.getIds(), foundIds));
-			}
-			else if (requestedIds.ids().size() < staticSet.getSize()) {
-				// some ids were deduplicated with the request, remove them from set but keep order
-				staticSet.setIds(getFilteredInOrder(staticSet.getIds(), requestedIds.ids()));
-			}
+	private SearchSourceBuilder buildVerificationRequest(IdsQueryBuilder requestedIds) {
+		return SearchSourceBuilder.searchSource()
+				.query(requestedIds)
+				.fetchSource(false)
+				.size(requestedIds.ids().size());
+	}
+
+	private void applyVerification(StaticProductSet staticSet, IdsQueryBuilder requestedIds, SearchResponse searchResponse) {
+		if (searchResponse.getHits().getTotalHits().value == 0) {
+			staticSet.setIds(new String[0]);
 		}
-		catch (Exception e) {
-			log.error("{} while verifying productSet ids. Won't verify.", e.getMessage());
+		else if (searchResponse.getHits().getTotalHits().value < requestedIds.ids().size() && searchResponse.getHits().getTotalHits().relation.equals(TotalHits.Relation.EQUAL_TO)) {
+			Set<String> foundIds = StreamSupport.stream(searchResponse.getHits().spliterator(), false)
+					.map(SearchHit::getId)
+					.collect(Collectors.toSet());
+			// some ids are invalid are not part of response. remove them from set but keep order
+			staticSet.setIds(getFilteredInOrder(staticSet.getIds(), foundIds));
+		}
+		else if (requestedIds.ids().size() < staticSet.getSize()) {
+			// some ids were deduplicated with the request, remove them from set but keep order
+			staticSet.setIds(getFilteredInOrder(staticSet.getIds(), requestedIds.ids()));
 		}
-		return staticSet;
 	}
 
 	private String[] getFilteredInOrder(String[] orderedIds, Set<String> includeIds) {
@@ -82,9 +109,4 @@ public class StaticProductSetResolver implements ProductSetResolver {
 		return filteredIds;
 	}
 
-	@Override
-	public boolean runAsync() {
-		return true;
-	}
-
 }
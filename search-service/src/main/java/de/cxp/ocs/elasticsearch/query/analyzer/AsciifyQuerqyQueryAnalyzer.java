@@ -22,7 +22,7 @@ import de.cxp.ocs.util.StringUtils;
  * 
  * @author rudolf.batt@commerce-experts.com
  */
-public class AsciifyQuerqyQueryAnalyzer implements UserQueryAnalyzer, ConfigurableExtension {
+public class AsciifyQuerqyQueryAnalyzer implements UserQueryAnalyzer, ConfigurableExtension, ReloadableAnalyzer {
 
 	final QuerqyQueryExpander querqy = new QuerqyQueryExpander();
 
@@ -31,6 +31,11 @@ public class AsciifyQuerqyQueryAnalyzer implements UserQueryAnalyzer, Configurab
 		querqy.initialize(settings);
 	}
 
+	@Override
+	public void addReloadListener(Runnable listener) {
+		querqy.addReloadListener(listener);
+	}
+
 	@Override
 	public List<QueryStringTerm> analyze(String userQuery) {
 		List<QueryStringTerm> finalAnalyzedTerms;
@@ -0,0 +1,105 @@
+package de.cxp.ocs.elasticsearch.query.analyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import de.cxp.ocs.elasticsearch.query.model.QueryStringTerm;
+import de.cxp.ocs.spi.search.UserQueryAnalyzer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+
+/**
+ * Decorator for any UserQueryAnalyzer that remembers the analyzed terms of the
+ * (already preprocessed) user queries. This is useful for analyzers with an
+ * expensive analysis, e.g. the {@link QuerqyQueryExpander} with a lot of rules.
+ *
+ * <p>
+ * Since the query factories modify the terms, the terms are copied when they
+ * are put into the cache and each time they are returned from it.
+ * </p>
+ * <p>
+ * Since it's part of the tenant specific Searcher, it's dropped together with
+ * it at every config reload. It is also cleared whenever the analyzer is
+ * (re)initialized or reports changed data as a {@link ReloadableAnalyzer}.
+ * </p>
+ */
+public class CachingUserQueryAnalyzer implements UserQueryAnalyzer {
+
+	@Getter
+	private final UserQueryAnalyzer delegate;
+
+	private final Cache<String, List<QueryStringTerm>> analyzedQueries;
+
+	private final AtomicInteger generation = new AtomicInteger();
+
+	private final Counter	hitCounter;
+	private final Counter	missCounter;
+
+	public CachingUserQueryAnalyzer(UserQueryAnalyzer delegate, int maxSize, MeterRegistry registry, String indexName) {
+		this.delegate = delegate;
+		analyzedQueries = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+
+		// the gauge must not reference this instance, since only the first
+		// registered gauge is kept by the registry and the decorator is
+		// recreated at every config reload
+		Counter hits = Counter.builder("userQueryAnalyzerCacheHits").tag("indexName", indexName).register(registry);
+		Counter misses = Counter.builder("userQueryAnalyzerCacheMisses").tag("indexName", indexName).register(registry);
+		Gauge.builder("userQueryAnalyzerCacheHitRatio", registry, r -> getHitRatio(hits, misses)).tag("indexName", indexName)
+				.register(registry);
+		hitCounter = hits;
+		missCounter = misses;
+
+		if (delegate instanceof ReloadableAnalyzer) {
+			((ReloadableAnalyzer) delegate).addReloadListener(this::invalidate);
+		}
+	}
+
+	@Override
+	public void initialize(Map<String, String> settings) {
+		delegate.initialize(settings);
+		invalidate();
+	}
+
+	@Override
+	public List<QueryStringTerm> analyze(String userQuery) {
+		List<QueryStringTerm> cachedTerms = analyzedQueries.getIfPresent(userQuery);
+		if (cachedTerms != null) {
+			hitCounter.increment();
+			return copy(cachedTerms);
+		}
+		missCounter.increment();
+		int analyzedGeneration = generation.get();
+		List<QueryStringTerm> analyzedTerms = delegate.analyze(userQuery);
+		// don't cache terms that were analyzed with outdated data
+		if (analyzedTerms != null && analyzedGeneration == generation.get()) {
+			analyzedQueries.put(userQuery, copy(analyzedTerms));
+		}
+		return analyzedTerms;
+	}
+
+	/**
+	 * Drop all cached terms.
+	 */
+	public void invalidate() {
+		generation.incrementAndGet();
+		analyzedQueries.invalidateAll();
+	}
+
+	private static double getHitRatio(Counter hits, Counter misses) {
+		double requests = hits.count() + misses.count();
+		return requests == 0 ? 0 : hits.count() / requests;
+	}
+
+	private static List<QueryStringTerm> copy(List<QueryStringTerm> terms) {
+		List<QueryStringTerm> copy = new ArrayList<>(terms.size());
+		terms.forEach(term -> copy.add(term.copy()));
+		return copy;
+	}
+}
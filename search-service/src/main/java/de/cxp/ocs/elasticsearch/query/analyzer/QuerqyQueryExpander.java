@@ -1,8 +1,10 @@
 package de.cxp.ocs.elasticsearch.query.analyzer;
 
-import java.io.*;
-import java.net.URL;
+import java.io.FileNotFoundException;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.MDC;
 
 import de.cxp.ocs.elasticsearch.query.model.*;
 import de.cxp.ocs.spi.search.ConfigurableExtension;
@@ -14,49 +16,43 @@ import querqy.model.Clause.Occur;
 import querqy.parser.QuerqyParser;
 import querqy.parser.WhiteSpaceQuerqyParser;
 import querqy.rewrite.RewriteChain;
-import querqy.rewrite.RewriterFactory;
-import querqy.rewrite.commonrules.SimpleCommonRulesRewriterFactory;
-import querqy.rewrite.commonrules.WhiteSpaceQuerqyParserFactory;
-import querqy.rewrite.commonrules.select.ExpressionCriteriaSelectionStrategyFactory;
 import querqy.rewrite.experimental.LocalSearchEngineRequestAdapter;
 
 @Slf4j
-public class QuerqyQueryExpander implements UserQueryAnalyzer, ConfigurableExtension {
-
-	private final QuerqyParser	parser			= new WhiteSpaceQuerqyParser();
-	private RewriteChain		rewriteChain	= null;
-	private boolean				loggedMissingRewriter	= false;
-
+public class QuerqyQueryExpander implements UserQueryAnalyzer, ConfigurableExtension, ReloadableAnalyzer {
+
+	private final QuerqyParser			parser					= new WhiteSpaceQuerqyParser();
+	private volatile RewriteChain		rewriteChain			= null;
+	private boolean						loggedMissingRewriter	= false;
+	private final List<Runnable>		reloadListeners			= new CopyOnWriteArrayList<>();
+
+	/**
+	 * <p>
+	 * Supported settings:
+	 * </p>
+	 * <ul>
+	 * <li>'common_rules_url': file path, classpath resource or http url of
+	 * the querqy common rules</li>
+	 * <li>'rules_reload_interval_seconds': optional interval to check for
+	 * changed rules in the background. Changed rules are loaded without
+	 * blocking any request and then replace the old rules. Rules from the
+	 * classpath are not reloaded. Defaults to 0, which disables reloading.</li>
+	 * </ul>
+	 */
 	@Override
 	public void initialize(Map<String, String> settings) {
 		String commonRulesLocation = settings == null ? null : settings.get("common_rules_url");
-		try {
-			if (commonRulesLocation == null) {
-				log.error("no 'common_rules_url' provided! Won't enrich queries with querqy.");
-			}
-			else if (commonRulesLocation.startsWith("http")) {
-				URL url = new URL(commonRulesLocation);
-				BufferedInputStream resourceStream = new BufferedInputStream(url.openStream());
-				rewriteChain = initFromStream(resourceStream);
-			}
-			else {
-				InputStream resourceStream;
-
-				File rulesFile = new File(commonRulesLocation);
-				if (rulesFile.exists()) {
-					resourceStream = new FileInputStream(rulesFile);
-				}
-				else {
-					resourceStream = this.getClass().getClassLoader().getResourceAsStream(commonRulesLocation);
-				}
+		if (commonRulesLocation == null) {
+			log.error("no 'common_rules_url' provided! Won't enrich queries with querqy.");
+			return;
+		}
 
-				if (resourceStream != null) {
-					rewriteChain = initFromStream(resourceStream);
-				}
-				else {
-					log.error("resource '{}' not found. querqy rewriter not initialized", commonRulesLocation);
-				}
-			}
+		QuerqyRulesLoader rulesLoader = new QuerqyRulesLoader(commonRulesLocation, MDC.get("tenant"));
+		try {
+			setRewriteChain(rulesLoader.loadIfChanged());
+		}
+		catch (FileNotFoundException e) {
+			log.error("resource '{}' not found. querqy rewriter not initialized", commonRulesLocation);
 		}
 		catch (Exception e) {
 			log.error("Failed to load common rules from url {}", commonRulesLocation, e);
@@ -64,20 +60,33 @@ public class QuerqyQueryExpander implements UserQueryAnalyzer, ConfigurableExten
 		if (rewriteChain != null) {
 			log.info("Successfully initialized querqy from rules at {}", commonRulesLocation);
 		}
+
+		long reloadInterval = parseReloadInterval(settings.get("rules_reload_interval_seconds"));
+		if (reloadInterval > 0) {
+			rulesLoader.watch(this, reloadInterval);
+		}
+	}
+
+	private static long parseReloadInterval(String reloadInterval) {
+		if (reloadInterval == null) return 0;
+		try {
+			return Long.parseLong(reloadInterval.trim());
+		}
+		catch (NumberFormatException e) {
+			log.error("invalid 'rules_reload_interval_seconds' value '{}'. querqy rules won't be reloaded", reloadInterval);
+			return 0;
+		}
 	}
 
-	private RewriteChain initFromStream(InputStream resourceStream) throws IOException {
-		List<RewriterFactory> factories;
-		factories = Collections.singletonList(
-				new SimpleCommonRulesRewriterFactory(
-						"common_rules",
-						new InputStreamReader(resourceStream),
-						true,
-						new WhiteSpaceQuerqyParserFactory(),
-						true,
-						Collections.emptyMap(),
-						new ExpressionCriteriaSelectionStrategyFactory(), false));
-		return new RewriteChain(factories);
+	void setRewriteChain(RewriteChain newRewriteChain) {
+		if (newRewriteChain == null) return;
+		rewriteChain = newRewriteChain;
+		reloadListeners.forEach(Runnable::run);
+	}
+
+	@Override
+	public void addReloadListener(Runnable listener) {
+		reloadListeners.add(listener);
 	}
 
 	@Override
@@ -86,6 +95,7 @@ public class QuerqyQueryExpander implements UserQueryAnalyzer, ConfigurableExten
 		// if a different analyzer is used, it should also be possible to
 		// construct an expanded query from a list of QueryStringTerm-s
 		ExpandedQuery expandedQuery = new ExpandedQuery(parser.parse(userQuery));
+		RewriteChain rewriteChain = this.rewriteChain;
 		if (rewriteChain != null) {
 			rewriteChain.rewrite(expandedQuery, new LocalSearchEngineRequestAdapter(rewriteChain, Collections.emptyMap()));
 		}
@@ -0,0 +1,237 @@
+package de.cxp.ocs.elasticsearch.query.analyzer;
+
+import java.io.*;
+import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.io.CharStreams;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import querqy.rewrite.RewriteChain;
+import querqy.rewrite.commonrules.SimpleCommonRulesRewriterFactory;
+import querqy.rewrite.commonrules.WhiteSpaceQuerqyParserFactory;
+import querqy.rewrite.commonrules.select.ExpressionCriteriaSelectionStrategyFactory;
+
+/**
+ * Loads the querqy common rules from a file, a classpath resource or a http
+ * url and keeps track of the loaded version, so that the rules are only
+ * reloaded, if they changed. For files the modification time is used, for
+ * urls the 'ETag' and 'Last-Modified' response headers.
+ * <p>
+ * The rule count, the load duration and the time of the last load are
+ * exposed as metrics per tenant.
+ * </p>
+ */
+@Slf4j
+class QuerqyRulesLoader {
+
+	// @formatter:off
+	private final static ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "QuerqyRulesWatcher-Thread");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	// @formatter:on
+
+	private final static int	CONNECT_TIMEOUT_MILLIS	= 5_000;
+	private final static int	READ_TIMEOUT_MILLIS		= 10_000;
+
+	private final static Map<String, RulesMetrics> metricsPerTenant = new ConcurrentHashMap<>();
+
+	private final String location;
+
+	private final RulesMetrics metrics;
+
+	private long	lastModified	= -1;
+	private String	eTag			= null;
+	private boolean	isStatic		= false;
+
+	QuerqyRulesLoader(String location, String tenant) {
+		this.location = location;
+		metrics = metricsPerTenant.computeIfAbsent(tenant == null ? "" : tenant, RulesMetrics::new);
+	}
+
+	/**
+	 * Loads the rules, if they were not loaded yet or if they changed since
+	 * the last call.
+	 *
+	 * @return the new rewrite chain or null if the rules did not change
+	 * @throws IOException
+	 *         if the rules can't be fetched or parsed
+	 */
+	synchronized RewriteChain loadIfChanged() throws IOException {
+		if (isStatic) return null;
+
+		if (location.startsWith("http")) {
+			return loadFromUrl();
+		}
+
+		File rulesFile = new File(location);
+		if (rulesFile.exists()) {
+			long modified = rulesFile.lastModified();
+			if (modified == lastModified) return null;
+			RewriteChain rewriteChain;
+			try (InputStream resourceStream = new FileInputStream(rulesFile)) {
+				rewriteChain = load(resourceStream);
+			}
+			lastModified = modified;
+			return rewriteChain;
+		}
+
+		InputStream resourceStream = this.getClass().getClassLoader().getResourceAsStream(location);
+		if (resourceStream == null) {
+			throw new FileNotFoundException("resource '" + location + "' not found");
+		}
+		try (InputStream in = resourceStream) {
+			RewriteChain rewriteChain = load(in);
+			// classpath resources won't change
+			isStatic = true;
+			return rewriteChain;
+		}
+	}
+
+	private RewriteChain loadFromUrl() throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(location).openConnection();
+		try {
+			// don't block the searcher initialization or the watcher thread
+			// forever if the rules server doesn't respond
+			connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+			connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+			if (eTag != null) connection.setRequestProperty("If-None-Match", eTag);
+			if (lastModified > 0) connection.setIfModifiedSince(lastModified);
+
+			int responseCode = connection.getResponseCode();
+			if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) return null;
+			if (responseCode >= 400) {
+				throw new IOException("unexpected response code " + responseCode + " from " + location);
+			}
+
+			RewriteChain rewriteChain;
+			try (InputStream resourceStream = new BufferedInputStream(connection.getInputStream())) {
+				rewriteChain = load(resourceStream);
+			}
+			eTag = connection.getHeaderField("ETag");
+			lastModified = connection.getLastModified();
+			return rewriteChain;
+		}
+		finally {
+			connection.disconnect();
+		}
+	}
+
+	private RewriteChain load(InputStream resourceStream) throws IOException {
+		long start = System.nanoTime();
+		String rules = CharStreams.toString(new InputStreamReader(resourceStream));
+		RewriteChain rewriteChain = new RewriteChain(Collections.singletonList(
+				new SimpleCommonRulesRewriterFactory(
+						"common_rules",
+						new StringReader(rules),
+						true,
+						new WhiteSpaceQuerqyParserFactory(),
+						true,
+						Collections.emptyMap(),
+						new ExpressionCriteriaSelectionStrategyFactory(), false)));
+		metrics.loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		metrics.ruleCount.set(countRules(rules));
+		metrics.lastLoadTimestamp.set(System.currentTimeMillis());
+		return rewriteChain;
+	}
+
+	/**
+	 * Counts the rule inputs, which are the lines that end with '=&gt;'.
+	 */
+	private static long countRules(String rules) {
+		long count = 0;
+		int lineStart = 0;
+		while (lineStart < rules.length()) {
+			int lineEnd = rules.indexOf('\n', lineStart);
+			if (lineEnd < 0) lineEnd = rules.length();
+			String line = rules.substring(lineStart, lineEnd).trim();
+			if (line.endsWith("=>") && !line.startsWith("#")) {
+				count++;
+			}
+			lineStart = lineEnd + 1;
+		}
+		return count;
+	}
+
+	/**
+	 * Checks the rules in the given interval and passes changed rules to the
+	 * expander. The watcher only keeps a weak reference to the expander and
+	 * stops as soon as the expander is gone, which happens when the according
+	 * Searcher is replaced.
+	 *
+	 * @param expander
+	 *        expander that should receive the changed rules
+	 * @param intervalSeconds
+	 *        poll interval
+	 */
+	void watch(QuerqyQueryExpander expander, long intervalSeconds) {
+		if (isStatic) {
+			log.warn("rules at {} are loaded from the classpath and won't be watched for changes", location);
+			return;
+		}
+		new RulesWatcher(expander).schedule(intervalSeconds);
+	}
+
+	private class RulesWatcher implements Runnable {
+
+		private final WeakReference<QuerqyQueryExpander> expanderRef;
+
+		private volatile ScheduledFuture<?> scheduledTask;
+
+		RulesWatcher(QuerqyQueryExpander expander) {
+			expanderRef = new WeakReference<>(expander);
+		}
+
+		void schedule(long intervalSeconds) {
+			scheduledTask = scheduler.scheduleWithFixedDelay(this, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+		}
+
+		@Override
+		public void run() {
+			QuerqyQueryExpander expander = expanderRef.get();
+			if (expander == null) {
+				scheduledTask.cancel(false);
+				return;
+			}
+			try {
+				RewriteChain rewriteChain = loadIfChanged();
+				if (rewriteChain != null) {
+					expander.setRewriteChain(rewriteChain);
+					log.info("Reloaded querqy rules from {}", location);
+				}
+			}
+			catch (Exception e) {
+				log.error("Failed to reload common rules from url {}", location, e);
+			}
+		}
+	}
+
+	private static class RulesMetrics {
+
+		private final AtomicLong	ruleCount			= new AtomicLong();
+		private final AtomicLong	lastLoadTimestamp	= new AtomicLong();
+		private final Timer			loadTimer;
+
+		RulesMetrics(String tenant) {
+			Gauge.builder("querqyRulesCount", ruleCount, AtomicLong::get).tag("tenant", tenant)
+					.register(Metrics.globalRegistry);
+			Gauge.builder("querqyRulesLastLoadTimestamp", lastLoadTimestamp, AtomicLong::get).tag("tenant", tenant)
+					.register(Metrics.globalRegistry);
+			loadTimer = Timer.builder("querqyRulesLoad").tag("tenant", tenant).register(Metrics.globalRegistry);
+		}
+	}
+}
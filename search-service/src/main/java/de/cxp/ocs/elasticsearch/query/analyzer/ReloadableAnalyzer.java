@@ -0,0 +1,15 @@
+package de.cxp.ocs.elasticsearch.query.analyzer;
+
+/**
+ * Analyzer with data that may change after its initialization, for example
+ * rules that are reloaded in the background.
+ */
+public interface ReloadableAnalyzer {
+
+	/**
+	 * @param listener
+	 *        called each time the analyzer data changed
+	 */
+	void addReloadListener(Runnable listener);
+
+}
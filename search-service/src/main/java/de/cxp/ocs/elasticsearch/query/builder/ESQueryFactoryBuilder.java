@@ -40,6 +40,20 @@ public class ESQueryFactoryBuilder {
 	private final Map<String, Supplier<? extends ESQueryFactory>> knownQueryFactories;
 
 	public ESQueryFactoryBuilder(RestHighLevelClient restClient, SearchContext context, Map<String, Supplier<? extends ESQueryFactory>> esQueryFactorySuppliers) {
+		this(restClient, context, esQueryFactorySuppliers, null);
+	}
+
+	/**
+	 * @param restClient
+	 *        client used by query factories that need to fetch data
+	 * @param context
+	 *        search context of the tenant
+	 * @param esQueryFactorySuppliers
+	 *        suppliers of custom query factories
+	 * @param predictionCache
+	 *        optional cache for the PredictionQueryFactory, may be null
+	 */
+	public ESQueryFactoryBuilder(RestHighLevelClient restClient, SearchContext context, Map<String, Supplier<? extends ESQueryFactory>> esQueryFactorySuppliers, QueryPredictionCache predictionCache) {
 		this.restClient = restClient;
 		this.indexName = context.config.getIndexName();
 		this.context = context;
@@ -47,7 +61,11 @@ public class ESQueryFactoryBuilder {
 		this.queryConfigs.forEach(qc -> queryConfigIndex.put(qc.getName(), qc));
 		
 		ExtensionSupplierRegistry<ESQueryFactory> esQueryFactoryRegistry = new ExtensionSupplierRegistry<ESQueryFactory>();
-		esQueryFactoryRegistry.register(PredictionQueryFactory.class, () -> new PredictionQueryFactory(new QueryPredictor(restClient, indexName)));
+		esQueryFactoryRegistry.register(PredictionQueryFactory.class, () -> {
+			QueryPredictor queryPredictor = new QueryPredictor(restClient, indexName);
+			queryPredictor.setPredictionCache(predictionCache);
+			return new PredictionQueryFactory(queryPredictor);
+		});
 		esQueryFactoryRegistry.register(ConfigurableQueryFactory.class, ConfigurableQueryFactory::new);
 		esQueryFactoryRegistry.register(NgramQueryFactory.class, NgramQueryFactory::new);
 		esQueryFactoryRegistry.register(DefaultQueryFactory.class, DefaultQueryFactory::new);
@@ -30,6 +30,21 @@ class PredictedQuery {
 		return queryString;
 	}
 
+	/**
+	 * @return deep copy of that predicted query
+	 */
+	PredictedQuery copy() {
+		PredictedQuery copy = new PredictedQuery();
+		copy.matchCount = matchCount;
+		termsUnique.forEach((word, term) -> copy.termsUnique.put(word, term.copy()));
+		unknownTerms.forEach(term -> copy.unknownTerms.add(term.copy()));
+		copy.containsAllTerms = containsAllTerms;
+		copy.originalTermCount = originalTermCount;
+		copy.queryString = queryString;
+		copy.correctedTermCount = correctedTermCount;
+		return copy;
+	}
+
 	@Override
 	public String toString() {
 		return "'" + getQueryString() + "' predicted match count: " + matchCount
@@ -0,0 +1,106 @@
+package de.cxp.ocs.elasticsearch.query.builder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import de.cxp.ocs.config.QueryProcessingConfiguration;
+import de.cxp.ocs.elasticsearch.query.model.QueryStringTerm;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Remembers the queries predicted by the {@link QueryPredictor} for the
+ * analyzed search terms, so that repeated queries don't need the additional
+ * prediction request to Elasticsearch.
+ *
+ * Since the prediction depends on the indexed data, the cache must be
+ * invalidated when the index of the tenant changes. Apart from that it's part
+ * of the tenant specific Searcher and dropped together with it at every config
+ * reload.
+ */
+public class QueryPredictionCache {
+
+	private final Cache<String, List<PredictedQuery>> predictions;
+
+	private final Counter	savedRoundTrips;
+	private final Counter	missCounter;
+
+	public QueryPredictionCache(QueryProcessingConfiguration queryProcessing, MeterRegistry registry, String indexName) {
+		predictions = CacheBuilder.newBuilder()
+				.maximumSize(queryProcessing.getQueryPredictionCacheSize())
+				.expireAfterWrite(queryProcessing.getQueryPredictionCacheTtlSeconds(), TimeUnit.SECONDS)
+				.build();
+		savedRoundTrips = Counter.builder("queryPredictionCacheHits").tag("indexName", indexName).register(registry);
+		missCounter = Counter.builder("queryPredictionCacheMisses").tag("indexName", indexName).register(registry);
+	}
+
+	public static boolean isEnabled(QueryProcessingConfiguration queryProcessing) {
+		return queryProcessing.getQueryPredictionCacheSize() > 0 && queryProcessing.getQueryPredictionCacheTtlSeconds() > 0;
+	}
+
+	static String getKey(List<QueryStringTerm> searchTerms, Map<String, Float> fieldWeights, String analyzer) {
+		StringBuilder key = new StringBuilder();
+		for (QueryStringTerm term : searchTerms) {
+			key.append(term.toQueryString()).append(' ');
+		}
+		key.append('|');
+		new TreeMap<>(fieldWeights).forEach((field, weight) -> key.append(field).append('^').append(weight).append(','));
+		key.append('|').append(analyzer);
+		return key.toString();
+	}
+
+	/**
+	 * Returns a copy of the cached predictions or uses the given prediction
+	 * function. Since the PredictionQueryFactory modifies the predicted
+	 * queries, each call gets its own copy.
+	 *
+	 * @param key
+	 *        key built with {@link #getKey(List, Map, String)}
+	 * @param predictor
+	 *        function that runs the prediction
+	 * @return predicted queries
+	 * @throws IOException
+	 *         if the prediction failed
+	 */
+	List<PredictedQuery> get(String key, PredictionFunction predictor) throws IOException {
+		List<PredictedQuery> cachedQueries = predictions.getIfPresent(key);
+		if (cachedQueries != null) {
+			savedRoundTrips.increment();
+			return copy(cachedQueries);
+		}
+		missCounter.increment();
+
+		QueryPredictor.Prediction prediction = predictor.predict();
+		// incomplete predictions (e.g. because of a timeout) are not cached
+		if (prediction.isComplete()) {
+			predictions.put(key, copy(prediction.getPredictedQueries()));
+		}
+		return prediction.getPredictedQueries();
+	}
+
+	/**
+	 * Drop all cached predictions.
+	 */
+	public void invalidate() {
+		predictions.invalidateAll();
+	}
+
+	private static List<PredictedQuery> copy(List<PredictedQuery> predictedQueries) {
+		List<PredictedQuery> copy = new ArrayList<>(predictedQueries.size());
+		predictedQueries.forEach(predictedQuery -> copy.add(predictedQuery.copy()));
+		return copy;
+	}
+
+	@FunctionalInterface
+	interface PredictionFunction {
+
+		QueryPredictor.Prediction predict() throws IOException;
+	}
+}
@@ -31,25 +31,44 @@ import de.cxp.ocs.elasticsearch.SpellCorrector;
 import de.cxp.ocs.elasticsearch.query.model.QueryStringTerm;
 import de.cxp.ocs.elasticsearch.query.model.WeightedWord;
 import de.cxp.ocs.elasticsearch.query.model.WordAssociation;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 
 /**
- * this code is hard to test due to it's dependency to ES.
- * TODO: inject possible aggregation results (buckets)
+ * The Elasticsearch request is done by a {@link PredictionDataSource}, so that
+ * the prediction logic can be tested with prepared responses.
  */
-@RequiredArgsConstructor
 class QueryPredictor {
 
-	private final RestHighLevelClient	restClient;
+	private final PredictionDataSource	dataSource;
 	private final String				indices;
 
 	@Setter
 	private String analyzer;
 
+	@Setter
+	private QueryPredictionCache predictionCache;
+
+	QueryPredictor(RestHighLevelClient restClient, String indices) {
+		this(request -> restClient.search(request, RequestOptions.DEFAULT), indices);
+	}
+
+	QueryPredictor(PredictionDataSource dataSource, String indices) {
+		this.dataSource = dataSource;
+		this.indices = indices;
+	}
+
 	protected List<PredictedQuery> getQueryMetaData(final List<QueryStringTerm> searchTerms,
 			final Map<String, Float> fieldWeights)
 			throws IOException {
+		if (predictionCache == null) {
+			return predictQueries(searchTerms, fieldWeights).getPredictedQueries();
+		}
+		return predictionCache.get(QueryPredictionCache.getKey(searchTerms, fieldWeights, analyzer), () -> predictQueries(searchTerms, fieldWeights));
+	}
+
+	private Prediction predictQueries(final List<QueryStringTerm> searchTerms, final Map<String, Float> fieldWeights) throws IOException {
 		// put "must-not" terms into separate list
 		List<QueryStringTerm> searchWordsCleaned = new ArrayList<>(searchTerms.size());
 		List<QueryStringTerm> filterWords = new ArrayList<>(0);
@@ -177,7 +196,7 @@ class QueryPredictor {
 
 		redundantQueries.forEach(rq -> predictedQueries.remove(rq));
 
-		return new ArrayList<>(predictedQueries.values());
+		return new Prediction(new ArrayList<>(predictedQueries.values()), !searchResponse.isTimedOut());
 	}
 
 	private void putOrMerge(final Map<String, PredictedQuery> allQueries, final PredictedQuery addQuery) {
@@ -237,15 +256,14 @@ class QueryPredictor {
 				.minDocCount(1)
 				.script(new Script("_score"));
 
-		final SearchResponse searchResponse = restClient
-				.search(new SearchRequest(indices)
+		final SearchResponse searchResponse = dataSource
+				.fetch(new SearchRequest(indices)
 						.source(SearchSourceBuilder.searchSource()
 								.suggest(spellCheckQuery)
 								.query(metaFetchQuery)
 								.aggregation(scriptAgg)
 								.size(0)
-								.timeout(TimeValue.timeValueMillis(20))),
-						RequestOptions.DEFAULT);
+								.timeout(TimeValue.timeValueMillis(20))));
 		return searchResponse;
 	}
 
@@ -438,4 +456,26 @@ class QueryPredictor {
 		}
 	}
 
+	/**
+	 * Executes the term analysis request.
+	 */
+	@FunctionalInterface
+	interface PredictionDataSource {
+
+		SearchResponse fetch(SearchRequest request) throws IOException;
+	}
+
+	@RequiredArgsConstructor
+	@Getter
+	static class Prediction {
+
+		private final List<PredictedQuery> predictedQueries;
+
+		/**
+		 * false if the analysis request was not answered completely, e.g.
+		 * because of a timeout.
+		 */
+		private final boolean isComplete;
+	}
+
 }
@@ -37,4 +37,13 @@ public class AlternativeTerm implements QueryStringTerm {
 	public Occur getOccur() {
 		return Occur.SHOULD;
 	}
+
+	@Override
+	public AlternativeTerm copy() {
+		QueryStringTerm[] copiedAlternatives = new QueryStringTerm[alternatives.size()];
+		for (int i = 0; i < copiedAlternatives.length; i++) {
+			copiedAlternatives[i] = alternatives.get(i).copy();
+		}
+		return new AlternativeTerm(copiedAlternatives);
+	}
 }
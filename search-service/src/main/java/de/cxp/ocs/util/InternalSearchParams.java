@@ -53,6 +53,18 @@ public class InternalSearchParams {
 
 	public Set<String> excludedIds;
 
+	/**
+	 * If no hits are requested (limit=0), only the match count and the facets
+	 * are of interest. In that case the search request is reduced to the
+	 * necessary parts and no hits are mapped. Arranged searches are excluded,
+	 * since the hero products are extracted from the hits.
+	 * 
+	 * @return true if only facets and the match count should be returned
+	 */
+	public boolean isFacetsOnly() {
+		return limit == 0 && heroProductSets == null;
+	}
+
 	public InternalSearchParams withSorting(Sorting sorting) {
 		sortings.add(sorting);
 		return this;
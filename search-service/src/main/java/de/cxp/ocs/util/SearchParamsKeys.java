@@ -0,0 +1,68 @@
+package de.cxp.ocs.util;
+
+import java.util.*;
+
+import de.cxp.ocs.elasticsearch.query.filter.InternalResultFilter;
+import de.cxp.ocs.model.result.Sorting;
+
+/**
+ * Utility to build canonical string keys from search parameters, e.g. to be
+ * used as cache keys. Parameters that are semantically equal but passed in a
+ * different order (like filters) result in the same key.
+ */
+public class SearchParamsKeys {
+
+	/**
+	 * Builds a key from all parameters that influence the result of a search
+	 * request. Hero product sets and excluded IDs are not part of the key, so
+	 * parameters with such values should not be cached based on that key.
+	 *
+	 * @param parameters
+	 *        internal search parameters
+	 * @return canonical key
+	 */
+	public static String toKey(InternalSearchParams parameters) {
+		StringBuilder key = new StringBuilder();
+		key.append(parameters.userQuery == null ? "" : parameters.userQuery.trim())
+				.append('|').append(parameters.offset)
+				.append('|').append(parameters.limit)
+				.append('|').append(parameters.withFacets)
+				.append('|').append(parameters.withResultData)
+				.append('|').append(parameters.includeMainResult)
+				.append('|');
+		// order of sortings matters
+		for (Sorting sorting : parameters.sortings) {
+			key.append(sorting.field).append(':').append(sorting.sortOrder).append(',');
+		}
+		key.append('|');
+		appendFilterSignature(key, parameters.filters);
+		key.append('|');
+		if (parameters.customParams != null) {
+			new TreeMap<>(parameters.customParams).forEach((k, v) -> key.append(k).append('=').append(v).append('&'));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Appends the filters in a canonical form to the given string builder.
+	 *
+	 * @param key
+	 *        string builder to append the filter signature to
+	 * @param filters
+	 *        filters, may be null
+	 */
+	public static void appendFilterSignature(StringBuilder key, List<InternalResultFilter> filters) {
+		if (filters == null || filters.isEmpty()) return;
+		List<String> filterStrings = new ArrayList<>(filters.size());
+		for (InternalResultFilter filter : filters) {
+			String[] values = filter.getValues().clone();
+			Arrays.sort(values);
+			filterStrings.add(filter.getField().getName()
+					+ (filter.isFilterOnId() ? SearchParamsParser.ID_FILTER_SUFFIX : "")
+					+ (filter.isNegated() ? "!=" : "=")
+					+ String.join(",", values));
+		}
+		Collections.sort(filterStrings);
+		filterStrings.forEach(f -> key.append(f).append('&'));
+	}
+}
@@ -35,6 +35,9 @@ public class SearchParamsParser {
 	public final static String	NEGATE_FILTER_PREFIX	= "!";
 
 	public static InternalSearchParams extractInternalParams(SearchQuery searchQuery, Map<String, String> filters, SearchContext searchContext) {
+		if (searchQuery.limit < 0) throw new IllegalArgumentException("limit must not be negative");
+		if (searchQuery.offset < 0) throw new IllegalArgumentException("offset must not be negative");
+
 		final InternalSearchParams parameters = new InternalSearchParams();
 		parameters.limit = searchQuery.limit;
 		parameters.offset = searchQuery.offset;
@@ -1,19 +1,14 @@
 package de.cxp.ocs.util;
 
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.NameValuePair;
-import org.apache.http.client.utils.URIBuilder;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
-import com.google.common.collect.Sets;
 
 import de.cxp.ocs.config.FacetConfiguration.FacetConfig;
 import de.cxp.ocs.config.Field;
@@ -21,6 +16,11 @@ import de.cxp.ocs.elasticsearch.query.filter.InternalResultFilter;
 import de.cxp.ocs.model.result.SortOrder;
 import de.cxp.ocs.model.result.Sorting;
 
+/**
+ * Builds the links of a search result based on the parameters of a single
+ * request. All parameters are encoded once at construction, so the links are
+ * just composed of the already encoded parameters.
+ */
 public class SearchQueryBuilder {
 
 	public static String VALUE_DELIMITER = ",";
@@ -31,7 +31,18 @@ public class SearchQueryBuilder {
 
 	private final Map<String, InternalResultFilter>	filters;
 	private final Map<String, String> urlParams;
-	private final URI searchQueryLink;
+
+	/**
+	 * url encoded names and values of the url parameters in the same order
+	 */
+	private final Map<String, String>	encodedParams;
+	private final String				encodedQuery;
+	private final Set<String>			activeSortings;
+
+	/**
+	 * encoded query without the parameter of the key
+	 */
+	private final Map<String, String> encodedQueriesWithout = new HashMap<>();
 
 	public SearchQueryBuilder(InternalSearchParams params) {
 		filters = new HashMap<>(params.filters.size());
@@ -41,13 +52,12 @@ public class SearchQueryBuilder {
 
 		urlParams = toUrlParams(params);
 
-		URIBuilder linkBuilder = new URIBuilder();
-		urlParams.forEach(linkBuilder::addParameter);
-		try {
-			searchQueryLink = linkBuilder.build();
-		} catch (URISyntaxException e) {
-			throw new IllegalStateException("Unexpected Error. Most likely some invalid parameter caused it", e);
-		}
+		encodedParams = new LinkedHashMap<>(urlParams.size());
+		urlParams.forEach((param, value) -> encodedParams.put(urlEncodeValue(param), urlEncodeValue(value)));
+		encodedQuery = joinEncodedParams(encodedParams, null);
+
+		String sortParam = urlParams.get("sort");
+		activeSortings = sortParam == null ? Collections.emptySet() : new HashSet<>(Arrays.asList(StringUtils.split(sortParam, VALUE_DELIMITER)));
 	}
 
 	private static Map<String, String> toUrlParams(InternalSearchParams params) {
@@ -81,34 +91,26 @@ public class SearchQueryBuilder {
 	}
 
 	public static URI toLink(InternalSearchParams params) {
-		URIBuilder linkBuilder = new URIBuilder();
-		toUrlParams(params).forEach((k, v) -> linkBuilder.addParameter(k, v));
-		try {
-			return linkBuilder.build();
-		} catch (URISyntaxException e) {
-			throw new IllegalStateException("Unexpected Error. Most likely invalid Parameters caused it", e);
-		}
+		return URI.create(new SearchQueryBuilder(params).toLinkString());
+	}
+
+	/**
+	 * Same as {@link #toLink(InternalSearchParams)}.toString() for the
+	 * parameters of this builder.
+	 * 
+	 * @return relative link with the query of the parameters
+	 */
+	public String toLinkString() {
+		return encodedQuery == null ? "" : "?" + encodedQuery;
 	}
 
 	public String withSortingLink(Field sortField, SortOrder sortOrder) {
 		String sortString = sortStringRepresentation(sortField.getName(), sortOrder);
-		URIBuilder linkBuilder = new URIBuilder();
-		urlParams.forEach((param, value) -> {
-			if (!"sort".equals(param)) {
-				linkBuilder.addParameter(param, value);
-			}
-		});
-		linkBuilder.addParameter("sort", sortString);
-		try {
-			return linkBuilder.build().getRawQuery();
-		} catch (URISyntaxException e) {
-			throw new IllegalArgumentException("parameter caused URISyntaxException: sort=" + sortString, e);
-		}
+		return withEncodedParameter("sort", urlEncodeValue(sortString));
 	}
 
 	public boolean isSortingActive(Field sortField, SortOrder order) {
-		return urlParams.containsKey("sort") 
-				&& urlParams.get("sort").matches("(^|.*,)"+Pattern.quote(sortStringRepresentation(sortField.getName(), order))+"($|,.*)");
+		return activeSortings.contains(sortStringRepresentation(sortField.getName(), order));
 	}
 
 	public static String sortStringRepresentation(String fieldName, SortOrder order) {
@@ -150,35 +152,16 @@ public class SearchQueryBuilder {
 		String filterName = getFilterName(facetConfig);
 		String removeValue = joinParameterValues(filterValues);
 		if (isFilterSelected(filterName, removeValue)) {
-			URIBuilder linkBuilder = new URIBuilder(searchQueryLink);
 			if (facetConfig.isMultiSelect()) {
-				Optional<Set<String>> existingFilterValues = linkBuilder.getQueryParams().stream()
-						.filter(param -> filterName.equals(param.getName())).findFirst()
-						.map(NameValuePair::getValue).map(value -> StringUtils.split(value, VALUE_DELIMITER))
-						.map(Sets::newHashSet);
-
-				if (existingFilterValues.isPresent() && existingFilterValues.get().size() > 1) {
-					Set<String> values = existingFilterValues.get();
+				Set<String> values = new LinkedHashSet<>(Arrays.asList(StringUtils.split(urlParams.get(filterName), VALUE_DELIMITER)));
+				if (values.size() > 1) {
 					values.remove(removeValue);
-					linkBuilder.setParameter(filterName, StringUtils.join(values, VALUE_DELIMITER));
-				} else {
-					List<NameValuePair> queryParams = linkBuilder.getQueryParams();
-					queryParams.removeIf(nvp -> nvp.getName().equals(filterName));
-					linkBuilder.setParameters(queryParams);
+					return withEncodedParameter(urlEncodeValue(filterName), urlEncodeValue(StringUtils.join(values, VALUE_DELIMITER)));
 				}
-			} else {
-				List<NameValuePair> queryParams = linkBuilder.getQueryParams();
-				queryParams.removeIf(nvp -> nvp.getName().equals(filterName));
-				linkBuilder.setParameters(queryParams);
-			}
-			try {
-				return linkBuilder.build().getRawQuery();
-			} catch (URISyntaxException e) {
-				throw new IllegalArgumentException(
-						"parameter caused URISyntaxException: " + facetConfig.getSourceField() + "=" + removeValue, e);
 			}
+			return getEncodedQueryWithout(urlEncodeValue(filterName));
 		} else {
-			return searchQueryLink.getRawQuery();
+			return encodedQuery;
 		}
 	}
 
@@ -189,23 +172,7 @@ public class SearchQueryBuilder {
 	 * @return
 	 */
 	public String withoutFilterAsLink(FacetConfig facetConfig) {
-		String filterName = getFilterName(facetConfig);
-		if (containsParameter(filterName)) {
-			URIBuilder linkBuilder = new URIBuilder(searchQueryLink);
-			List<NameValuePair> queryParams = linkBuilder.getQueryParams();
-			queryParams.removeIf(nvp -> nvp.getName().equals(filterName));
-			linkBuilder.setParameters(queryParams);
-			try {
-				return linkBuilder.build().getRawQuery();
-			}
-			catch (URISyntaxException e) {
-				// should be impossible
-				throw new IllegalArgumentException("removing parameter " + filterName + " caused URISyntaxException", e);
-			}
-		}
-		else {
-			return searchQueryLink.getRawQuery();
-		}
+		return getEncodedQueryWithout(urlEncodeValue(getFilterName(facetConfig)));
 	}
 
 	private String getFilterName(FacetConfig facetConfig) {
@@ -221,39 +188,13 @@ public class SearchQueryBuilder {
 		String filterName = getFilterName(facetConfig);
 		String filterValues = joinParameterValues(filterInputValues);
 		if (isFilterSelected(filterName, filterValues)) {
-			return searchQueryLink.getRawQuery();
+			return encodedQuery;
 		}
-		if (searchQueryLink.toString().matches(".*[?&]" + Pattern.quote(filterName) + "=.*")) {
-			URIBuilder linkBuilder = new URIBuilder(searchQueryLink);
-			if (facetConfig.isMultiSelect()) {
-				Optional<String> otherValues = linkBuilder.getQueryParams().stream()
-						.filter(param -> filterName.equals(param.getName())).findFirst()
-						.map(NameValuePair::getValue);
-				linkBuilder.setParameter(filterName, otherValues
-						.map(val -> val + VALUE_DELIMITER + filterValues).orElse(filterValues));
-			} else {
-				linkBuilder.setParameter(filterName, filterValues);
-			}
-			try {
-				return linkBuilder.build().getRawQuery();
-			} catch (URISyntaxException e) {
-				throw new IllegalArgumentException(
-						"parameter caused URISyntaxException: " + filterName + "=" + filterValues, e);
-			}
-		} else {
-			return withParameterAppended(filterName, filterValues);
-		}
-	}
-
-	private String withParameterAppended(String filterName, String filterValues) {
-		String newParam = filterName + "=" + urlEncodeValue(filterValues);
-		String query = searchQueryLink.getRawQuery();
-		if (query == null || query.length() == 0) {
-			return newParam;
-		}
-		else {
-			return query + "&" + newParam;
+		String otherValues = urlParams.get(filterName);
+		if (otherValues != null && facetConfig.isMultiSelect()) {
+			filterValues = otherValues + VALUE_DELIMITER + filterValues;
 		}
+		return withEncodedParameter(urlEncodeValue(filterName), urlEncodeValue(filterValues));
 	}
 
 	/**
@@ -273,24 +214,36 @@ public class SearchQueryBuilder {
 	public String withExactFilterAsLink(FacetConfig facetConfig, String... filterInputValues) {
 		String filterName = getFilterName(facetConfig);
 		String filterValues = joinParameterValues(filterInputValues);
-		if (containsParameter(filterName)) {
-			URIBuilder linkBuilder = new URIBuilder(searchQueryLink);
-			linkBuilder.setParameter(filterName, filterValues);
-			try {
-				return linkBuilder.build().getRawQuery();
-			}
-			catch (URISyntaxException e) {
-				throw new IllegalArgumentException(
-						"parameter caused URISyntaxException: " + filterName + "=" + filterValues, e);
-			}
-		}
-		else {
-			return withParameterAppended(filterName, filterValues);
+		return withEncodedParameter(urlEncodeValue(filterName), urlEncodeValue(filterValues));
+	}
+
+	/**
+	 * Returns the query with the given parameter set at the end. If the
+	 * parameter existed before, it is replaced.
+	 */
+	private String withEncodedParameter(String encodedName, String encodedValue) {
+		String otherParams = getEncodedQueryWithout(encodedName);
+		StringBuilder query = new StringBuilder((otherParams == null ? 0 : otherParams.length() + 1) + encodedName.length() + encodedValue.length() + 1);
+		if (otherParams != null) {
+			query.append(otherParams).append('&');
 		}
+		return query.append(encodedName).append('=').append(encodedValue).toString();
 	}
 
-	private boolean containsParameter(String filterName) {
-		return searchQueryLink.getQuery() != null && searchQueryLink.getRawQuery().contains(filterName + "=");
+	private String getEncodedQueryWithout(String encodedName) {
+		if (!encodedParams.containsKey(encodedName)) return encodedQuery;
+		return encodedQueriesWithout.computeIfAbsent(encodedName, name -> joinEncodedParams(encodedParams, name));
+	}
+
+	private static String joinEncodedParams(Map<String, String> encodedParams, String excludedName) {
+		StringBuilder query = new StringBuilder();
+		encodedParams.forEach((name, value) -> {
+			if (!name.equals(excludedName)) {
+				if (query.length() > 0) query.append('&');
+				query.append(name).append('=').append(value);
+			}
+		});
+		return query.length() == 0 ? null : query.toString();
 	}
 
 	/**
@@ -305,17 +258,25 @@ public class SearchQueryBuilder {
 	 * @return
 	 */
 	private boolean isFilterSelected(String paramName, String filterValue) {
-		return searchQueryLink.getQuery() != null && searchQueryLink.getRawQuery().matches("(^|.*?&)"
-				+ Pattern.quote(urlEncodeValue(paramName)) + "=[^&]*?"
-				+ Pattern.quote(urlEncodeValue(filterValue)) + "($|&|%2C).*");
-	}
+		String encodedParamValue = encodedParams.get(urlEncodeValue(paramName));
+		if (encodedParamValue == null) return false;
 
-	private String urlEncodeValue(String value) {
-		try {
-			return URLEncoder.encode(value, StandardCharsets.UTF_8.toString());
-		} catch (Exception e) {
-			return value;
+		// the value has to end at the end of the parameter or at a value
+		// delimiter
+		String encodedFilterValue = urlEncodeValue(filterValue);
+		int index = encodedParamValue.indexOf(encodedFilterValue);
+		while (index >= 0) {
+			int end = index + encodedFilterValue.length();
+			if (end == encodedParamValue.length() || encodedParamValue.startsWith(VALUE_DELIMITER_ENCODED, end)) {
+				return true;
+			}
+			index = encodedParamValue.indexOf(encodedFilterValue, index + 1);
 		}
+		return false;
+	}
+
+	private static String urlEncodeValue(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
 	}
 	
 	private static String escapeValueDelimiter(String value) {
@@ -327,8 +288,8 @@ public class SearchQueryBuilder {
 	}
 
 	public String toString() {
-		return searchQueryLink.getRawQuery();
+		return encodedQuery;
 	}
 
 
-}
+}
\ No newline at end of file
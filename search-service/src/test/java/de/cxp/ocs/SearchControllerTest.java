@@ -0,0 +1,213 @@
+package de.cxp.ocs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import de.cxp.ocs.config.ApplicationProperties;
+import de.cxp.ocs.config.AsyncSearchConfig;
+import de.cxp.ocs.config.FieldConfigIndex;
+import de.cxp.ocs.config.FieldConfiguration;
+import de.cxp.ocs.config.ResultCacheConfiguration;
+import de.cxp.ocs.config.SearchConfiguration;
+import de.cxp.ocs.elasticsearch.Searcher;
+import de.cxp.ocs.model.index.Document;
+import de.cxp.ocs.model.params.FilteredSearchQuery;
+import de.cxp.ocs.model.result.ResultHit;
+import de.cxp.ocs.model.result.SearchResult;
+import de.cxp.ocs.model.result.SearchResultSlice;
+import de.cxp.ocs.util.NotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class SearchControllerTest {
+
+	@Mock
+	private SearchPlugins plugins;
+
+	@Spy
+	private MeterRegistry registry = new SimpleMeterRegistry();
+
+	private final ApplicationProperties properties = new ApplicationProperties();
+
+	private final Searcher searcher = mock(Searcher.class);
+
+	/**
+	 * ttl of the result cache of each loaded config, 0 disables it
+	 */
+	private int resultCacheTtlSeconds = 0;
+
+	@InjectMocks
+	private SearchController underTest = new SearchController() {
+
+		@Override
+		SearchContext createContext(String tenant) {
+			SearchConfiguration config = new SearchConfiguration()
+					.setIndexName(tenant)
+					.setResultCache(new ResultCacheConfiguration()
+							.setEnabled(resultCacheTtlSeconds > 0)
+							.setTtlSeconds(Math.max(1, resultCacheTtlSeconds)));
+			return new SearchContext(new FieldConfigIndex(new FieldConfiguration()), config, Collections.emptyList());
+		}
+
+		@Override
+		Searcher initializeSearcher(SearchContext searchContext) {
+			return searcher;
+		}
+	};
+
+	@Test
+	public void testBatchMapsFailedSearchesToErrorResults() {
+		CompletableFuture<SearchResult> lastStageResult = new CompletableFuture<>();
+		when(searcher.findBatchAsync(anyList())).thenReturn(Arrays.asList(
+				lastStageResult,
+				CompletableFuture.failedFuture(new IllegalStateException("broken query")),
+				CompletableFuture.completedFuture(createResult("3"))));
+
+		CompletableFuture<List<SearchResult>> batchResult = underTest.batchSearchAsync("test", Arrays.asList(query("a"), query("b"), query("c")));
+
+		// the batch waits for the search that needs the most stages
+		assertFalse(batchResult.isDone());
+		lastStageResult.complete(createResult("1"));
+
+		List<SearchResult> results = batchResult.join();
+		assertEquals(3, results.size());
+		assertEquals("1", results.get(0).slices.get(0).hits.get(0).document.id);
+		assertEquals("3", results.get(2).slices.get(0).hits.get(0).document.id);
+
+		SearchResult errorResult = results.get(1);
+		assertTrue(errorResult.slices.isEmpty());
+		assertEquals("Internal Error", errorResult.meta.get("error"));
+		assertEquals(500, errorResult.meta.get("code"));
+		assertNotNull(errorResult.meta.get("errorId"));
+	}
+
+	@Test
+	public void testBatchReportsInvalidParametersLikeSingleSearch() throws Exception {
+		when(searcher.findBatch(anyList())).thenReturn(Arrays.asList(CompletableFuture.completedFuture(createResult("1"))));
+
+		FilteredSearchQuery invalidQuery = query("b");
+		invalidQuery.limit = -1;
+		List<SearchResult> results = underTest.batchSearch("test", Arrays.asList(query("a"), invalidQuery));
+
+		assertEquals("1", results.get(0).slices.get(0).hits.get(0).document.id);
+		SearchResult errorResult = results.get(1);
+		assertTrue(errorResult.slices.isEmpty());
+		assertEquals(400, errorResult.meta.get("code"));
+		assertEquals("limit must not be negative", errorResult.meta.get("error"));
+
+		mockMvc().perform(get("/search-api/v1/search/test").param("q", "b").param("limit", "-1"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.code").value(400))
+				.andExpect(jsonPath("$.message").value("limit must not be negative"));
+	}
+
+	@Test
+	public void testMissingIndexFailsWholeBatch() {
+		when(searcher.findBatch(anyList())).thenReturn(Arrays.asList(
+				CompletableFuture.completedFuture(createResult("1")),
+				CompletableFuture.failedFuture(new ElasticsearchStatusException("type=index_not_found_exception", RestStatus.NOT_FOUND))));
+
+		assertThrows(NotFoundException.class, () -> underTest.batchSearch("test", Arrays.asList(query("a"), query("b"))));
+
+		// tenant is denied afterwards
+		assertThrows(NotFoundException.class, () -> underTest.batchSearch("test", Arrays.asList(query("a"))));
+	}
+
+	@Test
+	public void testBlockingSearchIsUsedWhileAsyncSearchIsDisabled() throws Exception {
+		when(searcher.find(any())).thenReturn(createResult("1"));
+
+		mockMvc().perform(get("/search-api/v1/search/test").param("q", "shoes"))
+				.andExpect(request().asyncNotStarted())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.slices[0].hits[0].document.id").value("1"));
+		verify(searcher, never()).findAsync(any());
+	}
+
+	@Test
+	public void testAsyncSearchReleasesRequestWhileEnabled() throws Exception {
+		properties.getAsyncSearch().setEnabled(true);
+		CompletableFuture<SearchResult> pendingResult = new CompletableFuture<>();
+		when(searcher.findAsync(any())).thenReturn(pendingResult);
+
+		MockMvc mockMvc = mockMvc();
+		MvcResult mvcResult = mockMvc.perform(get("/search-api/v1/search/test").param("q", "shoes"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		verify(searcher, never()).find(any());
+
+		pendingResult.complete(createResult("1"));
+		mockMvc.perform(asyncDispatch(mvcResult))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.slices[0].hits[0].document.id").value("1"));
+	}
+
+	@Test
+	public void testConfigReloadKeepsCachedResultsIfCacheConfigIsUnchanged() throws Exception {
+		resultCacheTtlSeconds = 600;
+		when(searcher.find(any())).thenReturn(createResult("1"));
+
+		underTest.flushConfig("test");
+		underTest.search("test", query("shoes"), Collections.emptyMap());
+		underTest.flushConfig("test");
+		underTest.search("test", query("shoes"), Collections.emptyMap());
+		verify(searcher, times(1)).find(any());
+
+		// changed cache config drops the cached results
+		resultCacheTtlSeconds = 300;
+		underTest.flushConfig("test");
+		underTest.search("test", query("shoes"), Collections.emptyMap());
+		verify(searcher, times(2)).find(any());
+	}
+
+	private MockMvc mockMvc() {
+		return MockMvcBuilders.standaloneSetup(underTest)
+				.setCustomHandlerMapping(() -> new AsyncSearchConfig(properties).getRequestMappingHandlerMapping())
+				.build();
+	}
+
+	private static FilteredSearchQuery query(String q) {
+		FilteredSearchQuery query = new FilteredSearchQuery();
+		query.q = q;
+		return query;
+	}
+
+	private static SearchResult createResult(String id) {
+		SearchResult result = new SearchResult();
+		result.slices.add(new SearchResultSlice().setHits(Collections.singletonList(new ResultHit().setIndex("test").setDocument(new Document(id)))));
+		return result;
+	}
+}
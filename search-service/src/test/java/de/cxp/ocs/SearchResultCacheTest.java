@@ -0,0 +1,112 @@
+package de.cxp.ocs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import de.cxp.ocs.config.ResultCacheConfiguration;
+import de.cxp.ocs.model.index.Document;
+import de.cxp.ocs.model.result.Facet;
+import de.cxp.ocs.model.result.ResultHit;
+import de.cxp.ocs.model.result.SearchResult;
+import de.cxp.ocs.model.result.SearchResultSlice;
+import de.cxp.ocs.util.InternalSearchParams;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class SearchResultCacheTest {
+
+	private final SearchResultCache underTest = new SearchResultCache("test", new SimpleMeterRegistry());
+
+	private final AtomicInteger searchCount = new AtomicInteger();
+
+	public SearchResultCacheTest() {
+		underTest.configure(new ResultCacheConfiguration().setEnabled(true));
+	}
+
+	@Test
+	public void testIdenticalRequestsAreCoalesced() {
+		CompletableFuture<SearchResult> runningSearch = new CompletableFuture<>();
+		CompletableFuture<SearchResult> first = underTest.getAsync(params("shoes"), () -> countedSearch(runningSearch));
+		CompletableFuture<SearchResult> second = underTest.getAsync(params("shoes"), () -> countedSearch(runningSearch));
+		assertFalse(second.isDone());
+
+		runningSearch.complete(createResult());
+
+		assertEquals(1, searchCount.get());
+		assertEquals("1", first.join().slices.get(0).hits.get(0).document.id);
+		assertEquals("1", second.join().slices.get(0).hits.get(0).document.id);
+
+		underTest.getAsync(params("shoes"), () -> countedSearch(CompletableFuture.completedFuture(createResult()))).join();
+		assertEquals(1, searchCount.get());
+	}
+
+	@Test
+	public void testResultsLoadedBeforeInvalidationAreNotCached() {
+		CompletableFuture<SearchResult> runningSearch = new CompletableFuture<>();
+		CompletableFuture<SearchResult> loaded = underTest.getAsync(params("shoes"), () -> countedSearch(runningSearch));
+		underTest.invalidate();
+		runningSearch.complete(createResult());
+		assertEquals(1, loaded.join().slices.size());
+
+		underTest.getAsync(params("shoes"), () -> countedSearch(CompletableFuture.completedFuture(createResult()))).join();
+		assertEquals(2, searchCount.get());
+	}
+
+	@Test
+	public void testCopiesAreIsolated() {
+		SearchResult first = underTest.getAsync(params("shoes"), () -> CompletableFuture.completedFuture(createResult())).join();
+		SearchResultSlice firstSlice = first.slices.get(0);
+		firstSlice.hits.get(0).document.data.put("title", "modified");
+		firstSlice.hits.add(new ResultHit().setDocument(new Document("2")));
+		firstSlice.facets.get(0).entries.get(0).setDocCount(0);
+		firstSlice.meta.put("modified", true);
+
+		SearchResult second = underTest.getAsync(params("shoes"), () -> countedSearch(CompletableFuture.completedFuture(null))).join();
+		assertEquals(0, searchCount.get());
+		assertNotSame(first.slices.get(0), second.slices.get(0));
+		SearchResultSlice secondSlice = second.slices.get(0);
+		assertEquals(1, secondSlice.hits.size());
+		assertEquals("nike shoe", secondSlice.hits.get(0).document.data.get("title"));
+		assertEquals(3, secondSlice.facets.get(0).entries.get(0).docCount);
+		assertFalse(secondSlice.meta.containsKey("modified"));
+	}
+
+	@Test
+	public void testSizeIsEstimatedWithoutSerialization() {
+		int size = SearchResultCache.estimateSize(createResult());
+		assertTrue(size > 0);
+		assertTrue(size < 10_000);
+	}
+
+	private CompletableFuture<SearchResult> countedSearch(CompletableFuture<SearchResult> result) {
+		searchCount.incrementAndGet();
+		return result;
+	}
+
+	private static InternalSearchParams params(String userQuery) {
+		return new InternalSearchParams().setUserQuery(userQuery);
+	}
+
+	private static SearchResult createResult() {
+		Document doc = new Document("1").set("title", "nike shoe");
+		SearchResultSlice slice = new SearchResultSlice()
+				.setLabel("main")
+				.setMatchCount(1)
+				.setHits(new ArrayList<>())
+				.setFacets(new ArrayList<>())
+				.setMeta(new HashMap<>());
+		slice.hits.add(new ResultHit().setIndex("test").setDocument(doc));
+		slice.facets.add(new Facet("brand").addEntry("nike", 3, "brand=nike"));
+		SearchResult result = new SearchResult().setMeta(new HashMap<>());
+		result.slices.add(slice);
+		return result;
+	}
+}
@@ -0,0 +1,69 @@
+package de.cxp.ocs.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import de.cxp.ocs.elasticsearch.query.model.QueryFilterTerm;
+import de.cxp.ocs.elasticsearch.query.model.WeightedWord;
+import de.cxp.ocs.elasticsearch.query.model.WordAssociation;
+
+public class LocalSpellDictionaryTest {
+
+	private final LocalSpellDictionary underTest = new LocalSpellDictionary(termFrequencies(
+			"shirt", 120, "short", 80, "shirts", 30, "skirt", 50, "trousers", 40, "trouser", 5, "blue", 100));
+
+	@Test
+	public void testCorrections() {
+		Map<String, WordAssociation> corrections = underTest.extractRelatedWords(Arrays.asList(
+				new WeightedWord("shrit"),
+				new WeightedWord("trusers"),
+				new WeightedWord("blue"),
+				new WeightedWord("shi"),
+				new QueryFilterTerm("brand", "shrt")), 0.75f);
+
+		// transposition: one edit
+		assertEquals(1, corrections.get("shrit").getRelatedWords().size());
+		WeightedWord shirt = (WeightedWord) corrections.get("shrit").getRelatedWords().get("shirt");
+		assertEquals(0.8f, shirt.getWeight());
+		assertEquals(120, shirt.getTermFrequency());
+
+		assertTrue(corrections.get("trusers").getRelatedWords().containsKey("trousers"));
+
+		// known words, words that are too short and filters are not corrected
+		assertEquals(2, corrections.size());
+	}
+
+	@Test
+	public void testFirstCharMustMatch() {
+		assertTrue(underTest.getCorrections("hirts").isEmpty());
+	}
+
+	@Test
+	public void testLongWordsWithEditsBehindPrefix() {
+		LocalSpellDictionary dictionary = new LocalSpellDictionary(termFrequencies("winterjacket", 10));
+		assertEquals("winterjacket", dictionary.getCorrections("winterjackte").get(0).term);
+		assertEquals("winterjacket", dictionary.getCorrections("wintrejacket").get(0).term);
+	}
+
+	@Test
+	public void testDistance() {
+		assertEquals(0, LocalSpellDictionary.distance("shirt", "shirt"));
+		assertEquals(1, LocalSpellDictionary.distance("shirt", "shrit"));
+		assertEquals(1, LocalSpellDictionary.distance("shirt", "shirts"));
+		assertEquals(2, LocalSpellDictionary.distance("shirt", "skirts"));
+	}
+
+	private static Map<String, Integer> termFrequencies(Object... termsAndFrequencies) {
+		Map<String, Integer> termFrequencies = new HashMap<>();
+		for (int i = 0; i < termsAndFrequencies.length; i += 2) {
+			termFrequencies.put((String) termsAndFrequencies[i], (Integer) termsAndFrequencies[i + 1]);
+		}
+		return termFrequencies;
+	}
+}
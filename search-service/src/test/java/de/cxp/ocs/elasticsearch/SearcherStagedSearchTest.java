@@ -0,0 +1,391 @@
+package de.cxp.ocs.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchResponseSections;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.filter.FiltersAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.filter.FiltersAggregator.KeyedFilter;
+import org.elasticsearch.search.aggregations.bucket.filter.ParsedFilters;
+import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.global.ParsedGlobal;
+import org.elasticsearch.search.aggregations.bucket.terms.ParsedStringTerms;
+import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
+import org.elasticsearch.xcontent.DeprecationHandler;
+import org.elasticsearch.xcontent.NamedXContentRegistry;
+import org.elasticsearch.xcontent.ParseField;
+import org.elasticsearch.xcontent.XContentParser;
+import org.elasticsearch.xcontent.json.JsonXContent;
+import org.junit.jupiter.api.Test;
+
+import de.cxp.ocs.SearchContext;
+import de.cxp.ocs.SearchPlugins;
+import de.cxp.ocs.config.Field;
+import de.cxp.ocs.config.FieldConfigAccess;
+import de.cxp.ocs.config.FieldConfigIndex;
+import de.cxp.ocs.config.FieldConfiguration;
+import de.cxp.ocs.config.FieldUsage;
+import de.cxp.ocs.config.QueryBuildingSetting;
+import de.cxp.ocs.config.QueryConfiguration;
+import de.cxp.ocs.config.QueryProcessingConfiguration;
+import de.cxp.ocs.config.SearchConfiguration;
+import de.cxp.ocs.elasticsearch.query.MasterVariantQuery;
+import de.cxp.ocs.elasticsearch.query.model.QueryStringTerm;
+import de.cxp.ocs.model.result.SearchResult;
+import de.cxp.ocs.spi.search.ESQueryFactory;
+import de.cxp.ocs.util.InternalSearchParams;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs the staged search against prepared responses: the query of each stage
+ * only matches words with certain first letters, so the searched word decides
+ * the stage that delivers the result.
+ */
+public class SearcherStagedSearchTest {
+
+	private final static List<String> STAGES = Arrays.asList("exact", "fuzzy", "broad");
+
+	private final static Pattern STAGE_AND_WORD = Pattern.compile("(\\w+)\\|(\\w+)");
+
+	private final static NamedXContentRegistry AGGREGATION_PARSERS = new NamedXContentRegistry(Arrays.asList(
+			new NamedXContentRegistry.Entry(Aggregation.class, new ParseField(GlobalAggregationBuilder.NAME), (p, c) -> ParsedGlobal.fromXContent(p, (String) c)),
+			new NamedXContentRegistry.Entry(Aggregation.class, new ParseField(FiltersAggregationBuilder.NAME), (p, c) -> ParsedFilters.fromXContent(p, (String) c)),
+			new NamedXContentRegistry.Entry(Aggregation.class, new ParseField(StringTerms.NAME), (p, c) -> ParsedStringTerms.fromXContent(p, (String) c))));
+
+	private final FakeTransport transport = new FakeTransport();
+
+	@Test
+	public void testSpeculativeStagesMatchSequentialExecution() throws IOException {
+		List<String> words = Arrays.asList("apple", "banana", "cherry", "none");
+		List<String> expectedStages = Arrays.asList("exact", "fuzzy", "broad", "broad");
+		for (int w = 0; w < words.size(); w++) {
+			String word = words.get(w);
+			SearchResult sequential = createSearcher(1).find(params(word));
+			assertEquals(expectedStages.get(w), sequential.getMeta().get("query_executed"), word);
+			for (int speculativeStages : new int[] { 2, 3 }) {
+				SearchResult speculative = createSearcher(speculativeStages).find(params(word));
+				assertSameResult(sequential, speculative, word + " with " + speculativeStages + " speculative stages");
+
+				SearchResult speculativeAsync = createSearcher(speculativeStages).findAsync(params(word)).join();
+				assertSameResult(sequential, speculativeAsync, word + " with " + speculativeStages + " async speculative stages");
+			}
+		}
+		assertTrue(transport.multiSearchRequests.get() > 0);
+	}
+
+	@Test
+	public void testSpeculativeStagesAreSentTogether() throws IOException {
+		SearchResult result = createSearcher(3).find(params("cherry"));
+		assertEquals("broad", result.getMeta().get("query_executed"));
+		assertEquals(1, transport.multiSearchRequests.get());
+		assertEquals(0, transport.searchRequests.get());
+	}
+
+	@Test
+	public void testBatchCoalescesStagesOfAllSearches() throws IOException {
+		List<String> words = Arrays.asList("apple", "banana", "fail", "cherry");
+		for (boolean async : new boolean[] { false, true }) {
+			transport.searchRequests.set(0);
+			transport.multiSearchRequests.set(0);
+			List<InternalSearchParams> batchParams = words.stream().map(SearcherStagedSearchTest::params).collect(Collectors.toList());
+			Searcher searcher = createSearcher(1);
+			List<CompletableFuture<SearchResult>> results = async ? searcher.findBatchAsync(batchParams) : searcher.findBatch(batchParams);
+
+			// one multi-search per stage: all four words in the first, banana and
+			// cherry in the second and only cherry in the third one
+			assertEquals(3, transport.multiSearchRequests.get());
+			assertEquals(0, transport.searchRequests.get());
+
+			assertEquals(words.size(), results.size());
+			for (int w = 0; w < words.size(); w++) {
+				String word = words.get(w);
+				CompletableFuture<SearchResult> result = results.get(w);
+				assertTrue(result.isDone(), word);
+				if ("fail".equals(word)) {
+					assertTrue(result.isCompletedExceptionally(), word);
+				}
+				else {
+					assertSameResult(createSearcher(1).find(params(word)), result.join(), word + (async ? " async" : ""));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFailedBatchDoesNotBlockOtherSearches() {
+		List<InternalSearchParams> batchParams = Arrays.asList(params("fail"), params("cherry"));
+		List<CompletableFuture<SearchResult>> results = createSearcher(1).findBatch(batchParams);
+		assertTrue(results.get(0).isCompletedExceptionally());
+		assertEquals("broad", results.get(1).join().getMeta().get("query_executed"));
+		assertEquals(3, transport.multiSearchRequests.get());
+	}
+
+	@Test
+	public void testSuggestionsAreRequestedWithoutLocalDictionary() throws IOException {
+		SearchResult result = createSearcher(1).find(params("jaket"));
+		assertEquals(0, transport.dictionaryRequests.get());
+		assertNotNull(transport.lastStageRequest.source().suggest());
+		assertTrue(transport.checkedWords.isEmpty());
+		assertNull(result.getMeta().get("query_corrected"));
+	}
+
+	@Test
+	public void testLocalDictionaryReplacesSuggestions() throws IOException {
+		transport.dictionaryTerms.put("jacket", 10);
+		transport.dictionaryTerms.put("shirt", 5);
+		Searcher searcher = createSearcher(1, 100);
+		assertEquals(1, transport.dictionaryRequests.get());
+
+		SearchResult result = searcher.find(params("jaket"));
+		assertNull(transport.lastStageRequest.source().suggest());
+		assertEquals(Collections.singletonList("jaket"), transport.checkedWords);
+		assertEquals("[+(jaket OR jacket^0.8)]", String.valueOf(result.getMeta().get("query_corrected")));
+
+		// words of the dictionary are neither checked nor corrected
+		result = searcher.find(params("jacket"));
+		assertTrue(transport.checkedWords.isEmpty());
+		assertNull(result.getMeta().get("query_corrected"));
+	}
+
+	@Test
+	public void testIndexedWordsMissingInLocalDictionaryAreNotCorrected() throws IOException {
+		transport.dictionaryTerms.put("jacket", 10);
+		Searcher searcher = createSearcher(1, 100);
+		assertNotNull(searcher.find(params("jackets")).getMeta().get("query_corrected"));
+
+		transport.indexedWords.add("jackets");
+		SearchResult result = searcher.find(params("jackets"));
+		assertEquals(Collections.singletonList("jackets"), transport.checkedWords);
+		assertNull(result.getMeta().get("query_corrected"));
+	}
+
+	static void assertSameResult(SearchResult expected, SearchResult actual, String message) {
+		assertEquals(hitIds(expected), hitIds(actual), message);
+		assertEquals(expected.getMeta().get("query_executed"), actual.getMeta().get("query_executed"), message);
+		assertEquals(expected.getMeta().get("query_stage"), actual.getMeta().get("query_stage"), message);
+	}
+
+	static List<String> hitIds(SearchResult result) {
+		return result.slices.stream()
+				.flatMap(slice -> slice.hits.stream())
+				.map(hit -> hit.document.id)
+				.collect(Collectors.toList());
+	}
+
+	static InternalSearchParams params(String userQuery) {
+		return new InternalSearchParams().setUserQuery(userQuery).setWithFacets(false);
+	}
+
+	Searcher createSearcher(int speculativeStages) {
+		return createSearcher(speculativeStages, 0);
+	}
+
+	Searcher createSearcher(int speculativeStages, int localSpellDictionaryMaxTerms) {
+		List<QueryConfiguration> queryConfigs = new ArrayList<>();
+		for (String stage : STAGES) {
+			queryConfigs.add(new QueryConfiguration().setName(stage).setStrategy(StageQueryFactory.class.getName()));
+		}
+		SearchConfiguration config = new SearchConfiguration()
+				.setIndexName("test")
+				.setQueryProcessing(new QueryProcessingConfiguration()
+						.setSpeculativeStages(speculativeStages)
+						.setLocalSpellDictionaryMaxTerms(localSpellDictionaryMaxTerms))
+				.setQueryConfigs(queryConfigs);
+		SearchContext searchContext = new SearchContext(new FieldConfigIndex(new FieldConfiguration().addField(new Field("title").setUsage(FieldUsage.SEARCH))), config, Collections.emptyList());
+
+		SearchPlugins plugins = mock(SearchPlugins.class);
+		Map<String, Supplier<? extends ESQueryFactory>> queryFactories = Collections.singletonMap(StageQueryFactory.class.getName(), StageQueryFactory::new);
+		doReturn(queryFactories).when(plugins).getEsQueryFactories();
+
+		return new Searcher(transport, null, searchContext, new SimpleMeterRegistry(), plugins, Runnable::run);
+	}
+
+	/**
+	 * Query factory that encodes its name and the search word into the query,
+	 * so that the fake transport knows what was requested.
+	 */
+	public static class StageQueryFactory implements ESQueryFactory {
+
+		private String name;
+
+		@Override
+		public void initialize(String name, Map<QueryBuildingSetting, String> settings, Map<String, Float> fieldWeights, FieldConfigAccess fieldConfig) {
+			this.name = name;
+		}
+
+		@Override
+		public MasterVariantQuery createQuery(List<QueryStringTerm> searchWords) {
+			return new MasterVariantQuery(QueryBuilders.termQuery("stage", name + "|" + searchWords.get(0).getWord()).queryName(name), null, false, false);
+		}
+
+		@Override
+		public boolean allowParallelSpellcheckExecution() {
+			return true;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+	}
+
+	/**
+	 * Answers each request with two hits, if the requested stage matches the
+	 * first letter of the word: 'a' matches all stages, 'b' the second and the
+	 * third and 'c' only the third one. Requests for the word 'fail' fail.
+	 * Requests without query fetch the terms of the local spell dictionary.
+	 */
+	static class FakeTransport implements SearchTransport {
+
+		final Map<String, Integer> dictionaryTerms = new HashMap<>();
+
+		/**
+		 * words that are found by the known words aggregation
+		 */
+		final Set<String> indexedWords = new HashSet<>();
+
+		final AtomicInteger dictionaryRequests = new AtomicInteger();
+
+		volatile SearchRequest lastStageRequest;
+
+		volatile List<String> checkedWords = Collections.emptyList();
+
+		final AtomicInteger searchRequests = new AtomicInteger();
+
+		final AtomicInteger multiSearchRequests = new AtomicInteger();
+
+		@Override
+		public SearchResponse search(SearchRequest searchRequest) throws IOException {
+			searchRequests.incrementAndGet();
+			return respond(searchRequest);
+		}
+
+		@Override
+		public void searchAsync(SearchRequest searchRequest, ActionListener<SearchResponse> listener) {
+			searchRequests.incrementAndGet();
+			try {
+				listener.onResponse(respond(searchRequest));
+			}
+			catch (IOException e) {
+				listener.onFailure(e);
+			}
+		}
+
+		@Override
+		public MultiSearchResponse msearch(MultiSearchRequest multiSearchRequest) throws IOException {
+			multiSearchRequests.incrementAndGet();
+			List<SearchRequest> requests = multiSearchRequest.requests();
+			MultiSearchResponse.Item[] items = new MultiSearchResponse.Item[requests.size()];
+			for (int i = 0; i < items.length; i++) {
+				try {
+					items[i] = new MultiSearchResponse.Item(respond(requests.get(i)), null);
+				}
+				catch (IOException e) {
+					items[i] = new MultiSearchResponse.Item(null, e);
+				}
+			}
+			return new MultiSearchResponse(items, 1);
+		}
+
+		@Override
+		public void msearchAsync(MultiSearchRequest multiSearchRequest, ActionListener<MultiSearchResponse> listener) {
+			try {
+				listener.onResponse(msearch(multiSearchRequest));
+			}
+			catch (IOException e) {
+				listener.onFailure(e);
+			}
+		}
+
+		private SearchResponse respond(SearchRequest searchRequest) throws IOException {
+			if (searchRequest.source().query() == null) {
+				dictionaryRequests.incrementAndGet();
+				String buckets = dictionaryTerms.entrySet().stream()
+						.map(term -> "{\"key\":\"" + term.getKey() + "\",\"doc_count\":" + term.getValue() + "}")
+						.collect(Collectors.joining(","));
+				String termsAggs = searchRequest.source().aggregations().getAggregatorFactories().stream()
+						.map(agg -> "\"sterms#" + agg.getName() + "\":{\"doc_count_error_upper_bound\":0,\"sum_other_doc_count\":0,\"buckets\":[" + buckets + "]}")
+						.collect(Collectors.joining(","));
+				return createResponse(new SearchHit[0], parseAggregations("{" + termsAggs + "}"));
+			}
+
+			lastStageRequest = searchRequest;
+			Matcher matcher = STAGE_AND_WORD.matcher(searchRequest.source().query().toString());
+			if (!matcher.find()) throw new IllegalArgumentException("unexpected query " + searchRequest.source().query());
+			String stage = matcher.group(1);
+			String word = matcher.group(2);
+			if ("fail".equals(word)) throw new IOException("search for 'fail' failed");
+
+			int firstMatchingStage = word.charAt(0) - 'a';
+			boolean matches = firstMatchingStage >= 0 && firstMatchingStage <= STAGES.indexOf(stage);
+			SearchHit[] hits = new SearchHit[matches ? 2 : 0];
+			for (int i = 0; i < hits.length; i++) {
+				hits[i] = new SearchHit(i, word + "-" + stage + "-" + i, null, Collections.emptyMap(), Collections.emptyMap());
+			}
+			return createResponse(hits, respondKnownWords(searchRequest));
+		}
+
+		private Aggregations respondKnownWords(SearchRequest searchRequest) throws IOException {
+			checkedWords = new ArrayList<>();
+			if (searchRequest.source().aggregations() == null) return null;
+			for (AggregationBuilder agg : searchRequest.source().aggregations().getAggregatorFactories()) {
+				if (!SpellCorrector.KNOWN_WORDS_AGG.equals(agg.getName())) continue;
+				FiltersAggregationBuilder wordsAgg = (FiltersAggregationBuilder) agg.getSubAggregations().iterator().next();
+				List<String> wordBuckets = new ArrayList<>();
+				for (KeyedFilter wordFilter : wordsAgg.filters()) {
+					checkedWords.add(wordFilter.key());
+					wordBuckets.add("\"" + wordFilter.key() + "\":{\"doc_count\":" + (indexedWords.contains(wordFilter.key()) ? 1 : 0) + "}");
+				}
+				return parseAggregations("{\"global#" + agg.getName() + "\":{\"doc_count\":100,"
+						+ "\"filters#" + wordsAgg.getName() + "\":{\"buckets\":{" + String.join(",", wordBuckets) + "}}}}");
+			}
+			return null;
+		}
+
+		private static SearchResponse createResponse(SearchHit[] hits, Aggregations aggregations) {
+			SearchResponseSections sections = new SearchResponseSections(
+					new SearchHits(hits, new TotalHits(hits.length, TotalHits.Relation.EQUAL_TO), 1f), aggregations, null, false, null, null, 1);
+			return new SearchResponse(sections, null, 1, 1, 0, 1, ShardSearchFailure.EMPTY_ARRAY, SearchResponse.Clusters.EMPTY);
+		}
+
+		private static Aggregations parseAggregations(String json) throws IOException {
+			try (XContentParser parser = JsonXContent.jsonXContent.createParser(AGGREGATION_PARSERS, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, json)) {
+				parser.nextToken();
+				return Aggregations.fromXContent(parser);
+			}
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package de.cxp.ocs.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import de.cxp.ocs.config.QueryProcessingConfiguration;
+import de.cxp.ocs.elasticsearch.StagedSearchCache.KnownStage;
+import de.cxp.ocs.elasticsearch.query.model.QueryStringTerm;
+import de.cxp.ocs.elasticsearch.query.model.WeightedWord;
+import de.cxp.ocs.elasticsearch.query.model.WordAssociation;
+import de.cxp.ocs.model.params.StaticProductSet;
+import de.cxp.ocs.util.InternalSearchParams;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class StagedSearchCacheTest {
+
+	private final StagedSearchCache underTest = new StagedSearchCache(new QueryProcessingConfiguration()
+			.setStagedSearchCacheSize(100)
+			.setStagedSearchCacheTtlSeconds(60), new SimpleMeterRegistry(), "test");
+
+	private final List<QueryStringTerm> searchWords = Arrays.asList(new WeightedWord("red"), new WeightedWord("shoes"));
+
+	@Test
+	public void testKeyIsBuiltFromSearchWords() {
+		String key = underTest.getKey(searchWords, new InternalSearchParams());
+		assertNotNull(key);
+		assertEquals(key, underTest.getKey(Arrays.asList(new WeightedWord("red"), new WeightedWord("shoes")), new InternalSearchParams()));
+		assertNotEquals(key, underTest.getKey(Collections.singletonList(new WeightedWord("shoes")), new InternalSearchParams()));
+	}
+
+	@Test
+	public void testNoKeyForUncacheableRequests() {
+		assertNull(underTest.getKey(Collections.emptyList(), new InternalSearchParams()));
+
+		InternalSearchParams heroParams = new InternalSearchParams();
+		heroParams.heroProductSets = new StaticProductSet[] { new StaticProductSet(new String[] { "1" }, "hero") };
+		assertNull(underTest.getKey(searchWords, heroParams));
+
+		InternalSearchParams excludingParams = new InternalSearchParams();
+		excludingParams.excludedIds = Collections.singleton("1");
+		assertNull(underTest.getKey(searchWords, excludingParams));
+
+		assertNull(underTest.getKey(searchWords, new InternalSearchParams().setIncludeMainResult(false)));
+
+		// empty excluded IDs don't matter
+		InternalSearchParams emptyExclusion = new InternalSearchParams();
+		emptyExclusion.excludedIds = Collections.emptySet();
+		assertEquals(underTest.getKey(searchWords, new InternalSearchParams()), underTest.getKey(searchWords, emptyExclusion));
+	}
+
+	@Test
+	public void testFirstStageWithoutCorrectionsIsNotRemembered() {
+		String key = underTest.getKey(searchWords, new InternalSearchParams());
+		underTest.put(key, 0, 0, "first", null);
+		assertFalse(underTest.get(key).isPresent());
+
+		underTest.put(key, 1, 1, "second", null);
+		KnownStage knownStage = underTest.get(key).get();
+		assertEquals(1, knownStage.getFactoryIndex());
+		assertEquals("second", knownStage.getFactoryName());
+		assertNull(knownStage.getCorrectedWords());
+	}
+
+	@Test
+	public void testCorrectedWordsAreCopied() {
+		String key = underTest.getKey(searchWords, new InternalSearchParams());
+		Map<String, WordAssociation> corrections = new HashMap<>();
+		corrections.put("shoes", new WordAssociation("shoes", Arrays.asList(new WeightedWord("shoe", 0.8f))));
+		underTest.put(key, 0, 0, "first", corrections);
+
+		// modifications of the put map don't affect the cache
+		corrections.get("shoes").putOrUpdate(new WeightedWord("boots", 0.5f));
+
+		Map<String, WordAssociation> cachedCorrections = underTest.get(key).get().getCorrectedWords();
+		WordAssociation association = cachedCorrections.get("shoes");
+		assertEquals(1, association.getRelatedWords().size());
+
+		// modifications of the returned map don't affect the cache either
+		((WeightedWord) association.getRelatedWords().get("shoe")).setWeight(2f);
+		association.putOrUpdate(new WeightedWord("sneaker", 0.5f));
+
+		WordAssociation cachedAssociation = underTest.get(key).get().getCorrectedWords().get("shoes");
+		assertEquals(1, cachedAssociation.getRelatedWords().size());
+		assertEquals(0.8f, ((WeightedWord) cachedAssociation.getRelatedWords().get("shoe")).getWeight());
+		assertNotSame(association, cachedAssociation);
+	}
+}
@@ -0,0 +1,152 @@
+package de.cxp.ocs.elasticsearch.facets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.filter.ParsedFilter;
+import org.elasticsearch.search.aggregations.bucket.nested.NestedAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.nested.ParsedNested;
+import org.elasticsearch.search.aggregations.bucket.nested.ParsedReverseNested;
+import org.elasticsearch.search.aggregations.bucket.nested.ReverseNestedAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.terms.ParsedStringTerms;
+import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
+import org.elasticsearch.xcontent.DeprecationHandler;
+import org.elasticsearch.xcontent.NamedXContentRegistry;
+import org.elasticsearch.xcontent.ParseField;
+import org.elasticsearch.xcontent.XContentParser;
+import org.elasticsearch.xcontent.json.JsonXContent;
+import org.junit.jupiter.api.Test;
+
+import de.cxp.ocs.config.FacetConfiguration.FacetConfig;
+import de.cxp.ocs.config.FieldConstants;
+import de.cxp.ocs.elasticsearch.query.filter.FilterContext;
+import de.cxp.ocs.model.result.Facet;
+import de.cxp.ocs.util.InternalSearchParams;
+import de.cxp.ocs.util.SearchQueryBuilder;
+
+public class GroupedNestedFacetCreatorTest {
+
+	private final static NamedXContentRegistry AGGREGATION_PARSERS = new NamedXContentRegistry(Arrays.asList(
+			new NamedXContentRegistry.Entry(Aggregation.class, new ParseField(NestedAggregationBuilder.NAME), (p, c) -> ParsedNested.fromXContent(p, (String) c)),
+			new NamedXContentRegistry.Entry(Aggregation.class, new ParseField(FilterAggregationBuilder.NAME), (p, c) -> ParsedFilter.fromXContent(p, (String) c)),
+			new NamedXContentRegistry.Entry(Aggregation.class, new ParseField(StringTerms.NAME), (p, c) -> ParsedStringTerms.fromXContent(p, (String) c)),
+			new NamedXContentRegistry.Entry(Aggregation.class, new ParseField(ReverseNestedAggregationBuilder.NAME),
+					(p, c) -> ParsedReverseNested.fromXContent(p, (String) c))));
+
+	private final static String BRAND_FACETS = "{\"doc_count\":8,\"sterms#_names\":" + terms(
+			"{\"key\":\"brand\",\"doc_count\":8,\"sterms#_values\":" + terms(
+					valueBucket("Nike", "n1", 5, 3),
+					valueBucket("Puma", "p1", 3, 2)) + "}") + "}";
+
+	private final static String OTHER_FACETS = "{\"doc_count\":12,\"sterms#_names\":" + terms(
+			"{\"key\":\"color\",\"doc_count\":7,\"sterms#_values\":" + terms(
+					valueBucket("red", "r", 4, 4),
+					valueBucket("blue", "b", 3, 1)) + "}",
+			"{\"key\":\"material\",\"doc_count\":5,\"sterms#_values\":" + terms(
+					valueBucket("leather", "l", 5, 2)) + "}") + "}";
+
+	private final FilterContext filterContext = new FilterContext(Collections.emptyMap());
+
+	private final SearchQueryBuilder linkBuilder = new SearchQueryBuilder(new InternalSearchParams());
+
+	@Test
+	public void testCreatorsOnSameNestedPathAreGrouped() {
+		FacetCreator otherCreator = mock(FacetCreator.class);
+		List<FacetCreator> groupedCreators = GroupedNestedFacetCreator.groupByNestedPath(Arrays.asList(brandCreator(), otherCreator, otherTermsCreator()));
+
+		assertEquals(2, groupedCreators.size());
+		assertTrue(groupedCreators.get(0) instanceof GroupedNestedFacetCreator);
+		assertSame(otherCreator, groupedCreators.get(1));
+	}
+
+	@Test
+	public void testGroupedAggregationContainsFilterOfEachCreator() {
+		NestedFacetCreator brandCreator = brandCreator();
+		NestedFacetCreator otherCreator = otherTermsCreator();
+		AggregationBuilder groupedAgg = new GroupedNestedFacetCreator(Arrays.asList(brandCreator, otherCreator)).buildAggregation();
+
+		assertTrue(groupedAgg instanceof NestedAggregationBuilder);
+		assertEquals(FieldConstants.TERM_FACET_DATA, ((NestedAggregationBuilder) groupedAgg).path());
+		List<AggregationBuilder> filterAggs = new ArrayList<>(groupedAgg.getSubAggregations());
+		assertEquals(2, filterAggs.size());
+
+		// same filter aggregations as inside the separate nested aggregations
+		for (int i = 0; i < 2; i++) {
+			NestedFacetCreator creator = i == 0 ? brandCreator : otherCreator;
+			FilterAggregationBuilder groupedFilterAgg = (FilterAggregationBuilder) filterAggs.get(i);
+			FilterAggregationBuilder separateFilterAgg = (FilterAggregationBuilder) creator.buildAggregation().getSubAggregations().iterator().next();
+			assertEquals(creator.getUniqueAggregationName(), groupedFilterAgg.getName());
+			assertEquals(separateFilterAgg.getFilter(), groupedFilterAgg.getFilter());
+			assertEquals(separateFilterAgg.getSubAggregations().toString(), groupedFilterAgg.getSubAggregations().toString());
+		}
+	}
+
+	@Test
+	public void testGroupedResponseIsParsedIntoSameFacets() throws IOException {
+		NestedFacetCreator brandCreator = brandCreator();
+		NestedFacetCreator otherCreator = otherTermsCreator();
+
+		Aggregations separateAggs = parseAggregations("{"
+				+ "\"nested#brandFacets\":{\"doc_count\":20,\"filter#_filtered\":" + BRAND_FACETS + "},"
+				+ "\"nested#otherFacets\":{\"doc_count\":20,\"filter#_filtered\":" + OTHER_FACETS + "}}");
+		List<Facet> separateFacets = new ArrayList<>(brandCreator.createFacets(separateAggs, filterContext, linkBuilder));
+		separateFacets.addAll(otherCreator.createFacets(separateAggs, filterContext, linkBuilder));
+
+		Aggregations groupedAggs = parseAggregations("{"
+				+ "\"nested#_nested_" + FieldConstants.TERM_FACET_DATA + "\":{\"doc_count\":20,"
+				+ "\"filter#brandFacets\":" + BRAND_FACETS + ","
+				+ "\"filter#otherFacets\":" + OTHER_FACETS + "}}");
+		List<Facet> groupedFacets = new ArrayList<>(new GroupedNestedFacetCreator(Arrays.asList(brandCreator, otherCreator))
+				.createFacets(groupedAggs, filterContext, linkBuilder));
+
+		assertEquals(3, separateFacets.size());
+		assertEquals(separateFacets, groupedFacets);
+
+		// document counts are taken from the reverse nested aggregation
+		Facet brandFacet = groupedFacets.get(0);
+		assertEquals("brand", brandFacet.getFieldName());
+		assertEquals(3, brandFacet.getEntries().get(0).getDocCount());
+		assertEquals(5, brandFacet.getAbsoluteFacetCoverage());
+	}
+
+	private static NestedFacetCreator brandCreator() {
+		return new TermFacetCreator(Collections.singletonMap("brand", new FacetConfig("Brand", "brand")), null, Locale.ROOT)
+				.setUniqueAggregationName("brandFacets");
+	}
+
+	private static NestedFacetCreator otherTermsCreator() {
+		return new TermFacetCreator(Collections.emptyMap(), null, Locale.ROOT)
+				.setGeneralExcludedFields(Collections.singleton("brand"))
+				.setUniqueAggregationName("otherFacets");
+	}
+
+	private static String terms(String... buckets) {
+		return "{\"doc_count_error_upper_bound\":0,\"sum_other_doc_count\":0,\"buckets\":[" + String.join(",", buckets) + "]}";
+	}
+
+	private static String valueBucket(String value, String id, int nestedDocCount, int docCount) {
+		return "{\"key\":\"" + value + "\",\"doc_count\":" + nestedDocCount
+				+ ",\"sterms#_ids\":" + terms("{\"key\":\"" + id + "\",\"doc_count\":" + nestedDocCount + "}")
+				+ ",\"reverse_nested#_reverse\":{\"doc_count\":" + docCount + "}}";
+	}
+
+	private static Aggregations parseAggregations(String json) throws IOException {
+		try (XContentParser parser = JsonXContent.jsonXContent.createParser(AGGREGATION_PARSERS, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, json)) {
+			parser.nextToken();
+			return Aggregations.fromXContent(parser);
+		}
+	}
+}
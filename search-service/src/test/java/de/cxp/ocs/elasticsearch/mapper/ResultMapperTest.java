@@ -0,0 +1,149 @@
+package de.cxp.ocs.elasticsearch.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.xcontent.XContentType;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.cxp.ocs.model.result.ResultHit;
+
+public class ResultMapperTest {
+
+	@Test
+	public void testResultDataIsMapped() {
+		SearchHit hit = searchHit("1", "{\"resultData\":{\"title\":\"shirt\",\"price\":9.99,\"sizes\":[\"s\",\"m\"],\"meta\":{\"new\":true},\"none\":null},"
+				+ "\"searchData\":{\"title\":\"ignored\"}}");
+
+		ResultHit resultHit = ResultMapper.mapSearchHit(hit, Collections.emptyMap());
+
+		Map<String, Object> data = resultHit.getDocument().getData();
+		assertEquals("1", resultHit.getDocument().getId());
+		assertEquals("shirt", data.get("title"));
+		assertEquals(9.99, data.get("price"));
+		assertEquals(Arrays.asList("s", "m"), data.get("sizes"));
+		assertEquals(Collections.singletonMap("new", true), data.get("meta"));
+		assertEquals(null, data.get("none"));
+		assertEquals(5, data.size());
+	}
+
+	@Test
+	public void testVariantDataOverwritesMasterData() {
+		SearchHit hit = searchHit("1", "{\"resultData\":{\"title\":\"shirt\",\"color\":\"mixed\"}}");
+		SearchHit variantHit = searchHit("1_1", "{\"resultData\":{\"color\":\"red\"}}");
+		hit.setInnerHits(Collections.singletonMap("variants",
+				new SearchHits(new SearchHit[] { variantHit }, new TotalHits(1, TotalHits.Relation.EQUAL_TO), 1f)));
+
+		ResultHit resultHit = ResultMapper.mapSearchHit(hit, Collections.emptyMap(), VariantPickingStrategy.pickAlways);
+
+		assertEquals("shirt", resultHit.getDocument().getData().get("title"));
+		assertEquals("red", resultHit.getDocument().getData().get("color"));
+	}
+
+	@Test
+	public void testSortFieldPrefix() {
+		SearchHit hit = searchHit("1", "{\"resultData\":{\"price\":12.5,\"size\":\"m\"},\"sortData\":{\"price\":[10.0,12.5],\"size\":[\"m\",\"s\"]}}");
+
+		ResultHit resultHit = ResultMapper.mapSearchHit(hit, Collections.singletonMap("price", SortOrder.ASC));
+
+		Map<String, Object> data = resultHit.getDocument().getData();
+		assertEquals(10.0, data.get("price"));
+		assertEquals("{from}", data.get("price_prefix"));
+		assertEquals("m", data.get("size"));
+		assertFalse(data.containsKey("size_prefix"));
+	}
+
+	@Test
+	public void testNestedResultDataIsStreamed() {
+		String masterData = "{\"title\":\"shirt\",\"price\":12.5,\"stock\":12,\"attributes\":{\"material\":{\"name\":\"cotton\",\"share\":[0.8,0.2]},\"fit\":null},"
+				+ "\"images\":[{\"url\":\"a.jpg\",\"tags\":[\"front\"]},{\"url\":\"b.jpg\",\"tags\":[]}],\"matrix\":[[1,2],[3]]}";
+		String variantData = "{\"color\":\"red\",\"images\":[{\"url\":\"red.jpg\",\"tags\":[\"front\",\"zoom\"]}],\"flags\":{\"new\":true}}";
+		SearchHit hit = searchHit("1", "{\"searchData\":{\"nested\":{\"ignored\":[{\"x\":1}]}},\"resultData\":" + masterData
+				+ ",\"sortData\":{\"price\":[10.0,12.5],\"other\":{\"skipped\":[1]}}}");
+		SearchHit variantHit = searchHit("1_1", "{\"resultData\":" + variantData + ",\"searchData\":{\"color\":[\"red\"]}}");
+		hit.setInnerHits(Collections.singletonMap("variants",
+				new SearchHits(new SearchHit[] { variantHit }, new TotalHits(1, TotalHits.Relation.EQUAL_TO), 1f)));
+
+		ResultHit resultHit = ResultMapper.mapSearchHit(hit, Collections.singletonMap("price", SortOrder.ASC), VariantPickingStrategy.pickAlways);
+
+		// same as the fully parsed data of master and variant
+		Map<String, Object> expectedData = new HashMap<>(XContentHelper.convertToMap(new BytesArray(masterData), false, XContentType.JSON).v2());
+		expectedData.putAll(XContentHelper.convertToMap(new BytesArray(variantData), false, XContentType.JSON).v2());
+		expectedData.put("price", 10.0);
+		expectedData.put("price_prefix", "{from}");
+
+		Map<String, Object> data = resultHit.getDocument().getData();
+		assertFalse(data instanceof RawResultData);
+		assertEquals(expectedData, data);
+		assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3)), data.get("matrix"));
+		assertEquals(Arrays.asList(0.8, 0.2), ((Map<?, ?>) ((Map<?, ?>) data.get("attributes")).get("material")).get("share"));
+		assertEquals(Arrays.asList("front", "zoom"), ((Map<?, ?>) ((List<?>) data.get("images")).get(0)).get("tags"));
+	}
+
+	@Test
+	public void testResultDataIsPassedThrough() throws Exception {
+		String resultData = "{\"title\":\"Größe M shirt\",\"price\":9.99,\"meta\":{\"new\":true}}";
+		String source = "{\"searchData\":{\"title\":\"ignored\"},\"resultData\":" + resultData + "}";
+		byte[] sourceBytes = source.getBytes(StandardCharsets.UTF_8);
+		byte[] paddedSource = new byte[sourceBytes.length + 6];
+		System.arraycopy(sourceBytes, 0, paddedSource, 3, sourceBytes.length);
+		SearchHit hit = new SearchHit(1, "1", null, Collections.emptyMap(), Collections.emptyMap())
+				.sourceRef(new BytesArray(paddedSource, 3, sourceBytes.length));
+
+		ResultHit resultHit = ResultMapper.mapSearchHit(hit, Collections.emptyMap());
+
+		assertTrue(resultHit.getDocument().getData() instanceof RawResultData);
+		String json = new ObjectMapper().writeValueAsString(resultHit.getDocument());
+		assertTrue(json.contains("\"data\":" + resultData), json);
+
+		// byte based output gets the raw bytes
+		json = new String(new ObjectMapper().writeValueAsBytes(resultHit.getDocument()), StandardCharsets.UTF_8);
+		assertTrue(json.contains("\"data\":" + resultData), json);
+		assertFalse(((RawResultData) resultHit.getDocument().getData()).isParsed());
+
+		// modified data is serialized as map
+		resultHit.getDocument().set("title", "pants");
+		json = new ObjectMapper().writeValueAsString(resultHit.getDocument());
+		assertTrue(json.contains("\"title\":\"pants\""), json);
+		assertEquals(9.99, resultHit.getDocument().getData().get("price"));
+	}
+
+	@Test
+	public void testLargeResultDataIsPassedThrough() throws Exception {
+		StringBuilder description = new StringBuilder();
+		while (description.length() < 20000) {
+			description.append("größer ");
+		}
+		String resultData = "{\"description\":\"" + description + "\"}";
+		SearchHit hit = searchHit("1", "{\"resultData\":" + resultData + "}");
+
+		ResultHit resultHit = ResultMapper.mapSearchHit(hit, Collections.emptyMap());
+
+		byte[] json = new ObjectMapper().writeValueAsBytes(Arrays.asList(resultHit.getDocument(), resultHit.getDocument()));
+		JsonNode documents = new ObjectMapper().readTree(json);
+		assertEquals(2, documents.size());
+		assertEquals(description.toString(), documents.get(1).get("data").get("description").asText());
+	}
+
+	private static SearchHit searchHit(String id, String source) {
+		return new SearchHit(1, id, null, Collections.emptyMap(), Collections.emptyMap())
+				.sourceRef(new BytesArray(source));
+	}
+}
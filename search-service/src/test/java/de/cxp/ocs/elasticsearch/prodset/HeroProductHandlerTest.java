@@ -0,0 +1,159 @@
+package de.cxp.ocs.elasticsearch.prodset;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import de.cxp.ocs.SearchContext;
+import de.cxp.ocs.config.FieldConfigIndex;
+import de.cxp.ocs.config.FieldConfiguration;
+import de.cxp.ocs.config.ProductSetConfiguration;
+import de.cxp.ocs.config.SearchConfiguration;
+import de.cxp.ocs.elasticsearch.Searcher;
+import de.cxp.ocs.model.index.Document;
+import de.cxp.ocs.model.params.DynamicProductSet;
+import de.cxp.ocs.model.params.ProductSet;
+import de.cxp.ocs.model.params.StaticProductSet;
+import de.cxp.ocs.model.result.ResultHit;
+import de.cxp.ocs.model.result.SearchResult;
+import de.cxp.ocs.model.result.SearchResultSlice;
+import de.cxp.ocs.util.InternalSearchParams;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class HeroProductHandlerTest {
+
+	private final static Map<String, List<String>> matchingIds = new ConcurrentHashMap<>();
+	static {
+		matchingIds.put("shoes", Arrays.asList("s1", "s2", "s3", "s4", "s5", "s6"));
+		matchingIds.put("nike", Arrays.asList("s1", "s2", "n1", "n2", "n3", "n4"));
+	}
+
+	private final List<InternalSearchParams> requests = new CopyOnWriteArrayList<>();
+
+	private final Map<String, CompletableFuture<SearchResult>> pendingSearches = new ConcurrentHashMap<>();
+
+	private boolean deferSearches = false;
+
+	private final Searcher searcher = mock(Searcher.class);
+
+	private final ProductSetCache productSetCache = new ProductSetCache("test", new SimpleMeterRegistry());
+
+	public HeroProductHandlerTest() {
+		when(searcher.findAsync(any())).thenAnswer(invocation -> {
+			InternalSearchParams params = invocation.getArgument(0);
+			requests.add(params);
+			if (deferSearches) {
+				return pendingSearches.computeIfAbsent(params.userQuery, q -> new CompletableFuture<>());
+			}
+			return CompletableFuture.completedFuture(search(params));
+		});
+	}
+
+	@Test
+	public void testSequentialResolutionExcludesPreviousSets() {
+		StaticProductSet[] resolved = HeroProductHandler.resolve(new ProductSet[] { set("shoes"), set("nike") }, searcher, context(1), productSetCache);
+
+		assertArrayEquals(new String[] { "s1", "s2", "s3" }, resolved[0].getIds());
+		assertArrayEquals(new String[] { "n1", "n2", "n3" }, resolved[1].getIds());
+
+		InternalSearchParams secondRequest = requests.get(1);
+		assertEquals(3, secondRequest.limit);
+		assertEquals(3, secondRequest.excludedIds.size());
+		assertTrue(secondRequest.excludedIds.containsAll(Arrays.asList("s1", "s2", "s3")));
+	}
+
+	@Test
+	public void testParallelResolutionKeepsOrderAndRemovesDuplicates() {
+		deferSearches = true;
+		CompletableFuture<StaticProductSet[]> resolution = HeroProductHandler.resolveAsync(new ProductSet[] { set("shoes"), set("nike") }, searcher,
+				context(2), productSetCache);
+		assertEquals(2, requests.size());
+
+		// the second set has to be requested with increased limit and without
+		// excluded IDs, since the first one is not resolved yet
+		InternalSearchParams secondRequest = requests.get(1);
+		assertEquals(6, secondRequest.limit);
+		assertTrue(secondRequest.excludedIds.isEmpty());
+
+		// finishes in reverse order
+		pendingSearches.get("nike").complete(search(secondRequest));
+		assertFalse(resolution.isDone());
+		pendingSearches.get("shoes").complete(search(requests.get(0)));
+
+		StaticProductSet[] resolved = resolution.join();
+		assertArrayEquals(new String[] { "s1", "s2", "s3" }, resolved[0].getIds());
+		assertArrayEquals(new String[] { "n1", "n2", "n3" }, resolved[1].getIds());
+	}
+
+	@Test
+	public void testCachedSetsAreKeyedOnOriginalSet() {
+		productSetCache.configure(new ProductSetConfiguration().setCacheTtlSeconds(60));
+		deferSearches = true;
+		CompletableFuture<StaticProductSet[]> resolution = HeroProductHandler.resolveAsync(new ProductSet[] { set("shoes"), set("nike") }, searcher,
+				context(2), productSetCache);
+		pendingSearches.get("nike").complete(search(requests.get(1)));
+		pendingSearches.get("shoes").complete(search(requests.get(0)));
+		resolution.join();
+		assertEquals(2, requests.size());
+
+		// same sets again are resolved from cache
+		StaticProductSet[] resolved = HeroProductHandler.resolve(new ProductSet[] { set("shoes"), set("nike") }, searcher, context(2), productSetCache);
+		assertEquals(2, requests.size());
+		assertArrayEquals(new String[] { "s1", "s2", "s3" }, resolved[0].getIds());
+		assertArrayEquals(new String[] { "n1", "n2", "n3" }, resolved[1].getIds());
+
+		// the set on its own is also resolved from cache, but not
+		// de-duplicated against the shoes anymore
+		resolved = HeroProductHandler.resolve(new ProductSet[] { set("nike") }, searcher, context(2), productSetCache);
+		assertEquals(2, requests.size());
+		assertArrayEquals(new String[] { "s1", "s2", "n1" }, resolved[0].getIds());
+	}
+
+	@Test
+	public void testSetsResolvedWithExcludedIdsAreNotCached() {
+		productSetCache.configure(new ProductSetConfiguration().setCacheTtlSeconds(60));
+		HeroProductHandler.resolve(new ProductSet[] { set("shoes"), set("nike") }, searcher, context(1), productSetCache);
+		assertEquals(2, requests.size());
+
+		StaticProductSet[] resolved = HeroProductHandler.resolve(new ProductSet[] { set("nike") }, searcher, context(1), productSetCache);
+		assertEquals(3, requests.size());
+		assertArrayEquals(new String[] { "s1", "s2", "n1" }, resolved[0].getIds());
+	}
+
+	private static DynamicProductSet set(String query) {
+		return new DynamicProductSet().setName(query).setQuery(query).setLimit(3);
+	}
+
+	private static SearchContext context(int maxParallelResolutions) {
+		SearchConfiguration config = new SearchConfiguration()
+				.setProductSets(new ProductSetConfiguration().setMaxParallelResolutions(maxParallelResolutions));
+		return new SearchContext(new FieldConfigIndex(new FieldConfiguration()), config, Collections.emptyList());
+	}
+
+	private static SearchResult search(InternalSearchParams params) {
+		List<ResultHit> hits = new ArrayList<>();
+		for (String id : matchingIds.get(params.userQuery)) {
+			if (hits.size() < params.limit && (params.excludedIds == null || !params.excludedIds.contains(id))) {
+				hits.add(new ResultHit().setDocument(new Document(id)));
+			}
+		}
+		SearchResult result = new SearchResult();
+		result.slices.add(new SearchResultSlice().setHits(hits));
+		return result;
+	}
+}
@@ -0,0 +1,28 @@
+package de.cxp.ocs.elasticsearch.prodset;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import de.cxp.ocs.config.ProductSetConfiguration;
+import de.cxp.ocs.model.params.DynamicProductSet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ProductSetCacheTest {
+
+	private final ProductSetCache underTest = new ProductSetCache("test", new SimpleMeterRegistry());
+
+	@Test
+	public void testReconfigurationOnlyDropsIdsIfConfigChanged() {
+		underTest.configure(new ProductSetConfiguration().setCacheTtlSeconds(600));
+		String key = underTest.getKey(new DynamicProductSet().setQuery("shoes").setLimit(3));
+		underTest.put(key, new String[] { "1", "2", "3" }, 3);
+
+		underTest.configure(new ProductSetConfiguration().setCacheTtlSeconds(600));
+		assertTrue(underTest.get(key, 3).isPresent());
+
+		underTest.configure(new ProductSetConfiguration().setCacheTtlSeconds(300));
+		assertFalse(underTest.get(key, 3).isPresent());
+	}
+}
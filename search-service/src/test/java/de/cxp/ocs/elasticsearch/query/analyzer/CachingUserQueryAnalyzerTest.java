@@ -0,0 +1,56 @@
+package de.cxp.ocs.elasticsearch.query.analyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import de.cxp.ocs.elasticsearch.query.model.QueryStringTerm;
+import de.cxp.ocs.elasticsearch.query.model.WeightedWord;
+import de.cxp.ocs.elasticsearch.query.model.WordAssociation;
+import de.cxp.ocs.spi.search.UserQueryAnalyzer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CachingUserQueryAnalyzerTest {
+
+	private final AtomicInteger analyzeCalls = new AtomicInteger();
+
+	private final UserQueryAnalyzer delegate = userQuery -> {
+		analyzeCalls.incrementAndGet();
+		WeightedWord synonym = new WeightedWord("pants", 0.5f);
+		return Collections.singletonList(new WordAssociation(userQuery, Collections.singletonList(synonym)));
+	};
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private final CachingUserQueryAnalyzer underTest = new CachingUserQueryAnalyzer(delegate, 10, registry, "test");
+
+	@Test
+	public void testCachedTermsAreCopied() {
+		List<QueryStringTerm> firstTerms = underTest.analyze("trousers");
+		WeightedWord firstSynonym = (WeightedWord) ((WordAssociation) firstTerms.get(0)).getRelatedWords().get("pants");
+		firstSynonym.setFuzzy(true);
+
+		List<QueryStringTerm> secondTerms = underTest.analyze("trousers");
+		WeightedWord secondSynonym = (WeightedWord) ((WordAssociation) secondTerms.get(0)).getRelatedWords().get("pants");
+
+		assertEquals(1, analyzeCalls.get());
+		assertNotSame(firstSynonym, secondSynonym);
+		assertFalse(secondSynonym.isFuzzy());
+		assertEquals(0.5, registry.get("userQueryAnalyzerCacheHitRatio").gauge().value());
+	}
+
+	@Test
+	public void testInitializeInvalidatesCache() {
+		underTest.analyze("trousers");
+		underTest.initialize(Collections.emptyMap());
+		underTest.analyze("trousers");
+
+		assertEquals(2, analyzeCalls.get());
+	}
+}
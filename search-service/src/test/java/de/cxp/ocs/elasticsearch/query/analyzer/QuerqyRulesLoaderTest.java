@@ -0,0 +1,60 @@
+package de.cxp.ocs.elasticsearch.query.analyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class QuerqyRulesLoaderTest {
+
+	@Test
+	public void testChangedRulesAreReloaded() throws Exception {
+		Path rulesFile = Files.createTempFile("querqy_rules_reload.", ".txt");
+		Files.write(rulesFile, Arrays.asList("shirt =>", "  SYNONYM: top"));
+
+		QuerqyQueryExpander expander = new QuerqyQueryExpander();
+		expander.initialize(Collections.singletonMap("common_rules_url", rulesFile.toString()));
+		AtomicInteger reloads = new AtomicInteger();
+		expander.addReloadListener(reloads::incrementAndGet);
+		assertTrue(expander.analyze("shirt").get(0).toQueryString().contains("top"));
+
+		QuerqyRulesLoader underTest = new QuerqyRulesLoader(rulesFile.toString(), "test");
+		assertNotNull(underTest.loadIfChanged());
+		assertNull(underTest.loadIfChanged());
+
+		Files.write(rulesFile, Arrays.asList("shirt =>", "  SYNONYM: blouse"));
+		Files.setLastModifiedTime(rulesFile, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+		expander.setRewriteChain(underTest.loadIfChanged());
+
+		assertEquals(1, reloads.get());
+		String expandedQuery = expander.analyze("shirt").get(0).toQueryString();
+		assertTrue(expandedQuery.contains("blouse"));
+		assertFalse(expandedQuery.contains("top"));
+	}
+
+	@Test
+	public void testInvalidReloadIntervalIsIgnored() throws Exception {
+		Path rulesFile = Files.createTempFile("querqy_rules_interval.", ".txt");
+		Files.write(rulesFile, Arrays.asList("shirt =>", "  SYNONYM: top"));
+
+		Map<String, String> settings = new HashMap<>();
+		settings.put("common_rules_url", rulesFile.toString());
+		settings.put("rules_reload_interval_seconds", "5s");
+		QuerqyQueryExpander expander = new QuerqyQueryExpander();
+		expander.initialize(settings);
+
+		assertTrue(expander.analyze("shirt").get(0).toQueryString().contains("top"));
+	}
+}
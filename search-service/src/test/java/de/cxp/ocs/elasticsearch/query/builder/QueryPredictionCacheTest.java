@@ -0,0 +1,70 @@
+package de.cxp.ocs.elasticsearch.query.builder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import de.cxp.ocs.config.QueryProcessingConfiguration;
+import de.cxp.ocs.elasticsearch.query.model.QueryStringTerm;
+import de.cxp.ocs.elasticsearch.query.model.WeightedWord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class QueryPredictionCacheTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private final QueryPredictionCache underTest = new QueryPredictionCache(new QueryProcessingConfiguration().setQueryPredictionCacheSize(10), registry, "test");
+
+	private final AtomicInteger predictionCalls = new AtomicInteger();
+
+	@Test
+	public void testPredictionsAreCachedAsCopies() throws Exception {
+		String key = QueryPredictionCache.getKey(Collections.singletonList(new WeightedWord("shirt")), Collections.singletonMap("title", 2f), null);
+
+		List<PredictedQuery> firstPrediction = underTest.get(key, () -> predict(true));
+		firstPrediction.get(0).getUnknownTerms().clear();
+		List<PredictedQuery> secondPrediction = underTest.get(key, () -> predict(true));
+
+		assertEquals(1, predictionCalls.get());
+		assertNotSame(firstPrediction.get(0), secondPrediction.get(0));
+		assertEquals(1, secondPrediction.get(0).getUnknownTerms().size());
+		assertEquals(42, secondPrediction.get(0).getMatchCount());
+		assertEquals(1, registry.get("queryPredictionCacheHits").counter().count());
+
+		underTest.invalidate();
+		underTest.get(key, () -> predict(true));
+		assertEquals(2, predictionCalls.get());
+	}
+
+	@Test
+	public void testIncompletePredictionIsNotCached() throws Exception {
+		String key = QueryPredictionCache.getKey(Collections.singletonList(new WeightedWord("shirt")), Collections.singletonMap("title", 2f), null);
+
+		underTest.get(key, () -> predict(false));
+		underTest.get(key, () -> predict(false));
+
+		assertEquals(2, predictionCalls.get());
+	}
+
+	@Test
+	public void testKeyDependsOnFieldWeights() {
+		List<QueryStringTerm> terms = Collections.singletonList(new WeightedWord("shirt"));
+		assertNotEquals(QueryPredictionCache.getKey(terms, Collections.singletonMap("title", 2f), null),
+				QueryPredictionCache.getKey(terms, Collections.singletonMap("title", 3f), null));
+	}
+
+	private QueryPredictor.Prediction predict(boolean isComplete) {
+		predictionCalls.incrementAndGet();
+		PredictedQuery predictedQuery = new PredictedQuery();
+		predictedQuery.matchCount = 42;
+		predictedQuery.termsUnique.put("shirt", new WeightedWord("shirt"));
+		predictedQuery.unknownTerms.add(new WeightedWord("blue"));
+		return new QueryPredictor.Prediction(Collections.singletonList(predictedQuery), isComplete);
+	}
+}